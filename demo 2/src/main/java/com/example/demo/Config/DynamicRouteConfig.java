@@ -2,11 +2,30 @@
 package com.example.demo.Config;
 
 import com.example.demo.Entity.AllowedIp;
+import com.example.demo.Entity.CircuitBreakerSettings;
 import com.example.demo.Entity.GatewayRoute;
+import com.example.demo.Entity.RetrySettings;
+import com.example.demo.Entity.UpstreamTarget;
 import com.example.demo.Repository.GatewayRouteRepository;
+import com.example.demo.Repository.UpstreamTargetRepository;
+import com.example.demo.Filter.CircuitBreakerGatewayFilterFactory;
 import com.example.demo.Filter.IpValidationGatewayFilterFactory;
+import com.example.demo.Filter.RetryPolicyGatewayFilterFactory;
 import com.example.demo.Filter.TokenValidationGatewayFilterFactory;
 import com.example.demo.Filter.SimpleRateLimitGatewayFilterFactory;
+import com.example.demo.Jfr.ConfigReloadEvent;
+import com.example.demo.Jwt.ClaimsPolicy;
+import com.example.demo.Metrics.RouteMetrics;
+import com.example.demo.Metrics.RouteMetricsRegistry;
+import com.example.demo.Upstream.CircuitBreaker;
+import com.example.demo.Upstream.CircuitBreakerRegistry;
+import com.example.demo.Upstream.HashKey;
+import com.example.demo.Upstream.RetryPolicy;
+import com.example.demo.Upstream.RetryPolicyRegistry;
+import com.example.demo.Upstream.UpstreamPool;
+import com.example.demo.Upstream.UpstreamPoolRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cloud.gateway.event.RefreshRoutesEvent;
 import org.springframework.cloud.gateway.handler.predicate.PathRoutePredicateFactory;
@@ -25,6 +44,7 @@ import java.util.*;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Configuration
 public class DynamicRouteConfig {
 
@@ -36,12 +56,24 @@ public class DynamicRouteConfig {
             GatewayRouteRepository repo,
             IpValidationGatewayFilterFactory ipFactory,
             TokenValidationGatewayFilterFactory tokenFactory,
-            SimpleRateLimitGatewayFilterFactory rlFactory
+            SimpleRateLimitGatewayFilterFactory rlFactory,
+            ObjectMapper objectMapper,
+            RouteMetricsRegistry metricsRegistry,
+            UpstreamTargetRepository targetRepo,
+            UpstreamPoolRegistry upstreamPools,
+            CircuitBreakerGatewayFilterFactory cbFactory,
+            CircuitBreakerRegistry circuitBreakers,
+            RetryPolicyGatewayFilterFactory retryFactory,
+            RetryPolicyRegistry retryPolicies
     ) {
         return () -> Flux.defer(() -> {
+            ConfigReloadEvent reload = new ConfigReloadEvent();
+            reload.begin();
 
             /* ---------- pull & sort routes --------------- */
             List<GatewayRoute> dbRoutes = repo.findAll();
+            Map<Long, List<UpstreamTarget>> targetsByRoute = targetRepo.findAllOrdered().stream()
+                    .collect(Collectors.groupingBy(t -> t.getGatewayRoute().getId()));
             // Longer predicate first  →  “/server-final2/**” before “/server-final/**”
             dbRoutes.sort(Comparator.comparingInt((GatewayRoute r) ->
                     r.getPredicates() == null ? 0 : r.getPredicates().length()).reversed());
@@ -72,7 +104,20 @@ public class DynamicRouteConfig {
                         .predicate(pathPred)
                         .metadata("withIpFilter", r.getWithIpFilter())
                         .metadata("withToken",    r.getWithToken())
-                        .metadata("withRateLimit",r.getWithRateLimit());
+                        .metadata("withRateLimit",r.getWithRateLimit())
+                        .metadata(RouteMetrics.METADATA_KEY, metricsRegistry.forRoute(routeId));
+
+                // Several upstream targets: UpstreamLoadBalancerFilter picks one per request.
+                UpstreamPool pool = upstreamPools.update(routeId, r.getLoadBalancing(),
+                        targetsByRoute.getOrDefault(r.getId(), Collections.emptyList()));
+                if (pool != null) {
+                    b.metadata(UpstreamPool.METADATA_KEY, pool);
+                    if (pool.getHashKey() != null && pool.getHashKey().getSource() == HashKey.Source.CLIENT_ID
+                            && !Boolean.TRUE.equals(r.getWithToken())) {
+                        log.warn("Route {} hashes on client_id but has no token filter; requests will hash on the client IP",
+                                routeId);
+                    }
+                }
 
                 if (Boolean.TRUE.equals(r.getWithIpFilter())) {
                     List<String> ips = r.getAllowedIps() == null ? Collections.emptyList()
@@ -81,6 +126,17 @@ public class DynamicRouteConfig {
                             .filter(ipFactory.apply((Void) null));
                 }
                 if (Boolean.TRUE.equals(r.getWithToken())) {
+                    // Compiled here, once per route build, so requests only run the predicates.
+                    ClaimsPolicy policy;
+                    try {
+                        policy = ClaimsPolicy.compile(r.getAuthPolicy(), objectMapper);
+                    } catch (IllegalArgumentException e) {
+                        log.warn("Route {} has an invalid auth policy, denying all requests: {}", routeId, e.getMessage());
+                        policy = ClaimsPolicy.denyAll();
+                    }
+                    if (policy != null) {
+                        b.metadata(ClaimsPolicy.METADATA_KEY, policy);
+                    }
                     b.filter(tokenFactory.apply((Void) null));
                 }
                 if (Boolean.TRUE.equals(r.getWithRateLimit()) && r.getRateLimit() != null) {
@@ -88,8 +144,37 @@ public class DynamicRouteConfig {
                             .metadata("timeWindowMs", r.getRateLimit().getTimeWindowMs())
                             .filter(rlFactory.apply((Void) null));
                 }
+                // Without a settings row the route retries with the gateway defaults.
+                if (Boolean.TRUE.equals(r.getWithRetry())) {
+                    RetrySettings settings = r.getRetry() != null ? r.getRetry() : new RetrySettings();
+                    b.metadata(RetryPolicy.METADATA_KEY, retryPolicies.update(routeId, settings))
+                            .filter(retryFactory.apply((Void) null));
+                }
+                // Without a settings row the breaker takes the gateway defaults.
+                if (Boolean.TRUE.equals(r.getWithCircuitBreaker())) {
+                    CircuitBreakerSettings settings = r.getCircuitBreaker() != null
+                            ? r.getCircuitBreaker() : new CircuitBreakerSettings();
+                    b.metadata(CircuitBreaker.METADATA_KEY, circuitBreakers.update(routeId, settings))
+                            .filter(cbFactory.apply((Void) null));
+                }
                 routeDefs.add(b.build());
             }
+            List<String> builtIds = routeDefs.stream().map(Route::getId).collect(Collectors.toList());
+            metricsRegistry.retain(builtIds);
+            upstreamPools.retain(builtIds);
+            circuitBreakers.retain(routeDefs.stream()
+                    .filter(route -> route.getMetadata().containsKey(CircuitBreaker.METADATA_KEY))
+                    .map(Route::getId).collect(Collectors.toList()));
+            retryPolicies.retain(routeDefs.stream()
+                    .filter(route -> route.getMetadata().containsKey(RetryPolicy.METADATA_KEY))
+                    .map(Route::getId).collect(Collectors.toList()));
+            if (reload.shouldCommit()) {
+                reload.databaseRoutes = dbRoutes.size();
+                reload.routesBuilt = routeDefs.size();
+                reload.allowedIps = dbRoutes.stream()
+                        .mapToInt(r -> r.getAllowedIps() == null ? 0 : r.getAllowedIps().size()).sum();
+                reload.commit();
+            }
             return Flux.fromIterable(routeDefs);
 
         }).subscribeOn(Schedulers.boundedElastic());
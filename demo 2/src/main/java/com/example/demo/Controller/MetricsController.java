@@ -1,12 +1,191 @@
 package com.example.demo.Controller;
 
+import com.example.demo.Db.MetricsHistoryService;
 import com.example.demo.Filter.RequestCountFilter;
+import com.example.demo.Metrics.HeavyHitterTracker;
+import com.example.demo.Metrics.MetricsStream;
+import com.example.demo.Metrics.RouteMetrics;
+import com.example.demo.Metrics.RouteMetricsRegistry;
+import com.example.demo.Metrics.UniqueClientTracker;
+import com.example.demo.Upstream.CircuitBreaker;
+import com.example.demo.Upstream.CircuitBreakerRegistry;
+import com.example.demo.Upstream.RetryBudget;
+import com.example.demo.Upstream.RetryPolicyRegistry;
+import com.example.demo.Upstream.UpstreamPool;
+import com.example.demo.Upstream.UpstreamPoolRegistry;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
 
 @RestController
 public class MetricsController {
 
+    private final RouteMetricsRegistry routeMetricsRegistry;
+    private final MetricsStream metricsStream;
+    private final MetricsHistoryService metricsHistoryService;
+    private final HeavyHitterTracker heavyHitterTracker;
+    private final UniqueClientTracker uniqueClientTracker;
+    private final UpstreamPoolRegistry upstreamPoolRegistry;
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final RetryPolicyRegistry retryPolicyRegistry;
+
+    public MetricsController(RouteMetricsRegistry routeMetricsRegistry,
+                             MetricsStream metricsStream,
+                             MetricsHistoryService metricsHistoryService,
+                             HeavyHitterTracker heavyHitterTracker,
+                             UniqueClientTracker uniqueClientTracker,
+                             UpstreamPoolRegistry upstreamPoolRegistry,
+                             CircuitBreakerRegistry circuitBreakerRegistry,
+                             RetryPolicyRegistry retryPolicyRegistry) {
+        this.routeMetricsRegistry = routeMetricsRegistry;
+        this.metricsStream = metricsStream;
+        this.metricsHistoryService = metricsHistoryService;
+        this.heavyHitterTracker = heavyHitterTracker;
+        this.uniqueClientTracker = uniqueClientTracker;
+        this.upstreamPoolRegistry = upstreamPoolRegistry;
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+        this.retryPolicyRegistry = retryPolicyRegistry;
+    }
+
+    // Endpoint for rejections per reason (ip_denied, token_missing, rate_limited, upstream_error...),
+    // gateway-wide and per route. window=current is the minute in progress, window=previous the last complete one.
+    @GetMapping("/api/metrics/rejections")
+    public RejectionBreakdownResponse getRejections(@RequestParam(defaultValue = "current") String window) {
+        boolean previous = "previous".equalsIgnoreCase(window);
+        return new RejectionBreakdownResponse(
+                RequestCountFilter.getRejectionReasons(previous),
+                routeMetricsRegistry.rejectionSnapshot(previous));
+    }
+
+    // DTO for the per-minute rejection breakdown.
+    public static class RejectionBreakdownResponse {
+        private final Map<String, Long> gateway;
+        private final Map<String, Map<String, Long>> routes;
+
+        public RejectionBreakdownResponse(Map<String, Long> gateway, Map<String, Map<String, Long>> routes) {
+            this.gateway = gateway;
+            this.routes = routes;
+        }
+
+        public Map<String, Long> getGateway() {
+            return gateway;
+        }
+
+        public Map<String, Map<String, Long>> getRoutes() {
+            return routes;
+        }
+    }
+
+    // Endpoint for distinct client IPs per route. granularity is minute, hour or day (UTC-aligned);
+    // window=previous is the last complete bucket. sketches=true adds the base64 HyperLogLog registers.
+    @GetMapping("/api/metrics/unique-clients")
+    public UniqueClientTracker.UniqueClientsSnapshot getUniqueClients(
+            @RequestParam(defaultValue = "minute") String granularity,
+            @RequestParam(defaultValue = "current") String window,
+            @RequestParam(defaultValue = "false") boolean sketches) {
+        try {
+            return uniqueClientTracker.snapshot(UniqueClientTracker.Granularity.parse(granularity),
+                    "previous".equalsIgnoreCase(window), sketches);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    // Merges sketches from several gateway nodes (or several buckets) into one distinct-client estimate.
+    @PostMapping("/api/metrics/unique-clients/merge")
+    public UniqueClientTracker.RouteEstimate mergeUniqueClients(@RequestBody List<String> sketches) {
+        try {
+            return uniqueClientTracker.merge(sketches);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    // Endpoint for the heaviest client IPs, client ids and routes, accepted vs rejected.
+    // window=current is the minute in progress, window=previous the last complete minute.
+    @GetMapping("/api/metrics/heavy-hitters")
+    public Map<String, Map<String, Object>> getHeavyHitters(
+            @RequestParam(defaultValue = "current") String window,
+            @RequestParam(defaultValue = "10") int limit) {
+        return heavyHitterTracker.snapshot(Math.max(1, limit), "previous".equalsIgnoreCase(window));
+    }
+
+    // Endpoint for persisted traffic history. from/to are epoch milliseconds (default: the last hour);
+    // resolution is 1s, 1m or 1h, chosen from the range when omitted. No route means all routes.
+    @GetMapping("/api/metrics/history")
+    public Mono<List<MetricsHistoryService.HistoryPoint>> getHistory(
+            @RequestParam(required = false) String route,
+            @RequestParam(required = false) String resolution,
+            @RequestParam(required = false) Long from,
+            @RequestParam(required = false) Long to) {
+        Instant end = to != null ? Instant.ofEpochMilli(to) : Instant.now();
+        Instant start = from != null ? Instant.ofEpochMilli(from) : end.minusSeconds(3600);
+        if (!start.isBefore(end)) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must be before to"));
+        }
+        return Mono.fromCallable(() -> metricsHistoryService.query(route, resolution, start, end))
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorMap(IllegalArgumentException.class,
+                        e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage()));
+    }
+
+    // Server-Sent Events: one shared snapshot per tick, pushed to every connected dashboard.
+    @GetMapping(value = "/api/metrics/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<MetricsStream.MetricsSnapshot>> streamMetrics() {
+        return metricsStream.subscribe()
+                .map(snapshot -> ServerSentEvent.builder(snapshot).event("metrics").build());
+    }
+
+    // Endpoint for per-route latency percentiles (microseconds), split by status class.
+    // window=interval covers the last closed interval, window=total everything since startup.
+    @GetMapping("/api/metrics/latency")
+    public Map<String, Map<String, RouteMetrics.LatencySummary>> getLatency(
+            @RequestParam(defaultValue = "interval") String window) {
+        return routeMetricsRegistry.snapshot("total".equalsIgnoreCase(window));
+    }
+
+    // Endpoint for per-route time spent in each stage (microseconds): route match, ip, token, ratelimit
+    // (gateway overhead) versus connect, upstream first byte and response (upstream time).
+    @GetMapping("/api/metrics/stages")
+    public Map<String, Map<String, RouteMetrics.LatencySummary>> getStages(
+            @RequestParam(defaultValue = "interval") String window) {
+        return routeMetricsRegistry.stageSnapshot("total".equalsIgnoreCase(window));
+    }
+
+    // Endpoint for the upstream targets of load-balanced routes: policy, weight, requests in flight,
+    // latency average (ms), requests and failures per target.
+    @GetMapping("/api/metrics/upstreams")
+    public Map<String, UpstreamPool.PoolSnapshot> getUpstreams() {
+        return upstreamPoolRegistry.snapshot();
+    }
+
+    // Endpoint for the circuit breakers of routes that have one: state, calls in the window,
+    // failure and slow-call rates (%), time until half-open, times opened and requests refused.
+    @GetMapping("/api/metrics/circuit-breakers")
+    public Map<String, CircuitBreaker.Snapshot> getCircuitBreakers() {
+        return circuitBreakerRegistry.snapshot();
+    }
+
+    // Endpoint for the retries of routes with a retry policy: requests, retries, retries refused by
+    // the budget, requests recovered by a retry, requests out of attempts, and tokens left.
+    @GetMapping("/api/metrics/retries")
+    public Map<String, RetryBudget> getRetries() {
+        return retryPolicyRegistry.snapshot();
+    }
+
     // Endpoint for total request counts.
     @GetMapping("/api/metrics/requests")
     public RequestCountResponse getTotalRequests() {
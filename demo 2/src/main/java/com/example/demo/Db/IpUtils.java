@@ -6,23 +6,26 @@ import java.net.InetSocketAddress;
 public class IpUtils {
 
     public static String getClientIp(ServerHttpRequest request) {
+        return getClientIp(request.getHeaders().getFirst("X-Forwarded-For"), request.getRemoteAddress());
+    }
+
+    /**
+     * The same, from values captured off the request, for code that runs after the exchange.
+     */
+    public static String getClientIp(String forwardedFor, InetSocketAddress remoteAddress) {
         // Check for X-Forwarded-For header first.
-        String forwardedFor = request.getHeaders().getFirst("X-Forwarded-For");
         if (forwardedFor != null && !forwardedFor.isEmpty()) {
-            String ipFromHeader = forwardedFor.split(",")[0].trim();
-            System.out.println("Extracted client IP from X-Forwarded-For: " + ipFromHeader);
+            int comma = forwardedFor.indexOf(',');
+            String ipFromHeader = (comma < 0 ? forwardedFor : forwardedFor.substring(0, comma)).trim();
             return normalizeLoopback(ipFromHeader);
         }
 
         // Fallback to remote address.
-        InetSocketAddress remoteAddress = request.getRemoteAddress();
         if (remoteAddress != null) {
             String ipFromRemote = remoteAddress.getAddress().getHostAddress();
-            System.out.println("Extracted client IP from remoteAddress: " + ipFromRemote);
             return normalizeLoopback(ipFromRemote);
         }
 
-        System.out.println("Extracted client IP: UNKNOWN");
         return "UNKNOWN";
     }
 
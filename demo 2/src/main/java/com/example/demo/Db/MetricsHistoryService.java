@@ -0,0 +1,224 @@
+package com.example.demo.Db;
+
+import com.example.demo.Metrics.RouteMetrics;
+import com.example.demo.Metrics.RouteMetricsRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps route traffic beyond the two minutes held in memory. Every few seconds the closed
+ * seconds of each route's counters are written to gateway.metrics_history in one JDBC
+ * batch; a rollup job folds them into 1-minute and 1-hour rows and a retention job trims
+ * each resolution to its own horizon.
+ *
+ * Scheduled methods only collect rows; all database work runs on one dedicated thread, so
+ * neither the request path nor the shared scheduler ever waits on Postgres.
+ */
+@Slf4j
+@Service
+public class MetricsHistoryService {
+
+    public static final String SECOND = "1s";
+    public static final String MINUTE = "1m";
+    public static final String HOUR = "1h";
+
+    // Every gateway node writes its own counts for the same second; they add up into one row.
+    // Each second is flushed once per node and a failed batch is dropped, never replayed.
+    private static final String INSERT_SQL =
+            "INSERT INTO gateway.metrics_history (resolution, route_id, bucket_start, requests, rejected, latency_sum_micros) " +
+                    "VALUES (?, ?, ?, ?, ?, ?) " +
+                    "ON CONFLICT (resolution, route_id, bucket_start) DO UPDATE SET " +
+                    "requests = metrics_history.requests + EXCLUDED.requests, " +
+                    "rejected = metrics_history.rejected + EXCLUDED.rejected, " +
+                    "latency_sum_micros = metrics_history.latency_sum_micros + EXCLUDED.latency_sum_micros";
+
+    // Recomputes whole buckets, so running it again over the same range is harmless.
+    private static final String ROLLUP_SQL =
+            "INSERT INTO gateway.metrics_history (resolution, route_id, bucket_start, requests, rejected, latency_sum_micros) " +
+                    "SELECT ?, route_id, to_timestamp(floor(extract(epoch FROM bucket_start) / ?) * ?) AS bucket, " +
+                    "       sum(requests), sum(rejected), sum(latency_sum_micros) " +
+                    "FROM gateway.metrics_history " +
+                    "WHERE resolution = ? AND bucket_start >= ? AND bucket_start < ? " +
+                    "GROUP BY route_id, bucket " +
+                    "ON CONFLICT (resolution, route_id, bucket_start) DO UPDATE SET " +
+                    "requests = EXCLUDED.requests, rejected = EXCLUDED.rejected, latency_sum_micros = EXCLUDED.latency_sum_micros";
+
+    private static final String DELETE_SQL =
+            "DELETE FROM gateway.metrics_history WHERE resolution = ? AND bucket_start < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RouteMetricsRegistry registry;
+    private final boolean enabled;
+    private final Duration secondRetention;
+    private final Duration minuteRetention;
+    private final Duration hourRetention;
+    private final int maxPoints;
+    private final Scheduler writer = Schedulers.newSingle("metrics-history");
+
+    // Last second already handed to the writer; only touched by the scheduling thread.
+    private long flushedThroughSecond = System.currentTimeMillis() / 1000 - 1;
+
+    public MetricsHistoryService(JdbcTemplate jdbcTemplate,
+                                 RouteMetricsRegistry registry,
+                                 @Value("${gateway.metrics.history.enabled:true}") boolean enabled,
+                                 @Value("${gateway.metrics.history.retention-1s:6h}") Duration secondRetention,
+                                 @Value("${gateway.metrics.history.retention-1m:7d}") Duration minuteRetention,
+                                 @Value("${gateway.metrics.history.retention-1h:90d}") Duration hourRetention,
+                                 @Value("${gateway.metrics.history.max-points:5000}") int maxPoints) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.registry = registry;
+        this.enabled = enabled;
+        // Rollups re-read the last 5 minutes of seconds and 3 hours of minutes.
+        this.secondRetention = max(secondRetention, Duration.ofMinutes(10));
+        this.minuteRetention = max(minuteRetention, Duration.ofHours(4));
+        this.hourRetention = hourRetention;
+        this.maxPoints = maxPoints;
+    }
+
+    @Scheduled(fixedDelayString = "${gateway.metrics.history.flush-interval-ms:10000}")
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        // A second is complete once the clock is two seconds past it.
+        long through = System.currentTimeMillis() / 1000 - 2;
+        long from = Math.max(flushedThroughSecond + 1, through - 110);
+        if (through < from) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>();
+        for (RouteMetrics route : registry.all()) {
+            for (long second = from; second <= through; second++) {
+                long requests = route.getRequestsPerSecond().get(second);
+                if (requests == 0) {
+                    continue;
+                }
+                rows.add(new Object[]{SECOND, route.getRouteId(), new Timestamp(second * 1000), requests,
+                        route.getRejectedPerSecond().get(second), route.getLatencyMicrosPerSecond().get(second)});
+            }
+        }
+        flushedThroughSecond = through;
+        if (!rows.isEmpty()) {
+            writer.schedule(() -> write(rows));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${gateway.metrics.history.rollup-interval-ms:60000}")
+    public void rollupAndTrim() {
+        if (!enabled) {
+            return;
+        }
+        writer.schedule(() -> {
+            try {
+                long now = System.currentTimeMillis() / 1000;
+                long minuteStart = now - now % 60;
+                long hourStart = now - now % 3600;
+                int minutes = rollup(MINUTE, 60, SECOND, minuteStart - 5 * 60, minuteStart);
+                int hours = rollup(HOUR, 3600, MINUTE, hourStart - 3 * 3600, hourStart);
+
+                Instant nowInstant = Instant.ofEpochSecond(now);
+                int deleted = jdbcTemplate.update(DELETE_SQL, SECOND, Timestamp.from(nowInstant.minus(secondRetention)))
+                        + jdbcTemplate.update(DELETE_SQL, MINUTE, Timestamp.from(nowInstant.minus(minuteRetention)))
+                        + jdbcTemplate.update(DELETE_SQL, HOUR, Timestamp.from(nowInstant.minus(hourRetention)));
+                log.debug("Metrics history rollup: {} minute and {} hour buckets, {} expired rows removed",
+                        minutes, hours, deleted);
+            } catch (Exception e) {
+                log.warn("Metrics history rollup failed: {}", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Traffic over {@code [from, to)}, summed over all routes when {@code routeId} is null.
+     * Without an explicit resolution the finest one that keeps the range affordable is used.
+     */
+    public List<HistoryPoint> query(String routeId, String resolution, Instant from, Instant to) {
+        String effective = resolution != null ? resolution : resolutionFor(Duration.between(from, to));
+        if (!SECOND.equals(effective) && !MINUTE.equals(effective) && !HOUR.equals(effective)) {
+            throw new IllegalArgumentException("Unknown resolution: " + resolution);
+        }
+        StringBuilder sql = new StringBuilder(
+                "SELECT bucket_start, sum(requests), sum(rejected), sum(latency_sum_micros) " +
+                        "FROM gateway.metrics_history WHERE resolution = ? AND bucket_start >= ? AND bucket_start < ?");
+        List<Object> args = new ArrayList<>(List.of(effective, Timestamp.from(from), Timestamp.from(to)));
+        if (routeId != null) {
+            sql.append(" AND route_id = ?");
+            args.add(routeId);
+        }
+        sql.append(" GROUP BY bucket_start ORDER BY bucket_start LIMIT ?");
+        args.add(maxPoints);
+        return jdbcTemplate.query(sql.toString(), (rs, i) -> new HistoryPoint(
+                rs.getTimestamp(1).getTime(), rs.getLong(2), rs.getLong(3), rs.getLong(4)), args.toArray());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writer.dispose();
+    }
+
+    private void write(List<Object[]> rows) {
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+            log.debug("Wrote {} metrics history rows", rows.size());
+        } catch (Exception e) {
+            log.warn("Dropping {} metrics history rows: {}", rows.size(), e.getMessage());
+        }
+    }
+
+    private int rollup(String target, int bucketSeconds, String source, long fromSecond, long toSecond) {
+        return jdbcTemplate.update(ROLLUP_SQL, target, bucketSeconds, bucketSeconds, source,
+                new Timestamp(fromSecond * 1000), new Timestamp(toSecond * 1000));
+    }
+
+    private static String resolutionFor(Duration range) {
+        if (range.compareTo(Duration.ofHours(1)) <= 0) return SECOND;
+        if (range.compareTo(Duration.ofDays(3)) <= 0) return MINUTE;
+        return HOUR;
+    }
+
+    private static Duration max(Duration a, Duration b) {
+        return a.compareTo(b) >= 0 ? a : b;
+    }
+
+    public static class HistoryPoint {
+        private final long timestamp;
+        private final long requests;
+        private final long rejected;
+        private final long meanLatencyMicros;
+
+        public HistoryPoint(long timestamp, long requests, long rejected, long latencySumMicros) {
+            this.timestamp = timestamp;
+            this.requests = requests;
+            this.rejected = rejected;
+            this.meanLatencyMicros = requests == 0 ? 0 : latencySumMicros / requests;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public long getRequests() {
+            return requests;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public long getMeanLatencyMicros() {
+            return meanLatencyMicros;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.demo.Entity;
+
+import jakarta.persistence.*;
+
+/**
+ * Circuit breaker thresholds of a route (see Upstream.CircuitBreaker). Unset fields take
+ * the gateway's defaults.
+ */
+@Entity
+@Table(name = "circuit_breaker_settings", schema = "gateway")
+public class CircuitBreakerSettings {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // This field references the 'id' of the GatewayRoute table
+    private Long routeId;
+
+    // Open when this percentage of the calls in the window failed (error or 5xx)
+    private Integer failureRateThreshold;
+    // ... or when this percentage took longer than slowCallDurationMs
+    private Integer slowCallRateThreshold;
+    private Integer slowCallDurationMs;
+    // Sliding window of the last windowSize calls; no decision before minimumCalls
+    private Integer windowSize;
+    private Integer minimumCalls;
+    // How long to stay open before letting halfOpenCalls trial requests through
+    private Integer openDurationMs;
+    private Integer halfOpenCalls;
+
+    public CircuitBreakerSettings() {}
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getRouteId() {
+        return routeId;
+    }
+    public void setRouteId(Long routeId) {
+        this.routeId = routeId;
+    }
+
+    public Integer getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+    public void setFailureRateThreshold(Integer failureRateThreshold) {
+        this.failureRateThreshold = failureRateThreshold;
+    }
+
+    public Integer getSlowCallRateThreshold() {
+        return slowCallRateThreshold;
+    }
+    public void setSlowCallRateThreshold(Integer slowCallRateThreshold) {
+        this.slowCallRateThreshold = slowCallRateThreshold;
+    }
+
+    public Integer getSlowCallDurationMs() {
+        return slowCallDurationMs;
+    }
+    public void setSlowCallDurationMs(Integer slowCallDurationMs) {
+        this.slowCallDurationMs = slowCallDurationMs;
+    }
+
+    public Integer getWindowSize() {
+        return windowSize;
+    }
+    public void setWindowSize(Integer windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    public Integer getMinimumCalls() {
+        return minimumCalls;
+    }
+    public void setMinimumCalls(Integer minimumCalls) {
+        this.minimumCalls = minimumCalls;
+    }
+
+    public Integer getOpenDurationMs() {
+        return openDurationMs;
+    }
+    public void setOpenDurationMs(Integer openDurationMs) {
+        this.openDurationMs = openDurationMs;
+    }
+
+    public Integer getHalfOpenCalls() {
+        return halfOpenCalls;
+    }
+    public void setHalfOpenCalls(Integer halfOpenCalls) {
+        this.halfOpenCalls = halfOpenCalls;
+    }
+}
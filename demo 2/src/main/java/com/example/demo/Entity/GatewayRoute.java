@@ -21,11 +21,28 @@ public class GatewayRoute {
     private Boolean withIpFilter;
     private Boolean withToken;
     private Boolean withRateLimit; // New field
+    private Boolean withCircuitBreaker;
+    private Boolean withRetry;
+
+    // JSON claim requirements checked after token validation, see Jwt.ClaimsPolicy
+    @Column(length = 2000)
+    private String authPolicy;
+
+    // How requests are spread over the route's upstream targets: p2c, round_robin or ewma
+    private String loadBalancing;
 
     @OneToOne(cascade = CascadeType.ALL)
     @JoinColumn(name = "rate_limit_id")
     private RateLimit rateLimit;
 
+    @OneToOne(cascade = CascadeType.ALL)
+    @JoinColumn(name = "circuit_breaker_id")
+    private CircuitBreakerSettings circuitBreaker;
+
+    @OneToOne(cascade = CascadeType.ALL)
+    @JoinColumn(name = "retry_id")
+    private RetrySettings retry;
+
     @OneToMany(mappedBy = "gatewayRoute", cascade = CascadeType.ALL, fetch = FetchType.EAGER)
     private List<AllowedIp> allowedIps = new ArrayList<>();
 
@@ -76,6 +93,34 @@ public class GatewayRoute {
         this.withRateLimit = withRateLimit;
     }
 
+    public Boolean getWithCircuitBreaker() {
+        return withCircuitBreaker;
+    }
+    public void setWithCircuitBreaker(Boolean withCircuitBreaker) {
+        this.withCircuitBreaker = withCircuitBreaker;
+    }
+
+    public Boolean getWithRetry() {
+        return withRetry;
+    }
+    public void setWithRetry(Boolean withRetry) {
+        this.withRetry = withRetry;
+    }
+
+    public String getAuthPolicy() {
+        return authPolicy;
+    }
+    public void setAuthPolicy(String authPolicy) {
+        this.authPolicy = authPolicy;
+    }
+
+    public String getLoadBalancing() {
+        return loadBalancing;
+    }
+    public void setLoadBalancing(String loadBalancing) {
+        this.loadBalancing = loadBalancing;
+    }
+
     public RateLimit getRateLimit() {
         return rateLimit;
     }
@@ -83,6 +128,20 @@ public class GatewayRoute {
         this.rateLimit = rateLimit;
     }
 
+    public CircuitBreakerSettings getCircuitBreaker() {
+        return circuitBreaker;
+    }
+    public void setCircuitBreaker(CircuitBreakerSettings circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    public RetrySettings getRetry() {
+        return retry;
+    }
+    public void setRetry(RetrySettings retry) {
+        this.retry = retry;
+    }
+
     public List<AllowedIp> getAllowedIps() {
         return allowedIps;
     }
@@ -0,0 +1,83 @@
+package com.example.demo.Entity;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * One time bucket of a route's traffic. Rows are written and rolled up with plain JDBC by
+ * MetricsHistoryService; the entity exists so the table and its index are managed with
+ * the rest of the gateway schema.
+ */
+@Entity
+@Table(name = "metrics_history", schema = "gateway",
+        uniqueConstraints = @UniqueConstraint(name = "uk_metrics_history_bucket",
+                columnNames = {"resolution", "route_id", "bucket_start"}))
+public class MetricsHistory {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // "1s", "1m" or "1h"
+    @Column(nullable = false, length = 4)
+    private String resolution;
+
+    @Column(nullable = false)
+    private String routeId;
+
+    @Column(nullable = false)
+    private Instant bucketStart;
+
+    private Long requests;
+    private Long rejected;
+
+    // Sum of request latencies in the bucket; divide by requests for the mean.
+    private Long latencySumMicros;
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getResolution() {
+        return resolution;
+    }
+    public void setResolution(String resolution) {
+        this.resolution = resolution;
+    }
+
+    public String getRouteId() {
+        return routeId;
+    }
+    public void setRouteId(String routeId) {
+        this.routeId = routeId;
+    }
+
+    public Instant getBucketStart() {
+        return bucketStart;
+    }
+    public void setBucketStart(Instant bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    public Long getRequests() {
+        return requests;
+    }
+    public void setRequests(Long requests) {
+        this.requests = requests;
+    }
+
+    public Long getRejected() {
+        return rejected;
+    }
+    public void setRejected(Long rejected) {
+        this.rejected = rejected;
+    }
+
+    public Long getLatencySumMicros() {
+        return latencySumMicros;
+    }
+    public void setLatencySumMicros(Long latencySumMicros) {
+        this.latencySumMicros = latencySumMicros;
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.demo.Entity;
+
+import jakarta.persistence.*;
+
+/**
+ * Retry policy of a route (see Filter.RetryPolicyGatewayFilterFactory). Unset fields take
+ * the gateway's defaults.
+ */
+@Entity
+@Table(name = "retry_settings", schema = "gateway")
+public class RetrySettings {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // This field references the 'id' of the GatewayRoute table
+    private Long routeId;
+
+    // Attempts in total, the first one included
+    private Integer maxAttempts;
+    // Comma separated statuses worth another attempt, e.g. "502,503,504"
+    private String retryableStatuses;
+    // Backoff before the n-th retry: backoffMs * 2^(n-1), at most maxBackoffMs, jittered
+    private Integer backoffMs;
+    private Integer maxBackoffMs;
+
+    public RetrySettings() {}
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getRouteId() {
+        return routeId;
+    }
+    public void setRouteId(Long routeId) {
+        this.routeId = routeId;
+    }
+
+    public Integer getMaxAttempts() {
+        return maxAttempts;
+    }
+    public void setMaxAttempts(Integer maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public String getRetryableStatuses() {
+        return retryableStatuses;
+    }
+    public void setRetryableStatuses(String retryableStatuses) {
+        this.retryableStatuses = retryableStatuses;
+    }
+
+    public Integer getBackoffMs() {
+        return backoffMs;
+    }
+    public void setBackoffMs(Integer backoffMs) {
+        this.backoffMs = backoffMs;
+    }
+
+    public Integer getMaxBackoffMs() {
+        return maxBackoffMs;
+    }
+    public void setMaxBackoffMs(Integer maxBackoffMs) {
+        this.maxBackoffMs = maxBackoffMs;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.demo.Entity;
+
+import jakarta.persistence.*;
+
+/**
+ * One upstream instance behind a route. A route with targets is load balanced across them
+ * (see Upstream.UpstreamPool); a route without any keeps sending everything to its uri.
+ */
+@Entity
+@Table(name = "upstream_targets", schema = "gateway")
+public class UpstreamTarget {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // e.g. http://localhost:8050; the scheme defaults to http
+    private String uri;
+
+    // Relative share of the route's traffic; 0 drains the target
+    private Integer weight;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "gateway_route_id")
+    private GatewayRoute gatewayRoute;
+
+    // Getters & Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getUri() {
+        return uri;
+    }
+
+    public void setUri(String uri) {
+        this.uri = uri;
+    }
+
+    public Integer getWeight() {
+        return weight;
+    }
+
+    public void setWeight(Integer weight) {
+        this.weight = weight;
+    }
+
+    public GatewayRoute getGatewayRoute() {
+        return gatewayRoute;
+    }
+
+    public void setGatewayRoute(GatewayRoute gatewayRoute) {
+        this.gatewayRoute = gatewayRoute;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.demo.Filter;
+
+import com.example.demo.Jwt.LazyClaims;
+import com.example.demo.Logging.AccessLog;
+import com.example.demo.Tracing.TraceContext;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Hands every completed exchange to the {@link AccessLog}. Only the few request fields the
+ * line needs are copied; formatting and I/O happen on the access log's writer thread.
+ */
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@Component
+public class AccessLogFilter implements WebFilter {
+
+    private final AccessLog accessLog;
+
+    public AccessLogFilter(AccessLog accessLog) {
+        this.accessLog = accessLog;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        long start = System.nanoTime();
+        return chain.filter(exchange)
+                .doFinally(signalType -> {
+                    HttpStatusCode status = exchange.getResponse().getStatusCode();
+                    int code = status != null ? status.value() : (signalType == SignalType.ON_ERROR ? 500 : 0);
+                    Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+                    LazyClaims claims = exchange.getAttribute(LazyClaims.ATTRIBUTE);
+                    accessLog.offer(exchange.getRequest(), route != null ? route.getId() : null,
+                            code, (System.nanoTime() - start) / 1000, claims,
+                            exchange.getAttribute(TraceContext.ATTRIBUTE));
+                });
+    }
+}
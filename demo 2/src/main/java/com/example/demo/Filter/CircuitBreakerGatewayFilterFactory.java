@@ -0,0 +1,78 @@
+package com.example.demo.Filter;
+
+import com.example.demo.Logging.Diagnostics;
+import com.example.demo.Metrics.RejectionReason;
+import com.example.demo.Upstream.CircuitBreaker;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+
+/**
+ * Guards a route with the {@link CircuitBreaker} in its metadata. Applied after the route's
+ * other filters, so only requests that would reach the upstream count. While the breaker is
+ * open, requests get an immediate 503 with a Retry-After header instead of waiting on a
+ * failing upstream. Errors and 5xx responses count as failures; cancelled requests count
+ * as nothing.
+ */
+@Component
+public class CircuitBreakerGatewayFilterFactory extends AbstractGatewayFilterFactory<Void> {
+
+    /**
+     * After the route's other checks, so only requests that would reach the upstream count,
+     * and inside the retry filter, so every attempt does; before routing, so an open breaker
+     * keeps them from the upstream.
+     */
+    public static final int ORDER = RetryPolicyGatewayFilterFactory.ORDER + 1;
+
+    private final Diagnostics diagnostics;
+
+    public CircuitBreakerGatewayFilterFactory(Diagnostics diagnostics) {
+        super(Void.class);
+        this.diagnostics = diagnostics;
+    }
+
+    @Override
+    public GatewayFilter apply(Void unused) {
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+            CircuitBreaker breaker = route == null ? null
+                    : (CircuitBreaker) route.getMetadata().get(CircuitBreaker.METADATA_KEY);
+            if (breaker == null) {
+                return chain.filter(exchange);
+            }
+            Diagnostics.Trail trail = diagnostics.trailFor(exchange);
+            CircuitBreaker.Phase phase = breaker.tryAcquire();
+            if (phase == null) {
+                long retryAfterMillis = breaker.getRetryAfterMillis();
+                if (trail != null) {
+                    trail.log("Circuit breaker: {} for route {}, rejected (retry in {} ms)",
+                            breaker.getState(), route.getId(), retryAfterMillis);
+                }
+                RejectionReason.CIRCUIT_OPEN.mark(exchange);
+                exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+                exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER,
+                        String.valueOf(Math.max(1, (retryAfterMillis + 999) / 1000)));
+                return exchange.getResponse().setComplete();
+            }
+            if (trail != null) {
+                trail.log("Circuit breaker: {} for route {}, admitted", phase.getState(), route.getId());
+            }
+            long start = System.nanoTime();
+            // Recorded before the outcome travels on, not in doFinally, so a retry of this
+            // request already meets the breaker in the state this attempt left it.
+            return chain.filter(exchange)
+                    .doOnSuccess(done -> {
+                        HttpStatusCode status = exchange.getResponse().getStatusCode();
+                        breaker.record(phase, System.nanoTime() - start, status != null && status.is5xxServerError());
+                    })
+                    .doOnError(error -> breaker.record(phase, System.nanoTime() - start, true))
+                    .doOnCancel(() -> breaker.release(phase));
+        }, ORDER);
+    }
+}
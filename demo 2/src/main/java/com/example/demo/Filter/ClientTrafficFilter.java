@@ -0,0 +1,54 @@
+package com.example.demo.Filter;
+
+import com.example.demo.Db.IpUtils;
+import com.example.demo.Jwt.LazyClaims;
+import com.example.demo.Metrics.HeavyHitterTracker;
+import com.example.demo.Metrics.UniqueClientTracker;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Feeds who-is-calling statistics (client IP, token clientId, route) for every routed
+ * request once its outcome is known, and the per-route distinct client counts.
+ */
+@Component
+public class ClientTrafficFilter implements GlobalFilter, Ordered {
+
+    private final HeavyHitterTracker heavyHitters;
+    private final UniqueClientTracker uniqueClients;
+
+    public ClientTrafficFilter(HeavyHitterTracker heavyHitters, UniqueClientTracker uniqueClients) {
+        this.heavyHitters = heavyHitters;
+        this.uniqueClients = uniqueClients;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        if (route == null) {
+            return chain.filter(exchange);
+        }
+        String clientIp = IpUtils.getClientIp(exchange.getRequest());
+        uniqueClients.record(route.getId(), clientIp);
+        return chain.filter(exchange)
+                .doFinally(signalType -> {
+                    HttpStatusCode status = exchange.getResponse().getStatusCode();
+                    boolean rejected = status != null && status.value() >= 400;
+                    // Claims exist only once the token filter accepted the token.
+                    LazyClaims claims = exchange.getAttribute(LazyClaims.ATTRIBUTE);
+                    heavyHitters.record(clientIp, claims != null ? claims.getClientId() : null, route.getId(), rejected);
+                });
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE + 1;
+    }
+}
@@ -3,10 +3,15 @@ package com.example.demo.Filter;
 import com.example.demo.Db.IpUtils;
 import com.example.demo.Entity.AllowedIp;
 import com.example.demo.Entity.GatewayRoute;
+import com.example.demo.Jfr.IpDecisionEvent;
+import com.example.demo.Logging.Diagnostics;
+import com.example.demo.Metrics.RejectionReason;
+import com.example.demo.Metrics.StageTimings;
 import com.example.demo.Repository.GatewayRouteRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
 import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.server.reactive.ServerHttpRequest;
@@ -15,43 +20,45 @@ import org.springframework.util.AntPathMatcher;
 import reactor.core.publisher.Mono;
 
 import java.util.List;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Component
 public class IpValidationGatewayFilterFactory extends AbstractGatewayFilterFactory<Void> {
 
+    /**
+     * Route filters carry explicit orders: unordered ones would sort after the global
+     * routing filters and run once the request was already proxied. All of them run before
+     * RouteToRequestUrlFilter and the load balancer, the IP check first.
+     */
+    public static final int ORDER = 1;
+
     private final GatewayRouteRepository gatewayRouteRepository;
+    private final Diagnostics diagnostics;
 
     @Autowired
-    public IpValidationGatewayFilterFactory(GatewayRouteRepository gatewayRouteRepository) {
+    public IpValidationGatewayFilterFactory(GatewayRouteRepository gatewayRouteRepository,
+                                            Diagnostics diagnostics) {
         super(Void.class);
         this.gatewayRouteRepository = gatewayRouteRepository;
+        this.diagnostics = diagnostics;
     }
 
     @Override
     public GatewayFilter apply(Void unused) {
-        return (exchange, chain) -> {
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            IpDecisionEvent decision = IpDecisionEvent.start();
+            // Verbose steps are only logged for requests selected by a diagnostics session.
+            Diagnostics.Trail trail = diagnostics.trailFor(exchange);
             String requestPath = exchange.getRequest().getURI().getPath();
-            log.info("IP Validation Filter: requestPath={}", requestPath);
 
-            // Extract client IP early to make debugging clearer
             ServerHttpRequest request = exchange.getRequest();
             String clientIp = IpUtils.getClientIp(request);
-            log.info("Client IP extracted: {}", clientIp);
 
             // Load all routes from the database with eager fetching
             List<GatewayRoute> allRoutes = gatewayRouteRepository.findAllWithAllowedIpsAndRateLimit();
-            log.debug("All routes loaded from DB ({} total)", allRoutes.size());
-
-            // For debugging - output all routes and their allowed IPs
-            for (GatewayRoute route : allRoutes) {
-                log.debug("Route ID: {}, Predicate: {}, WithIpFilter: {}",
-                        route.getId(), route.getPredicates(), route.getWithIpFilter());
-                if (route.getAllowedIps() != null) {
-                    for (AllowedIp ip : route.getAllowedIps()) {
-                        log.debug("  - Allowed IP for route {}: {}", route.getId(), ip.getIp());
-                    }
-                }
+            if (trail != null) {
+                trail.log("IP filter: client IP {}, {} routes loaded from DB", clientIp, allRoutes.size());
             }
 
             // Use AntPathMatcher to properly compare request path with stored predicate patterns
@@ -59,44 +66,50 @@ public class IpValidationGatewayFilterFactory extends AbstractGatewayFilterFacto
             GatewayRoute matchingRoute = null;
             for (GatewayRoute route : allRoutes) {
                 String predicate = route.getPredicates();
-                log.debug("Checking if path '{}' matches predicate '{}'", requestPath, predicate);
                 if (matcher.match(predicate, requestPath)) {
                     matchingRoute = route;
-                    log.info("Found matching route: ID={}, Predicate={}", route.getId(), predicate);
                     break;
                 }
             }
 
             if (matchingRoute == null) {
-                log.warn("No matching route pattern found for path: {}", requestPath);
+                if (trail != null) {
+                    trail.log("IP filter: no route pattern matches path {}", requestPath);
+                }
+                RejectionReason.NO_ROUTE.mark(exchange);
                 exchange.getResponse().setStatusCode(HttpStatus.NOT_FOUND);
+                StageTimings.mark(exchange, StageTimings.Stage.IP_CHECK);
+                decision.commitFor(exchange);
                 return exchange.getResponse().setComplete();
             }
 
             // Check if IP filtering is enabled for this route
             if (matchingRoute.getWithIpFilter() == null || !matchingRoute.getWithIpFilter()) {
-                log.info("IP filtering is disabled for route ID={}. Passing request along.", matchingRoute.getId());
+                if (trail != null) {
+                    trail.log("IP filter: filtering disabled for route ID={}, passing along", matchingRoute.getId());
+                }
+                StageTimings.mark(exchange, StageTimings.Stage.IP_CHECK);
+                decision.commitFor(exchange);
                 return chain.filter(exchange);
             }
 
             // Get the allowed IPs specifically for this matching route
             List<AllowedIp> allowedIpsForRoute = matchingRoute.getAllowedIps();
 
-            log.info("Route ID {} has IP filtering enabled. Checking IP {} against {} allowed IPs",
-                    matchingRoute.getId(), clientIp,
-                    allowedIpsForRoute != null ? allowedIpsForRoute.size() : 0);
-
             // Check if there are any allowed IPs for this route
             if (allowedIpsForRoute == null || allowedIpsForRoute.isEmpty()) {
                 log.error("No allowed IPs set for route ID={}. Returning 403.", matchingRoute.getId());
+                RejectionReason.IP_DENIED.mark(exchange);
                 exchange.getResponse().setStatusCode(HttpStatus.FORBIDDEN);
+                StageTimings.mark(exchange, StageTimings.Stage.IP_CHECK);
+                decision.commitFor(exchange);
                 return exchange.getResponse().setComplete();
             }
 
-            // Log all allowed IPs for this route
-            log.info("Allowed IPs for route ID={}", matchingRoute.getId());
-            for (AllowedIp ip : allowedIpsForRoute) {
-                log.info("  - Allowed IP: '{}'", ip.getIp());
+            if (trail != null) {
+                trail.log("IP filter: route ID={} (predicate {}) allows {}", matchingRoute.getId(),
+                        matchingRoute.getPredicates(),
+                        allowedIpsForRoute.stream().map(AllowedIp::getIp).collect(Collectors.toList()));
             }
 
             // Compare the client IP against the allowed IPs for this specific route
@@ -104,23 +117,31 @@ public class IpValidationGatewayFilterFactory extends AbstractGatewayFilterFacto
             for (AllowedIp ipEntity : allowedIpsForRoute) {
                 if (ipEntity != null && ipEntity.getIp() != null) {
                     String allowedIp = ipEntity.getIp().trim();
-                    log.debug("Comparing client IP '{}' with allowed IP '{}'", clientIp, allowedIp);
                     if (clientIp.equals(allowedIp)) {
                         isAllowed = true;
-                        log.info("MATCH FOUND: Client IP '{}' matches allowed IP '{}'", clientIp, allowedIp);
                         break;
                     }
                 }
             }
 
             if (isAllowed) {
-                log.info("IP {} is ALLOWED for route ID={}. Proceeding with request.", clientIp, matchingRoute.getId());
+                if (trail != null) {
+                    trail.log("IP filter: {} ALLOWED for route ID={}", clientIp, matchingRoute.getId());
+                }
+                StageTimings.mark(exchange, StageTimings.Stage.IP_CHECK);
+                decision.commitFor(exchange);
                 return chain.filter(exchange);
             } else {
-                log.warn("ACCESS DENIED for IP {} on route ID={}. IP not in allowed list.", clientIp, matchingRoute.getId());
+                // Denials are counted per reason (see RejectionReason); only selected requests log them.
+                if (trail != null) {
+                    trail.log("IP filter: {} DENIED for route ID={}, not in allowed list", clientIp, matchingRoute.getId());
+                }
+                RejectionReason.IP_DENIED.mark(exchange);
                 exchange.getResponse().setStatusCode(HttpStatus.FORBIDDEN);
+                StageTimings.mark(exchange, StageTimings.Stage.IP_CHECK);
+                decision.commitFor(exchange);
                 return exchange.getResponse().setComplete();
             }
-        };
+        }, ORDER);
     }
 }
\ No newline at end of file
@@ -0,0 +1,96 @@
+package com.example.demo.Filter;
+
+import com.example.demo.Jfr.RouteMatchEvent;
+import com.example.demo.Logging.Diagnostics;
+import com.example.demo.Metrics.RejectionReason;
+import com.example.demo.Metrics.RouteMetrics;
+import com.example.demo.Metrics.RouteMetricsRegistry;
+import com.example.demo.Metrics.StageTimings;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.util.context.Context;
+
+/**
+ * Records the latency of every routed request, from the moment the route matched until the
+ * response completed, into that route's {@link RouteMetrics}. Runs first among the route
+ * filters so rejections by the token, IP and rate-limit filters are timed too.
+ *
+ * It also closes the route-match stage of the exchange's {@link StageTimings}, hands them
+ * to the upstream HTTP client through the Reactor context, and records every stage reached
+ * into the route's stage histograms. Requests selected by a {@link Diagnostics} session
+ * log the route they matched and a summary line when they complete.
+ */
+@Component
+public class LatencyRecordingFilter implements GlobalFilter, Ordered {
+
+    private final RouteMetricsRegistry registry;
+    private final Diagnostics diagnostics;
+
+    public LatencyRecordingFilter(RouteMetricsRegistry registry, Diagnostics diagnostics) {
+        this.registry = registry;
+        this.diagnostics = diagnostics;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        if (route == null) {
+            return chain.filter(exchange);
+        }
+        RouteMetrics metrics = (RouteMetrics) route.getMetadata().get(RouteMetrics.METADATA_KEY);
+        if (metrics == null) {
+            metrics = registry.forRoute(route.getId());
+        }
+        RouteMetrics target = metrics;
+        long start = System.nanoTime();
+        StageTimings timings = exchange.getAttribute(StageTimings.ATTRIBUTE);
+        if (timings == null) {
+            timings = new StageTimings(start);
+            exchange.getAttributes().put(StageTimings.ATTRIBUTE, timings);
+        }
+        timings.mark(StageTimings.Stage.ROUTE_MATCH);
+        if (RouteMatchEvent.isTypeEnabled()) {
+            RouteMatchEvent routeMatch = new RouteMatchEvent();
+            routeMatch.routeId = route.getId();
+            routeMatch.matchTime = timings.getNanos(StageTimings.Stage.ROUTE_MATCH);
+            routeMatch.commit();
+        }
+        Diagnostics.Trail matched = diagnostics.trailFor(exchange);
+        if (matched != null) {
+            matched.log("Matched route {} -> {}", route.getId(), route.getUri());
+        }
+        StageTimings stages = timings;
+        return chain.filter(exchange)
+                .doOnError(error -> RejectionReason.markError(exchange, error))
+                .doFinally(signalType -> {
+                    HttpStatusCode status = exchange.getResponse().getStatusCode();
+                    int code = status != null ? status.value() : (signalType == SignalType.ON_ERROR ? 500 : 0);
+                    RejectionReason reason = RejectionReason.of(exchange, code);
+                    long elapsed = System.nanoTime() - start;
+                    target.record(code, reason, elapsed);
+                    if (stages.reached(StageTimings.Stage.UPSTREAM_FIRST_BYTE)) {
+                        stages.mark(StageTimings.Stage.RESPONSE);
+                    }
+                    target.recordStages(stages);
+                    Diagnostics.Trail trail = diagnostics.trailFor(exchange);
+                    if (trail != null) {
+                        trail.log("Completed {} ({}) in {} us [{}]", code, reason != null ? reason.getTag() : "ok",
+                                elapsed / 1000, stages.toServerTiming());
+                    }
+                })
+                .contextWrite(Context.of(StageTimings.class, stages));
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+}
@@ -1,27 +1,32 @@
 package com.example.demo.Filter;
 
+import com.example.demo.Metrics.RejectionCounters;
+import com.example.demo.Metrics.RejectionReason;
+import com.example.demo.Metrics.SecondCounterRing;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
 import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpStatusCode;
-import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.WebFilter;
 import org.springframework.web.server.WebFilterChain;
 import reactor.core.publisher.Mono;
 
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 
+@Slf4j
 @Order(1) // Ensure this filter runs early (if using Spring Security).
 @Component
 public class RequestCountFilter implements WebFilter {
 
-    private static final AtomicLong totalRequestCount = new AtomicLong(0);
-    private static final AtomicLong totalRejectedCount = new AtomicLong(0);
-    private static final ConcurrentHashMap<Long, AtomicLong> requestsPerSecond = new ConcurrentHashMap<>();
-    private static final ConcurrentHashMap<Long, AtomicLong> rejectedPerSecond = new ConcurrentHashMap<>();
-    // Track the current minute to detect transitions.
-    private static long currentMinute = System.currentTimeMillis() / 60000;
+    private static final LongAdder totalRequestCount = new LongAdder();
+    private static final LongAdder totalRejectedCount = new LongAdder();
+    // Two minutes of per-second slots: the current minute plus the complete previous one.
+    private static final SecondCounterRing requestsPerSecond = new SecondCounterRing(120);
+    private static final SecondCounterRing rejectedPerSecond = new SecondCounterRing(120);
+    private static final RejectionCounters rejectionsPerMinute = new RejectionCounters();
 
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
@@ -32,56 +37,48 @@ public class RequestCountFilter implements WebFilter {
             return chain.filter(exchange);
         }
 
-        long currentSecond = System.currentTimeMillis() / 1000;
-        long newMinute = System.currentTimeMillis() / 60000;
-
         // Always count this incoming request as accepted initially.
-        System.out.println("Counting request for path: " + path + ", second: " + currentSecond);
-        totalRequestCount.incrementAndGet();
-        requestsPerSecond
-                .computeIfAbsent(currentSecond, k -> new AtomicLong(0))
-                .incrementAndGet();
-
-        // Update current minute if needed.
-        if (newMinute > currentMinute) {
-            currentMinute = newMinute;
-        }
-
-        // Clean up old entries (older than 120 seconds).
-        long threshold = currentSecond - 120;
-        requestsPerSecond.keySet().removeIf(sec -> sec < threshold);
-        rejectedPerSecond.keySet().removeIf(sec -> sec < threshold);
+        totalRequestCount.increment();
+        requestsPerSecond.increment(System.currentTimeMillis() / 1000);
 
         // Proceed with downstream chain and then check the final status code.
         return chain.filter(exchange)
+                .doOnError(error -> RejectionReason.markError(exchange, error))
                 .doFinally(signalType -> {
                     // Get the final status code. Note that getStatusCode() now returns HttpStatusCode.
                     HttpStatusCode finalStatus = exchange.getResponse().getStatusCode();
-                    // Check if the status code indicates an error (4xx or 5xx).
-                    if (finalStatus != null && (finalStatus.value() >= 400 && finalStatus.value() < 600)) {
-                        countRejectedRequest("Status " + finalStatus.value());
+                    int code = finalStatus != null ? finalStatus.value() : 0;
+                    // The filter that turned the request away says why; otherwise the status does.
+                    RejectionReason reason = RejectionReason.of(exchange, code);
+                    if (reason == RejectionReason.NOT_FOUND
+                            && exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR) == null) {
+                        reason = RejectionReason.NO_ROUTE;
+                    }
+                    if (reason != null) {
+                        countRejectedRequest(reason);
                     }
                 });
     }
 
-    // Method to count a rejected request with a name.
-    public static void countRejectedRequest(String rejectName) {
-        long currentSecond = System.currentTimeMillis() / 1000;
-        // Append " .. next" to the supplied reject name.
-        String loggedName = rejectName + " .. next";
-        System.out.println("Rejected request: " + loggedName + ", second: " + currentSecond);
-
-        totalRejectedCount.incrementAndGet();
-        rejectedPerSecond.computeIfAbsent(currentSecond, k -> new AtomicLong(0))
-                .incrementAndGet();
+    // Method to count a rejected request by reason.
+    public static void countRejectedRequest(RejectionReason reason) {
+        log.debug("Rejected request: {}", reason);
+        totalRejectedCount.increment();
+        rejectedPerSecond.increment(System.currentTimeMillis() / 1000);
+        rejectionsPerMinute.increment(reason);
     }
 
     public static long getTotalRequestCount() {
-        return totalRequestCount.get();
+        return totalRequestCount.sum();
     }
 
     public static long getTotalRejectedCount() {
-        return totalRejectedCount.get();
+        return totalRejectedCount.sum();
+    }
+
+    // Gateway-wide rejections per reason, including requests that matched no route.
+    public static Map<String, Long> getRejectionReasons(boolean previousMinute) {
+        return rejectionsPerMinute.snapshot(previousMinute);
     }
 
     public static MinuteMetrics getMinuteMetrics() {
@@ -90,36 +87,11 @@ public class RequestCountFilter implements WebFilter {
         long currentMinuteStart = (now / 60000) * 60; // Start of the current minute in seconds.
         long previousMinuteStart = currentMinuteStart - 60; // Start of the previous minute in seconds.
 
-        long currentMinuteSum = 0;
-        long previousMinuteSum = 0;
-        long currentMinuteRejected = 0;
-        long previousMinuteRejected = 0;
-
-        // Count accepted and rejected requests in the current minute.
-        for (long sec = currentMinuteStart; sec <= currentSecond; sec++) {
-            AtomicLong count = requestsPerSecond.get(sec);
-            if (count != null) {
-                currentMinuteSum += count.get();
-            }
-            AtomicLong rejectedCount = rejectedPerSecond.get(sec);
-            if (rejectedCount != null) {
-                currentMinuteRejected += rejectedCount.get();
-            }
-        }
-
-        // Count accepted and rejected requests in the previous minute.
-        for (long sec = previousMinuteStart; sec < currentMinuteStart; sec++) {
-            AtomicLong count = requestsPerSecond.get(sec);
-            if (count != null) {
-                previousMinuteSum += count.get();
-            }
-            AtomicLong rejectedCount = rejectedPerSecond.get(sec);
-            if (rejectedCount != null) {
-                previousMinuteRejected += rejectedCount.get();
-            }
-        }
-
-        return new MinuteMetrics(currentMinuteSum, previousMinuteSum, currentMinuteRejected, previousMinuteRejected);
+        return new MinuteMetrics(
+                requestsPerSecond.sum(currentMinuteStart, currentSecond),
+                requestsPerSecond.sum(previousMinuteStart, currentMinuteStart - 1),
+                rejectedPerSecond.sum(currentMinuteStart, currentSecond),
+                rejectedPerSecond.sum(previousMinuteStart, currentMinuteStart - 1));
     }
 
     public static class MinuteMetrics {
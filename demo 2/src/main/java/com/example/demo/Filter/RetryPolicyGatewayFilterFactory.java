@@ -0,0 +1,124 @@
+package com.example.demo.Filter;
+
+import com.example.demo.Logging.Diagnostics;
+import com.example.demo.Metrics.RejectionReason;
+import com.example.demo.Upstream.RetryBudget;
+import com.example.demo.Upstream.RetryPolicy;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Retries idempotent requests of a route with the {@link RetryPolicy} in its metadata, on a
+ * retryable status or an upstream connection failure or timeout. Retries wait a jittered
+ * backoff on the reactor timer, never a blocked thread, and each one takes a token from the
+ * route's {@link RetryBudget}; once it is empty the failure goes back to the client as is.
+ *
+ * The rest of the chain runs again for every attempt, so {@link UpstreamLoadBalancerFilter}
+ * sends it to a different upstream target and the route's circuit breaker counts it. A
+ * request the breaker refused is not retried.
+ */
+@Component
+public class RetryPolicyGatewayFilterFactory extends AbstractGatewayFilterFactory<Void> {
+
+    /**
+     * Before routing, so every attempt goes through RouteToRequestUrlFilter, the load
+     * balancer and the circuit breaker again; after NettyWriteResponseFilter, so only the
+     * last attempt's response is written.
+     */
+    public static final int ORDER = SimpleRateLimitGatewayFilterFactory.ORDER + 1;
+
+    private final Diagnostics diagnostics;
+
+    public RetryPolicyGatewayFilterFactory(Diagnostics diagnostics) {
+        super(Void.class);
+        this.diagnostics = diagnostics;
+    }
+
+    @Override
+    public GatewayFilter apply(Void unused) {
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+            RetryPolicy policy = route == null ? null
+                    : (RetryPolicy) route.getMetadata().get(RetryPolicy.METADATA_KEY);
+            if (policy == null) {
+                return chain.filter(exchange);
+            }
+            policy.getBudget().onRequest();
+            if (!policy.appliesTo(exchange.getRequest())) {
+                return chain.filter(exchange);
+            }
+            return attempt(exchange, chain, policy, 1);
+        }, ORDER);
+    }
+
+    private Mono<Void> attempt(ServerWebExchange exchange, GatewayFilterChain chain, RetryPolicy policy, int attempt) {
+        // Only this attempt's error is caught; later attempts fail through the flatMap.
+        return chain.filter(exchange)
+                .then(Mono.just(Optional.<Throwable>empty()))
+                .onErrorResume(error -> Mono.just(Optional.of(error)))
+                .flatMap(error -> afterAttempt(exchange, chain, policy, attempt, error.orElse(null)));
+    }
+
+    private Mono<Void> afterAttempt(ServerWebExchange exchange, GatewayFilterChain chain, RetryPolicy policy,
+                                    int attempt, Throwable error) {
+        RetryBudget budget = policy.getBudget();
+        HttpStatusCode status = exchange.getResponse().getStatusCode();
+        boolean retryable = error != null
+                ? RejectionReason.isUpstreamFailure(error)
+                : status != null && policy.isRetryableStatus(status.value());
+        if (!retryable || exchange.getResponse().isCommitted()
+                || exchange.getAttribute(RejectionReason.ATTRIBUTE) == RejectionReason.CIRCUIT_OPEN) {
+            if (attempt > 1 && error == null && !retryable && (status == null || !status.is5xxServerError())) {
+                budget.onRecovered();
+            }
+            return error != null ? Mono.error(error) : Mono.empty();
+        }
+
+        Diagnostics.Trail trail = diagnostics.trailFor(exchange);
+        String outcome = error != null ? error.getClass().getSimpleName() : String.valueOf(status.value());
+        if (attempt >= policy.getMaxAttempts()) {
+            budget.onExhausted();
+            if (trail != null) {
+                trail.log("Retry: attempt {} failed ({}), no attempts left", attempt, outcome);
+            }
+            return error != null ? Mono.error(error) : Mono.empty();
+        }
+        if (!budget.tryWithdraw()) {
+            if (trail != null) {
+                trail.log("Retry: attempt {} failed ({}), retry budget exhausted", attempt, outcome);
+            }
+            return error != null ? Mono.error(error) : Mono.empty();
+        }
+        Duration backoff = policy.backoff(attempt);
+        if (trail != null) {
+            trail.log("Retry: attempt {} failed ({}), retrying in {} ms", attempt, outcome, backoff.toMillis());
+        }
+        reset(exchange);
+        return Mono.delay(backoff).then(Mono.defer(() -> attempt(exchange, chain, policy, attempt + 1)));
+    }
+
+    /**
+     * Undoes what routing the previous attempt left on the exchange, as the gateway's own
+     * retry filter does: its unread upstream response, copied headers and routed flag.
+     */
+    private static void reset(ServerWebExchange exchange) {
+        Connection connection = exchange.getAttribute(ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR);
+        if (connection != null) {
+            connection.dispose();
+            exchange.getAttributes().remove(ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR);
+        }
+        ServerWebExchangeUtils.reset(exchange);
+    }
+}
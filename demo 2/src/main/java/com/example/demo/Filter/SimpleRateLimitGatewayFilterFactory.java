@@ -2,11 +2,16 @@ package com.example.demo.Filter;
 
 import com.example.demo.Db.IpUtils;
 import com.example.demo.Entity.GatewayRoute;
+import com.example.demo.Jfr.RateLimitDecisionEvent;
+import com.example.demo.Logging.Diagnostics;
 import com.example.demo.Entity.RateLimit;
+import com.example.demo.Metrics.RejectionReason;
+import com.example.demo.Metrics.StageTimings;
 import com.example.demo.Repository.GatewayRouteRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
 import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
@@ -22,29 +27,41 @@ import java.util.concurrent.ConcurrentHashMap;
 @Component
 public class SimpleRateLimitGatewayFilterFactory extends AbstractGatewayFilterFactory<Void> {
 
+    /**
+     * After IP and token checks, so rejected requests do not use up the client's quota.
+     */
+    public static final int ORDER = TokenValidationGatewayFilterFactory.ORDER + 1;
+
     private final GatewayRouteRepository gatewayRouteRepository;
+    private final Diagnostics diagnostics;
 
     // In-memory tracker for client requests
     private final Map<String, RequestTracker> requestMap = new ConcurrentHashMap<>();
 
     @Autowired
-    public SimpleRateLimitGatewayFilterFactory(GatewayRouteRepository gatewayRouteRepository) {
+    public SimpleRateLimitGatewayFilterFactory(GatewayRouteRepository gatewayRouteRepository,
+                                               Diagnostics diagnostics) {
         super(Void.class);
         this.gatewayRouteRepository = gatewayRouteRepository;
+        this.diagnostics = diagnostics;
     }
 
     @Override
     public GatewayFilter apply(Void unused) {
-        return (exchange, chain) -> {
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            RateLimitDecisionEvent decision = RateLimitDecisionEvent.start();
+            Diagnostics.Trail trail = diagnostics.trailFor(exchange);
             // 1) Extract the request path
             String requestPath = exchange.getRequest().getURI().getPath();
-            log.info("Rate Limiting Filter: requestPath={}", requestPath);
 
             // 2) Load all routes from the database with their allowed IPs and RateLimit
             List<GatewayRoute> allRoutes = gatewayRouteRepository.findAllWithAllowedIpsAndRateLimit();
             if (allRoutes.isEmpty()) {
                 log.error("No routes found in the database.");
+                RejectionReason.NO_ROUTE.mark(exchange);
                 exchange.getResponse().setStatusCode(HttpStatus.NOT_FOUND);
+                StageTimings.mark(exchange, StageTimings.Stage.RATE_LIMIT);
+                decision.commitFor(exchange);
                 return exchange.getResponse().setComplete();
             }
 
@@ -68,13 +85,16 @@ public class SimpleRateLimitGatewayFilterFactory extends AbstractGatewayFilterFa
 
             // 5) If no matching route is found, return 404
             if (matchingRoute == null) {
-                log.warn("No matching route found for path={}", requestPath);
+                if (trail != null) {
+                    trail.log("Rate limit: no route pattern matches path {}", requestPath);
+                }
+                RejectionReason.NO_ROUTE.mark(exchange);
                 exchange.getResponse().setStatusCode(HttpStatus.NOT_FOUND);
+                StageTimings.mark(exchange, StageTimings.Stage.RATE_LIMIT);
+                decision.commitFor(exchange);
                 return exchange.getResponse().setComplete();
             }
 
-            log.info("Matching route found: {}", matchingRoute.getRouteId());
-
             // 6) Retrieve the RateLimit object from the route
             RateLimit rl = matchingRoute.getRateLimit();
             long timeWindowMs;
@@ -83,8 +103,10 @@ public class SimpleRateLimitGatewayFilterFactory extends AbstractGatewayFilterFa
                 maxRequests = rl.getMaxRequests();
                 timeWindowMs = rl.getTimeWindowMs();
             } else {
-                log.warn("No RateLimit entity or missing fields for route {} => using defaults.",
-                        matchingRoute.getRouteId());
+                if (trail != null) {
+                    trail.log("Rate limit: no RateLimit entity or missing fields for route {}, using defaults",
+                            matchingRoute.getRouteId());
+                }
                 maxRequests = 10;
                 timeWindowMs = 60000;
             }
@@ -106,19 +128,28 @@ public class SimpleRateLimitGatewayFilterFactory extends AbstractGatewayFilterFa
                 // Check if the client is within allowed limits
                 if (tracker.getRequestCount() < maxRequests) {
                     tracker.incrementRequestCount();
-                    log.info("Request allowed. clientIp={}, routeId={}, count={}",
-                            clientIp, matchingRoute.getRouteId(), tracker.getRequestCount());
+                    if (trail != null) {
+                        trail.log("Rate limit: allowed, clientIp={} routeId={} count={}/{} in {} ms",
+                                clientIp, matchingRoute.getRouteId(), tracker.getRequestCount(), maxRequests, timeWindowMs);
+                    }
                 } else {
-                    log.warn("Rate limit exceeded for clientIp={} on routeId={}",
-                            clientIp, matchingRoute.getRouteId());
+                    if (trail != null) {
+                        trail.log("Rate limit: exceeded, clientIp={} routeId={} limit {} in {} ms",
+                                clientIp, matchingRoute.getRouteId(), maxRequests, timeWindowMs);
+                    }
+                    RejectionReason.RATE_LIMITED.mark(exchange);
                     exchange.getResponse().setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+                    StageTimings.mark(exchange, StageTimings.Stage.RATE_LIMIT);
+                    decision.commitFor(exchange);
                     return exchange.getResponse().setComplete();
                 }
             }
 
             // 9) Pass the request along if under the limit
+            StageTimings.mark(exchange, StageTimings.Stage.RATE_LIMIT);
+            decision.commitFor(exchange);
             return chain.filter(exchange);
-        };
+        }, ORDER);
     }
 
     /**
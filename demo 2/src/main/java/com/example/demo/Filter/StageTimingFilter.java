@@ -0,0 +1,42 @@
+package com.example.demo.Filter;
+
+import com.example.demo.Metrics.StageTimings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Starts the {@link StageTimings} of every exchange as it arrives, before route matching,
+ * and optionally reports them to the client in a {@code Server-Timing} header.
+ * LatencyRecordingFilter records them into the route's stage histograms.
+ */
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+@Component
+public class StageTimingFilter implements WebFilter {
+
+    private static final String SERVER_TIMING = "Server-Timing";
+
+    private final boolean serverTimingHeader;
+
+    public StageTimingFilter(@Value("${gateway.metrics.stages.server-timing-header:false}") boolean serverTimingHeader) {
+        this.serverTimingHeader = serverTimingHeader;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        StageTimings timings = new StageTimings(System.nanoTime());
+        exchange.getAttributes().put(StageTimings.ATTRIBUTE, timings);
+        if (serverTimingHeader) {
+            exchange.getResponse().beforeCommit(() -> {
+                exchange.getResponse().getHeaders().add(SERVER_TIMING, timings.toServerTiming());
+                return Mono.empty();
+            });
+        }
+        return chain.filter(exchange);
+    }
+}
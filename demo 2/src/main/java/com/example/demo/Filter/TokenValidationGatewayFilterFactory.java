@@ -1,103 +1,143 @@
 package com.example.demo.Filter;
 
-import com.example.demo.Entity.GatewayRoute;
-import com.example.demo.Repository.GatewayRouteRepository;
+import com.example.demo.Jfr.TokenVerificationEvent;
+import com.example.demo.Jwt.ClaimsPolicy;
+import com.example.demo.Jwt.FastJwtVerifier;
+import com.example.demo.Jwt.JwtKeyRing;
+import com.example.demo.Jwt.LazyClaims;
+import com.example.demo.Jwt.RevocationSet;
+import com.example.demo.Logging.Diagnostics;
+import com.example.demo.Metrics.RejectionReason;
+import com.example.demo.Metrics.StageTimings;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
 import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
-import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
 import org.springframework.stereotype.Component;
-import org.springframework.util.AntPathMatcher;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
-
-import java.util.List;
 
 @Slf4j
 @Component
 public class TokenValidationGatewayFilterFactory extends AbstractGatewayFilterFactory<Void> {
 
-    private final GatewayRouteRepository gatewayRouteRepository;
-    private final ReactiveJwtDecoder jwtDecoder;
+    /**
+     * After the IP check and before the load balancer, which can hash on the token's client_id.
+     */
+    public static final int ORDER = IpValidationGatewayFilterFactory.ORDER + 1;
+
+    private final FastJwtVerifier jwtVerifier;
+    private final JwtKeyRing keyRing;
+    private final RevocationSet revocationSet;
+    private final Diagnostics diagnostics;
 
     @Autowired
     public TokenValidationGatewayFilterFactory(
-            GatewayRouteRepository gatewayRouteRepository,
-            ReactiveJwtDecoder jwtDecoder
+            FastJwtVerifier jwtVerifier,
+            JwtKeyRing keyRing,
+            RevocationSet revocationSet,
+            Diagnostics diagnostics
     ) {
         super(Void.class);
-        this.gatewayRouteRepository = gatewayRouteRepository;
-        this.jwtDecoder = jwtDecoder;
+        this.jwtVerifier = jwtVerifier;
+        this.keyRing = keyRing;
+        this.revocationSet = revocationSet;
+        this.diagnostics = diagnostics;
     }
 
     @Override
     public GatewayFilter apply(Void unused) {
-        return (exchange, chain) -> {
-            String requestPath = exchange.getRequest().getURI().getPath();
-            log.info("Token Validation Filter: requestPath={}", requestPath);
-
-            // Load all routes from the database.
-            List<GatewayRoute> allRoutes = gatewayRouteRepository.findAll();
-            if (allRoutes.isEmpty()) {
-                log.error("No routes found in the database.");
-                exchange.getResponse().setStatusCode(HttpStatus.NOT_FOUND);
-                return exchange.getResponse().setComplete();
-            }
-
-            // Use AntPathMatcher to match the request path.
-            AntPathMatcher matcher = new AntPathMatcher();
-            GatewayRoute matchingRoute = null;
-            for (GatewayRoute route : allRoutes) {
-                String routePredicate = route.getPredicates();
-                if (matcher.match(routePredicate, requestPath)) {
-                    matchingRoute = route;
-                    break;
-                }
-            }
-
-            if (matchingRoute == null) {
-                log.warn("No matching route found for path={}", requestPath);
-                return chain.filter(exchange);
-            }
-
-            log.info("Matching route found: {} with token validation enabled: {}",
-                    matchingRoute.getRouteId(), matchingRoute.getWithToken());
-
-            // Proceed with token validation only if enabled.
-            if (!Boolean.TRUE.equals(matchingRoute.getWithToken())) {
-                log.info("Token validation is disabled for route {}. Passing request along.", matchingRoute.getRouteId());
-                return chain.filter(exchange);
-            }
+        // Only routes with withToken=true get this filter (see DynamicRouteConfig), so the
+        // matched route comes from the exchange instead of another database lookup.
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            TokenVerificationEvent verification = TokenVerificationEvent.start();
+            Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+            String routeId = route != null ? route.getId() : "unknown";
 
             HttpHeaders headers = exchange.getRequest().getHeaders();
             String authHeader = headers.getFirst(HttpHeaders.AUTHORIZATION);
             if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-                log.warn("Missing or invalid Authorization header for route {}.", matchingRoute.getRouteId());
-                exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
-                return exchange.getResponse().setComplete();
+                trace(exchange, "Token: missing or non-Bearer Authorization header for route {}", routeId);
+                return reject(exchange, RejectionReason.TOKEN_MISSING, verification);
             }
 
             String token = authHeader.substring(7);
-            log.info("Extracted token for route {}.", matchingRoute.getRouteId());
-            final GatewayRoute finalRoute = matchingRoute;
+            LazyClaims claims;
+            try {
+                claims = jwtVerifier.verify(token);
+            } catch (FastJwtVerifier.UnknownKeyException e) {
+                // Probably a freshly rotated key: refresh the ring once, then decide.
+                verification.keyCacheHit = false;
+                return keyRing.refresh()
+                        .then(Mono.fromCallable(() -> jwtVerifier.verify(token)))
+                        .flatMap(refreshed -> accept(exchange, chain, refreshed, route, verification))
+                        .onErrorResume(JwtException.class, err -> {
+                            trace(exchange, "Token: validation failed after key refresh for route {}: {}",
+                                    routeId, err.getMessage());
+                            return reject(exchange, RejectionReason.TOKEN_INVALID, verification);
+                        });
+            } catch (JwtException e) {
+                trace(exchange, "Token: validation failed for route {}: {}", routeId, e.getMessage());
+                return reject(exchange, RejectionReason.TOKEN_INVALID, verification);
+            }
+            return accept(exchange, chain, claims, route, verification);
+        }, ORDER);
+    }
 
-            return Mono.just(token)
-                    .subscribeOn(Schedulers.boundedElastic())
-                    .flatMap(jwtDecoder::decode)
-                    .flatMap(jwt -> {
-                        log.info("Token is valid for route {}.", finalRoute.getRouteId());
-                        return chain.filter(exchange);
-                    })
-                    .onErrorResume(e -> {
-                        log.warn("Token validation failed for route {}: {}", finalRoute.getRouteId(), e.getMessage());
-                        exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
-                        return exchange.getResponse().setComplete();
-                    });
-        };
+    private Mono<Void> accept(ServerWebExchange exchange,
+                              GatewayFilterChain chain,
+                              LazyClaims claims, Route route,
+                              TokenVerificationEvent verification) {
+        String routeId = route != null ? route.getId() : "unknown";
+        // Set before the checks below so that a diagnostics session on the clientId also
+        // sees this client's revoked and policy-denied requests.
+        exchange.getAttributes().put(LazyClaims.ATTRIBUTE, claims);
+        // jti/clientId are only decoded when there is something to compare them against.
+        if (!revocationSet.isEmpty()
+                && revocationSet.isRevoked(claims.getTokenId(), claims.getClientId(), claims.getIssuedAt())) {
+            trace(exchange, "Token: revoked token (client {}) for route {}", claims.getClientId(), routeId);
+            return reject(exchange, RejectionReason.TOKEN_REVOKED, verification);
+        }
+        ClaimsPolicy policy = route != null ? (ClaimsPolicy) route.getMetadata().get(ClaimsPolicy.METADATA_KEY) : null;
+        if (policy != null && !policy.test(claims)) {
+            trace(exchange, "Token: client {} does not satisfy the auth policy of route {}", claims.getClientId(), routeId);
+            RejectionReason.POLICY_DENIED.mark(exchange);
+            StageTimings.mark(exchange, StageTimings.Stage.TOKEN_VERIFY);
+            verification.commitFor(exchange);
+            exchange.getResponse().setStatusCode(HttpStatus.FORBIDDEN);
+            return exchange.getResponse().setComplete();
+        }
+        Diagnostics.Trail trail = diagnostics.trailFor(exchange);
+        if (trail != null) {
+            trail.log("Token: valid for route {} (client {})", routeId, claims.getClientId());
+        }
+        StageTimings.mark(exchange, StageTimings.Stage.TOKEN_VERIFY);
+        verification.commitFor(exchange);
+        return chain.filter(exchange);
+    }
+
+    // Rejection paths only; the accepted path checks for a trail before building arguments.
+    private void trace(ServerWebExchange exchange, String format, Object... args) {
+        Diagnostics.Trail trail = diagnostics.trailFor(exchange);
+        if (trail != null) {
+            trail.log(format, args);
+        }
+    }
+
+    private static Mono<Void> reject(ServerWebExchange exchange, RejectionReason reason,
+                                     TokenVerificationEvent verification) {
+        reason.mark(exchange);
+        StageTimings.mark(exchange, StageTimings.Stage.TOKEN_VERIFY);
+        verification.commitFor(exchange);
+        exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
+        return exchange.getResponse().setComplete();
     }
 }
 /*
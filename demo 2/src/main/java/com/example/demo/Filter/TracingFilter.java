@@ -0,0 +1,57 @@
+package com.example.demo.Filter;
+
+import com.example.demo.Metrics.StageTimings;
+import com.example.demo.Tracing.TraceContext;
+import com.example.demo.Tracing.Tracer;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Accepts or starts a W3C trace for every exchange, forwards {@code traceparent} to the
+ * upstream with the gateway's upstream span as parent, and offers the finished exchange to
+ * the {@link Tracer} for its tail-sampling decision. Spans are rebuilt from the exchange's
+ * {@link StageTimings}, so nothing trace-specific is recorded along the way.
+ */
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+@Component
+public class TracingFilter implements WebFilter {
+
+    private final Tracer tracer;
+
+    public TracingFilter(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        // Skip metrics endpoints; the dashboard's stream would otherwise be one endless span.
+        if (!tracer.isEnabled() || exchange.getRequest().getURI().getPath().startsWith("/api/metrics")) {
+            return chain.filter(exchange);
+        }
+        StageTimings timings = exchange.getAttribute(StageTimings.ATTRIBUTE);
+        long start = timings != null ? timings.getStartNanos() : System.nanoTime();
+        TraceContext context = tracer.start(exchange.getRequest());
+        exchange.getAttributes().put(TraceContext.ATTRIBUTE, context);
+        ServerWebExchange traced = exchange.mutate()
+                .request(request -> request.headers(headers ->
+                        headers.set(TraceContext.TRACEPARENT, context.toUpstreamTraceparent())))
+                .build();
+        return chain.filter(traced)
+                .doFinally(signalType -> {
+                    HttpStatusCode status = exchange.getResponse().getStatusCode();
+                    int code = status != null ? status.value() : (signalType == SignalType.ON_ERROR ? 500 : 0);
+                    Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+                    tracer.finish(context, timings, exchange.getRequest(), route != null ? route.getId() : null,
+                            code, System.nanoTime() - start);
+                });
+    }
+}
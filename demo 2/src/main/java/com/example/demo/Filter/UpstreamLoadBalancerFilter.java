@@ -0,0 +1,65 @@
+package com.example.demo.Filter;
+
+import com.example.demo.Upstream.UpstreamPool;
+import com.example.demo.Upstream.UpstreamServer;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.RouteToRequestUrlFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.net.URI;
+
+/**
+ * Sends requests of routes with upstream targets to one of them, chosen by the route's
+ * {@link UpstreamPool}. Runs right after the gateway turned the route uri into the request
+ * URL and swaps its scheme, host and port for the chosen target's; routes without targets
+ * pass through to their single uri.
+ *
+ * Tracks requests in flight and latency per target, which the P2C and EWMA policies
+ * balance on. A request counts as failed for its target on an error or a 5xx response,
+ * which feeds the pool's outlier detection.
+ *
+ * A retried request runs this filter again and is sent to a different target than the
+ * attempt before it, when the pool has one.
+ */
+@Component
+public class UpstreamLoadBalancerFilter implements GlobalFilter, Ordered {
+
+    public static final int ORDER = RouteToRequestUrlFilter.ROUTE_TO_URL_FILTER_ORDER + 100;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        URI requestUrl = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR);
+        if (route == null || requestUrl == null) {
+            return chain.filter(exchange);
+        }
+        UpstreamPool pool = (UpstreamPool) route.getMetadata().get(UpstreamPool.METADATA_KEY);
+        if (pool == null) {
+            return chain.filter(exchange);
+        }
+        UpstreamServer server = pool.choose(exchange, exchange.getAttribute(UpstreamServer.ATTRIBUTE));
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR, server.resolve(requestUrl));
+        exchange.getAttributes().put(UpstreamServer.ATTRIBUTE, server);
+        server.begin();
+        long start = System.nanoTime();
+        return chain.filter(exchange)
+                .doFinally(signalType -> {
+                    HttpStatusCode status = exchange.getResponse().getStatusCode();
+                    boolean failed = signalType == SignalType.ON_ERROR || (status != null && status.is5xxServerError());
+                    pool.complete(server, System.nanoTime() - start, failed);
+                });
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+}
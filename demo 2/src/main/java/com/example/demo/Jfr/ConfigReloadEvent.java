@@ -0,0 +1,25 @@
+package com.example.demo.Jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.example.gateway.ConfigReload")
+@Label("Route Config Reload")
+@Description("Loading gateway routes from the database and building the route snapshot")
+@Category({"Gateway", "Config"})
+@StackTrace(false)
+public class ConfigReloadEvent extends Event {
+
+    @Label("Database Routes")
+    public int databaseRoutes;
+
+    @Label("Routes Built")
+    public int routesBuilt;
+
+    @Label("Allowed IPs")
+    public int allowedIps;
+}
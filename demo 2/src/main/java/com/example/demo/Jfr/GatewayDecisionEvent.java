@@ -0,0 +1,55 @@
+package com.example.demo.Jfr;
+
+import com.example.demo.Metrics.RejectionReason;
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.web.server.ServerWebExchange;
+
+/**
+ * A gateway filter's decision about one request, timed from {@link #begin()} to
+ * {@link #commitFor(ServerWebExchange)}. The outcome is "allowed" or the
+ * {@link RejectionReason} the filter marked on the exchange.
+ *
+ * Filters get their event from the subclass's {@code start()}: while no recording enables
+ * the event type that is one shared, inert instance, so a request allocates nothing for
+ * it; only once a recording enables the type does each request get a fresh, begun event.
+ * Stack traces are off to keep enabled recordings cheap too.
+ */
+@Category({"Gateway", "Filters"})
+@StackTrace(false)
+abstract class GatewayDecisionEvent extends Event {
+
+    @Label("Route")
+    String routeId;
+
+    @Label("Outcome")
+    String outcome;
+
+    // Only the shared instance handed out while the type is disabled; it is never committed.
+    transient boolean inert;
+
+    static <E extends GatewayDecisionEvent> E inert(E event) {
+        event.inert = true;
+        return event;
+    }
+
+    static <E extends GatewayDecisionEvent> E begun(E event) {
+        event.begin();
+        return event;
+    }
+
+    public void commitFor(ServerWebExchange exchange) {
+        if (inert || !shouldCommit()) {
+            return;
+        }
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        RejectionReason reason = exchange.getAttribute(RejectionReason.ATTRIBUTE);
+        routeId = route != null ? route.getId() : null;
+        outcome = reason != null ? reason.getTag() : "allowed";
+        commit();
+    }
+}
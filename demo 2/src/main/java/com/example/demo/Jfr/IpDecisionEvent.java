@@ -0,0 +1,22 @@
+package com.example.demo.Jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.example.gateway.IpDecision")
+@Label("IP Allowlist Decision")
+@Description("IP allowlist check of one request, including loading the route's allowlist")
+public class IpDecisionEvent extends GatewayDecisionEvent {
+
+    private static final EventType TYPE = EventType.getEventType(IpDecisionEvent.class);
+    private static final IpDecisionEvent DISABLED = inert(new IpDecisionEvent());
+
+    /**
+     * A begun event for one request, or the shared inert one while no recording enables it.
+     */
+    public static IpDecisionEvent start() {
+        return TYPE.isEnabled() ? begun(new IpDecisionEvent()) : DISABLED;
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.demo.Jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Flight recordings on a live node, at {@code /actuator/jfr}:
+ * <ul>
+ *   <li>{@code GET /actuator/jfr} lists the recordings</li>
+ *   <li>{@code POST /actuator/jfr} starts one: {@code {"settings": "default"|"profile",
+ *       "maxAgeSeconds": 600, "gatewayThresholdMs": 0}}</li>
+ *   <li>{@code DELETE /actuator/jfr/{id}} stops it; it stays downloadable</li>
+ *   <li>{@code GET /actuator/jfr/{id}} downloads it as a .jfr file</li>
+ * </ul>
+ * Only the three most recent recordings are kept; starting a fourth closes the oldest.
+ * Recordings leave out the JVM's environment variables and system properties, which
+ * routinely hold secrets. Actuator listens on the management port, bound to localhost.
+ */
+@Slf4j
+@Component
+@Endpoint(id = "jfr")
+public class JfrEndpoint {
+
+    private static final int MAX_RECORDINGS = 3;
+    private static final List<String> SENSITIVE_EVENTS = List.of(
+            "jdk.InitialEnvironmentVariable", "jdk.InitialSystemProperty");
+    private static final List<Class<? extends jdk.jfr.Event>> GATEWAY_EVENTS = List.of(
+            RouteMatchEvent.class, IpDecisionEvent.class, TokenVerificationEvent.class,
+            RateLimitDecisionEvent.class, ConfigReloadEvent.class);
+
+    private final List<Recording> recordings = new ArrayList<>();
+
+    @ReadOperation
+    public synchronized List<Map<String, Object>> recordings() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Recording recording : recordings) {
+            result.add(describe(recording));
+        }
+        return result;
+    }
+
+    @WriteOperation
+    public synchronized Map<String, Object> start(@Nullable String settings, @Nullable Long maxAgeSeconds,
+                                                  @Nullable Long gatewayThresholdMs) throws IOException, ParseException {
+        Configuration configuration = Configuration.getConfiguration(settings != null ? settings : "default");
+        Recording recording = new Recording(configuration);
+        recording.setName("gateway-" + System.currentTimeMillis());
+        recording.setToDisk(true);
+        recording.setMaxAge(Duration.ofSeconds(maxAgeSeconds != null ? maxAgeSeconds : 600));
+        for (String event : SENSITIVE_EVENTS) {
+            recording.disable(event);
+        }
+        for (Class<? extends jdk.jfr.Event> event : GATEWAY_EVENTS) {
+            // A threshold keeps a recording under load to the slow decisions only.
+            recording.enable(event).withThreshold(Duration.ofMillis(gatewayThresholdMs != null ? gatewayThresholdMs : 0));
+        }
+        recording.start();
+        recordings.add(recording);
+        trim();
+        log.info("Started JFR recording {} ({})", recording.getId(), configuration.getName());
+        return describe(recording);
+    }
+
+    @DeleteOperation
+    public synchronized WebEndpointResponse<Map<String, Object>> stop(@Selector long id) {
+        Recording recording = find(id);
+        if (recording == null) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        if (recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+            log.info("Stopped JFR recording {}", id);
+        }
+        return new WebEndpointResponse<>(describe(recording));
+    }
+
+    @ReadOperation(produces = "application/octet-stream")
+    public WebEndpointResponse<Resource> download(@Selector long id) throws IOException {
+        Recording recording;
+        synchronized (this) {
+            recording = find(id);
+        }
+        if (recording == null) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        // A running recording dumps what it has so far without stopping.
+        Path file = dumpFile(id);
+        Files.deleteIfExists(file);
+        recording.dump(file);
+        return new WebEndpointResponse<>(new FileSystemResource(file));
+    }
+
+    private Recording find(long id) {
+        for (Recording recording : recordings) {
+            if (recording.getId() == id) {
+                return recording;
+            }
+        }
+        return null;
+    }
+
+    private void trim() {
+        while (recordings.size() > MAX_RECORDINGS) {
+            Recording oldest = recordings.remove(0);
+            oldest.close();
+            try {
+                Files.deleteIfExists(dumpFile(oldest.getId()));
+            } catch (IOException e) {
+                log.debug("Could not delete JFR dump of recording {}: {}", oldest.getId(), e.getMessage());
+            }
+        }
+    }
+
+    private static Path dumpFile(long id) {
+        return Path.of(System.getProperty("java.io.tmpdir"), "gateway-recording-" + id + ".jfr");
+    }
+
+    private static Map<String, Object> describe(Recording recording) {
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("id", recording.getId());
+        view.put("name", recording.getName());
+        view.put("state", recording.getState().name());
+        view.put("startTime", recording.getStartTime());
+        view.put("stopTime", recording.getStopTime());
+        view.put("size", recording.getSize());
+        return view;
+    }
+}
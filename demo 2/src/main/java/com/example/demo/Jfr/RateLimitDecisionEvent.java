@@ -0,0 +1,22 @@
+package com.example.demo.Jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.example.gateway.RateLimitDecision")
+@Label("Rate Limit Decision")
+@Description("Rate-limit check of one request, including loading the route's limit")
+public class RateLimitDecisionEvent extends GatewayDecisionEvent {
+
+    private static final EventType TYPE = EventType.getEventType(RateLimitDecisionEvent.class);
+    private static final RateLimitDecisionEvent DISABLED = inert(new RateLimitDecisionEvent());
+
+    /**
+     * A begun event for one request, or the shared inert one while no recording enables it.
+     */
+    public static RateLimitDecisionEvent start() {
+        return TYPE.isEnabled() ? begun(new RateLimitDecisionEvent()) : DISABLED;
+    }
+}
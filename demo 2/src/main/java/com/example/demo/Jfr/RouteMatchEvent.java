@@ -0,0 +1,37 @@
+package com.example.demo.Jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Route matching happens inside Spring Cloud Gateway's handler mapping, so this is an
+ * instant event carrying the measured match time rather than a timed one. Check
+ * {@link #isTypeEnabled()} before creating one, so requests allocate nothing while no
+ * recording enables it.
+ */
+@Name("com.example.gateway.RouteMatch")
+@Label("Route Match")
+@Description("Time from a request's arrival until a gateway route matched it")
+@Category({"Gateway", "Filters"})
+@StackTrace(false)
+public class RouteMatchEvent extends Event {
+
+    private static final EventType TYPE = EventType.getEventType(RouteMatchEvent.class);
+
+    @Label("Route")
+    public String routeId;
+
+    @Label("Match Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long matchTime;
+
+    public static boolean isTypeEnabled() {
+        return TYPE.isEnabled();
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.demo.Jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.example.gateway.TokenVerification")
+@Label("Token Verification")
+@Description("JWT verification of one request: signature, expiry, revocation and the route's claims policy")
+public class TokenVerificationEvent extends GatewayDecisionEvent {
+
+    private static final EventType TYPE = EventType.getEventType(TokenVerificationEvent.class);
+    private static final TokenVerificationEvent DISABLED = inert(new TokenVerificationEvent());
+
+    /**
+     * A begun event for one request, or the shared inert one while no recording enables it.
+     */
+    public static TokenVerificationEvent start() {
+        return TYPE.isEnabled() ? begun(new TokenVerificationEvent()) : DISABLED;
+    }
+
+    @Label("Key Cache Hit")
+    @Description("False when the signing key was unknown and the key ring had to be refreshed")
+    public boolean keyCacheHit = true;
+}
@@ -0,0 +1,140 @@
+package com.example.demo.Jwt;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * A route's claim requirements, compiled once when routes are built and then evaluated
+ * against {@link LazyClaims} on every request. The stored form is a small JSON object:
+ *
+ * <pre>
+ * {"clientIds": ["billing", "reports"],   // clientId must be one of these
+ *  "scopes":    ["orders:read"],          // token must carry all of these (scope claim)
+ *  "roles":     ["admin", "ops"],         // token must carry at least one (roles claim)
+ *  "claims":    {"tenant": ["acme"]}}     // named string claim must be one of these
+ * </pre>
+ *
+ * Every present section must hold. A policy that cannot be parsed denies everything,
+ * so a typo in the admin UI closes the route instead of opening it.
+ */
+public final class ClaimsPolicy implements Predicate<LazyClaims> {
+
+    public static final String METADATA_KEY = "authPolicy";
+
+    private static final ClaimsPolicy DENY_ALL = new ClaimsPolicy(Collections.singletonList(claims -> false), "deny-all");
+
+    private final List<Predicate<LazyClaims>> requirements;
+    private final String description;
+
+    private ClaimsPolicy(List<Predicate<LazyClaims>> requirements, String description) {
+        this.requirements = requirements;
+        this.description = description;
+    }
+
+    /**
+     * @return the compiled policy, or null when {@code source} is blank (no requirements)
+     */
+    public static ClaimsPolicy compile(String source, ObjectMapper objectMapper) {
+        if (source == null || source.isBlank()) {
+            return null;
+        }
+        JsonNode root;
+        try {
+            root = objectMapper.readTree(source);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Auth policy is not valid JSON: " + e.getMessage(), e);
+        }
+        if (root == null || !root.isObject()) {
+            throw new IllegalArgumentException("Auth policy must be a JSON object");
+        }
+
+        List<Predicate<LazyClaims>> requirements = new ArrayList<>();
+        Iterator<Map.Entry<String, JsonNode>> fields = root.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            switch (field.getKey()) {
+                case "clientIds": {
+                    Set<String> allowed = stringSet(field.getKey(), field.getValue());
+                    requirements.add(claims -> allowed.contains(claims.getClientId()));
+                    break;
+                }
+                case "scopes": {
+                    Set<String> required = stringSet(field.getKey(), field.getValue());
+                    requirements.add(claims -> claims.getStringList("scope").containsAll(required));
+                    break;
+                }
+                case "roles": {
+                    Set<String> accepted = stringSet(field.getKey(), field.getValue());
+                    requirements.add(claims -> anyOf(claims.getStringList("roles"), accepted));
+                    break;
+                }
+                case "claims": {
+                    if (!field.getValue().isObject()) {
+                        throw new IllegalArgumentException("Auth policy 'claims' must be an object");
+                    }
+                    Iterator<Map.Entry<String, JsonNode>> named = field.getValue().fields();
+                    while (named.hasNext()) {
+                        Map.Entry<String, JsonNode> claim = named.next();
+                        String name = claim.getKey();
+                        Set<String> accepted = stringSet(name, claim.getValue());
+                        requirements.add(claims -> accepted.contains(claims.getString(name)));
+                    }
+                    break;
+                }
+                default:
+                    throw new IllegalArgumentException("Unknown auth policy section: " + field.getKey());
+            }
+        }
+        return new ClaimsPolicy(List.copyOf(requirements), root.toString());
+    }
+
+    public static ClaimsPolicy denyAll() {
+        return DENY_ALL;
+    }
+
+    @Override
+    public boolean test(LazyClaims claims) {
+        for (Predicate<LazyClaims> requirement : requirements) {
+            if (!requirement.test(claims)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return description;
+    }
+
+    private static boolean anyOf(List<String> values, Set<String> accepted) {
+        for (String value : values) {
+            if (accepted.contains(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Set<String> stringSet(String name, JsonNode node) {
+        Set<String> values = new HashSet<>();
+        if (node.isTextual()) {
+            values.add(node.asText());
+        } else if (node.isArray()) {
+            node.forEach(element -> values.add(element.asText()));
+        } else {
+            throw new IllegalArgumentException("Auth policy '" + name + "' must be a string or an array of strings");
+        }
+        // Not Set.copyOf: immutable sets throw on contains(null), and absent claims are null.
+        return Collections.unmodifiableSet(values);
+    }
+}
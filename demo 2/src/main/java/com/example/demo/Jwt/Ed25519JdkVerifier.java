@@ -0,0 +1,70 @@
+package com.example.demo.Jwt;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.jca.JCAContext;
+import com.nimbusds.jose.util.Base64URL;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * EdDSA (Ed25519) verifier backed by the JDK's own provider. Nimbus ships one too,
+ * but it needs Tink on the classpath; the JDK has supported Ed25519 since 15.
+ */
+public class Ed25519JdkVerifier implements JWSVerifier {
+
+    // DER prefix of an X.509 SubjectPublicKeyInfo for Ed25519, followed by the 32-byte key.
+    private static final byte[] X509_PREFIX = {
+            0x30, 0x2a, 0x30, 0x05, 0x06, 0x03, 0x2b, 0x65, 0x70, 0x03, 0x21, 0x00
+    };
+
+    private final PublicKey publicKey;
+    private final JCAContext jcaContext = new JCAContext();
+
+    public Ed25519JdkVerifier(PublicKey publicKey) {
+        this.publicKey = publicKey;
+    }
+
+    public static PublicKey publicKeyFromRaw(byte[] x) throws GeneralSecurityException {
+        if (x.length != 32) {
+            throw new GeneralSecurityException("Ed25519 public key must be 32 bytes, got " + x.length);
+        }
+        byte[] encoded = new byte[X509_PREFIX.length + x.length];
+        System.arraycopy(X509_PREFIX, 0, encoded, 0, X509_PREFIX.length);
+        System.arraycopy(x, 0, encoded, X509_PREFIX.length, x.length);
+        return KeyFactory.getInstance("Ed25519").generatePublic(new X509EncodedKeySpec(encoded));
+    }
+
+    @Override
+    public boolean verify(JWSHeader header, byte[] signingInput, Base64URL signature) throws JOSEException {
+        if (!JWSAlgorithm.EdDSA.equals(header.getAlgorithm())) {
+            return false;
+        }
+        try {
+            Signature verifier = Signature.getInstance("Ed25519");
+            verifier.initVerify(publicKey);
+            verifier.update(signingInput);
+            return verifier.verify(signature.decode());
+        } catch (GeneralSecurityException e) {
+            throw new JOSEException("Ed25519 verification failed: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Set<JWSAlgorithm> supportedJWSAlgorithms() {
+        return Collections.singleton(JWSAlgorithm.EdDSA);
+    }
+
+    @Override
+    public JCAContext getJCAContext() {
+        return jcaContext;
+    }
+}
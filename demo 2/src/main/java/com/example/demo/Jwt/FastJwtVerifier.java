@@ -0,0 +1,198 @@
+package com.example.demo.Jwt;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Signature-and-expiry check for the gateway hot path. It verifies the signature over the
+ * raw {@code header.payload} characters and reads only {@code exp}/{@code nbf} from the
+ * payload bytes, all inside per-thread scratch buffers. The only per-request allocation
+ * on success is the {@link LazyClaims} handed back.
+ *
+ * Tokens from one signer share a byte-identical header, so each thread remembers the last
+ * header it resolved and skips header decoding while the kid stays installed in the ring.
+ */
+@Component
+public class FastJwtVerifier {
+
+    private static final byte[] ALG = JsonScanner.key("alg");
+    private static final byte[] KID = JsonScanner.key("kid");
+    private static final byte[] EXP = JsonScanner.key("exp");
+    private static final byte[] NBF = JsonScanner.key("nbf");
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final JwtKeyRing keyRing;
+    private final long clockSkewSeconds;
+
+    public FastJwtVerifier(JwtKeyRing keyRing,
+                           @Value("${gateway.jwt.clock-skew-seconds:60}") long clockSkewSeconds) {
+        this.keyRing = keyRing;
+        this.clockSkewSeconds = clockSkewSeconds;
+    }
+
+    /**
+     * @throws UnknownKeyException when the kid is not (yet) in the ring; callers may refresh and retry
+     * @throws BadJwtException     for any other reason the token is not acceptable
+     */
+    public LazyClaims verify(String token) {
+        int firstDot = token.indexOf('.');
+        int secondDot = firstDot < 0 ? -1 : token.indexOf('.', firstDot + 1);
+        if (firstDot <= 0 || secondDot <= firstDot + 1 || token.indexOf('.', secondDot + 1) >= 0) {
+            throw new BadJwtException("Malformed token");
+        }
+        Scratch scratch = SCRATCH.get();
+
+        JwtKeyRing.KeyEntry key = resolveKey(token, firstDot, scratch);
+
+        int signingInputLength = secondDot;
+        byte[] input = scratch.input(signingInputLength);
+        for (int i = 0; i < signingInputLength; i++) {
+            input[i] = (byte) token.charAt(i);
+        }
+        int signatureLength = decode(token, secondDot + 1, token.length(), scratch.signature(token.length() - secondDot));
+        if (signatureLength < 0 || !verifySignature(key, scratch, input, signingInputLength, signatureLength)) {
+            throw new BadJwtException("Invalid signature");
+        }
+
+        byte[] payload = scratch.payload(secondDot - firstDot);
+        int payloadLength = decode(token, firstDot + 1, secondDot, payload);
+        if (payloadLength < 0) {
+            throw new BadJwtException("Malformed payload");
+        }
+        long now = System.currentTimeMillis() / 1000;
+        long exp = JsonScanner.longValue(payload, payloadLength, EXP);
+        if (exp == JsonScanner.MISSING || now - clockSkewSeconds >= exp) {
+            throw new BadJwtException("Token expired or has no exp");
+        }
+        long nbf = JsonScanner.longValue(payload, payloadLength, NBF);
+        if (nbf != JsonScanner.MISSING && now + clockSkewSeconds < nbf) {
+            throw new BadJwtException("Token not yet valid");
+        }
+        return new LazyClaims(token, firstDot + 1, secondDot, exp);
+    }
+
+    private boolean verifySignature(JwtKeyRing.KeyEntry key, Scratch scratch,
+                                    byte[] input, int inputLength, int signatureLength) {
+        if (key != null) {
+            return key.verifySignature(input, inputLength, scratch.signature, signatureLength);
+        }
+        // Tokens issued before kids were added: try every key with the header's algorithm.
+        for (JwtKeyRing.KeyEntry candidate : keyRing.all()) {
+            if (candidate.getAlgorithm().equals(scratch.legacyAlg)
+                    && candidate.verifySignature(input, inputLength, scratch.signature, signatureLength)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Returns null for a kid-less token, which is then checked against every key.
+    private JwtKeyRing.KeyEntry resolveKey(String token, int headerLength, Scratch scratch) {
+        String cachedHeader = scratch.header;
+        if (cachedHeader != null && cachedHeader.length() == headerLength
+                && token.regionMatches(0, cachedHeader, 0, headerLength)
+                && keyRing.find(scratch.kid) == scratch.key) {
+            return scratch.key;
+        }
+
+        byte[] header = scratch.payload(headerLength);
+        int length = decode(token, 0, headerLength, header);
+        if (length < 0) {
+            throw new BadJwtException("Malformed header");
+        }
+        String alg = JsonScanner.stringValue(header, length, ALG);
+        String kid = JsonScanner.stringValue(header, length, KID);
+        if (alg == null) {
+            throw new BadJwtException("Token header has no alg");
+        }
+        if (kid == null) {
+            scratch.legacyAlg = alg;
+            return null;
+        }
+        JwtKeyRing.KeyEntry key = keyRing.find(kid);
+        if (key == null) {
+            throw new UnknownKeyException(kid);
+        }
+        // Refuse algorithm substitution: the header must name the key's own algorithm.
+        if (!key.getAlgorithm().equals(alg)) {
+            throw new BadJwtException("Algorithm " + alg + " does not match key " + kid);
+        }
+        scratch.header = token.substring(0, headerLength);
+        scratch.kid = kid;
+        scratch.key = key;
+        return key;
+    }
+
+    /**
+     * Base64url-decodes {@code src[from..to)} into {@code dst}; returns the byte count or -1 if invalid.
+     */
+    private static int decode(String src, int from, int to, byte[] dst) {
+        int out = 0;
+        int bits = 0;
+        int buffered = 0;
+        for (int i = from; i < to; i++) {
+            int value = decodeChar(src.charAt(i));
+            if (value < 0) {
+                return -1;
+            }
+            bits = (bits << 6) | value;
+            buffered += 6;
+            if (buffered >= 8) {
+                buffered -= 8;
+                dst[out++] = (byte) (bits >> buffered);
+            }
+        }
+        return out;
+    }
+
+    private static int decodeChar(char c) {
+        if (c >= 'A' && c <= 'Z') return c - 'A';
+        if (c >= 'a' && c <= 'z') return c - 'a' + 26;
+        if (c >= '0' && c <= '9') return c - '0' + 52;
+        if (c == '-') return 62;
+        if (c == '_') return 63;
+        return -1;
+    }
+
+    /**
+     * Thrown when a token names a kid the ring does not hold.
+     */
+    public static class UnknownKeyException extends BadJwtException {
+        private static final long serialVersionUID = 1L;
+
+        public UnknownKeyException(String kid) {
+            super("Unknown signing key: " + kid);
+        }
+    }
+
+    // Per-thread buffers, grown on demand and then reused for every token on that thread.
+    private static final class Scratch {
+        private byte[] input = new byte[1024];
+        private byte[] payload = new byte[1024];
+        private byte[] signature = new byte[512];
+
+        private String header;
+        private String kid;
+        private JwtKeyRing.KeyEntry key;
+        private String legacyAlg;
+
+        private byte[] input(int length) {
+            if (input.length < length) input = new byte[length];
+            return input;
+        }
+
+        private byte[] payload(int encodedLength) {
+            int length = encodedLength * 3 / 4 + 3;
+            if (payload.length < length) payload = new byte[length];
+            return payload;
+        }
+
+        private byte[] signature(int encodedLength) {
+            int length = encodedLength * 3 / 4 + 3;
+            if (signature.length < length) signature = new byte[length];
+            return signature;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.demo.Jwt;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Minimal scanner over the UTF-8 bytes of a flat JSON object (a JWT header or payload).
+ * It finds a top-level member by name without building a tree, so reading {@code exp}
+ * allocates nothing; string values are only materialised when asked for.
+ */
+final class JsonScanner {
+
+    static final long MISSING = Long.MIN_VALUE;
+
+    private JsonScanner() {
+    }
+
+    static byte[] key(String name) {
+        return ("\"" + name + "\"").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the index of the first byte of the value of top-level member {@code quotedKey}
+     * (the key including its quotes), or -1 when absent.
+     */
+    static int valueIndex(byte[] json, int length, byte[] quotedKey) {
+        int depth = 0;
+        int i = 0;
+        while (i < length) {
+            byte b = json[i];
+            if (b == '"') {
+                int start = i;
+                i = skipString(json, length, i);
+                if (depth == 1 && i - start == quotedKey.length && regionEquals(json, start, quotedKey)) {
+                    int colon = skipWhitespace(json, length, i);
+                    if (colon < length && json[colon] == ':') {
+                        return skipWhitespace(json, length, colon + 1);
+                    }
+                }
+                continue;
+            }
+            if (b == '{' || b == '[') {
+                depth++;
+            } else if (b == '}' || b == ']') {
+                depth--;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    static long longValue(byte[] json, int length, byte[] quotedKey) {
+        int i = valueIndex(json, length, quotedKey);
+        if (i < 0 || i >= length) {
+            return MISSING;
+        }
+        boolean negative = json[i] == '-';
+        if (negative) i++;
+        long value = 0;
+        int digits = 0;
+        while (i < length && json[i] >= '0' && json[i] <= '9') {
+            value = value * 10 + (json[i] - '0');
+            i++;
+            digits++;
+        }
+        // NumericDate may carry a fraction; whole seconds are all we compare.
+        return digits == 0 ? MISSING : (negative ? -value : value);
+    }
+
+    static String stringValue(byte[] json, int length, byte[] quotedKey) {
+        int i = valueIndex(json, length, quotedKey);
+        if (i < 0 || i >= length || json[i] != '"') {
+            return null;
+        }
+        return readString(json, length, i);
+    }
+
+    /**
+     * A string array member, or a single space-delimited string (the OAuth {@code scope} form).
+     */
+    static List<String> stringListValue(byte[] json, int length, byte[] quotedKey) {
+        int i = valueIndex(json, length, quotedKey);
+        if (i < 0 || i >= length) {
+            return Collections.emptyList();
+        }
+        List<String> values = new ArrayList<>();
+        if (json[i] == '"') {
+            for (String part : readString(json, length, i).split(" ")) {
+                if (!part.isEmpty()) values.add(part);
+            }
+            return values;
+        }
+        if (json[i] != '[') {
+            return Collections.emptyList();
+        }
+        i = skipWhitespace(json, length, i + 1);
+        while (i < length && json[i] != ']') {
+            if (json[i] == '"') {
+                values.add(readString(json, length, i));
+                i = skipString(json, length, i);
+            } else {
+                i++;
+            }
+        }
+        return values;
+    }
+
+    static boolean regionEquals(byte[] json, int offset, byte[] expected) {
+        for (int k = 0; k < expected.length; k++) {
+            if (json[offset + k] != expected[k]) return false;
+        }
+        return true;
+    }
+
+    // Returns the index just past the closing quote of the string starting at i.
+    private static int skipString(byte[] json, int length, int i) {
+        i++;
+        while (i < length) {
+            byte b = json[i];
+            if (b == '\\') {
+                i += 2;
+            } else if (b == '"') {
+                return i + 1;
+            } else {
+                i++;
+            }
+        }
+        return length;
+    }
+
+    private static int skipWhitespace(byte[] json, int length, int i) {
+        while (i < length && (json[i] == ' ' || json[i] == '\t' || json[i] == '\n' || json[i] == '\r')) {
+            i++;
+        }
+        return i;
+    }
+
+    private static String readString(byte[] json, int length, int quote) {
+        int end = skipString(json, length, quote) - 1;
+        String raw = new String(json, quote + 1, Math.max(0, end - quote - 1), StandardCharsets.UTF_8);
+        return raw.indexOf('\\') < 0 ? raw : unescape(raw);
+    }
+
+    private static String unescape(String raw) {
+        StringBuilder out = new StringBuilder(raw.length());
+        for (int i = 0; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+            if (c != '\\' || i + 1 >= raw.length()) {
+                out.append(c);
+                continue;
+            }
+            char next = raw.charAt(++i);
+            switch (next) {
+                case 'n': out.append('\n'); break;
+                case 't': out.append('\t'); break;
+                case 'r': out.append('\r'); break;
+                case 'b': out.append('\b'); break;
+                case 'f': out.append('\f'); break;
+                case 'u':
+                    if (i + 4 < raw.length()) {
+                        out.append((char) Integer.parseInt(raw.substring(i + 1, i + 5), 16));
+                        i += 4;
+                    }
+                    break;
+                default: out.append(next);
+            }
+        }
+        return out.toString();
+    }
+}
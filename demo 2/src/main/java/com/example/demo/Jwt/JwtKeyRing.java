@@ -0,0 +1,384 @@
+package com.example.demo.Jwt;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.crypto.ECDSAVerifier;
+import com.nimbusds.jose.crypto.RSASSAVerifier;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jwt.JWT;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Holds the token service's public keys indexed by {@code kid}, each with a verifier
+ * prepared once when the key is installed. Keys come either from a watched local file
+ * (JWKS JSON or a single PEM public key) or from the token service's /auth/jwks
+ * endpoint, and are swapped in atomically so rotation needs no restart.
+ */
+@Slf4j
+@Component
+public class JwtKeyRing {
+
+    private final WebClient webClient;
+    private final String jwksUri;
+    private final Path jwksFile;
+    private final long minRefreshIntervalMs;
+
+    // Replaced wholesale on every refresh; readers never see a half-built ring.
+    private volatile Map<String, KeyEntry> keys = Collections.emptyMap();
+
+    private volatile Mono<Void> inFlightRefresh;
+    private volatile long lastRefreshStarted;
+    private volatile long lastFileModified = -1;
+
+    public JwtKeyRing(WebClient.Builder webClientBuilder,
+                      @Value("${gateway.jwt.jwks-uri:http://localhost:8080/auth/jwks}") String jwksUri,
+                      @Value("${gateway.jwt.jwks-file:}") String jwksFile,
+                      @Value("${gateway.jwt.min-refresh-interval-ms:5000}") long minRefreshIntervalMs) {
+        this.webClient = webClientBuilder.build();
+        this.jwksUri = jwksUri;
+        this.jwksFile = (jwksFile == null || jwksFile.isBlank()) ? null : Paths.get(jwksFile);
+        this.minRefreshIntervalMs = minRefreshIntervalMs;
+    }
+
+    @PostConstruct
+    public void init() {
+        refresh().subscribe();
+    }
+
+    /**
+     * Periodic refresh. In file mode this only re-parses when the file's mtime changed.
+     */
+    @Scheduled(fixedDelayString = "${gateway.jwt.refresh-interval-ms:30000}",
+            initialDelayString = "${gateway.jwt.refresh-interval-ms:30000}")
+    public void scheduledRefresh() {
+        refresh().subscribe();
+    }
+
+    /**
+     * Starts a refresh unless one started within the last {@code min-refresh-interval-ms},
+     * in which case callers share the in-flight (or just-finished) one.
+     */
+    public Mono<Void> refresh() {
+        long now = System.currentTimeMillis();
+        Mono<Void> current = inFlightRefresh;
+        if (current != null && now - lastRefreshStarted < minRefreshIntervalMs) {
+            return current;
+        }
+        synchronized (this) {
+            if (inFlightRefresh != null && now - lastRefreshStarted < minRefreshIntervalMs) {
+                return inFlightRefresh;
+            }
+            lastRefreshStarted = now;
+            Mono<Void> load = (jwksFile != null) ? loadFromFile() : loadFromEndpoint();
+            inFlightRefresh = load
+                    .onErrorResume(e -> {
+                        log.warn("JWT key refresh failed, keeping {} existing key(s): {}", keys.size(), e.getMessage());
+                        return Mono.empty();
+                    })
+                    .cache();
+            return inFlightRefresh;
+        }
+    }
+
+    public KeyEntry find(String kid) {
+        return kid == null ? null : keys.get(kid);
+    }
+
+    public Collection<KeyEntry> all() {
+        return keys.values();
+    }
+
+    /**
+     * JWT processor for {@code NimbusReactiveJwtDecoder}: picks the verifier by kid and only
+     * goes back to the key source when the kid is unknown (e.g. right after a rotation).
+     */
+    public Mono<JWTClaimsSet> process(JWT jwt) {
+        if (!(jwt instanceof SignedJWT signed)) {
+            return Mono.error(new BadJwtException("Unsigned tokens are not accepted"));
+        }
+        String kid = signed.getHeader().getKeyID();
+        KeyEntry entry = find(kid);
+        if (entry != null) {
+            return verify(signed, entry);
+        }
+        if (kid == null) {
+            // Tokens issued before kids were added: try every key we hold.
+            for (KeyEntry candidate : keys.values()) {
+                if (verifies(signed, candidate)) {
+                    return claimsOf(signed);
+                }
+            }
+            return Mono.error(new BadJwtException("Token has no kid and matches no known key"));
+        }
+        return refresh().then(Mono.defer(() -> {
+            KeyEntry refreshed = find(kid);
+            return refreshed != null
+                    ? verify(signed, refreshed)
+                    : Mono.error(new BadJwtException("Unknown signing key: " + kid));
+        }));
+    }
+
+    private Mono<JWTClaimsSet> verify(SignedJWT signed, KeyEntry entry) {
+        if (!verifies(signed, entry)) {
+            return Mono.error(new BadJwtException("Invalid signature"));
+        }
+        return claimsOf(signed);
+    }
+
+    private boolean verifies(SignedJWT signed, KeyEntry entry) {
+        // Refuse algorithm substitution: the header must name the key's own algorithm.
+        if (!entry.getAlgorithm().equals(signed.getHeader().getAlgorithm().getName())) {
+            return false;
+        }
+        try {
+            return signed.verify(entry.getVerifier());
+        } catch (JOSEException e) {
+            return false;
+        }
+    }
+
+    private static Mono<JWTClaimsSet> claimsOf(SignedJWT signed) {
+        try {
+            return Mono.just(signed.getJWTClaimsSet());
+        } catch (java.text.ParseException e) {
+            return Mono.error(new BadJwtException("Malformed claims: " + e.getMessage(), e));
+        }
+    }
+
+    private Mono<Void> loadFromEndpoint() {
+        return webClient.get()
+                .uri(jwksUri)
+                .retrieve()
+                .bodyToMono(String.class)
+                .timeout(Duration.ofSeconds(5))
+                .doOnNext(json -> install(parseJwkSet(json, keys), jwksUri))
+                .then();
+    }
+
+    private Mono<Void> loadFromFile() {
+        return Mono.<Void>fromRunnable(() -> {
+            try {
+                long modified = Files.getLastModifiedTime(jwksFile).toMillis();
+                if (modified == lastFileModified) {
+                    return;
+                }
+                String content = Files.readString(jwksFile, StandardCharsets.UTF_8);
+                Map<String, KeyEntry> current = keys;
+                install(content.contains("-----BEGIN PUBLIC KEY-----") ? parsePem(content, current) : parseJwkSet(content, current),
+                        jwksFile.toString());
+                lastFileModified = modified;
+            } catch (Exception e) {
+                throw new IllegalStateException("Cannot read " + jwksFile + ": " + e.getMessage(), e);
+            }
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private void install(Map<String, KeyEntry> loaded, String source) {
+        if (loaded.isEmpty()) {
+            log.warn("No usable keys in {}, keeping {} existing key(s)", source, keys.size());
+            return;
+        }
+        if (loaded.equals(keys)) {
+            // Same kids with the same key material: every entry was reused, nothing to swap.
+            log.debug("JWT verification keys from {} unchanged: {}", source, loaded.keySet());
+            return;
+        }
+        keys = Collections.unmodifiableMap(loaded);
+        log.info("Installed {} JWT verification key(s) from {}: {}", loaded.size(), source, loaded.keySet());
+    }
+
+    /**
+     * @param current the installed keys, whose entries (and their per-thread Signatures) are
+     *                reused for kids whose algorithm and key bytes did not change
+     */
+    private static Map<String, KeyEntry> parseJwkSet(String json, Map<String, KeyEntry> current) {
+        Map<String, KeyEntry> loaded = new HashMap<>();
+        try {
+            for (JWK jwk : JWKSet.parse(json).getKeys()) {
+                KeyEntry entry = toEntry(jwk, current);
+                if (entry != null) {
+                    loaded.put(entry.getKid(), entry);
+                }
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("Malformed JWK set: " + e.getMessage(), e);
+        }
+        return loaded;
+    }
+
+    private static Map<String, KeyEntry> parsePem(String pem, Map<String, KeyEntry> current) {
+        try {
+            String cleaned = pem
+                    .replace("-----BEGIN PUBLIC KEY-----", "")
+                    .replace("-----END PUBLIC KEY-----", "")
+                    .replaceAll("\\s+", "");
+            byte[] decoded = Base64.getDecoder().decode(cleaned);
+            RSAPublicKey publicKey = (RSAPublicKey) KeyFactory.getInstance("RSA")
+                    .generatePublic(new X509EncodedKeySpec(decoded));
+            // Same RFC 7638 thumbprint the token service uses as kid.
+            RSAKey jwk = new RSAKey.Builder(publicKey).keyIDFromThumbprint().build();
+            KeyEntry entry = toEntry(jwk, current);
+            return Collections.singletonMap(entry.getKid(), entry);
+        } catch (Exception e) {
+            throw new IllegalStateException("Malformed PEM public key: " + e.getMessage(), e);
+        }
+    }
+
+    // RS256, ES256 and EdDSA keys are all accepted so signers can migrate without a flag day.
+    private static KeyEntry toEntry(JWK jwk, Map<String, KeyEntry> current) throws JOSEException, GeneralSecurityException {
+        if (jwk.getKeyID() == null) {
+            log.warn("Ignoring JWK without kid ({})", jwk.getKeyType());
+            return null;
+        }
+        KeyEntry existing = current.get(jwk.getKeyID());
+        if (jwk instanceof RSAKey rsa) {
+            RSAPublicKey publicKey = rsa.toRSAPublicKey();
+            String alg = jwk.getAlgorithm() != null ? jwk.getAlgorithm().getName() : "RS256";
+            return existing != null && existing.matches(alg, publicKey) ? existing
+                    : new KeyEntry(jwk.getKeyID(), alg, publicKey, new RSASSAVerifier(publicKey));
+        }
+        if (jwk instanceof ECKey ec && Curve.P_256.equals(ec.getCurve())) {
+            ECPublicKey publicKey = ec.toECPublicKey();
+            return existing != null && existing.matches("ES256", publicKey) ? existing
+                    : new KeyEntry(jwk.getKeyID(), "ES256", publicKey, new ECDSAVerifier(publicKey));
+        }
+        if (jwk instanceof OctetKeyPair okp && Curve.Ed25519.equals(okp.getCurve())) {
+            PublicKey publicKey = Ed25519JdkVerifier.publicKeyFromRaw(okp.getDecodedX());
+            return existing != null && existing.matches("EdDSA", publicKey) ? existing
+                    : new KeyEntry(jwk.getKeyID(), "EdDSA", publicKey, new Ed25519JdkVerifier(publicKey));
+        }
+        log.warn("Ignoring JWK {} with unsupported key type {}", jwk.getKeyID(), jwk.getKeyType());
+        return null;
+    }
+
+    /**
+     * One installed key: its id, the JWS algorithm it signs with, a ready-to-use Nimbus
+     * verifier and, for the fast path, one initialised JCA {@link Signature} per thread.
+     */
+    public static final class KeyEntry {
+        private final String kid;
+        private final String algorithm;
+        private final PublicKey publicKey;
+        private final JWSVerifier verifier;
+        private final ThreadLocal<Signature> signatures;
+        private final int signatureLength;
+
+        KeyEntry(String kid, String algorithm, PublicKey publicKey, JWSVerifier verifier) {
+            this.kid = kid;
+            this.algorithm = algorithm;
+            this.publicKey = publicKey;
+            this.verifier = verifier;
+            this.signatureLength = signatureLengthFor(algorithm, publicKey);
+            String jcaAlgorithm = jcaAlgorithmFor(algorithm);
+            this.signatures = ThreadLocal.withInitial(() -> {
+                try {
+                    Signature signature = Signature.getInstance(jcaAlgorithm);
+                    signature.initVerify(publicKey);
+                    return signature;
+                } catch (GeneralSecurityException e) {
+                    throw new IllegalStateException("Cannot initialise " + jcaAlgorithm + " verifier", e);
+                }
+            });
+        }
+
+        private static String jcaAlgorithmFor(String algorithm) {
+            switch (algorithm) {
+                case "RS256":
+                    return "SHA256withRSA";
+                case "ES256":
+                    // JWS carries the raw R||S form, which the JDK verifies directly in P1363 format.
+                    return "SHA256withECDSAinP1363Format";
+                case "EdDSA":
+                    return "Ed25519";
+                default:
+                    throw new IllegalArgumentException("Unsupported JWS algorithm: " + algorithm);
+            }
+        }
+
+        /**
+         * JWS signatures have a fixed length per key: the RSA modulus length for RS256,
+         * R||S of 32 bytes each for ES256 and 64 bytes for Ed25519.
+         */
+        private static int signatureLengthFor(String algorithm, PublicKey publicKey) {
+            if ("RS256".equals(algorithm)) {
+                return (((RSAPublicKey) publicKey).getModulus().bitLength() + 7) / 8;
+            }
+            return 64;
+        }
+
+        /**
+         * Verifies {@code signature[0..signatureLength)} over {@code signingInput[0..inputLength)}
+         * with this thread's Signature; verify() resets it for the next call. A signature of the
+         * wrong length is refused before the Signature sees any input, and one that makes it
+         * throw drops it: a provider may keep the buffered input after throwing (Ed25519 does),
+         * which would fail the next, valid, token verified on this thread.
+         */
+        public boolean verifySignature(byte[] signingInput, int inputLength, byte[] signature, int signatureLength) {
+            if (signatureLength != this.signatureLength) {
+                return false;
+            }
+            try {
+                Signature jca = signatures.get();
+                jca.update(signingInput, 0, inputLength);
+                return jca.verify(signature, 0, signatureLength);
+            } catch (GeneralSecurityException e) {
+                signatures.remove();
+                return false;
+            }
+        }
+
+        boolean matches(String otherAlgorithm, PublicKey otherKey) {
+            return algorithm.equals(otherAlgorithm) && Arrays.equals(publicKey.getEncoded(), otherKey.getEncoded());
+        }
+
+        public String getKid() {
+            return kid;
+        }
+
+        public String getAlgorithm() {
+            return algorithm;
+        }
+
+        public PublicKey getPublicKey() {
+            return publicKey;
+        }
+
+        public JWSVerifier getVerifier() {
+            return verifier;
+        }
+    }
+}
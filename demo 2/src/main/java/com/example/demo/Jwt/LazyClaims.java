@@ -0,0 +1,76 @@
+package com.example.demo.Jwt;
+
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Claims of a token that passed {@link FastJwtVerifier}. Only {@code exp} is read during
+ * verification; everything else is decoded from the original token the first time a
+ * consumer (a claims policy, a clientId-keyed limiter...) actually asks for it.
+ *
+ * Stored on the exchange under {@link #ATTRIBUTE}. Not thread-safe, like the exchange itself.
+ */
+public final class LazyClaims {
+
+    public static final String ATTRIBUTE = LazyClaims.class.getName();
+
+    private static final byte[] CLIENT_ID = JsonScanner.key("clientId");
+    private static final byte[] JTI = JsonScanner.key("jti");
+    private static final byte[] IAT = JsonScanner.key("iat");
+
+    private final String token;
+    private final int payloadStart;
+    private final int payloadEnd;
+    private final long expiresAt;
+
+    private byte[] payload;
+    private String clientId;
+
+    LazyClaims(String token, int payloadStart, int payloadEnd, long expiresAt) {
+        this.token = token;
+        this.payloadStart = payloadStart;
+        this.payloadEnd = payloadEnd;
+        this.expiresAt = expiresAt;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public String getClientId() {
+        if (clientId == null) {
+            clientId = JsonScanner.stringValue(payload(), payload.length, CLIENT_ID);
+        }
+        return clientId;
+    }
+
+    public String getTokenId() {
+        return JsonScanner.stringValue(payload(), payload.length, JTI);
+    }
+
+    /**
+     * @return iat in epoch seconds, or 0 when the token has none
+     */
+    public long getIssuedAt() {
+        long iat = JsonScanner.longValue(payload(), payload.length, IAT);
+        return iat == JsonScanner.MISSING ? 0 : iat;
+    }
+
+    public String getString(String name) {
+        return JsonScanner.stringValue(payload(), payload.length, JsonScanner.key(name));
+    }
+
+    /**
+     * A string-array claim, or a space-delimited string claim split into its parts.
+     */
+    public List<String> getStringList(String name) {
+        return JsonScanner.stringListValue(payload(), payload.length, JsonScanner.key(name));
+    }
+
+    private byte[] payload() {
+        if (payload == null) {
+            payload = Base64.getUrlDecoder().decode(token.substring(payloadStart, payloadEnd));
+        }
+        return payload;
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.demo.Jwt;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Local copy of the token service's revocation list, kept current by polling
+ * /auth/revocations with the last version seen. Checks never leave the process:
+ * a Bloom filter answers "definitely not revoked" for almost every jti, and only
+ * a possible hit is confirmed against the exact set.
+ *
+ * Entries are dropped once the tokens they match have expired, and the Bloom filter is
+ * rebuilt from what is left, so the set only holds revocations that can still matter.
+ */
+@Slf4j
+@Component
+public class RevocationSet {
+
+    private static final String TYPE_JTI = "jti";
+    private static final String TYPE_CLIENT = "clientId";
+
+    private final WebClient webClient;
+    private final String revocationsUri;
+    private final int bloomBits;
+    private final Duration pollTimeout;
+
+    // Swapped as a whole on a full snapshot or a prune; deltas are applied to the current one in place.
+    private volatile State state;
+    private volatile long version;
+
+    public RevocationSet(WebClient.Builder webClientBuilder,
+                         @Value("${gateway.revocation.uri:http://localhost:8080/auth/revocations}") String revocationsUri,
+                         @Value("${gateway.revocation.bloom-bits:1048576}") int bloomBits,
+                         @Value("${gateway.revocation.poll-timeout-ms:2000}") long pollTimeoutMs) {
+        this.webClient = webClientBuilder.build();
+        this.revocationsUri = revocationsUri;
+        this.bloomBits = bloomBits;
+        this.pollTimeout = Duration.ofMillis(pollTimeoutMs);
+        this.state = new State(bloomBits);
+    }
+
+    /**
+     * @param issuedAt token iat in epoch seconds; the token service stamps tokens issued in
+     *                 the second a client was revoked with the next one, so {@code <=} is exact
+     */
+    public boolean isRevoked(String jti, String clientId, long issuedAt) {
+        State current = state;
+        if (clientId != null && !current.clients.isEmpty()) {
+            Entry revoked = current.clients.get(clientId);
+            if (revoked != null && issuedAt <= revoked.revokedAt) {
+                return true;
+            }
+        }
+        return jti != null && current.bloom.mightContain(jti) && current.jtis.containsKey(jti);
+    }
+
+    public boolean isEmpty() {
+        State current = state;
+        return current.jtis.isEmpty() && current.clients.isEmpty();
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    @Scheduled(fixedDelayString = "${gateway.revocation.poll-interval-ms:5000}")
+    public void poll() {
+        long since = version;
+        webClient.get()
+                .uri(revocationsUri + "?since={since}", since)
+                .retrieve()
+                .bodyToMono(Delta.class)
+                .timeout(pollTimeout)
+                .subscribe(this::apply,
+                        e -> log.warn("Revocation poll failed, staying at version {}: {}", since, e.getMessage()));
+    }
+
+    synchronized void apply(Delta delta) {
+        long now = System.currentTimeMillis() / 1000;
+        if (delta.full) {
+            state = rebuild(delta.entries, now);
+        } else {
+            State current = state;
+            delta.entries.forEach(current::add);
+            prune(current, now);
+        }
+        if (delta.version != version) {
+            log.info("Revocations now at version {} ({} {} entr{})", delta.version,
+                    delta.full ? "snapshot of" : "delta of", delta.entries.size(),
+                    delta.entries.size() == 1 ? "y" : "ies");
+        }
+        version = delta.version;
+    }
+
+    /**
+     * Drops entries whose tokens have all expired. A Bloom filter cannot forget, so when
+     * a jti goes, the state is rebuilt from the remaining entries and swapped in.
+     */
+    private void prune(State current, long now) {
+        current.clients.values().removeIf(entry -> entry.isExpired(now));
+        if (current.jtis.values().stream().anyMatch(entry -> entry.isExpired(now))) {
+            List<Entry> live = new ArrayList<>(current.jtis.values());
+            live.addAll(current.clients.values());
+            state = rebuild(live, now);
+        }
+    }
+
+    private State rebuild(List<Entry> entries, long now) {
+        State rebuilt = new State(bloomBits);
+        for (Entry entry : entries) {
+            if (!entry.isExpired(now)) {
+                rebuilt.add(entry);
+            }
+        }
+        return rebuilt;
+    }
+
+    int size() {
+        State current = state;
+        return current.jtis.size() + current.clients.size();
+    }
+
+    private static final class State {
+        private final BloomFilter bloom;
+        private final Map<String, Entry> jtis = new ConcurrentHashMap<>();
+        private final Map<String, Entry> clients = new ConcurrentHashMap<>();
+
+        private State(int bloomBits) {
+            this.bloom = new BloomFilter(bloomBits);
+        }
+
+        private void add(Entry entry) {
+            if (TYPE_JTI.equals(entry.type)) {
+                jtis.put(entry.value, entry);
+                bloom.add(entry.value);
+            } else if (TYPE_CLIENT.equals(entry.type)) {
+                // The later revocation covers more tokens and expires last.
+                clients.merge(entry.value, entry, (a, b) -> b.revokedAt > a.revokedAt ? b : a);
+            }
+        }
+    }
+
+    /**
+     * Fixed-size Bloom filter, four probes by double hashing. Bits are only ever set,
+     * so concurrent readers need no locking.
+     */
+    static final class BloomFilter {
+        private static final int PROBES = 4;
+
+        private final AtomicLongArray words;
+        private final int mask;
+
+        BloomFilter(int bits) {
+            int size = Integer.highestOneBit(Math.max(bits, 64));
+            this.words = new AtomicLongArray(size >>> 6);
+            this.mask = size - 1;
+        }
+
+        void add(String key) {
+            long h = hash(key);
+            int h1 = (int) h;
+            int h2 = (int) (h >>> 32) | 1;
+            for (int i = 0; i < PROBES; i++) {
+                int bit = (h1 + i * h2) & mask;
+                long bitMask = 1L << bit;
+                int word = bit >>> 6;
+                long current;
+                do {
+                    current = words.get(word);
+                } while ((current & bitMask) == 0 && !words.compareAndSet(word, current, current | bitMask));
+            }
+        }
+
+        boolean mightContain(String key) {
+            long h = hash(key);
+            int h1 = (int) h;
+            int h2 = (int) (h >>> 32) | 1;
+            for (int i = 0; i < PROBES; i++) {
+                int bit = (h1 + i * h2) & mask;
+                if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // 64-bit FNV-1a over the chars, finished with a murmur3 mix so both halves are usable.
+        private static long hash(String key) {
+            long h = 0xcbf29ce484222325L;
+            for (int i = 0; i < key.length(); i++) {
+                h ^= key.charAt(i);
+                h *= 0x100000001b3L;
+            }
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    static class Delta {
+        public long version;
+        public boolean full;
+        public List<Entry> entries = List.of();
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    static class Entry {
+        public String type;
+        public String value;
+        public long revokedAt;
+        // 0 when the token service does not send it; such entries are never pruned.
+        public long expiresAt;
+
+        boolean isExpired(long now) {
+            return expiresAt > 0 && expiresAt < now;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.demo.Logging;
+
+import com.example.demo.Db.IpUtils;
+import com.example.demo.Jwt.LazyClaims;
+import com.example.demo.Tracing.TraceContext;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Structured access log: one NDJSON line per exchange, written to a rolling file by a
+ * single background thread. Request threads only claim a slot in an {@link AccessLogRing}
+ * and copy a few references into it, so logging never blocks or allocates on the event
+ * loop; the writer drains the ring in batches and does all formatting and I/O.
+ *
+ * When the ring is full records are dropped (and counted) according to the drop policy
+ * rather than slowing requests down. If the file cannot be written the writer counts the
+ * lost batch as dropped, reopens the file after a second and carries on.
+ */
+@Slf4j
+@Component
+public class AccessLog {
+
+    private static final long REOPEN_DELAY_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final String X_FORWARDED_FOR = "X-Forwarded-For";
+
+    public enum DropPolicy {
+        /** Drop whatever arrives while the ring is full. */
+        DROP_NEWEST,
+        /** Once the ring is 90% full, keep only 4xx/5xx records so failures are never lost first. */
+        SHED_SUCCESSES
+    }
+
+    private final boolean enabled;
+    private final String file;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final int batchSize;
+    private final DropPolicy dropPolicy;
+    private final AccessLogRing ring;
+    private final long shedThreshold;
+    private final LongAdder dropped = new LongAdder();
+    private final StringBuilder line = new StringBuilder(256);
+    // Records of the batch being written, lost if the write fails. Writer thread only.
+    private int pending;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public AccessLog(@Value("${gateway.access-log.enabled:true}") boolean enabled,
+                     @Value("${gateway.access-log.file:logs/access.log}") String file,
+                     @Value("${gateway.access-log.buffer-size:65536}") int bufferSize,
+                     @Value("${gateway.access-log.batch-size:1024}") int batchSize,
+                     @Value("${gateway.access-log.max-file-size-mb:100}") long maxFileSizeMb,
+                     @Value("${gateway.access-log.max-files:10}") int maxFiles,
+                     @Value("${gateway.access-log.drop-policy:shed-successes}") DropPolicy dropPolicy,
+                     MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.file = file;
+        this.maxFileBytes = maxFileSizeMb * 1024 * 1024;
+        this.maxFiles = maxFiles;
+        this.batchSize = batchSize;
+        this.dropPolicy = dropPolicy;
+        this.ring = new AccessLogRing(enabled ? bufferSize : 2);
+        this.shedThreshold = ring.capacity() * 9L / 10;
+        FunctionCounter.builder("gateway.access_log.dropped", dropped, LongAdder::sum)
+                .description("Access log records dropped because the writer fell behind or could not write")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::writeLoop, "access-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    /**
+     * Records one completed exchange. Never blocks; returns false if the record was dropped.
+     * Call it on the request's own thread: the request and the claims are read here and not kept.
+     */
+    public boolean offer(ServerHttpRequest request, String routeId, int status, long durationMicros,
+                         LazyClaims claims, TraceContext trace) {
+        if (!running) {
+            return false;
+        }
+        if (dropPolicy == DropPolicy.SHED_SUCCESSES && status < 400 && ring.size() >= shedThreshold) {
+            dropped.increment();
+            return false;
+        }
+        // Claims are not thread-safe, so the clientId is decoded here rather than by the writer;
+        // before claiming a slot, so nothing can leave one claimed but never published.
+        String clientId = claims != null ? claims.getClientId() : null;
+        long position = ring.claim();
+        if (position < 0) {
+            dropped.increment();
+            return false;
+        }
+        AccessLogEntry entry = ring.entry(position);
+        entry.timestampMillis = System.currentTimeMillis();
+        entry.method = request.getMethod().name();
+        entry.path = request.getURI().getRawPath();
+        entry.forwardedFor = request.getHeaders().getFirst(X_FORWARDED_FOR);
+        entry.remoteAddress = request.getRemoteAddress();
+        entry.routeId = routeId;
+        entry.status = status;
+        entry.durationMicros = durationMicros;
+        entry.clientId = clientId;
+        entry.trace = trace;
+        ring.publish(position);
+        return true;
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    private void writeLoop() {
+        boolean failed = false;
+        while (running || ring.peek() != null) {
+            try (RollingFileSink sink = new RollingFileSink(Paths.get(file), maxFileBytes, maxFiles)) {
+                if (failed) {
+                    log.info("Access log writing to {} again", Paths.get(file).toAbsolutePath());
+                } else {
+                    log.info("Access log writing to {}", Paths.get(file).toAbsolutePath());
+                }
+                failed = false;
+                while (running || ring.peek() != null) {
+                    if (drain(sink) == 0) {
+                        LockSupport.parkNanos(1_000_000);
+                    }
+                }
+            } catch (IOException e) {
+                if (!failed) {
+                    log.error("Access log write to {} failed, retrying every second: {}", file, e.getMessage());
+                }
+                failed = true;
+                // A batch that did not make it to the file is lost; count it like any other drop.
+                dropped.add(pending);
+                pending = 0;
+                if (running) {
+                    LockSupport.parkNanos(REOPEN_DELAY_NANOS);
+                } else {
+                    discardRemaining();
+                }
+            }
+        }
+    }
+
+    // Only when shutting down with a file that cannot be written.
+    private void discardRemaining() {
+        while (ring.peek() != null) {
+            ring.release();
+            dropped.increment();
+        }
+    }
+
+    private int drain(RollingFileSink sink) throws IOException {
+        line.setLength(0);
+        int count = 0;
+        AccessLogEntry entry;
+        while (count < batchSize && (entry = ring.peek()) != null) {
+            int mark = line.length();
+            try {
+                append(entry);
+            } catch (RuntimeException e) {
+                line.setLength(mark);
+                log.debug("Skipping malformed access log record: {}", e.getMessage());
+            }
+            ring.release();
+            count++;
+        }
+        if (count > 0) {
+            byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+            pending = count;
+            sink.write(bytes, bytes.length);
+            sink.flush();
+            pending = 0;
+        }
+        return count;
+    }
+
+    private void append(AccessLogEntry entry) {
+        line.append("{\"ts\":\"").append(Instant.ofEpochMilli(entry.timestampMillis)).append('"');
+        appendField("method", entry.method);
+        appendField("path", entry.path);
+        appendField("route", entry.routeId);
+        line.append(",\"status\":").append(entry.status);
+        line.append(",\"durationUs\":").append(entry.durationMicros);
+        appendField("clientIp", IpUtils.getClientIp(entry.forwardedFor, entry.remoteAddress));
+        appendField("clientId", entry.clientId);
+        if (entry.trace != null) {
+            // Lets a log line be matched to its trace, and the trace to its upstream's logs.
+            appendField("traceId", entry.trace.getTraceId());
+        }
+        line.append("}\n");
+    }
+
+    private void appendField(String name, String value) {
+        if (value == null) {
+            return;
+        }
+        line.append(",\"").append(name).append("\":\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                line.append('\\').append(c);
+            } else if (c < 0x20) {
+                line.append(String.format("\\u%04x", (int) c));
+            } else {
+                line.append(c);
+            }
+        }
+        line.append('"');
+    }
+}
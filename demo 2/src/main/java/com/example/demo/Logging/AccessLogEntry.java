@@ -0,0 +1,38 @@
+package com.example.demo.Logging;
+
+import com.example.demo.Tracing.TraceContext;
+
+import java.net.InetSocketAddress;
+
+/**
+ * One slot of the access-log ring. Producers only copy references and primitives into it;
+ * everything that costs work to produce (client IP, the JSON line) is derived from them on
+ * the writer thread after the exchange has completed.
+ *
+ * Nothing here points back at the request or its exchange attributes: they may be recycled
+ * once the exchange is done, and the token's claims are not thread-safe, so the few values
+ * the line needs are read from them up front.
+ */
+final class AccessLogEntry {
+
+    long timestampMillis;
+    String method;
+    String path;
+    String forwardedFor;
+    InetSocketAddress remoteAddress;
+    String routeId;
+    int status;
+    long durationMicros;
+    String clientId;
+    TraceContext trace;
+
+    void clear() {
+        method = null;
+        path = null;
+        forwardedFor = null;
+        remoteAddress = null;
+        routeId = null;
+        clientId = null;
+        trace = null;
+    }
+}
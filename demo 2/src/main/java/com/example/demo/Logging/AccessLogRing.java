@@ -0,0 +1,88 @@
+package com.example.demo.Logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded multi-producer, single-consumer ring of pre-allocated {@link AccessLogEntry}
+ * slots (Vyukov's sequence-per-slot scheme). Producers claim a slot with one CAS, copy
+ * their fields into it and publish it by advancing the slot's sequence; nothing is
+ * allocated and no producer ever waits for the consumer. When the ring is full the offer
+ * fails immediately and the caller decides what to drop.
+ */
+final class AccessLogRing {
+
+    private final AccessLogEntry[] entries;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+
+    // Consumer position; only the writer thread touches it.
+    private long head;
+
+    AccessLogRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.entries = new AccessLogEntry[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            entries[i] = new AccessLogEntry();
+            sequences.set(i, i);
+        }
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Approximate number of entries waiting for the consumer.
+     */
+    long size() {
+        return Math.max(0, tail.get() - head);
+    }
+
+    /**
+     * Claims a slot for the caller to fill, or returns -1 when the ring is full. The caller
+     * must fill {@link #entry(long)} and then call {@link #publish(long)}.
+     */
+    long claim() {
+        while (true) {
+            long position = tail.get();
+            long sequence = sequences.get((int) (position & mask));
+            long difference = sequence - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    return position;
+                }
+            } else if (difference < 0) {
+                return -1;
+            }
+            // Another producer moved the tail first; re-read it.
+        }
+    }
+
+    AccessLogEntry entry(long position) {
+        return entries[(int) (position & mask)];
+    }
+
+    void publish(long position) {
+        sequences.set((int) (position & mask), position + 1);
+    }
+
+    /**
+     * The next published entry, or null if there is none yet. Call {@link #release()} once
+     * done with it so producers can reuse the slot.
+     */
+    AccessLogEntry peek() {
+        int index = (int) (head & mask);
+        return sequences.get(index) == head + 1 ? entries[index] : null;
+    }
+
+    void release() {
+        int index = (int) (head & mask);
+        entries[index].clear();
+        sequences.set(index, head + mask + 1);
+        head++;
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.demo.Logging;
+
+import com.example.demo.Db.IpUtils;
+import com.example.demo.Jwt.LazyClaims;
+import com.example.demo.Tracing.TraceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Verbose per-request logging, switched on at runtime for one route, client IP, token
+ * clientId or trace, for a sample of its requests and a bounded time (see
+ * Controller.DiagnosticsController). Selected requests log a step-by-step trail from each
+ * filter to the {@code gateway.diagnostics} logger at INFO, whatever the global levels.
+ *
+ * With no session active, {@link #trailFor(ServerWebExchange)} is one volatile read and
+ * the filters skip their logging entirely. With sessions active, each exchange is decided
+ * once and the decision is cached on it. A session that matches but samples the exchange
+ * out does not decide it: the other sessions still get their chance.
+ */
+@Component
+public class Diagnostics {
+
+    private static final Logger TRAIL_LOG = LoggerFactory.getLogger("gateway.diagnostics");
+    private static final String ATTRIBUTE = Diagnostics.class.getName();
+    private static final Object NOT_SELECTED = new Object();
+    private static final Session[] NONE = new Session[0];
+    private static final int MAX_SESSIONS = 16;
+    private static final Duration MAX_DURATION = Duration.ofHours(1);
+
+    public enum Target {
+        ROUTE, CLIENT_IP, CLIENT_ID, TRACE
+    }
+
+    private final AtomicLong ids = new AtomicLong();
+    private volatile Session[] sessions = NONE;
+
+    public synchronized Session start(Target target, String value, double sampleRate, Duration duration) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("A diagnostics session needs a value to match");
+        }
+        if (!(sampleRate > 0 && sampleRate <= 1)) {
+            throw new IllegalArgumentException("sampleRate must be in (0, 1]");
+        }
+        if (duration.isNegative() || duration.isZero() || duration.compareTo(MAX_DURATION) > 0) {
+            throw new IllegalArgumentException("duration must be between 1 second and " + MAX_DURATION.toMinutes() + " minutes");
+        }
+        List<Session> live = live();
+        if (live.size() >= MAX_SESSIONS) {
+            throw new IllegalStateException("At most " + MAX_SESSIONS + " diagnostics sessions can be active");
+        }
+        Session session = new Session(ids.incrementAndGet(), target, value.trim(), sampleRate,
+                System.currentTimeMillis() + duration.toMillis());
+        live.add(session);
+        sessions = live.toArray(NONE);
+        TRAIL_LOG.info("Diagnostics session {} started: {}={} sampleRate={} for {}s",
+                session.id, target, session.value, sampleRate, duration.toSeconds());
+        return session;
+    }
+
+    public synchronized boolean stop(long id) {
+        List<Session> live = live();
+        boolean removed = live.removeIf(session -> session.id == id);
+        sessions = live.toArray(NONE);
+        if (removed) {
+            TRAIL_LOG.info("Diagnostics session {} stopped", id);
+        }
+        return removed;
+    }
+
+    public synchronized List<Session> sessions() {
+        List<Session> live = live();
+        sessions = live.toArray(NONE);
+        return live;
+    }
+
+    /**
+     * The trail to log this exchange's steps to, or null if it is not selected.
+     */
+    public Trail trailFor(ServerWebExchange exchange) {
+        Session[] active = sessions;
+        if (active.length == 0) {
+            return null;
+        }
+        Object cached = exchange.getAttribute(ATTRIBUTE);
+        if (cached == NOT_SELECTED) {
+            return null;
+        }
+        if (cached instanceof Trail) {
+            return (Trail) cached;
+        }
+        Pending pending = (Pending) cached;
+        long now = System.currentTimeMillis();
+        List<Long> decided = pending != null ? pending.decided : null;
+        for (Session session : active) {
+            if (session.expiresAtMillis <= now || (decided != null && decided.contains(session.id))) {
+                continue;
+            }
+            Boolean match = session.matches(exchange);
+            if (match == null) {
+                // e.g. a clientId session before the token was verified: ask again later.
+                continue;
+            }
+            if (match) {
+                session.matched.increment();
+                if (ThreadLocalRandom.current().nextDouble() < session.sampleRate) {
+                    session.logged.increment();
+                    Trail trail = new Trail(session, exchange);
+                    exchange.getAttributes().put(ATTRIBUTE, trail);
+                    return trail;
+                }
+            }
+            if (decided == null) {
+                decided = new ArrayList<>();
+            }
+            decided.add(session.id);
+        }
+        if (allDecided(active, now, decided)) {
+            exchange.getAttributes().put(ATTRIBUTE, NOT_SELECTED);
+        } else if (pending == null && decided != null) {
+            // Sessions that already passed on this exchange are not asked (nor sampled) again.
+            exchange.getAttributes().put(ATTRIBUTE, new Pending(decided));
+        }
+        return null;
+    }
+
+    private static boolean allDecided(Session[] active, long now, List<Long> decided) {
+        for (Session session : active) {
+            if (session.expiresAtMillis > now && (decided == null || !decided.contains(session.id))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<Session> live() {
+        long now = System.currentTimeMillis();
+        List<Session> live = new ArrayList<>(Arrays.asList(sessions));
+        live.removeIf(session -> session.expiresAtMillis <= now);
+        return live;
+    }
+
+    public static final class Session {
+        private final long id;
+        private final Target target;
+        private final String value;
+        private final double sampleRate;
+        private final long expiresAtMillis;
+        private final LongAdder matched = new LongAdder();
+        private final LongAdder logged = new LongAdder();
+
+        private Session(long id, Target target, String value, double sampleRate, long expiresAtMillis) {
+            this.id = id;
+            this.target = target;
+            this.value = value;
+            this.sampleRate = sampleRate;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        /**
+         * @return whether the exchange matches, or null if that cannot be told yet
+         */
+        private Boolean matches(ServerWebExchange exchange) {
+            switch (target) {
+                case ROUTE:
+                    Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+                    return route == null ? null : value.equals(route.getId());
+                case CLIENT_IP:
+                    return value.equals(IpUtils.getClientIp(exchange.getRequest()));
+                case CLIENT_ID:
+                    LazyClaims claims = exchange.getAttribute(LazyClaims.ATTRIBUTE);
+                    return claims == null ? null : value.equals(claims.getClientId());
+                case TRACE:
+                    TraceContext trace = exchange.getAttribute(TraceContext.ATTRIBUTE);
+                    return trace == null ? Boolean.FALSE : value.equalsIgnoreCase(trace.getTraceId());
+                default:
+                    return Boolean.FALSE;
+            }
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public Target getTarget() {
+            return target;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public double getSampleRate() {
+            return sampleRate;
+        }
+
+        public long getExpiresAtMillis() {
+            return expiresAtMillis;
+        }
+
+        public long getMatched() {
+            return matched.sum();
+        }
+
+        public long getLogged() {
+            return logged.sum();
+        }
+    }
+
+    // Ids of the sessions that have passed on an exchange some other session cannot decide yet.
+    private static final class Pending {
+        private final List<Long> decided;
+
+        private Pending(List<Long> decided) {
+            this.decided = decided;
+        }
+    }
+
+    /**
+     * The log of one selected exchange; every line carries the session, trace id and request.
+     */
+    public static final class Trail {
+        private final String prefix;
+
+        private Trail(Session session, ServerWebExchange exchange) {
+            TraceContext trace = exchange.getAttribute(TraceContext.ATTRIBUTE);
+            this.prefix = "[diag " + session.id + (trace != null ? " trace=" + trace.getTraceId() : "") + " "
+                    + exchange.getRequest().getMethod().name() + " " + exchange.getRequest().getURI().getRawPath() + "] ";
+        }
+
+        public void log(String format, Object... args) {
+            TRAIL_LOG.info(prefix + format, args);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.demo.Logging;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Turns verbose logging on for one route, client or trace at a time, instead of running
+ * the whole gateway at DEBUG. Sessions expire on their own.
+ * <ul>
+ *   <li>{@code GET /actuator/diagnostics} lists the active sessions</li>
+ *   <li>{@code POST /actuator/diagnostics} starts one: {@code {"target": "route|client_ip|client_id|trace",
+ *       "value": "...", "sampleRate": 0.1, "durationSeconds": 300}}</li>
+ *   <li>{@code DELETE /actuator/diagnostics/{id}} stops it</li>
+ * </ul>
+ * A session can log client identifiers and token details, so it lives with the other
+ * actuator endpoints on the management port, bound to localhost.
+ */
+@Component
+@Endpoint(id = "diagnostics")
+public class DiagnosticsEndpoint {
+
+    private static final int STATUS_CONFLICT = 409;
+
+    private final Diagnostics diagnostics;
+
+    public DiagnosticsEndpoint(Diagnostics diagnostics) {
+        this.diagnostics = diagnostics;
+    }
+
+    @ReadOperation
+    public List<Diagnostics.Session> sessions() {
+        return diagnostics.sessions();
+    }
+
+    @WriteOperation
+    public WebEndpointResponse<Object> start(String target, String value, @Nullable Double sampleRate,
+                                             @Nullable Long durationSeconds) {
+        try {
+            Diagnostics.Target parsed = Diagnostics.Target.valueOf(target.trim().toUpperCase(Locale.ROOT));
+            return new WebEndpointResponse<>(diagnostics.start(parsed, value,
+                    sampleRate != null ? sampleRate : 1.0,
+                    Duration.ofSeconds(durationSeconds != null ? durationSeconds : 300)));
+        } catch (IllegalArgumentException e) {
+            return new WebEndpointResponse<>(Map.of("error", e.getMessage()), WebEndpointResponse.STATUS_BAD_REQUEST);
+        } catch (IllegalStateException e) {
+            return new WebEndpointResponse<>(Map.of("error", e.getMessage()), STATUS_CONFLICT);
+        }
+    }
+
+    @DeleteOperation
+    public WebEndpointResponse<Void> stop(@Selector long id) {
+        return new WebEndpointResponse<>(diagnostics.stop(id)
+                ? WebEndpointResponse.STATUS_NO_CONTENT
+                : WebEndpointResponse.STATUS_NOT_FOUND);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.demo.Logging;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Appends to a file such as {@code access.log} and, once it passes the size limit, renames
+ * it to {@code access-yyyyMMdd-HHmmss.log} and starts a new one, keeping the newest few
+ * rolled files. Not thread-safe: each sink belongs to one writer thread.
+ */
+public final class RollingFileSink implements AutoCloseable {
+
+    private static final DateTimeFormatter ROLL_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final Path file;
+    private final long maxBytes;
+    private final int maxFiles;
+    private final String baseName;
+    private final String extension;
+
+    private OutputStream out;
+    private long written;
+
+    public RollingFileSink(Path file, long maxBytes, int maxFiles) throws IOException {
+        this.file = file.toAbsolutePath();
+        this.maxBytes = maxBytes;
+        this.maxFiles = maxFiles;
+        String name = this.file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        this.baseName = dot > 0 ? name.substring(0, dot) : name;
+        this.extension = dot > 0 ? name.substring(dot) : "";
+        Files.createDirectories(this.file.getParent());
+        open();
+    }
+
+    public void write(byte[] bytes, int length) throws IOException {
+        if (written > 0 && written + length > maxBytes) {
+            roll();
+        }
+        out.write(bytes, 0, length);
+        written += length;
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void open() throws IOException {
+        out = Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        written = Files.size(file);
+    }
+
+    private void roll() throws IOException {
+        out.close();
+        Path rolled = file.resolveSibling(baseName + "-" + LocalDateTime.now().format(ROLL_SUFFIX) + extension);
+        Files.move(file, rolled, StandardCopyOption.REPLACE_EXISTING);
+        open();
+        pruneRolledFiles();
+    }
+
+    private void pruneRolledFiles() throws IOException {
+        String prefix = baseName + "-";
+        List<Path> rolled;
+        try (Stream<Path> siblings = Files.list(file.getParent())) {
+            rolled = siblings
+                    .filter(p -> {
+                        String name = p.getFileName().toString();
+                        return name.startsWith(prefix) && name.endsWith(extension);
+                    })
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        // Names sort chronologically, so the oldest come first.
+        for (int i = 0; i < rolled.size() - maxFiles; i++) {
+            Files.deleteIfExists(rolled.get(i));
+        }
+    }
+}
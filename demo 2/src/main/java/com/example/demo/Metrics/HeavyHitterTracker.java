@@ -0,0 +1,73 @@
+package com.example.demo.Metrics;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-minute heavy hitters by client IP, token clientId and route, tracked separately for
+ * accepted and rejected (4xx/5xx) requests so an incident shows at a glance who is being
+ * turned away and who is getting through.
+ */
+@Component
+public class HeavyHitterTracker {
+
+    public enum Dimension {
+        CLIENT_IP("clientIp"),
+        CLIENT_ID("clientId"),
+        ROUTE("route");
+
+        private final String label;
+
+        Dimension(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    // [dimension][0 = accepted, 1 = rejected]
+    private final TopKSketch[][] sketches = new TopKSketch[Dimension.values().length][2];
+
+    public HeavyHitterTracker(@Value("${gateway.metrics.heavy-hitters.k:20}") int k,
+                              @Value("${gateway.metrics.heavy-hitters.sketch-width:4096}") int width) {
+        for (Dimension dimension : Dimension.values()) {
+            sketches[dimension.ordinal()][0] = new TopKSketch(k, width);
+            sketches[dimension.ordinal()][1] = new TopKSketch(k, width);
+        }
+    }
+
+    public void record(String clientIp, String clientId, String routeId, boolean rejected) {
+        int outcome = rejected ? 1 : 0;
+        sketches[Dimension.CLIENT_IP.ordinal()][outcome].add(clientIp);
+        sketches[Dimension.CLIENT_ID.ordinal()][outcome].add(clientId);
+        sketches[Dimension.ROUTE.ordinal()][outcome].add(routeId);
+    }
+
+    /**
+     * dimension -> {accepted, rejected, acceptedTotal, rejectedTotal} for one minute.
+     */
+    public Map<String, Map<String, Object>> snapshot(int limit, boolean previousMinute) {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        for (Dimension dimension : Dimension.values()) {
+            TopKSketch accepted = sketches[dimension.ordinal()][0];
+            TopKSketch rejected = sketches[dimension.ordinal()][1];
+            Map<String, Object> view = new LinkedHashMap<>();
+            view.put("acceptedTotal", accepted.total(previousMinute));
+            view.put("accepted", accepted.top(limit, previousMinute));
+            view.put("rejectedTotal", rejected.total(previousMinute));
+            view.put("rejected", rejected.top(limit, previousMinute));
+            result.put(dimension.getLabel(), view);
+        }
+        return result;
+    }
+
+    public List<TopKSketch.Entry> top(Dimension dimension, boolean rejected, int limit, boolean previousMinute) {
+        return sketches[dimension.ordinal()][rejected ? 1 : 0].top(limit, previousMinute);
+    }
+}
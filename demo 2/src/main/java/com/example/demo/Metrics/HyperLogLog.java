@@ -0,0 +1,141 @@
+package com.example.demo.Metrics;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * HyperLogLog distinct counter: {@code 2^precision} one-byte registers, standard error
+ * about {@code 1.04 / sqrt(2^precision)} (2.3% at the default precision 11, 2 KB).
+ *
+ * Adding a hash is one register CAS, so many threads can feed one sketch. Sketches of the
+ * same precision merge by taking the register-wise maximum, which is how minute buckets
+ * add up to longer ones and how sketches from several gateway nodes are combined; the
+ * serialised form ({@link #toBytes()}) is the precision byte followed by the registers.
+ */
+public final class HyperLogLog {
+
+    private static final VarHandle REGISTERS = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 16) {
+            throw new IllegalArgumentException("HyperLogLog precision must be between 4 and 16");
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * Reads a sketch written by {@link #toBytes()}.
+     *
+     * @throws IllegalArgumentException for a bad precision, length or register value
+     */
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        if (bytes.length < 1) {
+            throw new IllegalArgumentException("Empty HyperLogLog sketch");
+        }
+        HyperLogLog sketch = new HyperLogLog(bytes[0]);
+        if (bytes.length != sketch.registers.length + 1) {
+            throw new IllegalArgumentException("HyperLogLog sketch has " + (bytes.length - 1)
+                    + " registers, expected " + sketch.registers.length);
+        }
+        // addHash never ranks above 65 - precision; anything else is not a sketch of ours.
+        int maxRank = 65 - sketch.precision;
+        for (int i = 1; i < bytes.length; i++) {
+            if (bytes[i] < 0 || bytes[i] > maxRank) {
+                throw new IllegalArgumentException("HyperLogLog register " + (i - 1) + " is " + bytes[i]
+                        + ", expected 0 to " + maxRank);
+            }
+        }
+        System.arraycopy(bytes, 1, sketch.registers, 0, sketch.registers.length);
+        return sketch;
+    }
+
+    /**
+     * 64-bit FNV-1a over the characters, finished with the murmur3 mixer; the one hash a
+     * request pays for.
+     */
+    public static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    public void addHash(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        byte rank = (byte) (Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1);
+        byte current = (byte) REGISTERS.getVolatile(registers, index);
+        while (rank > current) {
+            if (REGISTERS.compareAndSet(registers, index, current, rank)) {
+                return;
+            }
+            current = (byte) REGISTERS.getVolatile(registers, index);
+        }
+    }
+
+    /**
+     * Folds {@code other} into this sketch.
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge HyperLogLog sketches of precision "
+                    + other.precision + " and " + precision);
+        }
+        for (int i = 0; i < registers.length; i++) {
+            byte incoming = (byte) REGISTERS.getVolatile(other.registers, i);
+            byte current = (byte) REGISTERS.getVolatile(registers, i);
+            while (incoming > current && !REGISTERS.compareAndSet(registers, i, current, incoming)) {
+                current = (byte) REGISTERS.getVolatile(registers, i);
+            }
+        }
+    }
+
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (int i = 0; i < m; i++) {
+            byte register = (byte) REGISTERS.getVolatile(registers, i);
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double alpha = m == 16 ? 0.673 : m == 32 ? 0.697 : m == 64 ? 0.709 : 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        // Small cardinalities: linear counting over the empty registers is far more accurate.
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    public byte[] toBytes() {
+        byte[] bytes = new byte[registers.length + 1];
+        bytes[0] = (byte) precision;
+        for (int i = 0; i < registers.length; i++) {
+            bytes[i + 1] = (byte) REGISTERS.getVolatile(registers, i);
+        }
+        return bytes;
+    }
+
+    public HyperLogLog copy() {
+        HyperLogLog copy = new HyperLogLog(precision);
+        copy.merge(this);
+        return copy;
+    }
+}
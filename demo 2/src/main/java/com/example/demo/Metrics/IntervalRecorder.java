@@ -0,0 +1,35 @@
+package com.example.demo.Metrics;
+
+/**
+ * Double-buffered {@link LatencyHistogram}: writers record into the active histogram
+ * without locks, and {@link #swapInterval()} hands back everything recorded since the
+ * previous swap as a stable histogram no writer can touch any more.
+ */
+public final class IntervalRecorder {
+
+    private final WriterReaderPhaser phaser = new WriterReaderPhaser();
+    private volatile LatencyHistogram active = new LatencyHistogram();
+    private LatencyHistogram inactive = new LatencyHistogram();
+
+    public void record(long micros) {
+        long critical = phaser.writerCriticalSectionEnter();
+        try {
+            active.record(micros);
+        } finally {
+            phaser.writerCriticalSectionExit(critical);
+        }
+    }
+
+    /**
+     * Returns the interval just closed. It stays valid until the next call, which reuses it.
+     */
+    public synchronized LatencyHistogram swapInterval() {
+        LatencyHistogram fresh = inactive;
+        fresh.reset();
+        LatencyHistogram closed = active;
+        active = fresh;
+        phaser.flipPhase();
+        inactive = closed;
+        return closed;
+    }
+}
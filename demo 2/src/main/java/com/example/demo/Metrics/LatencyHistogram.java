@@ -0,0 +1,111 @@
+package com.example.demo.Metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear latency histogram in the HdrHistogram layout: values below 128 get their own
+ * bucket, and every power of two above that is split into 64 linear sub-buckets, so any
+ * recorded value is reported within 1/64 (about 1.6%) of itself.
+ *
+ * Values are microseconds, clamped to about 67 s. Buckets are a fixed AtomicLongArray
+ * allocated once, so recording allocates nothing and is safe from many writers at once.
+ * Histograms with the same layout merge by adding counts.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;          // 128
+    private static final int HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT >> 1;    // 64
+    private static final int MAX_VALUE_BITS = 26;
+    private static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;          // ~67 s in micros
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT
+            + (MAX_VALUE_BITS - SUB_BUCKET_BITS) * HALF_SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong maxValue = new AtomicLong();
+
+    public void record(long micros) {
+        long value = micros < 0 ? 0 : Math.min(micros, MAX_VALUE);
+        counts.getAndIncrement(indexOf(value));
+        totalCount.getAndIncrement();
+        long max = maxValue.get();
+        while (value > max && !maxValue.compareAndSet(max, value)) {
+            max = maxValue.get();
+        }
+    }
+
+    /**
+     * Adds {@code other}'s counts into this histogram. Not atomic with respect to
+     * concurrent writers of {@code other}; merge only stable (swapped-out) intervals.
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = other.counts.get(i);
+            if (count != 0) {
+                counts.getAndAdd(i, count);
+            }
+        }
+        totalCount.getAndAdd(other.totalCount.get());
+        long otherMax = other.maxValue.get();
+        long max = maxValue.get();
+        while (otherMax > max && !maxValue.compareAndSet(max, otherMax)) {
+            max = maxValue.get();
+        }
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.set(0);
+        maxValue.set(0);
+    }
+
+    public long getTotalCount() {
+        return totalCount.get();
+    }
+
+    public long getMaxValue() {
+        return maxValue.get();
+    }
+
+    /**
+     * The smallest recorded value (bucket upper bound) at or below which {@code percentile}
+     * percent of all values fall; 0 for an empty histogram.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = totalCount.get();
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(highestValueIn(i), maxValue.get());
+            }
+        }
+        return maxValue.get();
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS + 1;
+        return SUB_BUCKET_COUNT + (shift - 1) * HALF_SUB_BUCKET_COUNT
+                + (int) (value >>> shift) - HALF_SUB_BUCKET_COUNT;
+    }
+
+    static long highestValueIn(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / HALF_SUB_BUCKET_COUNT + 1;
+        long subBucket = (index - SUB_BUCKET_COUNT) % HALF_SUB_BUCKET_COUNT + HALF_SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
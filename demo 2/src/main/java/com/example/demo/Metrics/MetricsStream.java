@@ -0,0 +1,101 @@
+package com.example.demo.Metrics;
+
+import com.example.demo.Filter.RequestCountFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+
+/**
+ * One metrics snapshot per tick, shared by every subscriber. The tick only runs while at
+ * least one client is connected, and the snapshot is computed once per tick no matter how
+ * many dashboards are open.
+ *
+ * Each subscriber gets a small private buffer; a client that cannot keep up loses its
+ * oldest snapshots instead of slowing the tick or growing memory.
+ */
+@Slf4j
+@Component
+public class MetricsStream {
+
+    private final Flux<MetricsSnapshot> ticks;
+    private final int subscriberBuffer;
+
+    public MetricsStream(@Value("${gateway.metrics.stream.interval-ms:2000}") long intervalMs,
+                         @Value("${gateway.metrics.stream.buffer:8}") int subscriberBuffer) {
+        this.subscriberBuffer = subscriberBuffer;
+        this.ticks = Flux.interval(Duration.ZERO, Duration.ofMillis(intervalMs))
+                .onBackpressureDrop()
+                .map(tick -> MetricsSnapshot.capture())
+                .share();
+    }
+
+    public Flux<MetricsSnapshot> subscribe() {
+        return ticks.onBackpressureBuffer(subscriberBuffer,
+                dropped -> log.debug("Slow metrics stream subscriber, dropped snapshot of {}", dropped.getTimestamp()),
+                BufferOverflowStrategy.DROP_OLDEST);
+    }
+
+    /**
+     * Totals plus the current and previous minute, the same figures as
+     * /api/metrics/requests and /api/metrics/minutely combined.
+     */
+    public static class MetricsSnapshot {
+        private final long timestamp;
+        private final long requestCount;
+        private final long rejectedCount;
+        private final long requestsCurrentMinute;
+        private final long requestsPreviousMinute;
+        private final long rejectedCurrentMinute;
+        private final long rejectedPreviousMinute;
+
+        private MetricsSnapshot(long timestamp, long requestCount, long rejectedCount,
+                                RequestCountFilter.MinuteMetrics minute) {
+            this.timestamp = timestamp;
+            this.requestCount = requestCount;
+            this.rejectedCount = rejectedCount;
+            this.requestsCurrentMinute = minute.getRequestsCurrentMinute();
+            this.requestsPreviousMinute = minute.getRequestsPreviousMinute();
+            this.rejectedCurrentMinute = minute.getRejectedCurrentMinute();
+            this.rejectedPreviousMinute = minute.getRejectedPreviousMinute();
+        }
+
+        static MetricsSnapshot capture() {
+            return new MetricsSnapshot(System.currentTimeMillis(),
+                    RequestCountFilter.getTotalRequestCount(),
+                    RequestCountFilter.getTotalRejectedCount(),
+                    RequestCountFilter.getMinuteMetrics());
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public long getRequestCount() {
+            return requestCount;
+        }
+
+        public long getRejectedCount() {
+            return rejectedCount;
+        }
+
+        public long getRequestsCurrentMinute() {
+            return requestsCurrentMinute;
+        }
+
+        public long getRequestsPreviousMinute() {
+            return requestsPreviousMinute;
+        }
+
+        public long getRejectedCurrentMinute() {
+            return rejectedCurrentMinute;
+        }
+
+        public long getRejectedPreviousMinute() {
+            return rejectedPreviousMinute;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.demo.Metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rejections per {@link RejectionReason} for the current and the previous minute. Each
+ * minute is an array of striped counters indexed by the reason's ordinal, so counting is
+ * one array load and one uncontended add; the window rotates lazily on the first rejection
+ * of a new minute.
+ */
+public final class RejectionCounters {
+
+    private static final RejectionReason[] REASONS = RejectionReason.values();
+
+    private final AtomicReference<Window> current;
+    private volatile Window previous;
+
+    public RejectionCounters() {
+        long minute = System.currentTimeMillis() / 60000;
+        this.current = new AtomicReference<>(new Window(minute));
+        this.previous = new Window(minute - 1);
+    }
+
+    public void increment(RejectionReason reason) {
+        windowFor(System.currentTimeMillis() / 60000).counts[reason.ordinal()].increment();
+    }
+
+    /**
+     * reason tag -> count for the current (or the just-finished) minute, every reason listed.
+     */
+    public Map<String, Long> snapshot(boolean previousMinute) {
+        long minute = System.currentTimeMillis() / 60000 - (previousMinute ? 1 : 0);
+        Window window = current.get();
+        if (window.minute != minute) {
+            Window before = previous;
+            window = before.minute == minute ? before : null;
+        }
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (RejectionReason reason : REASONS) {
+            counts.put(reason.getTag(), window != null ? window.counts[reason.ordinal()].sum() : 0L);
+        }
+        return counts;
+    }
+
+    private Window windowFor(long minute) {
+        Window window = current.get();
+        while (window.minute < minute) {
+            Window fresh = new Window(minute);
+            if (current.compareAndSet(window, fresh)) {
+                previous = window;
+                return fresh;
+            }
+            window = current.get();
+        }
+        return window;
+    }
+
+    private static final class Window {
+        private final long minute;
+        private final LongAdder[] counts = new LongAdder[REASONS.length];
+
+        private Window(long minute) {
+            this.minute = minute;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = new LongAdder();
+            }
+        }
+    }
+}
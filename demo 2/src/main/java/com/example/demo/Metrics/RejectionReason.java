@@ -0,0 +1,108 @@
+package com.example.demo.Metrics;
+
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.net.ConnectException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Why the gateway did not return a successful response, as a bounded set suitable for a
+ * metric tag and for indexing counter arrays by ordinal.
+ *
+ * Gateway filters that turn a request away {@link #mark(ServerWebExchange) mark} the
+ * exchange with their precise reason. Anything left unmarked falls back to
+ * {@link #fromStatus(int)}, which classifies the status the upstream (or Spring) produced.
+ */
+public enum RejectionReason {
+    // Set by the gateway's own filters.
+    NO_ROUTE("no_route"),
+    IP_DENIED("ip_denied"),
+    TOKEN_MISSING("token_missing"),
+    TOKEN_INVALID("token_invalid"),
+    TOKEN_REVOKED("token_revoked"),
+    POLICY_DENIED("policy_denied"),
+    RATE_LIMITED("rate_limited"),
+    CIRCUIT_OPEN("circuit_open"),
+    UPSTREAM_UNAVAILABLE("upstream_unavailable"),
+    GATEWAY_ERROR("gateway_error"),
+    // Derived from the final status of unmarked exchanges.
+    UNAUTHORIZED("unauthorized"),
+    FORBIDDEN("forbidden"),
+    NOT_FOUND("not_found"),
+    CLIENT_ERROR("client_error"),
+    UPSTREAM_ERROR("upstream_error");
+
+    public static final String ATTRIBUTE = RejectionReason.class.getName();
+
+    private final String tag;
+
+    RejectionReason(String tag) {
+        this.tag = tag;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public void mark(ServerWebExchange exchange) {
+        exchange.getAttributes().put(ATTRIBUTE, this);
+    }
+
+    /**
+     * Marks an exchange that failed with an error, unless a filter already gave a reason.
+     * Connection failures and timeouts towards the upstream are told apart from the
+     * gateway's own failures.
+     */
+    public static void markError(ServerWebExchange exchange, Throwable error) {
+        exchange.getAttributes().putIfAbsent(ATTRIBUTE, isUpstreamFailure(error) ? UPSTREAM_UNAVAILABLE : GATEWAY_ERROR);
+    }
+
+    /**
+     * @return the reason a filter marked on the exchange, else the one implied by the
+     *         status, or null for a successful response
+     */
+    public static RejectionReason of(ServerWebExchange exchange, int status) {
+        RejectionReason marked = exchange.getAttribute(ATTRIBUTE);
+        return marked != null ? marked : fromStatus(status);
+    }
+
+    /**
+     * @return true if the error is a connection failure, a timeout or a 502/503/504 towards the
+     *         upstream, rather than a failure of the gateway itself
+     */
+    public static boolean isUpstreamFailure(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectException || cause instanceof TimeoutException) {
+                return true;
+            }
+            if (cause instanceof ResponseStatusException) {
+                int status = ((ResponseStatusException) cause).getStatusCode().value();
+                if (status == 502 || status == 503 || status == 504) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the reason for a 4xx/5xx status, or null for anything else
+     */
+    public static RejectionReason fromStatus(int status) {
+        switch (status) {
+            case 401:
+                return UNAUTHORIZED;
+            case 403:
+                return FORBIDDEN;
+            case 404:
+                return NOT_FOUND;
+            case 429:
+                return RATE_LIMITED;
+            default:
+                if (status >= 500 && status < 600) return UPSTREAM_ERROR;
+                if (status >= 400) return CLIENT_ERROR;
+                return null;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.example.demo.Metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Latency of one route, split by response status class (2xx, 4xx, ...). Each class gets
+ * its own {@link IntervalRecorder} the first time it is seen; after that the request path
+ * only records. {@link #rollover()} closes the current interval and folds it into the
+ * running total.
+ *
+ * The same samples feed Micrometer: one timer per status class and one counter per
+ * {@link RejectionReason}, all registered up front so recording indexes an array instead
+ * of looking meters up by tags.
+ *
+ * Per-second request, rejection and latency totals are also kept for the last two minutes
+ * so the history writer can persist them; see Db.MetricsHistoryService. Rejections are
+ * additionally counted per reason and minute in {@link RejectionCounters}.
+ *
+ * Each {@link StageTimings.Stage} (route match, IP check, token, rate limit, upstream
+ * connect, first byte, response) has its own interval histogram as well, created the first
+ * time the route reaches that stage, to split gateway overhead from upstream time.
+ */
+public final class RouteMetrics {
+
+    public static final String METADATA_KEY = "routeMetrics";
+
+    private static final String[] STATUS_CLASSES = {"other", "1xx", "2xx", "3xx", "4xx", "5xx"};
+    private static final StageTimings.Stage[] STAGES = StageTimings.Stage.values();
+
+    private final String routeId;
+    private final AtomicReferenceArray<IntervalRecorder> recorders = new AtomicReferenceArray<>(STATUS_CLASSES.length);
+
+    // Only touched under this object's lock, by rollover and snapshot.
+    private final LatencyHistogram[] lastInterval = new LatencyHistogram[STATUS_CLASSES.length];
+    private final LatencyHistogram[] total = new LatencyHistogram[STATUS_CLASSES.length];
+
+    private final AtomicReferenceArray<IntervalRecorder> stageRecorders = new AtomicReferenceArray<>(STAGES.length);
+    private final LatencyHistogram[] lastStageInterval = new LatencyHistogram[STAGES.length];
+    private final LatencyHistogram[] totalStages = new LatencyHistogram[STAGES.length];
+
+    private final SecondCounterRing requestsPerSecond = new SecondCounterRing(120);
+    private final SecondCounterRing rejectedPerSecond = new SecondCounterRing(120);
+    private final SecondCounterRing latencyMicrosPerSecond = new SecondCounterRing(120);
+
+    private final Timer[] timers = new Timer[STATUS_CLASSES.length];
+    private final Counter[] rejections = new Counter[RejectionReason.values().length];
+    private final RejectionCounters rejectionsPerMinute = new RejectionCounters();
+
+    RouteMetrics(String routeId, MeterRegistry meterRegistry) {
+        this.routeId = routeId;
+        for (int i = 0; i < STATUS_CLASSES.length; i++) {
+            timers[i] = Timer.builder("gateway.route.requests")
+                    .description("Requests handled by a gateway route, by status class")
+                    .tag("route", routeId)
+                    .tag("status", STATUS_CLASSES[i])
+                    .publishPercentileHistogram()
+                    .maximumExpectedValue(Duration.ofSeconds(60))
+                    .register(meterRegistry);
+        }
+        for (RejectionReason reason : RejectionReason.values()) {
+            rejections[reason.ordinal()] = Counter.builder("gateway.route.rejections")
+                    .description("Requests a gateway route did not answer successfully, by reason")
+                    .tag("route", routeId)
+                    .tag("reason", reason.getTag())
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Removes this route's meters from the registry, once the route is gone.
+     */
+    void unregister(MeterRegistry meterRegistry) {
+        for (Timer timer : timers) {
+            meterRegistry.remove(timer);
+        }
+        for (Counter counter : rejections) {
+            meterRegistry.remove(counter);
+        }
+    }
+
+    public String getRouteId() {
+        return routeId;
+    }
+
+    /**
+     * @param status the HTTP status code, or 0 if unknown
+     * @param reason why the request was rejected, or null if it was not
+     */
+    public void record(int status, RejectionReason reason, long nanos) {
+        int statusClass = status >= 100 && status < 600 ? status / 100 : 0;
+        IntervalRecorder recorder = recorders.get(statusClass);
+        if (recorder == null) {
+            recorders.compareAndSet(statusClass, null, new IntervalRecorder());
+            recorder = recorders.get(statusClass);
+        }
+        long micros = nanos / 1000;
+        recorder.record(micros);
+        timers[statusClass].record(nanos, TimeUnit.NANOSECONDS);
+
+        long second = System.currentTimeMillis() / 1000;
+        requestsPerSecond.increment(second);
+        latencyMicrosPerSecond.add(second, micros);
+
+        if (reason != null) {
+            rejections[reason.ordinal()].increment();
+            rejectionsPerMinute.increment(reason);
+            rejectedPerSecond.increment(second);
+        }
+    }
+
+    public void recordStages(StageTimings timings) {
+        for (int i = 0; i < STAGES.length; i++) {
+            if (!timings.reached(STAGES[i])) {
+                continue;
+            }
+            IntervalRecorder recorder = stageRecorders.get(i);
+            if (recorder == null) {
+                stageRecorders.compareAndSet(i, null, new IntervalRecorder());
+                recorder = stageRecorders.get(i);
+            }
+            recorder.record(timings.getNanos(STAGES[i]) / 1000);
+        }
+    }
+
+    public SecondCounterRing getRequestsPerSecond() {
+        return requestsPerSecond;
+    }
+
+    public SecondCounterRing getRejectedPerSecond() {
+        return rejectedPerSecond;
+    }
+
+    public SecondCounterRing getLatencyMicrosPerSecond() {
+        return latencyMicrosPerSecond;
+    }
+
+    public RejectionCounters getRejectionsPerMinute() {
+        return rejectionsPerMinute;
+    }
+
+    synchronized void rollover() {
+        for (int i = 0; i < STATUS_CLASSES.length; i++) {
+            IntervalRecorder recorder = recorders.get(i);
+            if (recorder == null) {
+                continue;
+            }
+            LatencyHistogram closed = recorder.swapInterval();
+            if (lastInterval[i] == null) {
+                lastInterval[i] = new LatencyHistogram();
+                total[i] = new LatencyHistogram();
+            }
+            lastInterval[i].reset();
+            lastInterval[i].add(closed);
+            total[i].add(closed);
+        }
+        for (int i = 0; i < STAGES.length; i++) {
+            IntervalRecorder recorder = stageRecorders.get(i);
+            if (recorder == null) {
+                continue;
+            }
+            LatencyHistogram closed = recorder.swapInterval();
+            if (lastStageInterval[i] == null) {
+                lastStageInterval[i] = new LatencyHistogram();
+                totalStages[i] = new LatencyHistogram();
+            }
+            lastStageInterval[i].reset();
+            lastStageInterval[i].add(closed);
+            totalStages[i].add(closed);
+        }
+    }
+
+    /**
+     * @param cumulative true for everything since startup, false for the last closed interval
+     */
+    public synchronized Map<String, LatencySummary> snapshot(boolean cumulative) {
+        LatencyHistogram[] source = cumulative ? total : lastInterval;
+        Map<String, LatencySummary> byClass = new LinkedHashMap<>();
+        for (int i = 0; i < STATUS_CLASSES.length; i++) {
+            if (source[i] != null && source[i].getTotalCount() > 0) {
+                byClass.put(STATUS_CLASSES[i], LatencySummary.of(source[i]));
+            }
+        }
+        return byClass;
+    }
+
+    /**
+     * Stage label -> percentiles of the time spent in that stage.
+     *
+     * @param cumulative true for everything since startup, false for the last closed interval
+     */
+    public synchronized Map<String, LatencySummary> stageSnapshot(boolean cumulative) {
+        LatencyHistogram[] source = cumulative ? totalStages : lastStageInterval;
+        Map<String, LatencySummary> byStage = new LinkedHashMap<>();
+        for (int i = 0; i < STAGES.length; i++) {
+            if (source[i] != null && source[i].getTotalCount() > 0) {
+                byStage.put(STAGES[i].getLabel(), LatencySummary.of(source[i]));
+            }
+        }
+        return byStage;
+    }
+
+    /**
+     * Percentiles of one histogram, in microseconds.
+     */
+    public static class LatencySummary {
+        private final long count;
+        private final long p50;
+        private final long p90;
+        private final long p99;
+        private final long p999;
+        private final long max;
+
+        private LatencySummary(long count, long p50, long p90, long p99, long p999, long max) {
+            this.count = count;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p99 = p99;
+            this.p999 = p999;
+            this.max = max;
+        }
+
+        static LatencySummary of(LatencyHistogram histogram) {
+            return new LatencySummary(
+                    histogram.getTotalCount(),
+                    histogram.getValueAtPercentile(50),
+                    histogram.getValueAtPercentile(90),
+                    histogram.getValueAtPercentile(99),
+                    histogram.getValueAtPercentile(99.9),
+                    histogram.getMaxValue());
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getP50() {
+            return p50;
+        }
+
+        public long getP90() {
+            return p90;
+        }
+
+        public long getP99() {
+            return p99;
+        }
+
+        public long getP999() {
+            return p999;
+        }
+
+        public long getMax() {
+            return max;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.demo.Metrics;
+
+import com.example.demo.Filter.RequestCountFilter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Owns the {@link RouteMetrics} of every route. Routes are rebuilt from the database every
+ * 45 s, so the metrics live here, keyed by route id, and are handed to each rebuilt route
+ * through its metadata; a rebuild never resets a route's history.
+ *
+ * A route's Micrometer meters are registered when it is first built, see {@link RouteMetrics},
+ * and removed by {@link #retain} when a rebuild no longer has it.
+ */
+@Component
+public class RouteMetricsRegistry {
+
+    private final Map<String, RouteMetrics> routes = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public RouteMetricsRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        // The gateway-wide totals RequestCountFilter keeps for the dashboard, read at scrape time.
+        FunctionCounter.builder("gateway.requests", RequestCountFilter.class, c -> RequestCountFilter.getTotalRequestCount())
+                .description("All requests seen by the gateway")
+                .register(meterRegistry);
+        FunctionCounter.builder("gateway.rejections", RequestCountFilter.class, c -> RequestCountFilter.getTotalRejectedCount())
+                .description("All requests answered with a 4xx or 5xx status")
+                .register(meterRegistry);
+    }
+
+    public RouteMetrics forRoute(String routeId) {
+        return routes.computeIfAbsent(routeId, id -> new RouteMetrics(id, meterRegistry));
+    }
+
+    /**
+     * Drops the metrics of routes that no longer exist and unregisters their meters, so
+     * deleted or renamed routes do not stay in every scrape.
+     */
+    public void retain(Collection<String> routeIds) {
+        routes.entrySet().removeIf(entry -> {
+            if (routeIds.contains(entry.getKey())) {
+                return false;
+            }
+            entry.getValue().unregister(meterRegistry);
+            return true;
+        });
+    }
+
+    public Collection<RouteMetrics> all() {
+        return routes.values();
+    }
+
+    @Scheduled(fixedDelayString = "${gateway.metrics.latency.interval-ms:10000}")
+    public void rollover() {
+        routes.values().forEach(RouteMetrics::rollover);
+    }
+
+    /**
+     * routeId -> status class -> percentiles, ordered by route id.
+     */
+    public Map<String, Map<String, RouteMetrics.LatencySummary>> snapshot(boolean cumulative) {
+        Map<String, Map<String, RouteMetrics.LatencySummary>> result = new LinkedHashMap<>();
+        new TreeMap<>(routes).forEach((routeId, metrics) -> {
+            Map<String, RouteMetrics.LatencySummary> byClass = metrics.snapshot(cumulative);
+            if (!byClass.isEmpty()) {
+                result.put(routeId, byClass);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * routeId -> stage -> percentiles, ordered by route id.
+     */
+    public Map<String, Map<String, RouteMetrics.LatencySummary>> stageSnapshot(boolean cumulative) {
+        Map<String, Map<String, RouteMetrics.LatencySummary>> result = new LinkedHashMap<>();
+        new TreeMap<>(routes).forEach((routeId, metrics) -> {
+            Map<String, RouteMetrics.LatencySummary> byStage = metrics.stageSnapshot(cumulative);
+            if (!byStage.isEmpty()) {
+                result.put(routeId, byStage);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * routeId -> rejection reason -> count for the current (or the just-finished) minute.
+     */
+    public Map<String, Map<String, Long>> rejectionSnapshot(boolean previousMinute) {
+        Map<String, Map<String, Long>> result = new LinkedHashMap<>();
+        new TreeMap<>(routes).forEach((routeId, metrics) ->
+                result.put(routeId, metrics.getRejectionsPerMinute().snapshot(previousMinute)));
+        return result;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.demo.Metrics;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-second counts over a sliding window, held in a fixed ring indexed by
+ * {@code epochSecond % capacity}. Each slot is tagged with the second it belongs to; the
+ * first writer of a new second swaps in a fresh slot, so stale seconds are reset lazily
+ * and nothing ever has to sweep the ring.
+ *
+ * Counting is a slot read plus a {@link LongAdder} increment; summing a minute walks at
+ * most 60 slots.
+ */
+public final class SecondCounterRing {
+
+    private final AtomicReferenceArray<Slot> slots;
+    private final int mask;
+
+    /**
+     * @param windowSeconds how far back counts stay readable; rounded up to a power of two
+     */
+    public SecondCounterRing(int windowSeconds) {
+        int capacity = Integer.highestOneBit(Math.max(windowSeconds, 2) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    public void increment(long epochSecond) {
+        add(epochSecond, 1);
+    }
+
+    public void add(long epochSecond, long delta) {
+        slotFor(epochSecond).count.add(delta);
+    }
+
+    /**
+     * Count for one second, or 0 once it has fallen out of the window.
+     */
+    public long get(long epochSecond) {
+        Slot slot = slots.get(index(epochSecond));
+        return slot != null && slot.second == epochSecond ? slot.count.sum() : 0;
+    }
+
+    /**
+     * Sum over {@code [fromSecond, toSecond]}, both inclusive.
+     */
+    public long sum(long fromSecond, long toSecond) {
+        long total = 0;
+        for (long second = Math.max(fromSecond, toSecond - mask); second <= toSecond; second++) {
+            total += get(second);
+        }
+        return total;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    private Slot slotFor(long epochSecond) {
+        int index = index(epochSecond);
+        while (true) {
+            Slot slot = slots.get(index);
+            if (slot != null && slot.second == epochSecond) {
+                return slot;
+            }
+            if (slot != null && slot.second > epochSecond) {
+                // A caller with a clock reading older than the whole window; count it in the
+                // newer second rather than wiping that second's slot.
+                return slot;
+            }
+            Slot fresh = new Slot(epochSecond);
+            if (slots.compareAndSet(index, slot, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    private int index(long epochSecond) {
+        return (int) (epochSecond & mask);
+    }
+
+    private static final class Slot {
+        private final long second;
+        private final LongAdder count = new LongAdder();
+
+        private Slot(long second) {
+            this.second = second;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.demo.Metrics;
+
+import org.springframework.web.server.ServerWebExchange;
+import reactor.util.context.ContextView;
+
+/**
+ * Where one exchange spent its time: each stage is timed from the previous mark to its own
+ * with {@link System#nanoTime()}, so marking is one clock read and a few array stores. One
+ * instance is created per exchange and travels as an exchange attribute (for the filters)
+ * and in the Reactor context (for the upstream HTTP client callbacks).
+ *
+ * The marks of one exchange happen one after another along its reactive chain, which
+ * orders them; no synchronisation is needed.
+ */
+public final class StageTimings {
+
+    public static final String ATTRIBUTE = StageTimings.class.getName();
+
+    public enum Stage {
+        /** Arrival until a gateway route matched. */
+        ROUTE_MATCH("route"),
+        IP_CHECK("ip"),
+        TOKEN_VERIFY("token"),
+        RATE_LIMIT("ratelimit"),
+        /** Remaining filters plus acquiring an upstream connection, until the request is sent. */
+        UPSTREAM_CONNECT("connect"),
+        /** Request sent until the upstream's response headers arrived. */
+        UPSTREAM_FIRST_BYTE("upstream"),
+        /** Response headers until the exchange completed. */
+        RESPONSE("response");
+
+        private final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+
+    private final long start;
+    private final long[] durations = new long[STAGES.length];
+    private final long[] ends = new long[STAGES.length];
+    private int reached;
+    private long last;
+
+    public StageTimings(long startNanos) {
+        this.start = startNanos;
+        this.last = startNanos;
+    }
+
+    public void mark(Stage stage) {
+        long now = System.nanoTime();
+        durations[stage.ordinal()] = now - last;
+        ends[stage.ordinal()] = now - start;
+        reached |= 1 << stage.ordinal();
+        last = now;
+    }
+
+    public static void mark(ServerWebExchange exchange, Stage stage) {
+        StageTimings timings = exchange.getAttribute(ATTRIBUTE);
+        if (timings != null) {
+            timings.mark(stage);
+        }
+    }
+
+    public static void mark(ContextView context, Stage stage) {
+        if (context.hasKey(StageTimings.class)) {
+            context.<StageTimings>get(StageTimings.class).mark(stage);
+        }
+    }
+
+    public boolean reached(Stage stage) {
+        return (reached & (1 << stage.ordinal())) != 0;
+    }
+
+    public long getNanos(Stage stage) {
+        return durations[stage.ordinal()];
+    }
+
+    /**
+     * When the stage ended, in nanoseconds after the exchange arrived.
+     */
+    public long getEndOffsetNanos(Stage stage) {
+        return ends[stage.ordinal()];
+    }
+
+    public long getStartNanos() {
+        return start;
+    }
+
+    /**
+     * Time spent in the gateway's own filters: route match, IP, token and rate limit.
+     */
+    public long getGatewayNanos() {
+        return durations[Stage.ROUTE_MATCH.ordinal()] + durations[Stage.IP_CHECK.ordinal()]
+                + durations[Stage.TOKEN_VERIFY.ordinal()] + durations[Stage.RATE_LIMIT.ordinal()];
+    }
+
+    /**
+     * The stages reached so far as a {@code Server-Timing} header value, in milliseconds.
+     */
+    public String toServerTiming() {
+        StringBuilder header = new StringBuilder(160);
+        for (Stage stage : STAGES) {
+            if (reached(stage)) {
+                appendMetric(header, stage.label, durations[stage.ordinal()]);
+            }
+        }
+        appendMetric(header, "gateway", getGatewayNanos());
+        return header.toString();
+    }
+
+    private static void appendMetric(StringBuilder header, String name, long nanos) {
+        if (header.length() > 0) {
+            header.append(", ");
+        }
+        long micros = nanos / 1000;
+        header.append(name).append(";dur=").append(micros / 1000).append('.');
+        long fraction = micros % 1000;
+        if (fraction < 100) header.append('0');
+        if (fraction < 10) header.append('0');
+        header.append(fraction);
+    }
+}
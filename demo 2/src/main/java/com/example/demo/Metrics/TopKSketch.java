@@ -0,0 +1,233 @@
+package com.example.demo.Metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Streaming top-K over one key space (client IPs, client ids, routes...), per minute.
+ * A Count-Min Sketch estimates every key's count in fixed memory; a small candidate set
+ * remembers which keys are currently heavy. Counts are never stored per key, so memory
+ * is the same for ten clients or ten million.
+ *
+ * An update is {@code depth} atomic increments plus a hash-set lookup. Only a key whose
+ * estimate overtakes the lightest candidate tries the window's lock, and never waits for it.
+ *
+ * The current and the previous minute are kept; a window rotates lazily on the first
+ * update of a new minute.
+ */
+public final class TopKSketch {
+
+    private final int depth;
+    private final int width;
+    private final int capacity;
+    private final AtomicReference<Window> current;
+    private volatile Window previous;
+
+    /**
+     * @param k     how many heavy hitters to report; twice as many candidates are tracked
+     * @param width counters per sketch row (rounded up to a power of two); error is about 2.7/width of the total
+     */
+    public TopKSketch(int k, int width) {
+        this.depth = 4;
+        this.width = Integer.highestOneBit(Math.max(width, 16) - 1) << 1;
+        this.capacity = Math.max(k, 1) * 2;
+        long minute = System.currentTimeMillis() / 60000;
+        this.current = new AtomicReference<>(new Window(minute));
+        this.previous = new Window(minute - 1);
+    }
+
+    public void add(String key) {
+        if (key == null) {
+            return;
+        }
+        Window window = windowFor(System.currentTimeMillis() / 60000);
+        long h = hash(key);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32) | 1;
+        int mask = width - 1;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            long count = window.counts.incrementAndGet(row * width + ((h1 + row * h2) & mask));
+            estimate = Math.min(estimate, count);
+        }
+        window.total.increment();
+        if (window.candidates.containsKey(key)) {
+            return;
+        }
+        if (window.candidates.size() < capacity || estimate > window.minCandidate) {
+            window.admit(key, estimate);
+        }
+    }
+
+    /**
+     * Heaviest keys of the current (or the just-finished) minute, heaviest first.
+     */
+    public List<Entry> top(int limit, boolean previousMinute) {
+        long minute = System.currentTimeMillis() / 60000;
+        Window window = previousMinute ? previousWindow(minute) : windowIfCurrent(minute);
+        List<Entry> entries = new ArrayList<>();
+        if (window == null) {
+            return entries;
+        }
+        for (String key : window.candidates.keySet()) {
+            entries.add(new Entry(key, window.estimate(key)));
+        }
+        entries.sort(Comparator.comparingLong(Entry::getCount).reversed());
+        return entries.size() > limit ? new ArrayList<>(entries.subList(0, limit)) : entries;
+    }
+
+    /**
+     * Total number of updates in the current (or the just-finished) minute.
+     */
+    public long total(boolean previousMinute) {
+        long minute = System.currentTimeMillis() / 60000;
+        Window window = previousMinute ? previousWindow(minute) : windowIfCurrent(minute);
+        return window == null ? 0 : window.total.sum();
+    }
+
+    private Window windowFor(long minute) {
+        Window window = current.get();
+        while (window.minute < minute) {
+            Window fresh = new Window(minute);
+            if (current.compareAndSet(window, fresh)) {
+                previous = window;
+                return fresh;
+            }
+            window = current.get();
+        }
+        return window;
+    }
+
+    private Window windowIfCurrent(long minute) {
+        Window window = current.get();
+        return window.minute == minute ? window : null;
+    }
+
+    private Window previousWindow(long minute) {
+        Window window = current.get();
+        if (window.minute == minute - 1) {
+            return window;
+        }
+        Window before = previous;
+        return before.minute == minute - 1 ? before : null;
+    }
+
+    // String.hashCode spread to 64 bits with the murmur3 finaliser.
+    private static long hash(String key) {
+        long h = key.hashCode() * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private final class Window {
+        private final long minute;
+        private final AtomicLongArray counts = new AtomicLongArray(depth * width);
+        private final LongAdder total = new LongAdder();
+        private final Map<String, Boolean> candidates = new ConcurrentHashMap<>();
+        private final ReentrantLock admission = new ReentrantLock();
+        // Estimate of the lightest candidate as of the last admission; only a key above it
+        // can displace one, so add() checks it before touching the lock.
+        private volatile long minCandidate;
+
+        private Window(long minute) {
+            this.minute = minute;
+        }
+
+        private long estimate(String key) {
+            long h = hash(key);
+            int h1 = (int) h;
+            int h2 = (int) (h >>> 32) | 1;
+            int mask = width - 1;
+            long estimate = Long.MAX_VALUE;
+            for (int row = 0; row < depth; row++) {
+                estimate = Math.min(estimate, counts.get(row * width + ((h1 + row * h2) & mask)));
+            }
+            return estimate;
+        }
+
+        /**
+         * Makes {@code key} a candidate if there is room or it outweighs the lightest one, and
+         * refreshes the cached minimum either way. Gives up at once if another thread is
+         * admitting: a key that is really heavy comes back with its next update, and a flood
+         * of distinct keys does not queue up on the lock.
+         */
+        private void admit(String key, long estimate) {
+            if (!admission.tryLock()) {
+                return;
+            }
+            try {
+                if (candidates.containsKey(key)) {
+                    return;
+                }
+                if (candidates.size() < capacity) {
+                    candidates.put(key, Boolean.TRUE);
+                    if (candidates.size() == capacity) {
+                        minCandidate = lightestEstimate();
+                    }
+                    return;
+                }
+                // One pass finds the lightest candidate and what the minimum is without it.
+                String lightest = null;
+                long lightestEstimate = Long.MAX_VALUE;
+                long runnerUp = Long.MAX_VALUE;
+                for (String candidate : candidates.keySet()) {
+                    long e = estimate(candidate);
+                    if (e < lightestEstimate) {
+                        runnerUp = lightestEstimate;
+                        lightest = candidate;
+                        lightestEstimate = e;
+                    } else if (e < runnerUp) {
+                        runnerUp = e;
+                    }
+                }
+                if (lightest == null || lightestEstimate >= estimate) {
+                    // Candidates only grow, so the cached minimum had fallen behind.
+                    minCandidate = lightestEstimate;
+                    return;
+                }
+                candidates.remove(lightest);
+                candidates.put(key, Boolean.TRUE);
+                minCandidate = Math.min(runnerUp, estimate);
+            } finally {
+                admission.unlock();
+            }
+        }
+
+        private long lightestEstimate() {
+            long min = Long.MAX_VALUE;
+            for (String candidate : candidates.keySet()) {
+                min = Math.min(min, estimate(candidate));
+            }
+            return min;
+        }
+    }
+
+    public static class Entry {
+        private final String key;
+        private final long count;
+
+        public Entry(String key, long count) {
+            this.key = key;
+            this.count = count;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.demo.Metrics;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Distinct client IPs per route per minute, hour and day, estimated with one
+ * {@link HyperLogLog} per route and bucket instead of remembering every address.
+ *
+ * A request costs one hash of the client IP, shared by the three granularities, and three
+ * register updates. Each granularity keeps its current and previous bucket; buckets are
+ * aligned to UTC epoch boundaries so sketches from different gateway nodes cover the same
+ * span and can be merged.
+ */
+@Component
+public class UniqueClientTracker {
+
+    public enum Granularity {
+        MINUTE(60_000L),
+        HOUR(3_600_000L),
+        DAY(86_400_000L);
+
+        private final long millis;
+
+        Granularity(long millis) {
+            this.millis = millis;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        public static Granularity parse(String value) {
+            for (Granularity granularity : values()) {
+                if (granularity.name().equalsIgnoreCase(value)) {
+                    return granularity;
+                }
+            }
+            throw new IllegalArgumentException("Unknown granularity: " + value);
+        }
+    }
+
+    private final int precision;
+    private final Map<String, RouteSketches> routes = new ConcurrentHashMap<>();
+
+    public UniqueClientTracker(@Value("${gateway.metrics.unique-clients.precision:11}") int precision) {
+        this.precision = precision;
+    }
+
+    public void record(String routeId, String clientIp) {
+        if (routeId == null || clientIp == null) {
+            return;
+        }
+        RouteSketches sketches = routes.computeIfAbsent(routeId, id -> new RouteSketches());
+        long hash = HyperLogLog.hash(clientIp);
+        long now = System.currentTimeMillis();
+        for (Granularity granularity : Granularity.values()) {
+            sketches.buckets[granularity.ordinal()].forTime(now).sketch.addHash(hash);
+        }
+    }
+
+    /**
+     * Per-route estimates for the current (or the just-finished) bucket, plus an
+     * "all routes" estimate from merging them. With {@code includeSketches} every entry
+     * also carries its base64 registers so another node or the dashboard can merge them.
+     */
+    public UniqueClientsSnapshot snapshot(Granularity granularity, boolean previous, boolean includeSketches) {
+        long now = System.currentTimeMillis();
+        long bucketStart = (now / granularity.millis - (previous ? 1 : 0)) * granularity.millis;
+        HyperLogLog allRoutes = new HyperLogLog(precision);
+        Map<String, RouteEstimate> byRoute = new TreeMap<>();
+        for (Map.Entry<String, RouteSketches> entry : routes.entrySet()) {
+            HyperLogLog sketch = entry.getValue().buckets[granularity.ordinal()].sketchFor(now, previous);
+            if (sketch == null) {
+                continue;
+            }
+            allRoutes.merge(sketch);
+            byRoute.put(entry.getKey(), estimateOf(sketch, includeSketches));
+        }
+        return new UniqueClientsSnapshot(granularity.name().toLowerCase(), bucketStart,
+                estimateOf(allRoutes, includeSketches), byRoute);
+    }
+
+    /**
+     * Merges serialised sketches (for example one per gateway node) into one estimate.
+     */
+    public RouteEstimate merge(Iterable<String> encodedSketches) {
+        HyperLogLog merged = null;
+        for (String encoded : encodedSketches) {
+            HyperLogLog sketch = HyperLogLog.fromBytes(Base64.getDecoder().decode(encoded));
+            if (merged == null) {
+                merged = sketch;
+            } else {
+                merged.merge(sketch);
+            }
+        }
+        return estimateOf(merged != null ? merged : new HyperLogLog(precision), true);
+    }
+
+    private static RouteEstimate estimateOf(HyperLogLog sketch, boolean includeSketch) {
+        return new RouteEstimate(sketch.estimate(),
+                includeSketch ? Base64.getEncoder().encodeToString(sketch.toBytes()) : null);
+    }
+
+    private final class RouteSketches {
+        private final BucketPair[] buckets = new BucketPair[Granularity.values().length];
+
+        private RouteSketches() {
+            for (Granularity granularity : Granularity.values()) {
+                buckets[granularity.ordinal()] = new BucketPair(granularity.millis);
+            }
+        }
+    }
+
+    // Current and previous bucket of one granularity; rotates lazily on the first record of a new bucket.
+    private final class BucketPair {
+        private final long millis;
+        private final AtomicReference<Bucket> current = new AtomicReference<>();
+        private volatile Bucket previous;
+
+        private BucketPair(long millis) {
+            this.millis = millis;
+            this.current.set(new Bucket(System.currentTimeMillis() / millis));
+        }
+
+        private Bucket forTime(long now) {
+            long index = now / millis;
+            Bucket bucket = current.get();
+            while (bucket.index < index) {
+                Bucket fresh = new Bucket(index);
+                if (current.compareAndSet(bucket, fresh)) {
+                    previous = bucket;
+                    return fresh;
+                }
+                bucket = current.get();
+            }
+            return bucket;
+        }
+
+        private HyperLogLog sketchFor(long now, boolean wantPrevious) {
+            long index = now / millis - (wantPrevious ? 1 : 0);
+            Bucket bucket = current.get();
+            if (bucket.index == index) {
+                return bucket.sketch;
+            }
+            Bucket before = previous;
+            return before != null && before.index == index ? before.sketch : null;
+        }
+    }
+
+    private final class Bucket {
+        private final long index;
+        private final HyperLogLog sketch = new HyperLogLog(precision);
+
+        private Bucket(long index) {
+            this.index = index;
+        }
+    }
+
+    public static class RouteEstimate {
+        private final long uniqueClients;
+        private final String sketch;
+
+        public RouteEstimate(long uniqueClients, String sketch) {
+            this.uniqueClients = uniqueClients;
+            this.sketch = sketch;
+        }
+
+        public long getUniqueClients() {
+            return uniqueClients;
+        }
+
+        public String getSketch() {
+            return sketch;
+        }
+    }
+
+    public static class UniqueClientsSnapshot {
+        private final String granularity;
+        private final long bucketStart;
+        private final RouteEstimate allRoutes;
+        private final Map<String, RouteEstimate> routes;
+
+        public UniqueClientsSnapshot(String granularity, long bucketStart, RouteEstimate allRoutes,
+                                     Map<String, RouteEstimate> routes) {
+            this.granularity = granularity;
+            this.bucketStart = bucketStart;
+            this.allRoutes = allRoutes;
+            this.routes = new LinkedHashMap<>(routes);
+        }
+
+        public String getGranularity() {
+            return granularity;
+        }
+
+        public long getBucketStart() {
+            return bucketStart;
+        }
+
+        public RouteEstimate getAllRoutes() {
+            return allRoutes;
+        }
+
+        public Map<String, RouteEstimate> getRoutes() {
+            return routes;
+        }
+    }
+}
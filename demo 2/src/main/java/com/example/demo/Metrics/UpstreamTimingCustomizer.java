@@ -0,0 +1,23 @@
+package com.example.demo.Metrics;
+
+import org.springframework.cloud.gateway.config.HttpClientCustomizer;
+import org.springframework.stereotype.Component;
+import reactor.netty.http.client.HttpClient;
+
+/**
+ * Marks the upstream stages of {@link StageTimings} from inside the gateway's HTTP client:
+ * the request going out once a connection is acquired, and the response headers coming
+ * back. The exchange's timings reach these callbacks through the Reactor context.
+ */
+@Component
+public class UpstreamTimingCustomizer implements HttpClientCustomizer {
+
+    @Override
+    public HttpClient customize(HttpClient httpClient) {
+        return httpClient
+                .doOnRequest((request, connection) ->
+                        StageTimings.mark(request.currentContextView(), StageTimings.Stage.UPSTREAM_CONNECT))
+                .doOnResponse((response, connection) ->
+                        StageTimings.mark(response.currentContextView(), StageTimings.Stage.UPSTREAM_FIRST_BYTE));
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.demo.Metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Gil Tene's writer/reader phaser (as used by HdrHistogram's Recorder). Writers enter and
+ * leave a critical section with one atomic increment each and never block; a reader that
+ * has swapped the structure writers use calls {@link #flipPhase()} to wait until every
+ * writer that might still hold the old one has left.
+ *
+ * Readers must serialise among themselves (callers flip under their own lock).
+ */
+final class WriterReaderPhaser {
+
+    private final AtomicLong startEpoch = new AtomicLong(0);
+    private final AtomicLong evenEndEpoch = new AtomicLong(0);
+    private final AtomicLong oddEndEpoch = new AtomicLong(Long.MIN_VALUE);
+
+    long writerCriticalSectionEnter() {
+        return startEpoch.getAndIncrement();
+    }
+
+    void writerCriticalSectionExit(long criticalValueAtEnter) {
+        (criticalValueAtEnter < 0 ? oddEndEpoch : evenEndEpoch).getAndIncrement();
+    }
+
+    void flipPhase() {
+        boolean nextPhaseIsEven = startEpoch.get() < 0;
+        long initialStartValue = nextPhaseIsEven ? 0 : Long.MIN_VALUE;
+        (nextPhaseIsEven ? evenEndEpoch : oddEndEpoch).set(initialStartValue);
+
+        long startValueAtFlip = startEpoch.getAndSet(initialStartValue);
+        AtomicLong previousPhaseEnd = nextPhaseIsEven ? oddEndEpoch : evenEndEpoch;
+        while (previousPhaseEnd.get() != startValueAtFlip) {
+            LockSupport.parkNanos(10_000);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.demo.Repository;
+
+import com.example.demo.Entity.UpstreamTarget;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+
+@Repository
+public interface UpstreamTargetRepository extends JpaRepository<UpstreamTarget, Long> {
+
+    // Ordered so that a route's pool, and its round-robin schedule, is the same on every node
+    @Query("SELECT t FROM UpstreamTarget t ORDER BY t.gatewayRoute.id, t.id")
+    List<UpstreamTarget> findAllOrdered();
+}
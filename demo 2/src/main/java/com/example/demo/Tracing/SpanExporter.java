@@ -0,0 +1,272 @@
+package com.example.demo.Tracing;
+
+import com.example.demo.Logging.RollingFileSink;
+import com.example.demo.Metrics.StageTimings;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes the spans of kept traces as NDJSON (one OTLP-shaped span per line) to a rolling
+ * file that a collector can tail. Request threads only offer the finished trace to a
+ * bounded queue; building the spans and all I/O happen on the exporter thread, and traces
+ * that do not fit in the queue are dropped and counted. If the file cannot be written the
+ * exporter counts the lost batch as dropped, reopens the file after a second and carries on.
+ */
+@Slf4j
+@Component
+public class SpanExporter {
+
+    private static final long REOPEN_DELAY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final boolean enabled;
+    private final String file;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final BlockingQueue<FinishedTrace> queue;
+    private final LongAdder dropped = new LongAdder();
+    private final StringBuilder line = new StringBuilder(512);
+    private final List<FinishedTrace> batch = new ArrayList<>(256);
+    // Traces of the batch being written; only touched by the exporter thread.
+    private int pending;
+
+    private volatile boolean running;
+    private Thread exporter;
+
+    public SpanExporter(@Value("${gateway.tracing.enabled:true}") boolean enabled,
+                        @Value("${gateway.tracing.export.file:logs/spans.ndjson}") String file,
+                        @Value("${gateway.tracing.export.buffer-size:4096}") int bufferSize,
+                        @Value("${gateway.tracing.export.max-file-size-mb:100}") long maxFileSizeMb,
+                        @Value("${gateway.tracing.export.max-files:5}") int maxFiles,
+                        MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.file = file;
+        this.maxFileBytes = maxFileSizeMb * 1024 * 1024;
+        this.maxFiles = maxFiles;
+        this.queue = new ArrayBlockingQueue<>(Math.max(bufferSize, 1));
+        FunctionCounter.builder("gateway.tracing.dropped", dropped, LongAdder::sum)
+                .description("Sampled traces dropped because the span exporter fell behind")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        exporter = new Thread(this::exportLoop, "span-exporter");
+        exporter.setDaemon(true);
+        exporter.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (exporter != null) {
+            exporter.interrupt();
+            exporter.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    /**
+     * Never blocks; returns false if the trace was dropped.
+     */
+    public boolean offer(FinishedTrace trace) {
+        if (!running || !queue.offer(trace)) {
+            dropped.increment();
+            return false;
+        }
+        return true;
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    private void exportLoop() {
+        boolean failed = false;
+        while (running || !queue.isEmpty()) {
+            try (RollingFileSink sink = new RollingFileSink(Paths.get(file), maxFileBytes, maxFiles)) {
+                if (failed) {
+                    log.info("Exporting spans to {} again", Paths.get(file).toAbsolutePath());
+                } else {
+                    log.info("Exporting spans to {}", Paths.get(file).toAbsolutePath());
+                }
+                failed = false;
+                while (running || !queue.isEmpty()) {
+                    export(sink);
+                }
+            } catch (IOException e) {
+                if (!failed) {
+                    log.error("Span export to {} failed, retrying every second: {}", file, e.getMessage());
+                }
+                failed = true;
+                // Traces that did not make it to the file are lost; count them like any other drop.
+                dropped.add(pending);
+                pending = 0;
+                if (running) {
+                    LockSupport.parkNanos(REOPEN_DELAY_NANOS);
+                } else {
+                    discardRemaining();
+                }
+            }
+        }
+    }
+
+    // Only when shutting down with a file that cannot be written.
+    private void discardRemaining() {
+        dropped.add(queue.size());
+        queue.clear();
+    }
+
+    private void export(RollingFileSink sink) throws IOException {
+        FinishedTrace first;
+        try {
+            first = queue.poll(100, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            // Shutting down: write out what is queued, then stop.
+            first = queue.poll();
+        }
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        queue.drainTo(batch, 255);
+        line.setLength(0);
+        for (FinishedTrace trace : batch) {
+            appendSpans(trace);
+        }
+        pending = batch.size();
+        batch.clear();
+        byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+        sink.write(bytes, bytes.length);
+        sink.flush();
+        pending = 0;
+    }
+
+    private void appendSpans(FinishedTrace trace) {
+        TraceContext context = trace.context;
+        StageTimings timings = trace.timings;
+        String traceId = context.getTraceId();
+        long epochStart = context.getStartEpochMillis() * 1_000_000L;
+        String serverSpan = TraceContext.spanId(context.getServerSpanId());
+
+        line.append("{\"traceId\":\"").append(traceId).append("\",\"spanId\":\"").append(serverSpan).append('"');
+        if (context.getParentSpanId() != 0) {
+            line.append(",\"parentSpanId\":\"").append(TraceContext.spanId(context.getParentSpanId())).append('"');
+        }
+        line.append(",\"name\":");
+        appendString(trace.method + " " + (trace.routeId != null ? trace.routeId : trace.path));
+        line.append(",\"kind\":\"SERVER\",\"startTimeUnixNano\":").append(epochStart)
+                .append(",\"endTimeUnixNano\":").append(epochStart + trace.durationNanos)
+                .append(",\"attributes\":{\"http.method\":");
+        appendString(trace.method);
+        line.append(",\"http.target\":");
+        appendString(trace.path);
+        line.append(",\"http.status_code\":").append(trace.status);
+        if (trace.routeId != null) {
+            line.append(",\"gateway.route\":");
+            appendString(trace.routeId);
+        }
+        line.append(",\"gateway.sampled_by\":\"").append(trace.sampledBy).append("\"}");
+        if (trace.status >= 500 || trace.status == 0) {
+            line.append(",\"status\":{\"code\":\"ERROR\"}");
+        }
+        line.append("}\n");
+
+        if (timings == null) {
+            return;
+        }
+        for (StageTimings.Stage stage : StageTimings.Stage.values()) {
+            if (stage == StageTimings.Stage.UPSTREAM_FIRST_BYTE || stage == StageTimings.Stage.RESPONSE
+                    || !timings.reached(stage)) {
+                continue;
+            }
+            long end = timings.getEndOffsetNanos(stage);
+            appendChildSpan(traceId, serverSpan, stageSpanId(context, stage), "gateway." + stage.getLabel(),
+                    "INTERNAL", epochStart + end - timings.getNanos(stage), epochStart + end);
+        }
+        if (timings.reached(StageTimings.Stage.UPSTREAM_CONNECT)) {
+            // The client span runs from the request going out until the exchange completed. The
+            // response stage itself is marked by an inner filter after the trace was handed over.
+            long sent = timings.getEndOffsetNanos(StageTimings.Stage.UPSTREAM_CONNECT);
+            appendChildSpan(traceId, serverSpan, TraceContext.spanId(context.getUpstreamSpanId()),
+                    "upstream", "CLIENT", epochStart + sent, epochStart + Math.max(sent, trace.durationNanos));
+        }
+    }
+
+    // Derived from the server span id, so no ids are generated for stage spans on the request path.
+    private static String stageSpanId(TraceContext context, StageTimings.Stage stage) {
+        long id = context.getServerSpanId() ^ ((stage.ordinal() + 1) * 0x9E3779B97F4A7C15L);
+        return TraceContext.spanId(id != 0 ? id : 1);
+    }
+
+    private void appendChildSpan(String traceId, String parent, String spanId, String name, String kind,
+                                 long startNanos, long endNanos) {
+        line.append("{\"traceId\":\"").append(traceId)
+                .append("\",\"spanId\":\"").append(spanId)
+                .append("\",\"parentSpanId\":\"").append(parent)
+                .append("\",\"name\":\"").append(name)
+                .append("\",\"kind\":\"").append(kind)
+                .append("\",\"startTimeUnixNano\":").append(startNanos)
+                .append(",\"endTimeUnixNano\":").append(endNanos)
+                .append("}\n");
+    }
+
+    private void appendString(String value) {
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                line.append('\\').append(c);
+            } else if (c < 0x20) {
+                line.append(String.format("\\u%04x", (int) c));
+            } else {
+                line.append(c);
+            }
+        }
+        line.append('"');
+    }
+
+    /**
+     * What the exporter needs to rebuild the spans of one kept exchange.
+     */
+    public static final class FinishedTrace {
+        private final TraceContext context;
+        private final StageTimings timings;
+        private final String method;
+        private final String path;
+        private final String routeId;
+        private final int status;
+        private final long durationNanos;
+        private final String sampledBy;
+
+        public FinishedTrace(TraceContext context, StageTimings timings, String method, String path,
+                             String routeId, int status, long durationNanos, String sampledBy) {
+            this.context = context;
+            this.timings = timings;
+            this.method = method;
+            this.path = path;
+            this.routeId = routeId;
+            this.status = status;
+            this.durationNanos = durationNanos;
+            this.sampledBy = sampledBy;
+        }
+    }
+}
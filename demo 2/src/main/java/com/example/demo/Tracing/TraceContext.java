@@ -0,0 +1,144 @@
+package com.example.demo.Tracing;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * W3C trace context of one exchange: the trace id (taken from an incoming
+ * {@code traceparent} or generated), the caller's span id, and the ids the gateway uses for
+ * its own server span and for the upstream call. Ids are kept as longs and only turned into
+ * hex when a header or span is written.
+ */
+public final class TraceContext {
+
+    public static final String ATTRIBUTE = TraceContext.class.getName();
+    public static final String TRACEPARENT = "traceparent";
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final long traceIdHigh;
+    private final long traceIdLow;
+    private final long parentSpanId;
+    private final long serverSpanId;
+    private final long upstreamSpanId;
+    private final boolean sampled;
+    private final long startEpochMillis;
+
+    private TraceContext(long traceIdHigh, long traceIdLow, long parentSpanId, boolean sampled) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        this.traceIdHigh = traceIdHigh;
+        this.traceIdLow = traceIdLow;
+        this.parentSpanId = parentSpanId;
+        this.serverSpanId = nonZero(random.nextLong());
+        this.upstreamSpanId = nonZero(random.nextLong());
+        this.sampled = sampled;
+        this.startEpochMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Continues the trace in {@code traceparent} if it is a valid version-00 header,
+     * otherwise starts a new one.
+     *
+     * @param sampler decides head sampling; given whether the caller's flags asked for it
+     */
+    public static TraceContext continueOrStart(String traceparent, Sampler sampler) {
+        if (traceparent != null && traceparent.length() == 55 && traceparent.startsWith("00-")
+                && traceparent.charAt(35) == '-' && traceparent.charAt(52) == '-') {
+            long high = parseHex(traceparent, 3);
+            long low = parseHex(traceparent, 19);
+            long parent = parseHex(traceparent, 36);
+            long flags = parseHex(traceparent, 53, 2);
+            if (high != -1 && low != -1 && parent != -1 && flags != -1
+                    && (high | low) != 0 && parent != 0) {
+                return new TraceContext(high, low, parent, sampler.sample((flags & 1) != 0));
+            }
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return new TraceContext(random.nextLong(), nonZero(random.nextLong()), 0, sampler.sample(false));
+    }
+
+    /**
+     * The header sent upstream: same trace, the upstream call's span as parent.
+     */
+    public String toUpstreamTraceparent() {
+        char[] header = new char[55];
+        header[0] = '0';
+        header[1] = '0';
+        header[2] = '-';
+        writeHex(header, 3, traceIdHigh);
+        writeHex(header, 19, traceIdLow);
+        header[35] = '-';
+        writeHex(header, 36, upstreamSpanId);
+        header[52] = '-';
+        header[53] = '0';
+        header[54] = sampled ? '1' : '0';
+        return new String(header);
+    }
+
+    public String getTraceId() {
+        char[] id = new char[32];
+        writeHex(id, 0, traceIdHigh);
+        writeHex(id, 16, traceIdLow);
+        return new String(id);
+    }
+
+    public boolean isSampled() {
+        return sampled;
+    }
+
+    long getParentSpanId() {
+        return parentSpanId;
+    }
+
+    long getServerSpanId() {
+        return serverSpanId;
+    }
+
+    long getUpstreamSpanId() {
+        return upstreamSpanId;
+    }
+
+    long getStartEpochMillis() {
+        return startEpochMillis;
+    }
+
+    static String spanId(long id) {
+        char[] hex = new char[16];
+        writeHex(hex, 0, id);
+        return new String(hex);
+    }
+
+    @FunctionalInterface
+    public interface Sampler {
+        boolean sample(boolean parentSampled);
+    }
+
+    private static long parseHex(String s, int offset) {
+        return parseHex(s, offset, 16);
+    }
+
+    // Lowercase hex only, as the spec requires. -1 (all bits set) doubles as the error value;
+    // a genuine all-f id is vanishingly rare and merely restarts the trace.
+    private static long parseHex(String s, int offset, int length) {
+        long value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            char c = s.charAt(i);
+            int digit = c >= '0' && c <= '9' ? c - '0' : c >= 'a' && c <= 'f' ? c - 'a' + 10 : -1;
+            if (digit < 0) {
+                return -1;
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+
+    private static void writeHex(char[] target, int offset, long value) {
+        for (int i = 15; i >= 0; i--) {
+            target[offset + i] = HEX[(int) (value & 0xf)];
+            value >>>= 4;
+        }
+    }
+
+    private static long nonZero(long id) {
+        return id != 0 ? id : 1;
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.demo.Tracing;
+
+import com.example.demo.Metrics.StageTimings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sampling decisions for gateway traces.
+ *
+ * Head sampling happens when a request arrives: a caller that already sampled its trace is
+ * followed (unless disabled), everything else is kept with a fixed probability. Tail
+ * sampling happens when the exchange completes: failed or slow requests are always kept,
+ * whatever the head decision was. A request kept by neither only ever pays for its ids and
+ * the propagated header; its spans are never built.
+ */
+@Component
+public class Tracer {
+
+    private final boolean enabled;
+    private final double sampleRate;
+    private final boolean respectParent;
+    private final long tailLatencyNanos;
+    private final int tailMinStatus;
+    private final SpanExporter exporter;
+
+    public Tracer(@Value("${gateway.tracing.enabled:true}") boolean enabled,
+                  @Value("${gateway.tracing.sample-rate:0.01}") double sampleRate,
+                  @Value("${gateway.tracing.respect-parent-sampled:true}") boolean respectParent,
+                  @Value("${gateway.tracing.tail.latency-ms:1000}") long tailLatencyMs,
+                  @Value("${gateway.tracing.tail.min-status:500}") int tailMinStatus,
+                  SpanExporter exporter) {
+        this.enabled = enabled;
+        this.sampleRate = sampleRate;
+        this.respectParent = respectParent;
+        this.tailLatencyNanos = tailLatencyMs * 1_000_000L;
+        this.tailMinStatus = tailMinStatus;
+        this.exporter = exporter;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public TraceContext start(ServerHttpRequest request) {
+        return TraceContext.continueOrStart(request.getHeaders().getFirst(TraceContext.TRACEPARENT), this::sampleHead);
+    }
+
+    /**
+     * Hands the exchange's spans to the exporter if the head or the tail decision keeps it.
+     */
+    public void finish(TraceContext context, StageTimings timings, ServerHttpRequest request,
+                       String routeId, int status, long durationNanos) {
+        String sampledBy;
+        if (context.isSampled()) {
+            sampledBy = "head";
+        } else if (status >= tailMinStatus || durationNanos >= tailLatencyNanos) {
+            sampledBy = "tail";
+        } else {
+            return;
+        }
+        exporter.offer(new SpanExporter.FinishedTrace(context, timings, request.getMethod().name(),
+                request.getURI().getRawPath(), routeId, status, durationNanos, sampledBy));
+    }
+
+    private boolean sampleHead(boolean parentSampled) {
+        if (respectParent && parentSampled) {
+            return true;
+        }
+        return sampleRate >= 1.0 || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+}
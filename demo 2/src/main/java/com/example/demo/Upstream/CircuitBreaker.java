@@ -0,0 +1,290 @@
+package com.example.demo.Upstream;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Circuit breaker of one route. While closed, the outcome of every call goes into a sliding
+ * window of the last {@code windowSize} calls; once it holds {@code minimumCalls} and the
+ * failure rate (errors and 5xx) or the slow-call rate reaches its threshold, the breaker opens
+ * and calls are refused without reaching the upstream. After {@code openDuration} it lets
+ * {@code halfOpenCalls} trial calls through: if they all succeed in time it closes again,
+ * the first failed or slow one opens it for another period.
+ *
+ * Lock-free: the window is a ring of outcome codes in an {@link AtomicIntegerArray} whose
+ * running totals are adjusted by the difference between the code written and the code it
+ * replaced, and the state is an immutable {@link Phase} swapped by compare-and-set. A call
+ * carries the phase it was admitted in, so late outcomes from a previous phase are dropped
+ * instead of counting as half-open trials.
+ */
+public final class CircuitBreaker {
+
+    public static final String METADATA_KEY = "circuitBreaker";
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private static final int EMPTY = 0;
+    private static final int OK = 1;
+    private static final int FAILED = 2;
+    private static final int SLOW = 4;
+
+    private final Config config;
+    private final AtomicIntegerArray window;
+    private final AtomicLong cursor = new AtomicLong();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicInteger failures = new AtomicInteger();
+    private final AtomicInteger slowCalls = new AtomicInteger();
+    private final AtomicReference<Phase> phase = new AtomicReference<>(new Phase(State.CLOSED, 0, 0));
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong opened = new AtomicLong();
+
+    CircuitBreaker(Config config) {
+        this.config = config;
+        this.window = new AtomicIntegerArray(config.windowSize);
+    }
+
+    /**
+     * @return the phase to hand back to {@link #record} or {@link #release}, or null if the
+     *         call must be refused
+     */
+    public Phase tryAcquire() {
+        while (true) {
+            Phase current = phase.get();
+            switch (current.state) {
+                case CLOSED:
+                    return current;
+                case OPEN:
+                    if (System.nanoTime() - current.openUntilNanos < 0) {
+                        rejected.incrementAndGet();
+                        return null;
+                    }
+                    phase.compareAndSet(current, new Phase(State.HALF_OPEN, config.halfOpenCalls, 0));
+                    break;
+                default:
+                    if (current.permits.getAndUpdate(n -> n > 0 ? n - 1 : n) > 0) {
+                        return current;
+                    }
+                    rejected.incrementAndGet();
+                    return null;
+            }
+        }
+    }
+
+    /**
+     * Records the outcome of a call admitted in {@code admitted}.
+     */
+    public void record(Phase admitted, long nanos, boolean failed) {
+        boolean slow = nanos >= config.slowCallNanos;
+        if (admitted.state == State.HALF_OPEN) {
+            if (phase.get() != admitted) {
+                return;
+            }
+            if (failed || slow) {
+                open(admitted);
+            } else if (admitted.successes.incrementAndGet() >= config.halfOpenCalls) {
+                close(admitted);
+            }
+            return;
+        }
+        if (phase.get() != admitted) {
+            return;
+        }
+        int code = OK | (failed ? FAILED : 0) | (slow ? SLOW : 0);
+        int index = (int) Math.floorMod(cursor.getAndIncrement(), (long) config.windowSize);
+        int replaced = window.getAndSet(index, code);
+        if (replaced == EMPTY) {
+            calls.incrementAndGet();
+        }
+        int failureDelta = bit(code, FAILED) - bit(replaced, FAILED);
+        int slowDelta = bit(code, SLOW) - bit(replaced, SLOW);
+        int failureCount = failureDelta == 0 ? failures.get() : failures.addAndGet(failureDelta);
+        int slowCount = slowDelta == 0 ? slowCalls.get() : slowCalls.addAndGet(slowDelta);
+        int callCount = calls.get();
+        if (callCount >= config.minimumCalls
+                && ((long) failureCount * 100 >= (long) config.failureRateThreshold * callCount
+                || (long) slowCount * 100 >= (long) config.slowCallRateThreshold * callCount)) {
+            open(admitted);
+        }
+    }
+
+    /**
+     * Gives back a half-open permit of a call that was cancelled before it had an outcome.
+     */
+    public void release(Phase admitted) {
+        if (admitted.state == State.HALF_OPEN && phase.get() == admitted) {
+            admitted.permits.incrementAndGet();
+        }
+    }
+
+    private void open(Phase from) {
+        if (phase.compareAndSet(from, new Phase(State.OPEN, 0, System.nanoTime() + config.openNanos))) {
+            opened.incrementAndGet();
+            clearWindow();
+        }
+    }
+
+    private void close(Phase from) {
+        if (phase.compareAndSet(from, new Phase(State.CLOSED, 0, 0))) {
+            clearWindow();
+        }
+    }
+
+    /**
+     * Only runs on a state change, while calls of the new phase may already be recording;
+     * entries are cleared one by one so the totals stay consistent with the ring.
+     */
+    private void clearWindow() {
+        for (int i = 0; i < config.windowSize; i++) {
+            int replaced = window.getAndSet(i, EMPTY);
+            if (replaced != EMPTY) {
+                calls.decrementAndGet();
+                failures.addAndGet(-bit(replaced, FAILED));
+                slowCalls.addAndGet(-bit(replaced, SLOW));
+            }
+        }
+    }
+
+    private static int bit(int code, int flag) {
+        return (code & flag) != 0 ? 1 : 0;
+    }
+
+    public State getState() {
+        return phase.get().state;
+    }
+
+    /**
+     * @return milliseconds until the breaker lets trial calls through, 0 unless open
+     */
+    public long getRetryAfterMillis() {
+        Phase current = phase.get();
+        if (current.state != State.OPEN) {
+            return 0;
+        }
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(current.openUntilNanos - System.nanoTime()));
+    }
+
+    Config getConfig() {
+        return config;
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    /**
+     * A state of the breaker. Half-open phases carry their own trial permits and successes.
+     */
+    public static final class Phase {
+        private final State state;
+        private final long openUntilNanos;
+        private final AtomicInteger permits;
+        private final AtomicInteger successes = new AtomicInteger();
+
+        private Phase(State state, int permits, long openUntilNanos) {
+            this.state = state;
+            this.permits = new AtomicInteger(permits);
+            this.openUntilNanos = openUntilNanos;
+        }
+
+        public State getState() {
+            return state;
+        }
+    }
+
+    /**
+     * Thresholds of a breaker, from the route's settings with the gateway defaults filled in.
+     */
+    static final class Config {
+        final int failureRateThreshold;
+        final int slowCallRateThreshold;
+        final long slowCallNanos;
+        final int windowSize;
+        final int minimumCalls;
+        final long openNanos;
+        final int halfOpenCalls;
+
+        Config(int failureRateThreshold, int slowCallRateThreshold, long slowCallMs,
+               int windowSize, int minimumCalls, long openMs, int halfOpenCalls) {
+            this.failureRateThreshold = failureRateThreshold;
+            this.slowCallRateThreshold = slowCallRateThreshold;
+            this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMs);
+            this.windowSize = Math.max(windowSize, 1);
+            this.minimumCalls = Math.max(Math.min(minimumCalls, this.windowSize), 1);
+            this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMs);
+            this.halfOpenCalls = Math.max(halfOpenCalls, 1);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Config)) {
+                return false;
+            }
+            Config other = (Config) o;
+            return failureRateThreshold == other.failureRateThreshold
+                    && slowCallRateThreshold == other.slowCallRateThreshold
+                    && slowCallNanos == other.slowCallNanos
+                    && windowSize == other.windowSize
+                    && minimumCalls == other.minimumCalls
+                    && openNanos == other.openNanos
+                    && halfOpenCalls == other.halfOpenCalls;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(failureRateThreshold, slowCallRateThreshold, slowCallNanos,
+                    windowSize, minimumCalls, openNanos, halfOpenCalls);
+        }
+    }
+
+    public static class Snapshot {
+        private final String state;
+        private final int calls;
+        private final double failureRate;
+        private final double slowCallRate;
+        private final long retryAfterMillis;
+        private final long opened;
+        private final long rejected;
+
+        Snapshot(CircuitBreaker breaker) {
+            this.state = breaker.getState().name().toLowerCase();
+            this.calls = breaker.calls.get();
+            this.failureRate = calls == 0 ? 0 : breaker.failures.get() * 100.0 / calls;
+            this.slowCallRate = calls == 0 ? 0 : breaker.slowCalls.get() * 100.0 / calls;
+            this.retryAfterMillis = breaker.getRetryAfterMillis();
+            this.opened = breaker.opened.get();
+            this.rejected = breaker.rejected.get();
+        }
+
+        public String getState() {
+            return state;
+        }
+
+        public int getCalls() {
+            return calls;
+        }
+
+        public double getFailureRate() {
+            return failureRate;
+        }
+
+        public double getSlowCallRate() {
+            return slowCallRate;
+        }
+
+        public long getRetryAfterMillis() {
+            return retryAfterMillis;
+        }
+
+        public long getOpened() {
+            return opened;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.demo.Upstream;
+
+import com.example.demo.Entity.CircuitBreakerSettings;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Owns the {@link CircuitBreaker} of every route that has one. A route rebuild with the same
+ * settings gets the same breaker back, state included; changed settings start a new, closed
+ * one. Settings left empty on the route take the {@code gateway.circuit-breaker.*} defaults.
+ *
+ * Each route's state is also a {@code gateway.circuit.state} gauge (0 closed, 1 open,
+ * 2 half-open), read from whichever breaker the route has at scrape time.
+ */
+@Slf4j
+@Component
+public class CircuitBreakerRegistry {
+
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final Set<String> gauges = ConcurrentHashMap.newKeySet();
+    private final MeterRegistry meterRegistry;
+    private final int failureRateThreshold;
+    private final int slowCallRateThreshold;
+    private final int slowCallDurationMs;
+    private final int windowSize;
+    private final int minimumCalls;
+    private final int openDurationMs;
+    private final int halfOpenCalls;
+
+    public CircuitBreakerRegistry(MeterRegistry meterRegistry,
+                                  @Value("${gateway.circuit-breaker.failure-rate-threshold:50}") int failureRateThreshold,
+                                  @Value("${gateway.circuit-breaker.slow-call-rate-threshold:100}") int slowCallRateThreshold,
+                                  @Value("${gateway.circuit-breaker.slow-call-duration-ms:5000}") int slowCallDurationMs,
+                                  @Value("${gateway.circuit-breaker.window-size:100}") int windowSize,
+                                  @Value("${gateway.circuit-breaker.minimum-calls:20}") int minimumCalls,
+                                  @Value("${gateway.circuit-breaker.open-duration-ms:30000}") int openDurationMs,
+                                  @Value("${gateway.circuit-breaker.half-open-calls:5}") int halfOpenCalls) {
+        this.meterRegistry = meterRegistry;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallDurationMs = slowCallDurationMs;
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.openDurationMs = openDurationMs;
+        this.halfOpenCalls = halfOpenCalls;
+    }
+
+    /**
+     * @return the route's breaker for these settings
+     */
+    public CircuitBreaker update(String routeId, CircuitBreakerSettings settings) {
+        CircuitBreaker.Config config = new CircuitBreaker.Config(
+                valueOr(settings.getFailureRateThreshold(), failureRateThreshold),
+                valueOr(settings.getSlowCallRateThreshold(), slowCallRateThreshold),
+                valueOr(settings.getSlowCallDurationMs(), slowCallDurationMs),
+                valueOr(settings.getWindowSize(), windowSize),
+                valueOr(settings.getMinimumCalls(), minimumCalls),
+                valueOr(settings.getOpenDurationMs(), openDurationMs),
+                valueOr(settings.getHalfOpenCalls(), halfOpenCalls));
+        CircuitBreaker existing = breakers.get(routeId);
+        if (existing != null && existing.getConfig().equals(config)) {
+            return existing;
+        }
+        CircuitBreaker breaker = new CircuitBreaker(config);
+        breakers.put(routeId, breaker);
+        if (gauges.add(routeId)) {
+            Gauge.builder("gateway.circuit.state", breakers, m -> stateValue(m.get(routeId)))
+                    .description("Circuit breaker state: 0 closed, 1 open, 2 half-open")
+                    .tag("route", routeId)
+                    .register(meterRegistry);
+        }
+        log.info("Route {} has a circuit breaker ({}% failures or {}% slow calls over {} calls)",
+                routeId, config.failureRateThreshold, config.slowCallRateThreshold, config.windowSize);
+        return breaker;
+    }
+
+    private static int valueOr(Integer value, int fallback) {
+        return value != null ? value : fallback;
+    }
+
+    private static double stateValue(CircuitBreaker breaker) {
+        return breaker == null ? Double.NaN : breaker.getState().ordinal();
+    }
+
+    /**
+     * Forgets the breakers of routes that no longer exist or no longer have one.
+     */
+    public void retain(Collection<String> routeIds) {
+        breakers.keySet().retainAll(routeIds);
+    }
+
+    /**
+     * routeId -> breaker state and window, ordered by route id.
+     */
+    public Map<String, CircuitBreaker.Snapshot> snapshot() {
+        Map<String, CircuitBreaker.Snapshot> result = new TreeMap<>();
+        breakers.forEach((routeId, breaker) -> result.put(routeId, breaker.snapshot()));
+        return result;
+    }
+}
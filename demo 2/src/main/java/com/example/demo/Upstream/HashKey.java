@@ -0,0 +1,86 @@
+package com.example.demo.Upstream;
+
+import com.example.demo.Db.IpUtils;
+import com.example.demo.Jwt.LazyClaims;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.Locale;
+
+/**
+ * What a consistent-hash route keys its affinity on: the client IP, the token's clientId or
+ * a request header. Requests without the key (no token on the route, header absent) fall
+ * back to the client IP. The clientId is there because the token filter is ordered before
+ * {@code UpstreamLoadBalancerFilter}.
+ */
+public final class HashKey {
+
+    public enum Source {
+        CLIENT_IP, CLIENT_ID, HEADER
+    }
+
+    private final Source source;
+    private final String header;
+
+    private HashKey(Source source, String header) {
+        this.source = source;
+        this.header = header;
+    }
+
+    /**
+     * @param spec {@code client_ip} (also for null or blank), {@code client_id} or {@code header:Name}
+     */
+    public static HashKey parse(String spec) {
+        if (spec == null || spec.isBlank()) {
+            return new HashKey(Source.CLIENT_IP, null);
+        }
+        String trimmed = spec.trim();
+        if (trimmed.regionMatches(true, 0, "header:", 0, 7)) {
+            String header = trimmed.substring(7).trim();
+            if (header.isEmpty()) {
+                throw new IllegalArgumentException("No header name in hash key: " + spec);
+            }
+            return new HashKey(Source.HEADER, header);
+        }
+        String name = trimmed.toUpperCase(Locale.ROOT).replace('-', '_');
+        for (Source source : Source.values()) {
+            if (source != Source.HEADER && source.name().equals(name)) {
+                return new HashKey(source, null);
+            }
+        }
+        throw new IllegalArgumentException("Unknown hash key: " + spec);
+    }
+
+    public Source getSource() {
+        return source;
+    }
+
+    public String extract(ServerWebExchange exchange) {
+        String key = null;
+        if (source == Source.CLIENT_ID) {
+            LazyClaims claims = exchange.getAttribute(LazyClaims.ATTRIBUTE);
+            key = claims != null ? claims.getClientId() : null;
+        } else if (source == Source.HEADER) {
+            key = exchange.getRequest().getHeaders().getFirst(header);
+        }
+        return key != null && !key.isEmpty() ? key : IpUtils.getClientIp(exchange.getRequest());
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof HashKey)) {
+            return false;
+        }
+        HashKey that = (HashKey) other;
+        return source == that.source && (header == null ? that.header == null : header.equalsIgnoreCase(that.header));
+    }
+
+    @Override
+    public int hashCode() {
+        return source.hashCode() * 31 + (header != null ? header.toLowerCase(Locale.ROOT).hashCode() : 0);
+    }
+
+    @Override
+    public String toString() {
+        return source == Source.HEADER ? "header:" + header : source.name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.demo.Upstream;
+
+import com.example.demo.Metrics.HyperLogLog;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * A consistent-hash ring over the targets of a pool: each target owns a number of points
+ * (virtual nodes) proportional to its weight, and a key goes to the first point at or after
+ * its hash. Immutable; lookups are a binary search.
+ *
+ * Rebuilding from the previous ring is incremental: the points of targets that stayed with
+ * the same weight are kept as they are and merged with the points of new or reweighted
+ * targets, so only keys owned by changed targets move.
+ */
+final class HashRing {
+
+    private static final int POINTS_PER_WEIGHT = 160;
+    private static final int MAX_POINTS_PER_TARGET = 16000;
+
+    private final long[] points;
+    private final UpstreamServer[] owners;
+    private final int[] ownerWeights;
+    private final Map<UpstreamServer, Integer> weights;
+
+    private HashRing(long[] points, UpstreamServer[] owners, int[] ownerWeights, Map<UpstreamServer, Integer> weights) {
+        this.points = points;
+        this.owners = owners;
+        this.ownerWeights = ownerWeights;
+        this.weights = weights;
+    }
+
+    static HashRing build(HashRing previous, UpstreamServer[] servers, int[] serverWeights) {
+        Map<UpstreamServer, Integer> weights = new IdentityHashMap<>();
+        for (int i = 0; i < servers.length; i++) {
+            weights.put(servers[i], serverWeights[i]);
+        }
+
+        // Points of targets whose weight did not change: already sorted.
+        int keptCount = 0;
+        long[] keptPoints = new long[previous != null ? previous.points.length : 0];
+        UpstreamServer[] keptOwners = new UpstreamServer[keptPoints.length];
+        if (previous != null) {
+            for (int i = 0; i < previous.points.length; i++) {
+                UpstreamServer owner = previous.owners[i];
+                if (weights.get(owner) != null && weights.get(owner).equals(previous.weights.get(owner))) {
+                    keptPoints[keptCount] = previous.points[i];
+                    keptOwners[keptCount++] = owner;
+                }
+            }
+        }
+
+        // Points of new or reweighted targets.
+        Map<Long, UpstreamServer> addedOwners = new HashMap<>();
+        for (int i = 0; i < servers.length; i++) {
+            UpstreamServer server = servers[i];
+            if (previous != null && Integer.valueOf(serverWeights[i]).equals(previous.weights.get(server))) {
+                continue;
+            }
+            int count = Math.min(serverWeights[i] * POINTS_PER_WEIGHT, MAX_POINTS_PER_TARGET);
+            for (int replica = 0; replica < count; replica++) {
+                addedOwners.putIfAbsent(HyperLogLog.hash(server.getOrigin() + "#" + replica), server);
+            }
+        }
+        long[] addedPoints = new long[addedOwners.size()];
+        int a = 0;
+        for (long point : addedOwners.keySet()) {
+            addedPoints[a++] = point;
+        }
+        Arrays.sort(addedPoints);
+
+        int length = keptCount + addedPoints.length;
+        long[] points = new long[length];
+        UpstreamServer[] owners = new UpstreamServer[length];
+        int[] ownerWeights = new int[length];
+        int k = 0;
+        a = 0;
+        for (int i = 0; i < length; i++) {
+            if (a >= addedPoints.length || (k < keptCount && keptPoints[k] <= addedPoints[a])) {
+                points[i] = keptPoints[k];
+                owners[i] = keptOwners[k++];
+            } else {
+                points[i] = addedPoints[a];
+                owners[i] = addedOwners.get(addedPoints[a++]);
+            }
+            ownerWeights[i] = weights.get(owners[i]);
+        }
+        return new HashRing(points, owners, ownerWeights, weights);
+    }
+
+    /**
+     * Consistent hashing with bounded loads: walks the ring from the key's point and returns
+     * the first available target whose requests in flight stay within {@code balanceFactor}
+     * times its weighted share of all requests in flight, so a hot key spills over to the next
+     * targets instead of overloading its owner, and the keys of a down target move to the next.
+     * A retry skips {@code avoid}, so it lands on the key's next target.
+     */
+    UpstreamServer locate(long hash, double balanceFactor, int inFlight, int totalWeight, UpstreamServer avoid) {
+        int start = Arrays.binarySearch(points, hash);
+        if (start < 0) {
+            start = -start - 1;
+        }
+        double share = balanceFactor * (inFlight + 1) / totalWeight;
+        for (int step = 0; step < points.length; step++) {
+            int i = (start + step) % points.length;
+            if (owners[i] != avoid && owners[i].getOutstanding() + 1 <= Math.ceil(share * ownerWeights[i])
+                    && owners[i].isAvailable()) {
+                return owners[i];
+            }
+        }
+        // Everything is loaded or down: the key's own target, or the first available after it.
+        for (int step = 0; step < points.length; step++) {
+            int i = (start + step) % points.length;
+            if (owners[i] != avoid && owners[i].isAvailable()) {
+                return owners[i];
+            }
+        }
+        return owners[start % points.length];
+    }
+}
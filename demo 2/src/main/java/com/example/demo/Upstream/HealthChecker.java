@@ -0,0 +1,128 @@
+package com.example.demo.Upstream;
+
+import io.netty.channel.ChannelOption;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Active health: probes every upstream target with a GET on {@code path} and takes it out
+ * of rotation after {@code unhealthy-threshold} failed probes in a row (an error, a timeout
+ * or a 5xx), back in after {@code healthy-threshold} good ones. A dead instance is then
+ * skipped by every new request instead of each one waiting for a connect timeout.
+ *
+ * All probes share one scheduled tick and the gateway's non-blocking HTTP client. Each
+ * origin is probed once per interval however many routes use it, at a random offset and
+ * with jitter so probes of many targets do not line up.
+ *
+ * The same tick drives {@link OutlierDetector} sweeps.
+ */
+@Slf4j
+@Component
+public class HealthChecker {
+
+    private final UpstreamPoolRegistry registry;
+    private final OutlierDetector outlierDetector;
+    private final boolean enabled;
+    private final long intervalNanos;
+    private final double jitter;
+    private final String path;
+    private final int unhealthyThreshold;
+    private final int healthyThreshold;
+    private final HttpClient client;
+    private final Set<String> probing = ConcurrentHashMap.newKeySet();
+
+    public HealthChecker(UpstreamPoolRegistry registry,
+                         OutlierDetector outlierDetector,
+                         @Value("${gateway.upstream.health.enabled:true}") boolean enabled,
+                         @Value("${gateway.upstream.health.interval-ms:5000}") long intervalMs,
+                         @Value("${gateway.upstream.health.jitter:0.2}") double jitter,
+                         @Value("${gateway.upstream.health.timeout-ms:2000}") int timeoutMs,
+                         @Value("${gateway.upstream.health.path:/}") String path,
+                         @Value("${gateway.upstream.health.unhealthy-threshold:2}") int unhealthyThreshold,
+                         @Value("${gateway.upstream.health.healthy-threshold:2}") int healthyThreshold) {
+        this.registry = registry;
+        this.outlierDetector = outlierDetector;
+        this.enabled = enabled;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(intervalMs, 100));
+        this.jitter = Math.min(Math.max(jitter, 0), 1);
+        this.path = path.startsWith("/") ? path : "/" + path;
+        this.unhealthyThreshold = Math.max(unhealthyThreshold, 1);
+        this.healthyThreshold = Math.max(healthyThreshold, 1);
+        this.client = HttpClient.create()
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, timeoutMs)
+                .responseTimeout(Duration.ofMillis(timeoutMs));
+    }
+
+    @Scheduled(fixedDelay = 1000)
+    public void tick() {
+        if (outlierDetector.sweepDue()) {
+            for (UpstreamPool pool : registry.pools()) {
+                outlierDetector.sweep(pool);
+            }
+        }
+        if (!enabled) {
+            return;
+        }
+        long now = System.nanoTime();
+        Map<String, List<UpstreamServer>> due = new HashMap<>();
+        for (UpstreamPool pool : registry.pools()) {
+            for (UpstreamServer server : pool.servers()) {
+                if (server.nextProbeNanos == 0) {
+                    // First seen: start somewhere within the interval.
+                    server.nextProbeNanos = now + (long) (ThreadLocalRandom.current().nextDouble() * intervalNanos);
+                } else if (now - server.nextProbeNanos >= 0) {
+                    due.computeIfAbsent(server.getOrigin(), origin -> new ArrayList<>()).add(server);
+                }
+            }
+        }
+        due.forEach((origin, servers) -> {
+            long next = now + (long) (intervalNanos * (1 + jitter * (2 * ThreadLocalRandom.current().nextDouble() - 1)));
+            servers.forEach(server -> server.nextProbeNanos = next);
+            if (probing.add(origin)) {
+                probe(origin).subscribe(up -> apply(origin, servers, up));
+            }
+        });
+    }
+
+    private Mono<Boolean> probe(String origin) {
+        return client.get()
+                .uri(origin + path)
+                .response((response, body) -> body.then(Mono.just(response.status().code() < 500)))
+                .next()
+                .onErrorResume(e -> {
+                    log.debug("Health probe of {} failed: {}", origin, e.toString());
+                    return Mono.just(false);
+                })
+                .defaultIfEmpty(false)
+                .doFinally(signal -> probing.remove(origin));
+    }
+
+    void apply(String origin, List<UpstreamServer> servers, boolean up) {
+        boolean changed = false;
+        for (UpstreamServer server : servers) {
+            changed |= server.recordProbe(up, unhealthyThreshold, healthyThreshold);
+        }
+        if (changed) {
+            if (up) {
+                log.info("Upstream {} is healthy again", origin);
+            } else {
+                log.warn("Upstream {} failed {} health probes on {}, taking it out of rotation",
+                        origin, unhealthyThreshold, path);
+            }
+        }
+    }
+}
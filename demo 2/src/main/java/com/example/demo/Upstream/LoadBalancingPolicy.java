@@ -0,0 +1,46 @@
+package com.example.demo.Upstream;
+
+import java.util.Locale;
+
+/**
+ * How a route spreads its requests over its upstream targets.
+ */
+public enum LoadBalancingPolicy {
+    /** Two targets drawn by weight; the one with fewer requests in flight per unit of weight wins. */
+    P2C,
+    /** Smooth weighted round robin over a schedule computed when the pool is built. */
+    ROUND_ROBIN,
+    /** Like P2C, but comparing decayed peak latency times requests in flight, per unit of weight. */
+    EWMA,
+    /**
+     * Client affinity: a {@link HashKey} picks the target on a consistent-hash ring, with
+     * bounded loads. Written {@code consistent_hash:<key>}, e.g. {@code consistent_hash:client_id}.
+     */
+    CONSISTENT_HASH;
+
+    /**
+     * @return the policy named by {@code value} (case-insensitive, '-' or '_', anything after
+     *         a ':' being the policy's options), or null if blank
+     */
+    public static LoadBalancingPolicy parse(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        int colon = value.indexOf(':');
+        String name = (colon >= 0 ? value.substring(0, colon) : value).trim().toUpperCase(Locale.ROOT).replace('-', '_');
+        for (LoadBalancingPolicy policy : values()) {
+            if (policy.name().equals(name)) {
+                return policy;
+            }
+        }
+        throw new IllegalArgumentException("Unknown load balancing policy: " + value);
+    }
+
+    /**
+     * @return what follows the policy name and ':' in {@code value}, or null
+     */
+    public static String options(String value) {
+        int colon = value != null ? value.indexOf(':') : -1;
+        return colon >= 0 ? value.substring(colon + 1).trim() : null;
+    }
+}
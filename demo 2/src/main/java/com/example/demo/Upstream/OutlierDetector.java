@@ -0,0 +1,126 @@
+package com.example.demo.Upstream;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Passive health: takes upstream targets out of rotation for a while based on the traffic
+ * they already serve. A target is ejected after {@code consecutive-failures} errors or 5xx in
+ * a row, or when its latency average is more than {@code latency-factor} times its pool's
+ * median. Each ejection in a row doubles the next one, from {@code base-ejection-ms} up to
+ * {@code max-ejection-ms}; the backoff unwinds one step per quiet sweep
+ * (every {@code interval-ms}).
+ *
+ * At most {@code max-ejection-percent} of a pool (but always one target) is ejected at a
+ * time, so a broad failure does not empty the pool. Ejecting is rare and synchronised;
+ * choosing a target only reads the ejection deadline.
+ */
+@Slf4j
+@Component
+public class OutlierDetector {
+
+    private final boolean enabled;
+    private final int consecutiveFailures;
+    private final double latencyFactor;
+    private final long latencyMinNanos;
+    private final long baseEjectionNanos;
+    private final long maxEjectionNanos;
+    private final int maxEjectionPercent;
+    private final long intervalNanos;
+    private long lastSweepNanos = System.nanoTime();
+
+    public OutlierDetector(@Value("${gateway.upstream.outlier.enabled:true}") boolean enabled,
+                           @Value("${gateway.upstream.outlier.consecutive-failures:5}") int consecutiveFailures,
+                           @Value("${gateway.upstream.outlier.latency-factor:3.0}") double latencyFactor,
+                           @Value("${gateway.upstream.outlier.latency-min-ms:100}") long latencyMinMs,
+                           @Value("${gateway.upstream.outlier.base-ejection-ms:30000}") long baseEjectionMs,
+                           @Value("${gateway.upstream.outlier.max-ejection-ms:300000}") long maxEjectionMs,
+                           @Value("${gateway.upstream.outlier.max-ejection-percent:50}") int maxEjectionPercent,
+                           @Value("${gateway.upstream.outlier.interval-ms:10000}") long intervalMs) {
+        this.enabled = enabled;
+        this.consecutiveFailures = Math.max(consecutiveFailures, 1);
+        this.latencyFactor = latencyFactor;
+        this.latencyMinNanos = TimeUnit.MILLISECONDS.toNanos(latencyMinMs);
+        this.baseEjectionNanos = TimeUnit.MILLISECONDS.toNanos(baseEjectionMs);
+        this.maxEjectionNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(maxEjectionMs, baseEjectionMs));
+        this.maxEjectionPercent = maxEjectionPercent;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMs);
+    }
+
+    /**
+     * @return true, once per interval, when the pools should be swept
+     */
+    synchronized boolean sweepDue() {
+        long now = System.nanoTime();
+        if (now - lastSweepNanos < intervalNanos) {
+            return false;
+        }
+        lastSweepNanos = now;
+        return true;
+    }
+
+    /**
+     * Called as each request to {@code server} completes, after {@link UpstreamServer#end}.
+     */
+    void onResult(UpstreamPool pool, UpstreamServer server, boolean failed) {
+        if (enabled && failed && server.getConsecutiveFailures() >= consecutiveFailures && !server.isEjected()) {
+            eject(pool, server, server.getConsecutiveFailures() + " consecutive failures");
+        }
+    }
+
+    /**
+     * Periodic pass over one pool: ends expired ejections and ejects latency outliers.
+     */
+    synchronized void sweep(UpstreamPool pool) {
+        UpstreamServer[] servers = pool.servers();
+        for (UpstreamServer server : servers) {
+            server.settleEjection();
+        }
+        if (!enabled || latencyFactor <= 0 || servers.length < 3) {
+            return;
+        }
+        double[] latencies = new double[servers.length];
+        int sampled = 0;
+        for (UpstreamServer server : servers) {
+            if (server.isAvailable() && server.getEwmaNanos() > 0) {
+                latencies[sampled++] = server.getEwmaNanos();
+            }
+        }
+        if (sampled < 3) {
+            return;
+        }
+        Arrays.sort(latencies, 0, sampled);
+        double median = latencies[sampled / 2];
+        for (UpstreamServer server : servers) {
+            double latency = server.getEwmaNanos();
+            if (server.isAvailable() && latency > latencyMinNanos && latency > latencyFactor * median) {
+                eject(pool, server, String.format("latency %.1f ms vs pool median %.1f ms",
+                        latency / 1_000_000, median / 1_000_000));
+            }
+        }
+    }
+
+    private synchronized void eject(UpstreamPool pool, UpstreamServer server, String reason) {
+        if (server.isEjected()) {
+            return;
+        }
+        UpstreamServer[] servers = pool.servers();
+        int ejected = 0;
+        for (UpstreamServer other : servers) {
+            if (other.isEjected()) {
+                ejected++;
+            }
+        }
+        if (ejected >= Math.max(1, servers.length * maxEjectionPercent / 100)) {
+            log.debug("Upstream {} is an outlier ({}) but {} of {} targets are already ejected",
+                    server.getOrigin(), reason, ejected, servers.length);
+            return;
+        }
+        long duration = server.eject(baseEjectionNanos, maxEjectionNanos);
+        log.warn("Ejected upstream {} for {} s: {}", server.getOrigin(), TimeUnit.NANOSECONDS.toSeconds(duration), reason);
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.demo.Upstream;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps the retries of one route at a share of its live traffic, so retries cannot multiply
+ * the load on an upstream that is already failing. A token bucket: every request deposits
+ * {@code ratio} of a token, every retry withdraws a whole one, and the bucket holds at most
+ * {@code burst} tokens. A floor of {@code minPerSecond} tokens keeps quiet routes able to
+ * retry at all.
+ *
+ * Balances are kept in thousandths of a token in atomics; lock-free.
+ */
+public final class RetryBudget {
+
+    private static final long SCALE = 1000;
+
+    private final long deposit;
+    private final long capacity;
+    private final long floorPerSecond;
+    private final AtomicLong balance;
+    private final AtomicLong lastRefillNanos = new AtomicLong(System.nanoTime());
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong denied = new AtomicLong();
+    private final AtomicLong recovered = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+
+    RetryBudget(double ratio, double minPerSecond, int burst) {
+        this.deposit = Math.round(Math.max(ratio, 0) * SCALE);
+        this.capacity = Math.max(burst, 1) * SCALE;
+        this.floorPerSecond = Math.round(Math.max(minPerSecond, 0) * SCALE);
+        this.balance = new AtomicLong(capacity);
+    }
+
+    /**
+     * Called once for every request of the route, retries not included.
+     */
+    public void onRequest() {
+        requests.incrementAndGet();
+        add(deposit);
+    }
+
+    /**
+     * @return true, taking a token, if the route may retry once more
+     */
+    public boolean tryWithdraw() {
+        refillFloor();
+        long current;
+        do {
+            current = balance.get();
+            if (current < SCALE) {
+                denied.incrementAndGet();
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - SCALE));
+        retries.incrementAndGet();
+        return true;
+    }
+
+    public void onRecovered() {
+        recovered.incrementAndGet();
+    }
+
+    public void onExhausted() {
+        exhausted.incrementAndGet();
+    }
+
+    private void refillFloor() {
+        long last = lastRefillNanos.get();
+        long now = System.nanoTime();
+        // Capped at a minute so the product cannot overflow after a long idle period.
+        long elapsed = Math.min(now - last, 60_000_000_000L);
+        long amount = elapsed * floorPerSecond / 1_000_000_000L;
+        // Elapsed time too short for a thousandth of a token carries over to the next call.
+        if (amount > 0 && lastRefillNanos.compareAndSet(last, now)) {
+            add(amount);
+        }
+    }
+
+    private void add(long amount) {
+        balance.getAndUpdate(current -> Math.min(capacity, current + amount));
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getRetries() {
+        return retries.get();
+    }
+
+    public long getDenied() {
+        return denied.get();
+    }
+
+    public long getRecovered() {
+        return recovered.get();
+    }
+
+    public long getExhausted() {
+        return exhausted.get();
+    }
+
+    public double getTokens() {
+        return balance.get() / (double) SCALE;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.demo.Upstream;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+
+import java.time.Duration;
+import java.util.BitSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * When and how a route retries, built from its retry settings by {@link RetryPolicyRegistry}
+ * and handed to the route through its metadata. Immutable; the route's {@link RetryBudget}
+ * outlives rebuilds of the policy.
+ *
+ * Only idempotent requests without a body are retried: the body of the first attempt is
+ * streamed to the upstream and cannot be replayed.
+ */
+public final class RetryPolicy {
+
+    public static final String METADATA_KEY = "retryPolicy";
+
+    private static final Set<HttpMethod> IDEMPOTENT_METHODS = Set.of(
+            HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS, HttpMethod.PUT, HttpMethod.DELETE, HttpMethod.TRACE);
+
+    private final int maxAttempts;
+    private final BitSet statuses;
+    private final long backoffNanos;
+    private final long maxBackoffNanos;
+    private final RetryBudget budget;
+
+    RetryPolicy(int maxAttempts, BitSet statuses, long backoffMs, long maxBackoffMs, RetryBudget budget) {
+        this.maxAttempts = Math.max(maxAttempts, 1);
+        this.statuses = statuses;
+        this.backoffNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(backoffMs, 0));
+        this.maxBackoffNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(maxBackoffMs, backoffMs));
+        this.budget = budget;
+    }
+
+    /**
+     * @param value comma separated statuses, e.g. "502,503,504"
+     * @throws IllegalArgumentException for anything that is not a 4xx/5xx status
+     */
+    static BitSet parseStatuses(String value) {
+        BitSet statuses = new BitSet(600);
+        for (String part : value.split(",")) {
+            String trimmed = part.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            int status;
+            try {
+                status = Integer.parseInt(trimmed);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("invalid retryable status '" + trimmed + "'");
+            }
+            if (status < 400 || status > 599) {
+                throw new IllegalArgumentException("retryable status " + status + " is not a 4xx or 5xx");
+            }
+            statuses.set(status);
+        }
+        return statuses;
+    }
+
+    public boolean appliesTo(ServerHttpRequest request) {
+        if (maxAttempts < 2 || !IDEMPOTENT_METHODS.contains(request.getMethod())) {
+            return false;
+        }
+        HttpHeaders headers = request.getHeaders();
+        return headers.getContentLength() <= 0 && !headers.containsKey(HttpHeaders.TRANSFER_ENCODING);
+    }
+
+    public boolean isRetryableStatus(int status) {
+        return status >= 0 && statuses.get(status);
+    }
+
+    /**
+     * Exponential backoff with "equal jitter": half of the delay is fixed, the other half
+     * random, so retries of many requests failing together spread out.
+     *
+     * @param retry 1 for the first retry
+     */
+    public Duration backoff(int retry) {
+        long delay = backoffNanos << Math.min(retry - 1, 20);
+        if (delay > maxBackoffNanos || delay < 0) {
+            delay = maxBackoffNanos;
+        }
+        long half = delay / 2;
+        return Duration.ofNanos(half + (half > 0 ? ThreadLocalRandom.current().nextLong(half + 1) : 0));
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public RetryBudget getBudget() {
+        return budget;
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.demo.Upstream;
+
+import com.example.demo.Entity.RetrySettings;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Builds the {@link RetryPolicy} of every route that retries and keeps each route's
+ * {@link RetryBudget} across rebuilds. Settings left empty on the route take the
+ * {@code gateway.retry.*} defaults; the budget is configured gateway-wide.
+ *
+ * Each route's retries, budget denials, recoveries and exhausted attempts are also
+ * {@code gateway.retries} counters tagged by route and outcome.
+ */
+@Slf4j
+@Component
+public class RetryPolicyRegistry {
+
+    private final Map<String, RetryBudget> budgets = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final String retryableStatuses;
+    private final int backoffMs;
+    private final int maxBackoffMs;
+    private final double budgetRatio;
+    private final double budgetMinPerSecond;
+    private final int budgetBurst;
+
+    public RetryPolicyRegistry(MeterRegistry meterRegistry,
+                               @Value("${gateway.retry.max-attempts:3}") int maxAttempts,
+                               @Value("${gateway.retry.retryable-statuses:502,503,504}") String retryableStatuses,
+                               @Value("${gateway.retry.backoff-ms:50}") int backoffMs,
+                               @Value("${gateway.retry.max-backoff-ms:1000}") int maxBackoffMs,
+                               @Value("${gateway.retry.budget.ratio:0.2}") double budgetRatio,
+                               @Value("${gateway.retry.budget.min-per-second:1}") double budgetMinPerSecond,
+                               @Value("${gateway.retry.budget.burst:10}") int budgetBurst) {
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = maxAttempts;
+        this.retryableStatuses = retryableStatuses;
+        this.backoffMs = backoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.budgetRatio = budgetRatio;
+        this.budgetMinPerSecond = budgetMinPerSecond;
+        this.budgetBurst = budgetBurst;
+        // Fail at startup rather than on the first route with a bad default.
+        RetryPolicy.parseStatuses(retryableStatuses);
+    }
+
+    /**
+     * @return the route's policy for these settings
+     */
+    public RetryPolicy update(String routeId, RetrySettings settings) {
+        String statusList = settings.getRetryableStatuses() != null && !settings.getRetryableStatuses().isBlank()
+                ? settings.getRetryableStatuses() : retryableStatuses;
+        BitSet statuses;
+        try {
+            statuses = RetryPolicy.parseStatuses(statusList);
+        } catch (IllegalArgumentException e) {
+            log.warn("Route {}: {}, using {}", routeId, e.getMessage(), retryableStatuses);
+            statuses = RetryPolicy.parseStatuses(retryableStatuses);
+        }
+        RetryBudget budget = budgets.computeIfAbsent(routeId, id -> {
+            register(id, "retried", RetryBudget::getRetries);
+            register(id, "budget_exhausted", RetryBudget::getDenied);
+            register(id, "recovered", RetryBudget::getRecovered);
+            register(id, "attempts_exhausted", RetryBudget::getExhausted);
+            return new RetryBudget(budgetRatio, budgetMinPerSecond, budgetBurst);
+        });
+        return new RetryPolicy(
+                settings.getMaxAttempts() != null ? settings.getMaxAttempts() : maxAttempts,
+                statuses,
+                settings.getBackoffMs() != null ? settings.getBackoffMs() : backoffMs,
+                settings.getMaxBackoffMs() != null ? settings.getMaxBackoffMs() : maxBackoffMs,
+                budget);
+    }
+
+    private void register(String routeId, String outcome, ToDoubleFunction<RetryBudget> count) {
+        FunctionCounter.builder("gateway.retries", budgets, m -> {
+                    RetryBudget budget = m.get(routeId);
+                    return budget == null ? 0 : count.applyAsDouble(budget);
+                })
+                .description("Retries of idempotent requests by outcome")
+                .tag("route", routeId)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Forgets the budgets of routes that no longer exist or no longer retry.
+     */
+    public void retain(Collection<String> routeIds) {
+        budgets.keySet().retainAll(routeIds);
+    }
+
+    /**
+     * routeId -> budget and retry counts, ordered by route id.
+     */
+    public Map<String, RetryBudget> snapshot() {
+        return new TreeMap<>(budgets);
+    }
+}
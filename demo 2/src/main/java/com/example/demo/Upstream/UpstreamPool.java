@@ -0,0 +1,309 @@
+package com.example.demo.Upstream;
+
+import com.example.demo.Metrics.HyperLogLog;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The upstream targets of one route and how to choose between them. A pool, and its hash
+ * ring, are immutable once built; the only shared mutable state is the round-robin cursor
+ * and the per-target counters in {@link UpstreamServer}, all atomics, so
+ * {@link #choose(ServerWebExchange, UpstreamServer)} is lock-free.
+ *
+ * Every policy skips targets that are not available (down or ejected), and the target a retried
+ * request just failed on. If none is left, the pool is in panic and chooses as if all were
+ * (still not the one just failed on, if there is another): trying a possibly dead target
+ * beats failing outright.
+ *
+ * Built by {@link UpstreamPoolRegistry} and handed to the route through its metadata.
+ */
+public final class UpstreamPool {
+
+    public static final String METADATA_KEY = "upstreamPool";
+
+    // Round-robin schedules are at most this long; larger weight totals are scaled down.
+    private static final int MAX_SCHEDULE = 4096;
+
+    private final LoadBalancingPolicy policy;
+    private final UpstreamServer[] servers;
+    private final int[] weights;
+    private final int[] cumulativeWeights;
+    private final int totalWeight;
+    private final int[] schedule;
+    private final AtomicLong cursor = new AtomicLong();
+    private final HashKey hashKey;
+    private final double balanceFactor;
+    private final HashRing ring;
+    private final OutlierDetector outlierDetector;
+
+    /**
+     * @param previous the route's pool before this rebuild, whose hash ring is updated
+     *                 rather than recomputed; null for a new route
+     */
+    UpstreamPool(LoadBalancingPolicy policy, UpstreamServer[] servers, int[] weights,
+                 HashKey hashKey, double balanceFactor, UpstreamPool previous, OutlierDetector outlierDetector) {
+        this.policy = policy;
+        this.servers = servers;
+        this.weights = weights;
+        this.cumulativeWeights = new int[weights.length];
+        int total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            total += weights[i];
+            cumulativeWeights[i] = total;
+        }
+        this.totalWeight = total;
+        this.schedule = policy == LoadBalancingPolicy.ROUND_ROBIN ? smoothSchedule(weights) : null;
+        this.hashKey = hashKey;
+        this.balanceFactor = balanceFactor;
+        this.ring = policy == LoadBalancingPolicy.CONSISTENT_HASH
+                ? HashRing.build(previous != null ? previous.ring : null, servers, weights) : null;
+        this.outlierDetector = outlierDetector;
+    }
+
+    /**
+     * @param avoid the target a previous attempt of this request went to, null on the first
+     */
+    public UpstreamServer choose(ServerWebExchange exchange, UpstreamServer avoid) {
+        if (servers.length == 1) {
+            return servers[0];
+        }
+        if (ring != null) {
+            int inFlight = 0;
+            for (UpstreamServer server : servers) {
+                inFlight += server.getOutstanding();
+            }
+            return ring.locate(HyperLogLog.hash(hashKey.extract(exchange)), balanceFactor, inFlight, totalWeight, avoid);
+        }
+        if (policy == LoadBalancingPolicy.ROUND_ROBIN) {
+            int slot = (int) Math.floorMod(cursor.getAndIncrement(), (long) schedule.length);
+            UpstreamServer panic = null;
+            for (int step = 0; step < schedule.length; step++) {
+                UpstreamServer server = servers[schedule[(slot + step) % schedule.length]];
+                if (server != avoid) {
+                    if (server.isAvailable()) {
+                        return server;
+                    }
+                    if (panic == null) {
+                        panic = server;
+                    }
+                }
+            }
+            return panic != null ? panic : servers[schedule[slot]];
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int a = pick(random);
+        int b = pick(random);
+        if (a == b) {
+            // One redraw; with a dominant weight the same target twice is the right answer anyway.
+            b = pick(random);
+        }
+        boolean availableA = servers[a] != avoid && servers[a].isAvailable();
+        boolean availableB = servers[b] != avoid && servers[b].isAvailable();
+        if (availableA && availableB) {
+            return lessLoaded(a, b) ? servers[a] : servers[b];
+        }
+        if (availableA || availableB) {
+            return availableA ? servers[a] : servers[b];
+        }
+        for (int step = 1; step < servers.length; step++) {
+            UpstreamServer server = servers[(a + step) % servers.length];
+            if (server != avoid && server.isAvailable()) {
+                return server;
+            }
+        }
+        return servers[a] != avoid ? servers[a] : servers[(a + 1) % servers.length];
+    }
+
+    /**
+     * Records the outcome of a request sent to {@code server} by this pool.
+     */
+    public void complete(UpstreamServer server, long nanos, boolean failed) {
+        server.end(nanos, failed);
+        if (outlierDetector != null) {
+            outlierDetector.onResult(this, server, failed);
+        }
+    }
+
+    UpstreamServer[] servers() {
+        return servers;
+    }
+
+    private int pick(ThreadLocalRandom random) {
+        int point = random.nextInt(totalWeight);
+        int index = Arrays.binarySearch(cumulativeWeights, point + 1);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private boolean lessLoaded(int a, int b) {
+        UpstreamServer first = servers[a];
+        UpstreamServer second = servers[b];
+        if (policy == LoadBalancingPolicy.EWMA) {
+            // Targets without samples yet cost nothing, so new ones get probed.
+            double costA = first.getEwmaNanos() * (first.getOutstanding() + 1) / weights[a];
+            double costB = second.getEwmaNanos() * (second.getOutstanding() + 1) / weights[b];
+            return costA <= costB;
+        }
+        // outstanding/weight compared without dividing
+        return (long) first.getOutstanding() * weights[b] <= (long) second.getOutstanding() * weights[a];
+    }
+
+    /**
+     * The nginx smooth weighted round robin sequence for these weights: each target appears
+     * weight times, spread out instead of in runs.
+     */
+    private static int[] smoothSchedule(int[] weights) {
+        int gcd = 0;
+        long total = 0;
+        for (int weight : weights) {
+            gcd = gcd(gcd, weight);
+            total += weight;
+        }
+        int[] reduced = new int[weights.length];
+        int length = 0;
+        for (int i = 0; i < weights.length; i++) {
+            reduced[i] = weights[i] / gcd;
+            if (total / gcd > MAX_SCHEDULE) {
+                reduced[i] = (int) Math.max(1, (long) reduced[i] * MAX_SCHEDULE / (total / gcd));
+            }
+            length += reduced[i];
+        }
+        int[] schedule = new int[length];
+        int[] current = new int[weights.length];
+        for (int slot = 0; slot < length; slot++) {
+            int best = 0;
+            for (int i = 0; i < reduced.length; i++) {
+                current[i] += reduced[i];
+                if (current[i] > current[best]) {
+                    best = i;
+                }
+            }
+            current[best] -= length;
+            schedule[slot] = best;
+        }
+        return schedule;
+    }
+
+    private static int gcd(int a, int b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    boolean hasSameTargets(LoadBalancingPolicy otherPolicy, HashKey otherHashKey, List<String> origins, int[] otherWeights) {
+        if (policy != otherPolicy || !Objects.equals(hashKey, otherHashKey)
+                || !Arrays.equals(weights, otherWeights) || servers.length != origins.size()) {
+            return false;
+        }
+        for (int i = 0; i < servers.length; i++) {
+            if (!servers[i].getOrigin().equals(origins.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    UpstreamServer server(String origin) {
+        for (UpstreamServer server : servers) {
+            if (server.getOrigin().equals(origin)) {
+                return server;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return what the pool hashes on, null unless its policy is consistent hashing
+     */
+    public HashKey getHashKey() {
+        return hashKey;
+    }
+
+    public LoadBalancingPolicy getPolicy() {
+        return policy;
+    }
+
+    public PoolSnapshot snapshot() {
+        List<TargetSnapshot> targets = new ArrayList<>(servers.length);
+        for (int i = 0; i < servers.length; i++) {
+            targets.add(new TargetSnapshot(servers[i], weights[i]));
+        }
+        String name = policy.name().toLowerCase();
+        return new PoolSnapshot(hashKey != null ? name + ":" + hashKey : name, targets);
+    }
+
+    public static class PoolSnapshot {
+        private final String policy;
+        private final List<TargetSnapshot> targets;
+
+        PoolSnapshot(String policy, List<TargetSnapshot> targets) {
+            this.policy = policy;
+            this.targets = targets;
+        }
+
+        public String getPolicy() {
+            return policy;
+        }
+
+        public List<TargetSnapshot> getTargets() {
+            return targets;
+        }
+    }
+
+    public static class TargetSnapshot {
+        private final String uri;
+        private final int weight;
+        private final int outstanding;
+        private final double ewmaMillis;
+        private final long requests;
+        private final long failures;
+        private final boolean healthy;
+        private final long ejectedForMillis;
+
+        TargetSnapshot(UpstreamServer server, int weight) {
+            this.uri = server.getOrigin();
+            this.weight = weight;
+            this.outstanding = server.getOutstanding();
+            this.ewmaMillis = server.getEwmaNanos() / 1_000_000.0;
+            this.requests = server.getRequests();
+            this.failures = server.getFailures();
+            this.healthy = server.isHealthy();
+            this.ejectedForMillis = server.getEjectedForMillis();
+        }
+
+        public String getUri() {
+            return uri;
+        }
+
+        public int getWeight() {
+            return weight;
+        }
+
+        public int getOutstanding() {
+            return outstanding;
+        }
+
+        public double getEwmaMillis() {
+            return ewmaMillis;
+        }
+
+        public long getRequests() {
+            return requests;
+        }
+
+        public long getFailures() {
+            return failures;
+        }
+
+        public boolean isHealthy() {
+            return healthy;
+        }
+
+        public long getEjectedForMillis() {
+            return ejectedForMillis;
+        }
+    }
+}
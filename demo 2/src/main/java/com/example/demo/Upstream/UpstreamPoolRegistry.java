@@ -0,0 +1,119 @@
+package com.example.demo.Upstream;
+
+import com.example.demo.Entity.UpstreamTarget;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Owns the {@link UpstreamPool} of every route with upstream targets. Routes are rebuilt
+ * from the database every 45 s; a rebuild with unchanged targets gets the same pool back,
+ * and a changed one keeps the live state (requests in flight, latency average) of every
+ * target it still has, so balancing decisions survive reloads.
+ */
+@Slf4j
+@Component
+public class UpstreamPoolRegistry {
+
+    private final Map<String, UpstreamPool> pools = new ConcurrentHashMap<>();
+    private final LoadBalancingPolicy defaultPolicy;
+    private final HashKey defaultHashKey;
+    private final long decayNanos;
+    private final double hashBalanceFactor;
+    private final OutlierDetector outlierDetector;
+
+    public UpstreamPoolRegistry(@Value("${gateway.upstream.default-policy:p2c}") String defaultPolicy,
+                                @Value("${gateway.upstream.ewma-decay-ms:10000}") long ewmaDecayMs,
+                                @Value("${gateway.upstream.hash-balance-factor:1.25}") double hashBalanceFactor,
+                                OutlierDetector outlierDetector) {
+        this.defaultPolicy = LoadBalancingPolicy.parse(defaultPolicy);
+        this.defaultHashKey = HashKey.parse(LoadBalancingPolicy.options(defaultPolicy));
+        this.decayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(ewmaDecayMs, 1));
+        this.hashBalanceFactor = Math.max(hashBalanceFactor, 1.0);
+        this.outlierDetector = outlierDetector;
+    }
+
+    /**
+     * @param policyName the route's loadBalancing column, null for the default policy
+     * @return the route's pool, or null if it has no usable target with a weight above 0
+     */
+    public UpstreamPool update(String routeId, String policyName, List<UpstreamTarget> targets) {
+        LoadBalancingPolicy policy;
+        HashKey hashKey;
+        try {
+            policy = LoadBalancingPolicy.parse(policyName);
+            hashKey = policy == LoadBalancingPolicy.CONSISTENT_HASH
+                    ? HashKey.parse(LoadBalancingPolicy.options(policyName)) : null;
+        } catch (IllegalArgumentException e) {
+            log.warn("Route {}: {}, using {}", routeId, e.getMessage(), defaultPolicy);
+            policy = null;
+            hashKey = null;
+        }
+        if (policy == null) {
+            policy = defaultPolicy;
+            hashKey = policy == LoadBalancingPolicy.CONSISTENT_HASH ? defaultHashKey : null;
+        }
+
+        List<String> origins = new ArrayList<>();
+        List<Integer> weights = new ArrayList<>();
+        for (UpstreamTarget target : targets) {
+            int weight = target.getWeight() != null ? target.getWeight() : 1;
+            if (weight <= 0 || target.getUri() == null) {
+                continue;
+            }
+            try {
+                origins.add(UpstreamServer.origin(target.getUri()));
+                weights.add(weight);
+            } catch (IllegalArgumentException e) {
+                log.warn("Route {}: skipping upstream target {}: {}", routeId, target.getId(), e.getMessage());
+            }
+        }
+        if (origins.isEmpty()) {
+            pools.remove(routeId);
+            return null;
+        }
+
+        int[] weightArray = weights.stream().mapToInt(Integer::intValue).toArray();
+        UpstreamPool existing = pools.get(routeId);
+        if (existing != null && existing.hasSameTargets(policy, hashKey, origins, weightArray)) {
+            return existing;
+        }
+        UpstreamServer[] servers = new UpstreamServer[origins.size()];
+        for (int i = 0; i < servers.length; i++) {
+            UpstreamServer kept = existing != null ? existing.server(origins.get(i)) : null;
+            servers[i] = kept != null ? kept : new UpstreamServer(origins.get(i), decayNanos);
+        }
+        UpstreamPool pool = new UpstreamPool(policy, servers, weightArray, hashKey, hashBalanceFactor, existing, outlierDetector);
+        pools.put(routeId, pool);
+        log.info("Route {} balances over {} upstream targets ({})", routeId, servers.length, policy);
+        return pool;
+    }
+
+    Collection<UpstreamPool> pools() {
+        return pools.values();
+    }
+
+    /**
+     * Forgets the pools of routes that no longer exist.
+     */
+    public void retain(Collection<String> routeIds) {
+        pools.keySet().retainAll(routeIds);
+    }
+
+    /**
+     * routeId -> policy and per-target state, ordered by route id.
+     */
+    public Map<String, UpstreamPool.PoolSnapshot> snapshot() {
+        Map<String, UpstreamPool.PoolSnapshot> result = new TreeMap<>();
+        pools.forEach((routeId, pool) -> result.put(routeId, pool.snapshot()));
+        return result;
+    }
+}
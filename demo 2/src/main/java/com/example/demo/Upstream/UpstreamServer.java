@@ -0,0 +1,210 @@
+package com.example.demo.Upstream;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The live state of one upstream target of a route: requests in flight and an exponentially
+ * weighted moving average of its latency. Everything is updated with atomics; choosing a
+ * target never takes a lock.
+ *
+ * The average is "peak" weighted: a sample slower than the average replaces it at once, a
+ * faster one only pulls it down as older samples decay, so a target that slows down loses
+ * traffic immediately and wins it back gradually.
+ *
+ * A target is available unless active health probes found it down ({@link HealthChecker})
+ * or it is ejected for a while as an outlier ({@link OutlierDetector}).
+ */
+public final class UpstreamServer {
+
+    /** Exchange attribute holding the target a request was sent to. */
+    public static final String ATTRIBUTE = UpstreamServer.class.getName();
+
+    // A failed call counts as at least this slow, so a target that fails fast does not look fast.
+    private static final long FAILURE_PENALTY_NANOS = 1_000_000_000L;
+
+    private final String origin;
+    private final long decayNanos;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicLong ewmaBits = new AtomicLong(Double.doubleToRawLongBits(0));
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private volatile long lastSampleNanos = System.nanoTime();
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile boolean healthy = true;
+    // 0 while not ejected
+    private volatile long ejectedUntilNanos;
+    // How often in a row it was ejected, for the backoff; guarded by the OutlierDetector
+    private int ejections;
+    // Touched by one probe at a time, see HealthChecker
+    private int probeFailures;
+    private int probeSuccesses;
+    volatile long nextProbeNanos;
+
+    UpstreamServer(String origin, long decayNanos) {
+        this.origin = origin;
+        this.decayNanos = decayNanos;
+    }
+
+    /**
+     * @param uri a target's uri, e.g. {@code http://host:8050} or {@code host:8050}
+     * @return scheme://host[:port] of the uri
+     * @throws IllegalArgumentException if it has no host
+     */
+    static String origin(String uri) {
+        URI parsed = URI.create(uri.contains("://") ? uri.trim() : "http://" + uri.trim());
+        if (parsed.getHost() == null) {
+            throw new IllegalArgumentException("No host in upstream target uri: " + uri);
+        }
+        return parsed.getScheme().toLowerCase() + "://" + parsed.getHost()
+                + (parsed.getPort() != -1 ? ":" + parsed.getPort() : "");
+    }
+
+    /**
+     * The request URL the route produced, sent to this target instead: same path and query.
+     */
+    public URI resolve(URI requestUrl) {
+        String path = requestUrl.getRawPath();
+        String query = requestUrl.getRawQuery();
+        StringBuilder url = new StringBuilder(origin.length() + (path != null ? path.length() : 0) + 32);
+        url.append(origin);
+        if (path != null) {
+            url.append(path);
+        }
+        if (query != null) {
+            url.append('?').append(query);
+        }
+        return URI.create(url.toString());
+    }
+
+    public void begin() {
+        outstanding.incrementAndGet();
+        requests.increment();
+    }
+
+    public void end(long nanos, boolean failed) {
+        outstanding.decrementAndGet();
+        if (failed) {
+            failures.increment();
+            consecutiveFailures.incrementAndGet();
+            nanos = Math.max(nanos, FAILURE_PENALTY_NANOS);
+        } else if (consecutiveFailures.get() != 0) {
+            consecutiveFailures.set(0);
+        }
+        observe(nanos);
+    }
+
+    /**
+     * Whether new requests may go here: healthy and not ejected. Only reads the clock while
+     * an ejection is pending.
+     */
+    public boolean isAvailable() {
+        if (!healthy) {
+            return false;
+        }
+        long until = ejectedUntilNanos;
+        return until == 0 || System.nanoTime() - until >= 0;
+    }
+
+    boolean isEjected() {
+        long until = ejectedUntilNanos;
+        return until != 0 && System.nanoTime() - until < 0;
+    }
+
+    long eject(long baseNanos, long maxNanos) {
+        long duration = Math.min(baseNanos << Math.min(ejections, 20), maxNanos);
+        ejections++;
+        consecutiveFailures.set(0);
+        ejectedUntilNanos = System.nanoTime() + duration;
+        return duration;
+    }
+
+    /**
+     * Clears an expired ejection; every call without one lowers the backoff a step.
+     */
+    void settleEjection() {
+        long until = ejectedUntilNanos;
+        if (until != 0 && System.nanoTime() - until >= 0) {
+            ejectedUntilNanos = 0;
+            // Its latency is from before the ejection; start over rather than eject it again on stale data.
+            ewmaBits.set(Double.doubleToRawLongBits(0));
+        } else if (until == 0 && ejections > 0) {
+            ejections--;
+        }
+    }
+
+    /**
+     * @return true if the result changed whether the target is healthy
+     */
+    boolean recordProbe(boolean up, int unhealthyThreshold, int healthyThreshold) {
+        if (up) {
+            probeFailures = 0;
+            if (!healthy && ++probeSuccesses >= healthyThreshold) {
+                healthy = true;
+                return true;
+            }
+        } else {
+            probeSuccesses = 0;
+            if (healthy && ++probeFailures >= unhealthyThreshold) {
+                healthy = false;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void observe(long nanos) {
+        long now = System.nanoTime();
+        long elapsed = Math.max(now - lastSampleNanos, 0);
+        lastSampleNanos = now;
+        double keep = Math.exp(-(double) elapsed / decayNanos);
+        long previousBits;
+        long nextBits;
+        do {
+            previousBits = ewmaBits.get();
+            double ewma = Double.longBitsToDouble(previousBits);
+            double next = ewma == 0 || nanos > ewma ? nanos : ewma * keep + nanos * (1 - keep);
+            nextBits = Double.doubleToRawLongBits(next);
+        } while (!ewmaBits.compareAndSet(previousBits, nextBits));
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    public double getEwmaNanos() {
+        return Double.longBitsToDouble(ewmaBits.get());
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures.get();
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    /**
+     * Milliseconds until the ejection ends, 0 if not ejected.
+     */
+    public long getEjectedForMillis() {
+        long until = ejectedUntilNanos;
+        return until == 0 ? 0 : Math.max(TimeUnit.NANOSECONDS.toMillis(until - System.nanoTime()), 0);
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.demo.Filter;
+
+import com.example.demo.Entity.CircuitBreakerSettings;
+import com.example.demo.Entity.RetrySettings;
+import com.example.demo.Entity.UpstreamTarget;
+import com.example.demo.Logging.Diagnostics;
+import com.example.demo.Upstream.CircuitBreaker;
+import com.example.demo.Upstream.CircuitBreakerRegistry;
+import com.example.demo.Upstream.RetryPolicy;
+import com.example.demo.Upstream.RetryPolicyRegistry;
+import com.example.demo.Upstream.UpstreamPool;
+import com.example.demo.Upstream.UpstreamPoolRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.NettyRoutingFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.RouteToRequestUrlFilter;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.handler.FilteringWebHandler;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the route filters in the gateway's own filter chain, routing included, against stub
+ * upstreams, to check that they run where their orders put them.
+ */
+class RouteFilterChainTest {
+
+    private final List<DisposableServer> servers = new ArrayList<>();
+    private final FilteringWebHandler handler;
+
+    RouteFilterChainTest() {
+        ObjectProvider<List<HttpHeadersFilter>> noHeadersFilters = new StaticListableBeanFactory()
+                .getBeanProvider(ResolvableType.forClassWithGenerics(List.class, HttpHeadersFilter.class));
+        handler = new FilteringWebHandler(List.of(
+                new NettyWriteResponseFilter(List.of()),
+                new RouteToRequestUrlFilter(),
+                new UpstreamLoadBalancerFilter(),
+                new NettyRoutingFilter(HttpClient.create(), noHeadersFilters, new HttpClientProperties())));
+    }
+
+    @AfterEach
+    void stopUpstreams() {
+        servers.forEach(DisposableServer::disposeNow);
+    }
+
+    @Test
+    void retriesAFailedAttemptOnTheOtherUpstream() {
+        AtomicInteger downHits = new AtomicInteger();
+        AtomicInteger upHits = new AtomicInteger();
+        String down = upstream(HttpStatus.SERVICE_UNAVAILABLE, "down", downHits);
+        String up = upstream(HttpStatus.OK, "hello", upHits);
+        Route route = route(List.of(down, up), true, false);
+
+        // Whichever upstream round robin starts on, both requests end up on the healthy one.
+        for (int i = 0; i < 2; i++) {
+            MockServerWebExchange exchange = send(route);
+            assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+            assertEquals("hello", exchange.getResponse().getBodyAsString().block());
+            assertEquals("stub", exchange.getResponse().getHeaders().getFirst("X-Upstream"));
+        }
+        assertTrue(downHits.get() >= 1);
+        assertEquals(2, upHits.get());
+    }
+
+    @Test
+    void retriesAConnectionFailure() {
+        DisposableServer closed = HttpServer.create().host("localhost").port(0)
+                .handle((request, response) -> response.send()).bindNow();
+        String refused = "http://localhost:" + closed.port();
+        closed.disposeNow();
+        AtomicInteger upHits = new AtomicInteger();
+        Route route = route(List.of(refused, upstream(HttpStatus.OK, "hello", upHits)), true, false);
+
+        for (int i = 0; i < 2; i++) {
+            MockServerWebExchange exchange = send(route);
+            assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+            assertEquals("hello", exchange.getResponse().getBodyAsString().block());
+        }
+        assertEquals(2, upHits.get());
+    }
+
+    @Test
+    void theLastFailedAttemptReachesTheClientWhole() {
+        AtomicInteger hits = new AtomicInteger();
+        Route route = route(List.of(upstream(HttpStatus.SERVICE_UNAVAILABLE, "down", hits)), true, false);
+
+        MockServerWebExchange exchange = send(route);
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exchange.getResponse().getStatusCode());
+        assertEquals("down", exchange.getResponse().getBodyAsString().block());
+        assertEquals("stub", exchange.getResponse().getHeaders().getFirst("X-Upstream"));
+        assertEquals(3, hits.get(), "gateway.retry.max-attempts");
+    }
+
+    @Test
+    void anOpenBreakerKeepsRequestsFromTheUpstream() {
+        AtomicInteger hits = new AtomicInteger();
+        Route route = route(List.of(upstream(HttpStatus.INTERNAL_SERVER_ERROR, "broken", hits)), false, true);
+        CircuitBreaker breaker = (CircuitBreaker) route.getMetadata().get(CircuitBreaker.METADATA_KEY);
+
+        send(route);
+        send(route);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        MockServerWebExchange exchange = send(route);
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exchange.getResponse().getStatusCode());
+        assertEquals("60", exchange.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals(2, hits.get());
+    }
+
+    @Test
+    void theBreakerTimesTheUpstreamCall() {
+        AtomicInteger hits = new AtomicInteger();
+        DisposableServer slow = HttpServer.create().host("localhost").port(0)
+                .handle((request, response) -> {
+                    hits.incrementAndGet();
+                    return response.sendString(Mono.just("late").delayElement(Duration.ofMillis(300)));
+                })
+                .bindNow();
+        servers.add(slow);
+        Route route = route(List.of("http://localhost:" + slow.port()), false, true);
+        CircuitBreaker breaker = (CircuitBreaker) route.getMetadata().get(CircuitBreaker.METADATA_KEY);
+
+        send(route);
+        send(route);
+
+        // Both calls took longer than slow-call-duration-ms.
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(2, hits.get());
+    }
+
+    @Test
+    void retriesStopAtAnOpenBreaker() {
+        AtomicInteger hits = new AtomicInteger();
+        Route route = route(List.of(upstream(HttpStatus.SERVICE_UNAVAILABLE, "down", hits)), true, true);
+
+        MockServerWebExchange exchange = send(route);
+
+        // The breaker opens after two failed attempts and turns the third away.
+        assertEquals(2, hits.get());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exchange.getResponse().getStatusCode());
+        assertEquals("60", exchange.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+    }
+
+    private String upstream(HttpStatus status, String body, AtomicInteger hits) {
+        DisposableServer server = HttpServer.create().host("localhost").port(0)
+                .handle((request, response) -> {
+                    hits.incrementAndGet();
+                    return response.status(status.value()).header("X-Upstream", "stub").sendString(Mono.just(body));
+                })
+                .bindNow();
+        servers.add(server);
+        return "http://localhost:" + server.port();
+    }
+
+    private Route route(List<String> targets, boolean withRetry, boolean withCircuitBreaker) {
+        List<UpstreamTarget> upstreamTargets = new ArrayList<>();
+        for (String uri : targets) {
+            UpstreamTarget target = new UpstreamTarget();
+            target.setUri(uri);
+            upstreamTargets.add(target);
+        }
+        UpstreamPool pool = new UpstreamPoolRegistry("round_robin", 10000, 1.25, null)
+                .update("items", null, upstreamTargets);
+        Diagnostics diagnostics = new Diagnostics();
+        Route.AsyncBuilder route = Route.async()
+                .id("items")
+                .uri("http://localhost:1")
+                .predicate(exchange -> true)
+                .metadata(UpstreamPool.METADATA_KEY, pool);
+        // Added breaker first: the filters' orders decide how they run, not this.
+        if (withCircuitBreaker) {
+            // 50% failures or 100% slow calls over 250 ms, from 2 calls on; open for a minute.
+            CircuitBreakerRegistry breakers = new CircuitBreakerRegistry(
+                    new SimpleMeterRegistry(), 50, 100, 250, 10, 2, 60000, 1);
+            route.metadata(CircuitBreaker.METADATA_KEY, breakers.update("items", new CircuitBreakerSettings()))
+                    .filter(new CircuitBreakerGatewayFilterFactory(diagnostics).apply((Void) null));
+        }
+        if (withRetry) {
+            RetryPolicyRegistry retries = new RetryPolicyRegistry(
+                    new SimpleMeterRegistry(), 3, "502,503,504", 1, 10, 0.2, 1, 10);
+            route.metadata(RetryPolicy.METADATA_KEY, retries.update("items", new RetrySettings()))
+                    .filter(new RetryPolicyGatewayFilterFactory(diagnostics).apply((Void) null));
+        }
+        return route.build();
+    }
+
+    private MockServerWebExchange send(Route route) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("http://gateway/items"));
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route);
+        handler.handle(exchange).block(Duration.ofSeconds(10));
+        return exchange;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.demo.Jfr;
+
+import com.example.demo.Metrics.RejectionReason;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GatewayDecisionEventTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void disabledEventsAreOneSharedInstanceAndEnabledOnesAreRecorded() throws Exception {
+        assertSame(IpDecisionEvent.start(), IpDecisionEvent.start());
+
+        Path file = dir.resolve("decisions.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(IpDecisionEvent.class);
+            recording.start();
+
+            IpDecisionEvent first = IpDecisionEvent.start();
+            assertNotSame(first, IpDecisionEvent.start());
+            MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/x").build());
+            RejectionReason.IP_DENIED.mark(exchange);
+            first.commitFor(exchange);
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        // Recordings running at the same time share buffers, so other JVM events may be in the file.
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                .filter(e -> e.getEventType().getName().equals("com.example.gateway.IpDecision"))
+                .collect(Collectors.toList());
+        assertEquals(1, events.size());
+        RecordedEvent event = events.get(0);
+        assertEquals(RejectionReason.IP_DENIED.getTag(), event.getString("outcome"));
+        assertNull(event.getEventType().getField("inert"));
+        assertSame(IpDecisionEvent.start(), IpDecisionEvent.start());
+    }
+
+    @Test
+    void recordingsLeaveOutEnvironmentAndSystemProperties() throws Exception {
+        JfrEndpoint endpoint = new JfrEndpoint();
+        long id = (long) endpoint.start("default", 60L, null).get("id");
+        endpoint.stop(id);
+        Path file = endpoint.download(id).getBody().getFile().toPath();
+
+        List<String> names = RecordingFile.readAllEvents(file).stream()
+                .map(e -> e.getEventType().getName()).collect(Collectors.toList());
+        assertTrue(names.contains("jdk.JVMInformation"));
+        assertFalse(names.contains("jdk.InitialEnvironmentVariable"));
+        assertFalse(names.contains("jdk.InitialSystemProperty"));
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.demo.Jwt;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JwtKeyRingTest {
+
+    private static final byte[] INPUT = "eyJhbGciOiJub25lIn0.eyJjbGllbnRJZCI6ImEifQ".getBytes(StandardCharsets.US_ASCII);
+
+    @Test
+    void aMalformedEd25519SignatureDoesNotSpoilTheNextVerification() throws GeneralSecurityException {
+        KeyPair keys = KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+        JwtKeyRing.KeyEntry entry = new JwtKeyRing.KeyEntry("k1", "EdDSA", keys.getPublic(), null);
+        byte[] valid = sign("Ed25519", keys);
+
+        assertFalse(entry.verifySignature(INPUT, INPUT.length, new byte[10], 10));
+        assertFalse(entry.verifySignature(INPUT, INPUT.length, new byte[80], 80));
+        assertTrue(entry.verifySignature(INPUT, INPUT.length, valid, valid.length));
+    }
+
+    @Test
+    void aWrongEd25519SignatureOfTheRightLengthIsRefused() throws GeneralSecurityException {
+        KeyPair keys = KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+        JwtKeyRing.KeyEntry entry = new JwtKeyRing.KeyEntry("k1", "EdDSA", keys.getPublic(), null);
+        byte[] valid = sign("Ed25519", keys);
+        byte[] garbage = new byte[64];
+        Arrays.fill(garbage, (byte) 0xff);
+
+        assertFalse(entry.verifySignature(INPUT, INPUT.length, garbage, garbage.length));
+        assertTrue(entry.verifySignature(INPUT, INPUT.length, valid, valid.length));
+    }
+
+    @Test
+    void aMalformedEs256SignatureDoesNotSpoilTheNextVerification() throws GeneralSecurityException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        KeyPair keys = generator.generateKeyPair();
+        JwtKeyRing.KeyEntry entry = new JwtKeyRing.KeyEntry("k1", "ES256", keys.getPublic(), null);
+        byte[] valid = sign("SHA256withECDSAinP1363Format", keys);
+
+        assertFalse(entry.verifySignature(INPUT, INPUT.length, new byte[63], 63));
+        assertFalse(entry.verifySignature(INPUT, INPUT.length, new byte[64], 64));
+        assertTrue(entry.verifySignature(INPUT, INPUT.length, valid, valid.length));
+    }
+
+    @Test
+    void rs256SignaturesMustBeTheModulusLength() throws GeneralSecurityException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keys = generator.generateKeyPair();
+        JwtKeyRing.KeyEntry entry = new JwtKeyRing.KeyEntry("k1", "RS256", keys.getPublic(), null);
+        byte[] valid = sign("SHA256withRSA", keys);
+
+        assertFalse(entry.verifySignature(INPUT, INPUT.length, new byte[300], 300));
+        assertTrue(entry.verifySignature(INPUT, INPUT.length, valid, valid.length));
+    }
+
+    private static byte[] sign(String algorithm, KeyPair keys) throws GeneralSecurityException {
+        Signature signature = Signature.getInstance(algorithm);
+        signature.initSign(keys.getPrivate());
+        signature.update(INPUT);
+        return signature.sign();
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.demo.Jwt;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RevocationSetTest {
+
+    private final long now = System.currentTimeMillis() / 1000;
+    private final RevocationSet set = new RevocationSet(WebClient.builder(), "http://localhost/auth/revocations", 1 << 16, 1000);
+
+    @Test
+    void deltasAddAndExpiredEntriesArePruned() {
+        set.apply(delta(2, false, entry("jti", "live", now - 10, now + 3600), entry("jti", "old", now - 7200, now - 1)));
+        assertTrue(set.isRevoked("live", null, 0));
+        assertFalse(set.isRevoked("old", null, 0));
+        assertEquals(1, set.size());
+
+        set.apply(delta(3, false, entry("clientId", "c1", now - 5, now + 3600)));
+        assertTrue(set.isRevoked(null, "c1", now - 5));
+        assertFalse(set.isRevoked(null, "c1", now - 4), "tokens issued after the revocation stay valid");
+        assertEquals(3, set.getVersion());
+    }
+
+    @Test
+    void laterClientRevocationWins() {
+        set.apply(delta(1, false, entry("clientId", "c1", now - 100, now + 3600)));
+        set.apply(delta(2, false, entry("clientId", "c1", now - 50, now + 3700)));
+        set.apply(delta(3, false, entry("clientId", "c1", now - 80, now + 3620)));
+        assertTrue(set.isRevoked(null, "c1", now - 50));
+    }
+
+    @Test
+    void fullSnapshotReplacesEverything() {
+        set.apply(delta(1, false, entry("jti", "a", now, now + 3600), entry("clientId", "c1", now, now + 3600)));
+        set.apply(delta(5, true, entry("jti", "b", now, now + 3600)));
+        assertFalse(set.isRevoked("a", "c1", now));
+        assertTrue(set.isRevoked("b", null, now));
+        assertEquals(1, set.size());
+        assertEquals(5, set.getVersion());
+    }
+
+    private static RevocationSet.Delta delta(long version, boolean full, RevocationSet.Entry... entries) {
+        RevocationSet.Delta delta = new RevocationSet.Delta();
+        delta.version = version;
+        delta.full = full;
+        delta.entries = List.of(entries);
+        return delta;
+    }
+
+    private static RevocationSet.Entry entry(String type, String value, long revokedAt, long expiresAt) {
+        RevocationSet.Entry entry = new RevocationSet.Entry();
+        entry.type = type;
+        entry.value = value;
+        entry.revokedAt = revokedAt;
+        entry.expiresAt = expiresAt;
+        return entry;
+    }
+}
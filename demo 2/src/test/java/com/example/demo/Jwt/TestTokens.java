@@ -0,0 +1,24 @@
+package com.example.demo.Jwt;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Claims of unsigned tokens, for tests outside this package.
+ */
+public final class TestTokens {
+
+    private TestTokens() {
+    }
+
+    public static LazyClaims claims(String clientId) {
+        String header = encode("{\"alg\":\"none\"}");
+        String payload = encode("{\"clientId\":\"" + clientId + "\",\"jti\":\"t1\",\"iat\":1,\"exp\":4102444800}");
+        String token = header + "." + payload + ".";
+        return new LazyClaims(token, header.length() + 1, header.length() + 1 + payload.length(), 4102444800L);
+    }
+
+    private static String encode(String json) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.demo.Logging;
+
+import com.example.demo.Jwt.TestTokens;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccessLogTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void writesOneLinePerExchangeFromFieldsCapturedAtOffer() throws Exception {
+        AccessLog accessLog = accessLog(dir.resolve("access.log"));
+        accessLog.start();
+        MockServerHttpRequest request = MockServerHttpRequest.get("/orders/42?x=1")
+                .header("X-Forwarded-For", "203.0.113.7, 10.0.0.1")
+                .remoteAddress(new InetSocketAddress("10.0.0.1", 5000))
+                .build();
+        assertTrue(accessLog.offer(request, "orders", 200, 1500, null, null));
+        assertTrue(accessLog.offer(MockServerHttpRequest.delete("/orders/43")
+                .remoteAddress(new InetSocketAddress("10.0.0.2", 5000)).build(), "orders", 404, 700, null, null));
+        accessLog.stop();
+
+        List<String> lines = Files.readAllLines(dir.resolve("access.log"), StandardCharsets.UTF_8);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).contains("\"method\":\"GET\",\"path\":\"/orders/42\",\"route\":\"orders\",\"status\":200"));
+        assertTrue(lines.get(0).contains("\"clientIp\":\"203.0.113.7\""));
+        assertTrue(lines.get(1).contains("\"method\":\"DELETE\""));
+        assertTrue(lines.get(1).contains("\"clientIp\":\"10.0.0.2\""));
+        assertEquals(0, accessLog.getDroppedCount());
+    }
+
+    @Test
+    void theClientIdIsTakenFromTheClaimsWhenOffered() throws Exception {
+        AccessLog accessLog = accessLog(dir.resolve("access.log"));
+        accessLog.start();
+        assertTrue(accessLog.offer(MockServerHttpRequest.get("/orders/42").build(), "orders", 200, 1,
+                TestTokens.claims("client-42"), null));
+        assertTrue(accessLog.offer(MockServerHttpRequest.get("/orders/43").build(), "orders", 200, 1, null, null));
+        accessLog.stop();
+
+        List<String> lines = Files.readAllLines(dir.resolve("access.log"), StandardCharsets.UTF_8);
+        assertTrue(lines.get(0).contains("\"clientId\":\"client-42\""));
+        assertFalse(lines.get(1).contains("clientId"));
+    }
+
+    @Test
+    void recordsThatCannotBeWrittenAreCountedAsDropped() throws Exception {
+        // The log's directory is a regular file, so the writer can never open it.
+        Path blocker = Files.createFile(dir.resolve("blocker"));
+        AccessLog accessLog = accessLog(blocker.resolve("access.log"));
+        accessLog.start();
+        for (int i = 0; i < 3; i++) {
+            assertTrue(accessLog.offer(MockServerHttpRequest.get("/x").build(), "r", 200, 1, null, null));
+        }
+        accessLog.stop();
+
+        assertEquals(3, accessLog.getDroppedCount());
+    }
+
+    private static AccessLog accessLog(Path file) {
+        return new AccessLog(true, file.toString(), 64, 16, 1, 2,
+                AccessLog.DropPolicy.DROP_NEWEST, new SimpleMeterRegistry());
+    }
+}
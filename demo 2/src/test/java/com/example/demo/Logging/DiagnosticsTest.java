@@ -0,0 +1,88 @@
+package com.example.demo.Logging;
+
+import com.example.demo.Jwt.LazyClaims;
+import com.example.demo.Jwt.TestTokens;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class DiagnosticsTest {
+
+    private final Diagnostics diagnostics = new Diagnostics();
+
+    @Test
+    void aSessionThatSamplesTheExchangeOutLeavesItToTheOthers() {
+        Diagnostics.Session route = diagnostics.start(Diagnostics.Target.ROUTE, "orders", 1e-12, Duration.ofMinutes(1));
+        Diagnostics.Session ip = diagnostics.start(Diagnostics.Target.CLIENT_IP, "10.0.0.7", 1, Duration.ofMinutes(1));
+        MockServerWebExchange exchange = exchange("orders", "10.0.0.7");
+
+        Diagnostics.Trail trail = diagnostics.trailFor(exchange);
+
+        assertNotNull(trail);
+        assertSame(trail, diagnostics.trailFor(exchange));
+        assertEquals(1, route.getMatched());
+        assertEquals(0, route.getLogged());
+        assertEquals(1, ip.getLogged());
+    }
+
+    @Test
+    void sessionsThatPassedAreNotAskedAgainWhileAnotherIsUndecided() {
+        Diagnostics.Session route = diagnostics.start(Diagnostics.Target.ROUTE, "orders", 1e-12, Duration.ofMinutes(1));
+        Diagnostics.Session client = diagnostics.start(Diagnostics.Target.CLIENT_ID, "acme", 1, Duration.ofMinutes(1));
+        MockServerWebExchange exchange = exchange("orders", "10.0.0.7");
+
+        // No token verified yet, so the clientId session cannot tell.
+        assertNull(diagnostics.trailFor(exchange));
+        assertNull(diagnostics.trailFor(exchange));
+        assertEquals(1, route.getMatched());
+
+        exchange.getAttributes().put(LazyClaims.ATTRIBUTE, TestTokens.claims("acme"));
+        assertNotNull(diagnostics.trailFor(exchange));
+        assertEquals(1, route.getMatched());
+        assertEquals(1, client.getLogged());
+    }
+
+    @Test
+    void noMatchIsCachedOnceEverySessionHasDecided() {
+        Diagnostics.Session route = diagnostics.start(Diagnostics.Target.ROUTE, "orders", 1, Duration.ofMinutes(1));
+        MockServerWebExchange exchange = exchange("billing", "10.0.0.7");
+
+        assertNull(diagnostics.trailFor(exchange));
+        diagnostics.start(Diagnostics.Target.ROUTE, "billing", 1, Duration.ofMinutes(1));
+        assertNull(diagnostics.trailFor(exchange), "the decision is cached on the exchange");
+        assertEquals(0, route.getMatched());
+    }
+
+    @Test
+    void theEndpointRefusesBadTargetsAndUnknownSessions() {
+        DiagnosticsEndpoint endpoint = new DiagnosticsEndpoint(diagnostics);
+
+        assertEquals(WebEndpointResponse.STATUS_BAD_REQUEST, endpoint.start("cookie", "x", null, null).getStatus());
+        assertEquals(WebEndpointResponse.STATUS_NOT_FOUND, endpoint.stop(42).getStatus());
+
+        Diagnostics.Session session = (Diagnostics.Session) endpoint.start(" client_id ", "acme", null, 60L).getBody();
+        assertEquals(Diagnostics.Target.CLIENT_ID, session.getTarget());
+        assertEquals(1, endpoint.sessions().size());
+        assertEquals(WebEndpointResponse.STATUS_NO_CONTENT, endpoint.stop(session.getId()).getStatus());
+    }
+
+    private static MockServerWebExchange exchange(String routeId, String clientIp) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/x")
+                .remoteAddress(new InetSocketAddress(clientIp, 5000)).build());
+        Route route = Route.async().id(routeId).uri("http://localhost:8081")
+                .predicate(e -> true).build();
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route);
+        return exchange;
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.demo.Metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HyperLogLogTest {
+
+    @Test
+    void estimatesWithinTheStandardError() {
+        for (int n : new int[]{10, 1000, 100_000}) {
+            HyperLogLog sketch = new HyperLogLog(11);
+            for (int i = 0; i < n; i++) {
+                sketch.addHash(HyperLogLog.hash("client-" + i));
+            }
+            // 2.3% standard error at precision 11; allow three of them.
+            assertEquals(n, sketch.estimate(), Math.max(1, n * 0.07), "n=" + n);
+        }
+    }
+
+    @Test
+    void duplicatesDoNotCount() {
+        HyperLogLog sketch = new HyperLogLog(11);
+        for (int i = 0; i < 10_000; i++) {
+            sketch.addHash(HyperLogLog.hash("client-" + (i % 50)));
+        }
+        assertEquals(50, sketch.estimate(), 2);
+    }
+
+    @Test
+    void mergeEstimatesTheUnion() {
+        HyperLogLog a = new HyperLogLog(12);
+        HyperLogLog b = new HyperLogLog(12);
+        for (int i = 0; i < 30_000; i++) {
+            a.addHash(HyperLogLog.hash("client-" + i));
+            b.addHash(HyperLogLog.hash("client-" + (i + 20_000)));
+        }
+        a.merge(b);
+        assertEquals(50_000, a.estimate(), 50_000 * 0.05);
+        assertThrows(IllegalArgumentException.class, () -> a.merge(new HyperLogLog(11)));
+    }
+
+    @Test
+    void roundTripsThroughBytes() {
+        HyperLogLog sketch = new HyperLogLog(10);
+        for (int i = 0; i < 5000; i++) {
+            sketch.addHash(HyperLogLog.hash("client-" + i));
+        }
+        HyperLogLog copy = HyperLogLog.fromBytes(sketch.toBytes());
+        assertEquals(10, copy.getPrecision());
+        assertEquals(sketch.estimate(), copy.estimate());
+        assertArrayEquals(sketch.toBytes(), copy.toBytes());
+    }
+
+    @Test
+    void highestPossibleRankIsAccepted() {
+        HyperLogLog sketch = new HyperLogLog(4);
+        // All bits below the index zero: the largest rank addHash can produce.
+        sketch.addHash(0L);
+        byte[] bytes = sketch.toBytes();
+        assertEquals(61, bytes[1]);
+        assertEquals(sketch.estimate(), HyperLogLog.fromBytes(bytes).estimate());
+    }
+
+    @Test
+    void rejectsMalformedSketches() {
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(new byte[0]));
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(new byte[]{3, 0, 0, 0, 0, 0, 0, 0, 0}));
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(new byte[]{17}));
+
+        byte[] shortBytes = new byte[1 + 15];
+        shortBytes[0] = 4;
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(shortBytes));
+        byte[] longBytes = new byte[1 + 17];
+        longBytes[0] = 4;
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(longBytes));
+
+        byte[] tooHigh = new HyperLogLog(4).toBytes();
+        tooHigh[5] = 62;
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(tooHigh));
+        assertTrue(e.getMessage().contains("register 4"));
+        byte[] negative = new HyperLogLog(4).toBytes();
+        negative[1] = -1;
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(negative));
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.demo.Metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RouteMetricsRegistryTest {
+
+    @Test
+    void retainUnregistersTheMetersOfRemovedRoutes() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RouteMetricsRegistry registry = new RouteMetricsRegistry(meterRegistry);
+        RouteMetrics kept = registry.forRoute("kept");
+        RouteMetrics removed = registry.forRoute("removed");
+        removed.record(200, null, 1_000_000);
+        int perRoute = meterRegistry.find("gateway.route.requests").tag("route", "kept").timers().size()
+                + meterRegistry.find("gateway.route.rejections").tag("route", "kept").counters().size();
+
+        registry.retain(List.of("kept"));
+
+        assertTrue(meterRegistry.find("gateway.route.requests").tag("route", "removed").timers().isEmpty());
+        assertTrue(meterRegistry.find("gateway.route.rejections").tag("route", "removed").counters().isEmpty());
+        assertEquals(perRoute, meterRegistry.find("gateway.route.requests").tag("route", "kept").timers().size()
+                + meterRegistry.find("gateway.route.rejections").tag("route", "kept").counters().size());
+        assertEquals(1, registry.all().size());
+        assertSame(kept, registry.forRoute("kept"));
+
+        // A route that comes back starts over with fresh meters.
+        assertNotSame(removed, registry.forRoute("removed"));
+        assertEquals(0, meterRegistry.get("gateway.route.requests").tag("route", "removed").tag("status", "2xx")
+                .timer().count());
+    }
+}
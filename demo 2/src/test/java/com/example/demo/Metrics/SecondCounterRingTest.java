@@ -0,0 +1,95 @@
+package com.example.demo.Metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SecondCounterRingTest {
+
+    @Test
+    void capacityIsRoundedUpToAPowerOfTwo() {
+        assertEquals(2, new SecondCounterRing(1).capacity());
+        assertEquals(8, new SecondCounterRing(5).capacity());
+        assertEquals(8, new SecondCounterRing(8).capacity());
+        assertEquals(16, new SecondCounterRing(9).capacity());
+        assertEquals(128, new SecondCounterRing(120).capacity());
+    }
+
+    @Test
+    void aStaleSlotIsNotCountedAfterTheRingWraps() {
+        SecondCounterRing ring = new SecondCounterRing(8);
+        ring.add(100, 5);
+
+        // 108 shares 100's slot, which still holds 100's count until 108 is written.
+        assertEquals(0, ring.get(108));
+        assertEquals(0, ring.sum(101, 108));
+        assertEquals(5, ring.sum(100, 107));
+
+        ring.increment(108);
+        assertEquals(1, ring.get(108));
+        assertEquals(0, ring.get(100), "the slot was reset for the new second");
+        assertEquals(1, ring.sum(101, 108));
+    }
+
+    @Test
+    void aClockReadingOlderThanTheWindowCountsInTheNewerSecond() {
+        SecondCounterRing ring = new SecondCounterRing(8);
+        ring.add(108, 1);
+        ring.add(100, 2);
+
+        assertEquals(3, ring.get(108));
+        assertEquals(0, ring.get(100));
+    }
+
+    @Test
+    void theWindowedSumCrossesSecondBoundaries() {
+        SecondCounterRing ring = new SecondCounterRing(8);
+        for (long second = 994; second <= 1001; second++) {
+            ring.add(second, second - 993);
+        }
+
+        assertEquals(1 + 2 + 3 + 4 + 5 + 6 + 7 + 8, ring.sum(994, 1001));
+        assertEquals(6 + 7, ring.sum(999, 1000));
+        assertEquals(7 + 8, ring.sum(1000, 1001));
+        assertEquals(ring.sum(994, 1001), ring.sum(0, 1001), "only the last capacity seconds are read");
+        assertEquals(8, ring.sum(1001, 1001));
+        assertEquals(0, ring.sum(1002, 1005), "seconds not written yet");
+    }
+
+    @Test
+    void incrementsRacingIntoANewSecondAreAllCounted() throws InterruptedException {
+        SecondCounterRing ring = new SecondCounterRing(8);
+        ring.add(100, 7);
+        int threads = 4;
+        int perThread = 20_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                // Half of the increments land in 108, which replaces 100 in the same slot.
+                for (int i = 0; i < perThread; i++) {
+                    ring.increment(107 + (i & 1));
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals(threads * perThread / 2, ring.get(107));
+        assertEquals(threads * perThread / 2, ring.get(108));
+        assertEquals(threads * perThread, ring.sum(101, 108));
+    }
+}
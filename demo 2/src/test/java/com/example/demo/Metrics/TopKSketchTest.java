@@ -0,0 +1,136 @@
+package com.example.demo.Metrics;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TopKSketchTest {
+
+    @BeforeEach
+    void awayFromAMinuteBoundary() throws InterruptedException {
+        // Windows are per wall-clock minute; do not let a test straddle two of them.
+        long intoMinute = System.currentTimeMillis() % 60000;
+        if (intoMinute > 55000) {
+            Thread.sleep(60000 - intoMinute + 100);
+        }
+    }
+
+    @Test
+    void findsTheHeavyHittersAmongManyLightKeys() {
+        TopKSketch sketch = new TopKSketch(5, 1024);
+        Map<String, Long> exact = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            add(sketch, exact, "light-" + random.nextInt(5000));
+        }
+        for (int heavy = 0; heavy < 5; heavy++) {
+            for (int i = 0; i < 400 + heavy * 100; i++) {
+                add(sketch, exact, "heavy-" + heavy);
+            }
+        }
+
+        List<TopKSketch.Entry> top = sketch.top(5, false);
+        assertEquals(List.of("heavy-4", "heavy-3", "heavy-2", "heavy-1", "heavy-0"),
+                top.stream().map(TopKSketch.Entry::getKey).collect(Collectors.toList()));
+        long total = sketch.total(false);
+        assertEquals(exact.values().stream().mapToLong(Long::longValue).sum(), total);
+        for (TopKSketch.Entry entry : top) {
+            long actual = exact.get(entry.getKey());
+            // Count-Min never underestimates, and overestimates by about 2.7/width of the total.
+            assertTrue(entry.getCount() >= actual, entry.getKey());
+            assertTrue(entry.getCount() - actual <= total * 2.7 / 1024, entry.getKey());
+        }
+    }
+
+    @Test
+    void reportsAtMostTheLimitHeaviestFirst() {
+        TopKSketch sketch = new TopKSketch(3, 256);
+        for (int key = 1; key <= 3; key++) {
+            for (int i = 0; i < key * 10; i++) {
+                sketch.add("k" + key);
+            }
+        }
+        sketch.add(null);
+
+        List<TopKSketch.Entry> top = sketch.top(2, false);
+        assertEquals(2, top.size());
+        assertEquals("k3", top.get(0).getKey());
+        assertEquals(30, top.get(0).getCount());
+        assertEquals("k2", top.get(1).getKey());
+        assertEquals(60, sketch.total(false));
+    }
+
+    @Test
+    void aFloodOfDistinctKeysDoesNotDisplaceTheHeavyHitters() {
+        TopKSketch sketch = new TopKSketch(3, 1024);
+        for (int i = 0; i < 300; i++) {
+            sketch.add("heavy-a");
+            sketch.add("heavy-b");
+            sketch.add("heavy-c");
+        }
+        for (int i = 0; i < 50000; i++) {
+            sketch.add("once-" + i);
+        }
+
+        List<String> top = sketch.top(3, false).stream().map(TopKSketch.Entry::getKey).collect(Collectors.toList());
+        assertEquals(3, top.size());
+        assertTrue(top.containsAll(List.of("heavy-a", "heavy-b", "heavy-c")), top.toString());
+    }
+
+    @Test
+    void concurrentUpdatesStillFindTheHeavyHitters() throws InterruptedException {
+        TopKSketch sketch = new TopKSketch(2, 1024);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 20000; i++) {
+                    sketch.add("once-" + thread + "-" + i);
+                    if (i % 10 == 0) {
+                        sketch.add(i % 20 == 0 ? "heavy-a" : "heavy-b");
+                    }
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        List<TopKSketch.Entry> top = sketch.top(2, false);
+        assertEquals(List.of("heavy-a", "heavy-b"), top.stream().map(TopKSketch.Entry::getKey).sorted()
+                .collect(Collectors.toList()));
+        assertEquals(4 * (20000 + 2000), sketch.total(false));
+    }
+
+    @Test
+    void previousMinuteIsEmptyBeforeAnyRotation() {
+        TopKSketch sketch = new TopKSketch(3, 256);
+        sketch.add("a");
+        assertTrue(sketch.top(3, true).isEmpty());
+        assertEquals(0, sketch.total(true));
+    }
+
+    private static void add(TopKSketch sketch, Map<String, Long> exact, String key) {
+        sketch.add(key);
+        exact.merge(key, 1L, Long::sum);
+    }
+}
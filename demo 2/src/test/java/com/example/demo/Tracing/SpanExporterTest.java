@@ -0,0 +1,74 @@
+package com.example.demo.Tracing;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpanExporterTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void anUnwritableFileIsRetriedUntilItCanBeWritten() throws Exception {
+        // The export's directory is a regular file until the exporter has failed to open it.
+        Path blocker = Files.createFile(dir.resolve("blocker"));
+        Path file = blocker.resolve("spans.ndjson");
+        SpanExporter exporter = new SpanExporter(true, file.toString(), 64, 1, 2, new SimpleMeterRegistry());
+        exporter.start();
+        assertTrue(exporter.offer(trace(502)));
+        Thread.sleep(300);
+
+        Files.delete(blocker);
+        assertTrue(exporter.offer(trace(200)));
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (lines(file) < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        exporter.stop();
+
+        List<String> spans = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(2, spans.size(), "traces queued while the file was unavailable wait for it");
+        assertTrue(spans.get(0).contains("\"http.status_code\":502"));
+        assertTrue(spans.get(1).contains("\"http.status_code\":200"));
+        assertEquals(0, exporter.getDroppedCount());
+    }
+
+    @Test
+    void tracesStillQueuedWhenStoppingWithAnUnwritableFileAreCountedAsDropped() throws Exception {
+        Path blocker = Files.createFile(dir.resolve("blocker"));
+        SpanExporter exporter = new SpanExporter(true, blocker.resolve("spans.ndjson").toString(), 64, 1, 2,
+                new SimpleMeterRegistry());
+        exporter.start();
+        for (int i = 0; i < 3; i++) {
+            assertTrue(exporter.offer(trace(200)));
+        }
+        exporter.stop();
+
+        assertEquals(3, exporter.getDroppedCount());
+    }
+
+    private static long lines(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (Stream<String> lines = Files.lines(file, StandardCharsets.UTF_8)) {
+            return lines.count();
+        }
+    }
+
+    private static SpanExporter.FinishedTrace trace(int status) {
+        TraceContext context = TraceContext.continueOrStart(null, parentSampled -> true);
+        return new SpanExporter.FinishedTrace(context, null, "GET", "/orders/42", "orders", status, 1_000_000, "head");
+    }
+}
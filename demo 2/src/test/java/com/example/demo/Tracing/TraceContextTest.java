@@ -0,0 +1,81 @@
+package com.example.demo.Tracing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TraceContextTest {
+
+    private static final String TRACE_ID = "4bf92f3577b34da6a3ce929d0e0e4736";
+    private static final String PARENT = "00f067aa0ba902b7";
+
+    private final List<Boolean> asked = new ArrayList<>();
+    private final TraceContext.Sampler sampler = parentSampled -> {
+        asked.add(parentSampled);
+        return parentSampled;
+    };
+
+    @Test
+    void continuesAValidTraceparent() {
+        TraceContext context = TraceContext.continueOrStart("00-" + TRACE_ID + "-" + PARENT + "-01", sampler);
+
+        assertEquals(TRACE_ID, context.getTraceId());
+        assertEquals(Long.parseLong(PARENT, 16), context.getParentSpanId());
+        assertEquals(List.of(true), asked);
+        assertTrue(context.isSampled());
+
+        String upstream = context.toUpstreamTraceparent();
+        assertTrue(upstream.startsWith("00-" + TRACE_ID + "-"));
+        assertNotEquals(PARENT, upstream.substring(36, 52), "the upstream call is a new span");
+        assertTrue(upstream.endsWith("-01"));
+    }
+
+    @Test
+    void theCallersFlagsOnlyReachTheSampler() {
+        TraceContext context = TraceContext.continueOrStart("00-" + TRACE_ID + "-" + PARENT + "-00", sampler);
+
+        assertEquals(TRACE_ID, context.getTraceId());
+        assertEquals(List.of(false), asked);
+        assertFalse(context.isSampled());
+        assertTrue(context.toUpstreamTraceparent().endsWith("-00"));
+    }
+
+    @Test
+    void malformedHeadersStartANewTrace() {
+        assertRestarted(null);
+        assertRestarted("");
+        assertRestarted("00-" + TRACE_ID + "-" + PARENT);
+        assertRestarted("01-" + TRACE_ID + "-" + PARENT + "-01");
+        assertRestarted("00_" + TRACE_ID + "_" + PARENT + "_01");
+        assertRestarted("00-" + TRACE_ID.replace('4', 'g') + "-" + PARENT + "-01");
+        assertRestarted("00-" + TRACE_ID + "-" + PARENT + "-0x");
+    }
+
+    @Test
+    void uppercaseHexIsNotAccepted() {
+        assertRestarted("00-" + TRACE_ID.toUpperCase() + "-" + PARENT + "-01");
+        assertRestarted("00-" + TRACE_ID + "-" + PARENT.toUpperCase() + "-01");
+    }
+
+    @Test
+    void allZeroIdsAreNotAccepted() {
+        assertRestarted("00-00000000000000000000000000000000-" + PARENT + "-01");
+        assertRestarted("00-" + TRACE_ID + "-0000000000000000-01");
+    }
+
+    private void assertRestarted(String traceparent) {
+        asked.clear();
+        TraceContext context = TraceContext.continueOrStart(traceparent, sampler);
+
+        assertNotEquals(TRACE_ID, context.getTraceId(), traceparent);
+        assertNotEquals("00000000000000000000000000000000", context.getTraceId());
+        assertEquals(0, context.getParentSpanId(), traceparent);
+        assertEquals(List.of(false), asked, "a new trace has no sampled parent: " + traceparent);
+    }
+}
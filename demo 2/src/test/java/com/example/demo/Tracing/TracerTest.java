@@ -0,0 +1,78 @@
+package com.example.demo.Tracing;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TracerTest {
+
+    private static final String SAMPLED = "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01";
+    private static final long MILLIS = 1_000_000L;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void headSamplingFollowsASampledCallerUnlessToldNotTo() {
+        Tracer respecting = tracer(0, true, null);
+        Tracer ignoring = tracer(0, false, null);
+
+        assertTrue(respecting.start(request(SAMPLED)).isSampled());
+        assertFalse(respecting.start(request(null)).isSampled());
+        assertFalse(ignoring.start(request(SAMPLED)).isSampled());
+        assertTrue(tracer(1.0, false, null).start(request(null)).isSampled());
+    }
+
+    @Test
+    void theTailKeepsFailedAndSlowExchangesTheHeadDidNot() throws Exception {
+        SpanExporter exporter = exporter();
+        Tracer tracer = tracer(0, true, exporter);
+        exporter.start();
+
+        finish(tracer, SAMPLED, 200, 5 * MILLIS);
+        finish(tracer, null, 200, 5 * MILLIS);
+        finish(tracer, null, 502, 5 * MILLIS);
+        finish(tracer, null, 499, 5 * MILLIS);
+        finish(tracer, null, 200, 1000 * MILLIS);
+        exporter.stop();
+
+        List<String> spans = Files.readAllLines(dir.resolve("spans.ndjson"), StandardCharsets.UTF_8);
+        assertEquals(3, spans.size());
+        assertTrue(spans.get(0).contains("\"gateway.sampled_by\":\"head\""));
+        assertTrue(spans.get(1).contains("\"http.status_code\":502") && spans.get(1).contains("\"gateway.sampled_by\":\"tail\""));
+        assertTrue(spans.get(1).contains("\"status\":{\"code\":\"ERROR\"}"));
+        assertTrue(spans.get(2).contains("\"http.status_code\":200") && spans.get(2).contains("\"gateway.sampled_by\":\"tail\""));
+        assertEquals(0, exporter.getDroppedCount());
+    }
+
+    private static void finish(Tracer tracer, String traceparent, int status, long durationNanos) {
+        MockServerHttpRequest request = request(traceparent);
+        tracer.finish(tracer.start(request), null, request, "orders", status, durationNanos);
+    }
+
+    private Tracer tracer(double sampleRate, boolean respectParent, SpanExporter exporter) {
+        return new Tracer(true, sampleRate, respectParent, 1000, 500, exporter != null ? exporter : exporter());
+    }
+
+    private SpanExporter exporter() {
+        return new SpanExporter(true, dir.resolve("spans.ndjson").toString(), 64, 1, 2, new SimpleMeterRegistry());
+    }
+
+    private static MockServerHttpRequest request(String traceparent) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/orders/42");
+        if (traceparent != null) {
+            request.header(TraceContext.TRACEPARENT, traceparent);
+        }
+        return request.build();
+    }
+}
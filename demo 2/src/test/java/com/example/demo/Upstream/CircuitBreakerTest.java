@@ -0,0 +1,173 @@
+package com.example.demo.Upstream;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(2000);
+
+    /** 50% failures or 100% slow calls (1 s) over the last 10 calls, at least 4; open 100 ms; 2 trials. */
+    private static CircuitBreaker breaker() {
+        return new CircuitBreaker(new CircuitBreaker.Config(50, 100, 1000, 10, 4, 100, 2));
+    }
+
+    @Test
+    void staysClosedUntilTheMinimumNumberOfCalls() {
+        CircuitBreaker breaker = breaker();
+        for (int i = 0; i < 3; i++) {
+            breaker.record(breaker.tryAcquire(), FAST, true);
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        breaker.record(breaker.tryAcquire(), FAST, true);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(1, breaker.snapshot().getOpened());
+    }
+
+    @Test
+    void opensAtTheFailureRateThreshold() {
+        CircuitBreaker breaker = breaker();
+        breaker.record(breaker.tryAcquire(), FAST, false);
+        breaker.record(breaker.tryAcquire(), FAST, false);
+        breaker.record(breaker.tryAcquire(), FAST, false);
+        breaker.record(breaker.tryAcquire(), FAST, true);
+        breaker.record(breaker.tryAcquire(), FAST, true);
+        // 2 of 5 failed, under 50%
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        breaker.record(breaker.tryAcquire(), FAST, true);
+        // 3 of 6
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void opensWhenEveryCallIsSlow() {
+        CircuitBreaker breaker = breaker();
+        for (int i = 0; i < 4; i++) {
+            breaker.record(breaker.tryAcquire(), SLOW, false);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void oldCallsLeaveTheWindow() {
+        CircuitBreaker breaker = breaker();
+        for (int i = 0; i < 4; i++) {
+            breaker.record(breaker.tryAcquire(), FAST, i == 0);
+        }
+        // 1 of 4 failed; ten successes push it out of the window
+        for (int i = 0; i < 10; i++) {
+            breaker.record(breaker.tryAcquire(), FAST, false);
+        }
+        assertEquals(10, breaker.snapshot().getCalls());
+        assertEquals(0.0, breaker.snapshot().getFailureRate());
+    }
+
+    @Test
+    void rejectsWhileOpenWithTheTimeLeft() {
+        CircuitBreaker breaker = tripped();
+
+        assertNull(breaker.tryAcquire());
+        assertNull(breaker.tryAcquire());
+        long retryAfter = breaker.getRetryAfterMillis();
+        assertTrue(retryAfter > 0 && retryAfter <= 100, "retry after " + retryAfter);
+        assertEquals(2, breaker.snapshot().getRejected());
+        assertEquals(0, breaker.snapshot().getCalls());
+    }
+
+    @Test
+    void letsTrialCallsThroughAfterTheOpenDuration() throws InterruptedException {
+        CircuitBreaker breaker = tripped();
+        Thread.sleep(150);
+
+        CircuitBreaker.Phase first = breaker.tryAcquire();
+        CircuitBreaker.Phase second = breaker.tryAcquire();
+        assertNotNull(first);
+        assertNotNull(second);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertNull(breaker.tryAcquire(), "only halfOpenCalls trials at a time");
+        assertEquals(0, breaker.getRetryAfterMillis());
+
+        breaker.record(first, FAST, false);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.record(second, FAST, false);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertNotNull(breaker.tryAcquire());
+    }
+
+    @Test
+    void aFailedTrialOpensItAgain() throws InterruptedException {
+        CircuitBreaker breaker = tripped();
+        Thread.sleep(150);
+
+        CircuitBreaker.Phase trial = breaker.tryAcquire();
+        CircuitBreaker.Phase late = breaker.tryAcquire();
+        breaker.record(trial, FAST, true);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(2, breaker.snapshot().getOpened());
+        assertNull(breaker.tryAcquire());
+
+        // An outcome from the half-open phase it already left changes nothing.
+        breaker.record(late, FAST, false);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void aSlowTrialOpensItAgain() throws InterruptedException {
+        CircuitBreaker breaker = tripped();
+        Thread.sleep(150);
+
+        breaker.record(breaker.tryAcquire(), SLOW, false);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void aCancelledTrialGivesItsPermitBack() throws InterruptedException {
+        CircuitBreaker breaker = tripped();
+        Thread.sleep(150);
+
+        CircuitBreaker.Phase first = breaker.tryAcquire();
+        CircuitBreaker.Phase second = breaker.tryAcquire();
+        assertNull(breaker.tryAcquire());
+        breaker.release(second);
+
+        CircuitBreaker.Phase third = breaker.tryAcquire();
+        assertNotNull(third);
+        breaker.record(first, FAST, false);
+        breaker.record(third, FAST, false);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void closingStartsWithAnEmptyWindow() throws InterruptedException {
+        CircuitBreaker breaker = tripped();
+        Thread.sleep(150);
+        breaker.record(breaker.tryAcquire(), FAST, false);
+        breaker.record(breaker.tryAcquire(), FAST, false);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0, breaker.snapshot().getCalls());
+
+        // Needs minimumCalls new outcomes before it can open again.
+        for (int i = 0; i < 3; i++) {
+            breaker.record(breaker.tryAcquire(), FAST, true);
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    private static CircuitBreaker tripped() {
+        CircuitBreaker breaker = breaker();
+        for (int i = 0; i < 4; i++) {
+            breaker.record(breaker.tryAcquire(), FAST, true);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        return breaker;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.demo.Upstream;
+
+import com.example.demo.Filter.TokenValidationGatewayFilterFactory;
+import com.example.demo.Filter.UpstreamLoadBalancerFilter;
+import com.example.demo.Jwt.LazyClaims;
+import com.example.demo.Jwt.TestTokens;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import java.net.InetSocketAddress;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HashKeyTest {
+
+    @Test
+    void clientIdComesFromTheVerifiedToken() {
+        MockServerWebExchange exchange = exchange();
+        exchange.getAttributes().put(LazyClaims.ATTRIBUTE, TestTokens.claims("client-42"));
+
+        assertEquals("client-42", HashKey.parse("client_id").extract(exchange));
+    }
+
+    @Test
+    void theTokenIsVerifiedBeforeTheLoadBalancerHashesIt() {
+        assertTrue(TokenValidationGatewayFilterFactory.ORDER < UpstreamLoadBalancerFilter.ORDER);
+    }
+
+    @Test
+    void withoutATokenClientIdFallsBackToTheClientIp() {
+        assertEquals("10.0.0.7", HashKey.parse("client_id").extract(exchange()));
+    }
+
+    @Test
+    void hashesOnAHeaderOrTheClientIp() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/items")
+                .remoteAddress(new InetSocketAddress("10.0.0.7", 40000))
+                .header("X-Tenant", "acme"));
+
+        assertEquals("acme", HashKey.parse("header:X-Tenant").extract(exchange));
+        assertEquals("10.0.0.7", HashKey.parse("client_ip").extract(exchange));
+        assertEquals("10.0.0.7", HashKey.parse(null).extract(exchange));
+    }
+
+    @Test
+    void rejectsUnknownKeys() {
+        assertThrows(IllegalArgumentException.class, () -> HashKey.parse("cookie"));
+        assertThrows(IllegalArgumentException.class, () -> HashKey.parse("header:"));
+    }
+
+    private static MockServerWebExchange exchange() {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/items")
+                .remoteAddress(new InetSocketAddress("10.0.0.7", 40000)));
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.demo.Upstream;
+
+import com.example.demo.Metrics.HyperLogLog;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HashRingTest {
+
+    private static final int KEYS = 20000;
+    private static final double BALANCE_FACTOR = 1.25;
+
+    @Test
+    void addingATargetOnlyMovesKeysToIt() {
+        UpstreamServer[] four = servers(4);
+        HashRing before = HashRing.build(null, four, weights(4, 1));
+        UpstreamServer added = new UpstreamServer("http://upstream-4:8050", 1);
+        UpstreamServer[] five = {four[0], four[1], four[2], four[3], added};
+        HashRing after = HashRing.build(before, five, weights(5, 1));
+
+        int moved = 0;
+        for (int key = 0; key < KEYS; key++) {
+            UpstreamServer from = locate(before, key, 4);
+            UpstreamServer to = locate(after, key, 5);
+            if (from != to) {
+                assertSame(added, to, "key " + key + " moved between two old targets");
+                moved++;
+            }
+        }
+        // The new target's fair share is a fifth of the keys.
+        double share = moved / (double) KEYS;
+        assertTrue(share > 0.12 && share < 0.28, "moved " + share);
+    }
+
+    @Test
+    void removingATargetOnlyMovesItsKeys() {
+        UpstreamServer[] four = servers(4);
+        HashRing before = HashRing.build(null, four, weights(4, 1));
+        UpstreamServer[] three = {four[0], four[2], four[3]};
+        HashRing after = HashRing.build(before, three, weights(3, 1));
+
+        for (int key = 0; key < KEYS; key++) {
+            UpstreamServer from = locate(before, key, 4);
+            UpstreamServer to = locate(after, key, 3);
+            if (from != four[1]) {
+                assertSame(from, to, "key " + key + " of a remaining target moved");
+            } else {
+                assertNotEquals(four[1], to);
+            }
+        }
+    }
+
+    @Test
+    void anIncrementalRebuildMatchesAFreshOne() {
+        UpstreamServer[] four = servers(4);
+        HashRing before = HashRing.build(null, four, weights(4, 1));
+        int[] reweighted = {1, 3, 1, 1};
+        HashRing incremental = HashRing.build(before, four, reweighted);
+        HashRing fresh = HashRing.build(null, four, reweighted);
+
+        for (int key = 0; key < KEYS; key++) {
+            assertSame(locate(fresh, key, 6), locate(incremental, key, 6));
+        }
+    }
+
+    @Test
+    void keysSpreadByWeight() {
+        UpstreamServer[] servers = servers(2);
+        HashRing ring = HashRing.build(null, servers, new int[]{3, 1});
+
+        Map<UpstreamServer, Integer> counts = new HashMap<>();
+        for (int key = 0; key < KEYS; key++) {
+            counts.merge(locate(ring, key, 4), 1, Integer::sum);
+        }
+        double heavy = counts.get(servers[0]) / (double) KEYS;
+        assertTrue(heavy > 0.68 && heavy < 0.82, "weight 3 of 4 got " + heavy);
+    }
+
+    @Test
+    void aHotKeySpillsOverToTheNextTargetAndComesBack() {
+        UpstreamServer[] servers = servers(3);
+        HashRing ring = HashRing.build(null, servers, weights(3, 1));
+        long hash = HyperLogLog.hash("hot-client");
+        UpstreamServer owner = ring.locate(hash, BALANCE_FACTOR, 0, 3, null);
+
+        // Two requests in flight on the owner, none elsewhere: 2 + 1 > ceil(1.25 * 3 / 3).
+        owner.begin();
+        owner.begin();
+        UpstreamServer spill = ring.locate(hash, BALANCE_FACTOR, 2, 3, null);
+        assertNotEquals(owner, spill);
+        assertSame(spill, ring.locate(hash, BALANCE_FACTOR, 2, 3, null), "spills over to the same next target");
+
+        owner.end(1, false);
+        owner.end(1, false);
+        assertSame(owner, ring.locate(hash, BALANCE_FACTOR, 0, 3, null));
+    }
+
+    @Test
+    void noTargetGoesOverItsBoundWhileAnotherHasRoom() {
+        UpstreamServer[] servers = servers(4);
+        HashRing ring = HashRing.build(null, servers, weights(4, 1));
+
+        // Every request is the same key and stays in flight.
+        long hash = HyperLogLog.hash("hot-client");
+        int inFlight = 0;
+        for (int i = 0; i < 400; i++) {
+            ring.locate(hash, BALANCE_FACTOR, inFlight, 4, null).begin();
+            inFlight++;
+        }
+        double bound = Math.ceil(BALANCE_FACTOR * inFlight / 4);
+        for (UpstreamServer server : servers) {
+            assertTrue(server.getOutstanding() <= bound, server.getOrigin() + " has " + server.getOutstanding());
+        }
+    }
+
+    @Test
+    void aRetryAvoidsThePreviousTarget() {
+        UpstreamServer[] servers = servers(3);
+        HashRing ring = HashRing.build(null, servers, weights(3, 1));
+        long hash = HyperLogLog.hash("client-7");
+
+        UpstreamServer first = ring.locate(hash, BALANCE_FACTOR, 0, 3, null);
+        UpstreamServer retry = ring.locate(hash, BALANCE_FACTOR, 0, 3, first);
+        assertNotEquals(first, retry);
+        assertEquals(retry, ring.locate(hash, BALANCE_FACTOR, 0, 3, first));
+    }
+
+    private static UpstreamServer locate(HashRing ring, int key, int totalWeight) {
+        return ring.locate(HyperLogLog.hash("client-" + key), BALANCE_FACTOR, 0, totalWeight, null);
+    }
+
+    private static UpstreamServer[] servers(int count) {
+        UpstreamServer[] servers = new UpstreamServer[count];
+        for (int i = 0; i < count; i++) {
+            servers[i] = new UpstreamServer("http://upstream-" + i + ":8050", 1);
+        }
+        return servers;
+    }
+
+    private static int[] weights(int count, int weight) {
+        int[] weights = new int[count];
+        Arrays.fill(weights, weight);
+        return weights;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.demo.Upstream;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HealthCheckerTest {
+
+    private static final String ORIGIN = "http://upstream-0:8050";
+
+    // 2 failed probes in a row take a target out, 3 good ones bring it back
+    private final HealthChecker checker = new HealthChecker(null, null, true, 5000, 0.2, 2000, "/health", 2, 3);
+
+    @Test
+    void aTargetGoesDownAfterTheUnhealthyThreshold() {
+        UpstreamServer server = server();
+
+        checker.apply(ORIGIN, List.of(server), false);
+        assertTrue(server.isHealthy());
+        checker.apply(ORIGIN, List.of(server), true);
+        checker.apply(ORIGIN, List.of(server), false);
+        assertTrue(server.isHealthy(), "a good probe in between starts the count over");
+
+        checker.apply(ORIGIN, List.of(server), false);
+        assertFalse(server.isHealthy());
+        assertFalse(server.isAvailable());
+    }
+
+    @Test
+    void aTargetComesBackAfterTheHealthyThreshold() {
+        UpstreamServer server = server();
+        checker.apply(ORIGIN, List.of(server), false);
+        checker.apply(ORIGIN, List.of(server), false);
+
+        checker.apply(ORIGIN, List.of(server), true);
+        checker.apply(ORIGIN, List.of(server), true);
+        checker.apply(ORIGIN, List.of(server), false);
+        checker.apply(ORIGIN, List.of(server), true);
+        checker.apply(ORIGIN, List.of(server), true);
+        assertFalse(server.isHealthy(), "a failed probe in between starts the count over");
+
+        checker.apply(ORIGIN, List.of(server), true);
+        assertTrue(server.isHealthy());
+        assertTrue(server.isAvailable());
+    }
+
+    @Test
+    void oneProbeUpdatesTheOriginInEveryPool() {
+        UpstreamServer first = server();
+        UpstreamServer second = server();
+
+        checker.apply(ORIGIN, List.of(first, second), false);
+        checker.apply(ORIGIN, List.of(first, second), false);
+
+        assertFalse(first.isHealthy());
+        assertFalse(second.isHealthy());
+    }
+
+    @Test
+    void recordProbeReportsOnlyTransitions() {
+        UpstreamServer server = server();
+
+        assertFalse(server.recordProbe(false, 2, 1));
+        assertTrue(server.recordProbe(false, 2, 1));
+        assertFalse(server.recordProbe(false, 2, 1), "already down");
+        assertTrue(server.recordProbe(true, 2, 1));
+        assertFalse(server.recordProbe(true, 2, 1), "already up");
+    }
+
+    private static UpstreamServer server() {
+        return new UpstreamServer(ORIGIN, 1);
+    }
+}
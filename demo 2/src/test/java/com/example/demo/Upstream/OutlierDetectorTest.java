@@ -0,0 +1,167 @@
+package com.example.demo.Upstream;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutlierDetectorTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void consecutiveFailuresEjectATarget() {
+        UpstreamServer[] servers = servers(4);
+        OutlierDetector detector = detector(50);
+        UpstreamPool pool = pool(servers, detector);
+
+        fail(pool, servers[0], 2);
+        request(pool, servers[0], false);
+        fail(pool, servers[0], 2);
+        assertTrue(servers[0].isAvailable(), "a success in between starts the count over");
+
+        fail(pool, servers[0], 1);
+        assertFalse(servers[0].isAvailable());
+        assertTrue(servers[0].getEjectedForMillis() > 25_000);
+    }
+
+    @Test
+    void noMoreThanMaxEjectionPercentOfAPoolIsEjected() {
+        UpstreamServer[] servers = servers(4);
+        UpstreamPool pool = pool(servers, detector(50));
+
+        for (UpstreamServer server : servers) {
+            fail(pool, server, 3);
+        }
+
+        assertEquals(2, ejected(servers), "half of 4 targets");
+    }
+
+    @Test
+    void oneTargetCanAlwaysBeEjected() {
+        UpstreamServer[] servers = servers(3);
+        UpstreamPool pool = pool(servers, detector(10));
+
+        fail(pool, servers[0], 3);
+        fail(pool, servers[1], 3);
+
+        assertEquals(1, ejected(servers), "10% of 3 targets rounds down to none, but one is allowed");
+    }
+
+    @Test
+    void aSweepEjectsLatencyOutliersAboveTheMinimum() {
+        UpstreamServer[] servers = servers(4);
+        OutlierDetector detector = detector(50);
+        UpstreamPool pool = pool(servers, detector);
+        request(pool, servers[0], 10 * MILLIS);
+        request(pool, servers[1], 12 * MILLIS);
+        request(pool, servers[2], 11 * MILLIS);
+        request(pool, servers[3], 500 * MILLIS);
+
+        detector.sweep(pool);
+        assertFalse(servers[3].isAvailable(), "500 ms against a 11 ms median");
+        assertEquals(1, ejected(servers));
+    }
+
+    @Test
+    void aSweepLeavesSlowTargetsUnderTheMinimumAlone() {
+        UpstreamServer[] servers = servers(4);
+        OutlierDetector detector = detector(50);
+        UpstreamPool pool = pool(servers, detector);
+        request(pool, servers[0], MILLIS);
+        request(pool, servers[1], MILLIS);
+        request(pool, servers[2], MILLIS);
+        request(pool, servers[3], 50 * MILLIS);
+
+        detector.sweep(pool);
+        assertEquals(0, ejected(servers), "50 times the median, but under latency-min-ms");
+    }
+
+    @Test
+    void ejectionsDoubleUpToTheMaximumAndUnwindOneStepPerQuietSweep() {
+        // Nanosecond ejections expire at once, so the backoff can be stepped without waiting.
+        UpstreamServer server = servers(1)[0];
+        assertEquals(1, server.eject(1, 6));
+        server.settleEjection();
+        assertEquals(2, server.eject(1, 6));
+        server.settleEjection();
+        assertEquals(4, server.eject(1, 6));
+        server.settleEjection();
+        assertEquals(6, server.eject(1, 6), "capped at the maximum");
+
+        // The first settle only clears the ejection; each later one unwinds a step.
+        server.settleEjection();
+        server.settleEjection();
+        server.settleEjection();
+        assertEquals(4, server.eject(1, 6));
+        for (int i = 0; i < 10; i++) {
+            server.settleEjection();
+        }
+        assertEquals(1, server.eject(1, 6), "back to the base after enough quiet sweeps");
+    }
+
+    @Test
+    void anExpiredEjectionIsClearedWithItsLatency() throws InterruptedException {
+        UpstreamServer[] servers = servers(3);
+        OutlierDetector detector = new OutlierDetector(true, 1, 3.0, 100, 200, 1000, 50, 10000);
+        UpstreamPool pool = pool(servers, detector);
+        request(pool, servers[0], 500 * MILLIS);
+        fail(pool, servers[0], 1);
+        assertFalse(servers[0].isAvailable());
+
+        Thread.sleep(250);
+        detector.sweep(pool);
+        assertTrue(servers[0].isAvailable());
+        assertEquals(0, servers[0].getEjectedForMillis());
+        assertEquals(0, servers[0].getEwmaNanos(), "latency from before the ejection is forgotten");
+    }
+
+    private static void fail(UpstreamPool pool, UpstreamServer server, int times) {
+        for (int i = 0; i < times; i++) {
+            request(pool, server, true);
+        }
+    }
+
+    private static void request(UpstreamPool pool, UpstreamServer server, boolean failed) {
+        server.begin();
+        pool.complete(server, MILLIS, failed);
+    }
+
+    private static void request(UpstreamPool pool, UpstreamServer server, long nanos) {
+        server.begin();
+        pool.complete(server, nanos, false);
+    }
+
+    private static int ejected(UpstreamServer[] servers) {
+        int ejected = 0;
+        for (UpstreamServer server : servers) {
+            if (server.isEjected()) {
+                ejected++;
+            }
+        }
+        return ejected;
+    }
+
+    // 3 failures in a row, or 3x the median above 100 ms; 30 s doubling up to 5 min
+    private static OutlierDetector detector(int maxEjectionPercent) {
+        return new OutlierDetector(true, 3, 3.0, 100, 30000, 300000, maxEjectionPercent, 10000);
+    }
+
+    private static UpstreamPool pool(UpstreamServer[] servers, OutlierDetector detector) {
+        int[] weights = new int[servers.length];
+        Arrays.fill(weights, 1);
+        return new UpstreamPool(LoadBalancingPolicy.P2C, servers, weights, null, 1.25, null, detector);
+    }
+
+    private static UpstreamServer[] servers(int count) {
+        UpstreamServer[] servers = new UpstreamServer[count];
+        for (int i = 0; i < count; i++) {
+            servers[i] = new UpstreamServer("http://upstream-" + i + ":8050", TimeUnit.SECONDS.toNanos(10));
+        }
+        return servers;
+    }
+}
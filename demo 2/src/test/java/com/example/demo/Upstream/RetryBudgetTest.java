@@ -0,0 +1,75 @@
+package com.example.demo.Upstream;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryBudgetTest {
+
+    @Test
+    void startsFullAndDeniesOnceTheBurstIsSpent() {
+        RetryBudget budget = new RetryBudget(0.2, 0, 3);
+
+        assertTrue(budget.tryWithdraw());
+        assertTrue(budget.tryWithdraw());
+        assertTrue(budget.tryWithdraw());
+        assertFalse(budget.tryWithdraw());
+
+        assertEquals(3, budget.getRetries());
+        assertEquals(1, budget.getDenied());
+        assertEquals(0.0, budget.getTokens());
+    }
+
+    @Test
+    void requestsEarnRetriesAtTheRatio() {
+        RetryBudget budget = new RetryBudget(0.2, 0, 3);
+        drain(budget);
+
+        for (int i = 0; i < 4; i++) {
+            budget.onRequest();
+        }
+        assertFalse(budget.tryWithdraw(), "4 requests earn 0.8 of a retry");
+        budget.onRequest();
+        assertTrue(budget.tryWithdraw(), "5 requests earn one");
+        assertFalse(budget.tryWithdraw());
+        assertEquals(5, budget.getRequests());
+    }
+
+    @Test
+    void holdsAtMostTheBurst() {
+        RetryBudget budget = new RetryBudget(1, 0, 2);
+        for (int i = 0; i < 100; i++) {
+            budget.onRequest();
+        }
+        assertEquals(2.0, budget.getTokens());
+    }
+
+    @Test
+    void aQuietRouteGetsTheFloorBack() throws InterruptedException {
+        RetryBudget budget = new RetryBudget(0, 20, 5);
+        drain(budget);
+
+        Thread.sleep(150);
+        // 20 per second over at least 150 ms is at least 3 tokens.
+        assertTrue(budget.tryWithdraw());
+        assertTrue(budget.tryWithdraw());
+        assertTrue(budget.tryWithdraw());
+    }
+
+    @Test
+    void withoutAFloorAnEmptyBudgetStaysEmpty() throws InterruptedException {
+        RetryBudget budget = new RetryBudget(0.2, 0, 1);
+        drain(budget);
+
+        Thread.sleep(50);
+        assertFalse(budget.tryWithdraw());
+    }
+
+    private static void drain(RetryBudget budget) {
+        while (budget.tryWithdraw()) {
+            // spend the initial burst
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.demo.Upstream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryPolicyTest {
+
+    private static RetryPolicy policy(int maxAttempts, long backoffMs, long maxBackoffMs) {
+        return new RetryPolicy(maxAttempts, RetryPolicy.parseStatuses("502,503,504"),
+                backoffMs, maxBackoffMs, new RetryBudget(0.2, 1, 10));
+    }
+
+    @Test
+    void parsesRetryableStatuses() {
+        RetryPolicy policy = policy(3, 50, 1000);
+
+        assertTrue(policy.isRetryableStatus(502));
+        assertTrue(policy.isRetryableStatus(503));
+        assertTrue(policy.isRetryableStatus(504));
+        assertFalse(policy.isRetryableStatus(500));
+        assertFalse(policy.isRetryableStatus(200));
+        assertFalse(policy.isRetryableStatus(-1));
+    }
+
+    @Test
+    void acceptsBlanksAndSpacesInTheStatusList() {
+        assertEquals(2, RetryPolicy.parseStatuses(" 429 , ,503,").cardinality());
+    }
+
+    @Test
+    void rejectsAnythingButErrorStatuses() {
+        assertThrows(IllegalArgumentException.class, () -> RetryPolicy.parseStatuses("503,200"));
+        assertThrows(IllegalArgumentException.class, () -> RetryPolicy.parseStatuses("600"));
+        assertThrows(IllegalArgumentException.class, () -> RetryPolicy.parseStatuses("5xx"));
+    }
+
+    @Test
+    void appliesToIdempotentRequestsWithoutABody() {
+        RetryPolicy policy = policy(3, 50, 1000);
+
+        assertTrue(policy.appliesTo(MockServerHttpRequest.get("/items").build()));
+        assertTrue(policy.appliesTo(MockServerHttpRequest.delete("/items/1").build()));
+        assertFalse(policy.appliesTo(MockServerHttpRequest.post("/items").build()));
+        assertFalse(policy.appliesTo(MockServerHttpRequest.put("/items/1")
+                .header(HttpHeaders.CONTENT_LENGTH, "12").build()));
+        assertFalse(policy.appliesTo(MockServerHttpRequest.put("/items/1")
+                .header(HttpHeaders.TRANSFER_ENCODING, "chunked").build()));
+    }
+
+    @Test
+    void aSingleAttemptNeverRetries() {
+        assertFalse(policy(1, 50, 1000).appliesTo(MockServerHttpRequest.get("/items").build()));
+    }
+
+    @Test
+    void backoffDoublesWithEqualJitter() {
+        RetryPolicy policy = policy(5, 40, 1000);
+
+        for (int retry = 1; retry <= 4; retry++) {
+            long delay = 40L << (retry - 1);
+            for (int i = 0; i < 200; i++) {
+                long millis = policy.backoff(retry).toMillis();
+                assertTrue(millis >= delay / 2 && millis <= delay,
+                        "retry " + retry + ": " + millis + " ms outside [" + delay / 2 + ", " + delay + "]");
+            }
+        }
+    }
+
+    @Test
+    void backoffIsCappedAndStillJittered() {
+        RetryPolicy policy = policy(50, 40, 100);
+
+        Set<Duration> seen = new HashSet<>();
+        for (int i = 0; i < 200; i++) {
+            Duration backoff = policy.backoff(40);
+            assertTrue(backoff.toMillis() >= 50 && backoff.toMillis() <= 100, backoff.toString());
+            seen.add(backoff);
+        }
+        assertTrue(seen.size() > 1, "jitter spreads the delays");
+    }
+
+    @Test
+    void noBackoffConfiguredMeansNoWait() {
+        assertEquals(Duration.ZERO, policy(3, 0, 0).backoff(2));
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.demo.Upstream;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UpstreamPoolTest {
+
+    private static final long MINUTE = TimeUnit.MINUTES.toNanos(1);
+    private static final int DRAWS = 3000;
+
+    @Test
+    void roundRobinSpreadsAHeavyTargetOutInsteadOfRunningIt() {
+        UpstreamServer[] servers = servers(3);
+        UpstreamPool pool = pool(LoadBalancingPolicy.ROUND_ROBIN, servers, 5, 1, 1);
+
+        // nginx's smooth weighted round robin for 5, 1, 1
+        int[] period = {0, 0, 1, 0, 2, 0, 0};
+        assertArrayEquals(period, indexes(pool, servers, 7));
+        assertArrayEquals(period, indexes(pool, servers, 7), "the next period repeats it");
+    }
+
+    @Test
+    void roundRobinReducesWeightsByTheirGcd() {
+        UpstreamServer[] servers = servers(3);
+        UpstreamPool reduced = pool(LoadBalancingPolicy.ROUND_ROBIN, servers, 20, 40, 60);
+        UpstreamPool plain = pool(LoadBalancingPolicy.ROUND_ROBIN, servers, 1, 2, 3);
+
+        int[] chosen = indexes(reduced, servers, 12);
+        assertArrayEquals(indexes(plain, servers, 12), chosen);
+        assertArrayEquals(new int[]{1, 2, 3}, counts(chosen, servers.length, 0, 6), "a period is 6 slots, not 120");
+        assertArrayEquals(new int[]{1, 2, 3}, counts(chosen, servers.length, 6, 12));
+    }
+
+    @Test
+    void largeWeightTotalsAreScaledDownToTheMaximumSchedule() {
+        UpstreamServer[] servers = servers(2);
+        UpstreamPool pool = pool(LoadBalancingPolicy.ROUND_ROBIN, servers, 10000, 1);
+
+        // 10001 slots scaled to 4096: 4095 and, never rounded away, 1
+        int[] chosen = indexes(pool, servers, 2 * 4096);
+        assertArrayEquals(new int[]{4095, 1}, counts(chosen, servers.length, 0, 4096));
+        assertArrayEquals(new int[]{4095, 1}, counts(chosen, servers.length, 4096, 2 * 4096));
+    }
+
+    @Test
+    void scalingKeepsTheRatioBetweenEqualWeights() {
+        UpstreamServer[] servers = servers(3);
+        UpstreamPool pool = pool(LoadBalancingPolicy.ROUND_ROBIN, servers, 3000, 3000, 1);
+
+        // 6001 scaled to 4096: 2047, 2047 and 1, a 4095 slot period
+        int[] chosen = indexes(pool, servers, 2 * 4095);
+        assertArrayEquals(new int[]{2047, 2047, 1}, counts(chosen, servers.length, 0, 4095));
+        assertArrayEquals(new int[]{2047, 2047, 1}, counts(chosen, servers.length, 4095, 2 * 4095));
+    }
+
+    @Test
+    void roundRobinSkipsUnavailableAndAvoidedTargets() {
+        UpstreamServer[] servers = servers(3);
+        UpstreamPool pool = pool(LoadBalancingPolicy.ROUND_ROBIN, servers, 1, 1, 1);
+        servers[1].eject(MINUTE, MINUTE);
+
+        for (int i = 0; i < 30; i++) {
+            UpstreamServer chosen = pool.choose(null, servers[0]);
+            assertSame(servers[2], chosen, "draw " + i);
+        }
+        // The ejected target's slots go to the next target in the schedule.
+        assertArrayEquals(new int[]{10, 0, 20}, counts(indexes(pool, servers, 30), servers.length, 0, 30));
+    }
+
+    @Test
+    void p2cPrefersTheTargetWithFewerRequestsInFlight() {
+        UpstreamServer[] servers = servers(3);
+        UpstreamPool pool = pool(LoadBalancingPolicy.P2C, servers, 1, 1, 1);
+        for (int i = 0; i < 5; i++) {
+            servers[0].begin();
+        }
+
+        // The busy target only wins when both draws (and the redraw) land on it: 1 in 27.
+        int[] counts = counts(indexes(pool, servers, DRAWS), servers.length, 0, DRAWS);
+        assertTrue(counts[0] < DRAWS / 10, "busy target chosen " + counts[0] + " times");
+    }
+
+    @Test
+    void p2cComparesInFlightRequestsPerUnitOfWeight() {
+        UpstreamServer[] servers = servers(2);
+        UpstreamPool pool = pool(LoadBalancingPolicy.P2C, servers, 4, 1);
+        // 3 in flight on weight 4 is less loaded than 1 on weight 1.
+        for (int i = 0; i < 3; i++) {
+            servers[0].begin();
+        }
+        servers[1].begin();
+
+        int[] counts = counts(indexes(pool, servers, DRAWS), servers.length, 0, DRAWS);
+        assertTrue(counts[1] < DRAWS / 10, "light target chosen " + counts[1] + " times");
+    }
+
+    @Test
+    void ewmaPrefersTheFasterTarget() {
+        UpstreamServer[] servers = servers(3);
+        UpstreamPool pool = pool(LoadBalancingPolicy.EWMA, servers, 1, 1, 1);
+        sample(servers[0], TimeUnit.MILLISECONDS.toNanos(50));
+        sample(servers[1], TimeUnit.MILLISECONDS.toNanos(5));
+        sample(servers[2], TimeUnit.MILLISECONDS.toNanos(5));
+
+        int[] counts = counts(indexes(pool, servers, DRAWS), servers.length, 0, DRAWS);
+        assertTrue(counts[0] < DRAWS / 10, "slow target chosen " + counts[0] + " times");
+    }
+
+    @Test
+    void ewmaProbesATargetWithoutSamples() {
+        UpstreamServer[] servers = servers(3);
+        UpstreamPool pool = pool(LoadBalancingPolicy.EWMA, servers, 1, 1, 1);
+        sample(servers[0], TimeUnit.MILLISECONDS.toNanos(5));
+        sample(servers[1], TimeUnit.MILLISECONDS.toNanos(5));
+
+        // The new target wins every draw it is part of: 17 in 27.
+        int[] counts = counts(indexes(pool, servers, DRAWS), servers.length, 0, DRAWS);
+        assertTrue(counts[2] > DRAWS * 4 / 10, "new target chosen " + counts[2] + " times");
+    }
+
+    @Test
+    void p2cSkipsUnavailableAndAvoidedTargets() {
+        UpstreamServer[] servers = servers(3);
+        UpstreamPool pool = pool(LoadBalancingPolicy.P2C, servers, 1, 1, 1);
+        servers[2].recordProbe(false, 1, 1);
+
+        for (int i = 0; i < DRAWS; i++) {
+            assertNotSame(servers[2], pool.choose(null, null));
+            assertSame(servers[1], pool.choose(null, servers[0]));
+        }
+    }
+
+    @Test
+    void withNothingAvailableThePoolStillChooses() {
+        UpstreamServer[] servers = servers(2);
+        for (UpstreamServer server : servers) {
+            server.eject(MINUTE, MINUTE);
+        }
+
+        for (LoadBalancingPolicy policy : new LoadBalancingPolicy[]{LoadBalancingPolicy.P2C, LoadBalancingPolicy.ROUND_ROBIN}) {
+            UpstreamPool pool = pool(policy, servers, 1, 1);
+            assertNotNull(pool.choose(null, null), policy.name());
+            for (int i = 0; i < 4; i++) {
+                assertSame(servers[1], pool.choose(null, servers[0]), policy + " still avoids the failed target");
+            }
+        }
+    }
+
+    private static void sample(UpstreamServer server, long nanos) {
+        server.begin();
+        server.end(nanos, false);
+    }
+
+    // Only consistent hashing reads the exchange.
+    private static int[] indexes(UpstreamPool pool, UpstreamServer[] servers, int draws) {
+        int[] chosen = new int[draws];
+        for (int i = 0; i < draws; i++) {
+            chosen[i] = indexOf(servers, pool.choose(null, null));
+        }
+        return chosen;
+    }
+
+    private static int[] counts(int[] chosen, int targets, int from, int to) {
+        int[] counts = new int[targets];
+        for (int i = from; i < to; i++) {
+            counts[chosen[i]]++;
+        }
+        return counts;
+    }
+
+    private static int indexOf(UpstreamServer[] servers, UpstreamServer server) {
+        for (int i = 0; i < servers.length; i++) {
+            if (servers[i] == server) {
+                return i;
+            }
+        }
+        throw new AssertionError("not one of the pool's targets: " + server);
+    }
+
+    private static UpstreamPool pool(LoadBalancingPolicy policy, UpstreamServer[] servers, int... weights) {
+        assertEquals(servers.length, weights.length);
+        return new UpstreamPool(policy, servers, weights, null, 1.25, null, null);
+    }
+
+    private static UpstreamServer[] servers(int count) {
+        UpstreamServer[] servers = new UpstreamServer[count];
+        for (int i = 0; i < count; i++) {
+            servers[i] = new UpstreamServer("http://upstream-" + i + ":8050", TimeUnit.SECONDS.toNanos(10));
+        }
+        return servers;
+    }
+}
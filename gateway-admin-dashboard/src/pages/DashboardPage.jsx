@@ -144,74 +144,63 @@ const DashboardPage = () => {
     }
   };
 
-  // Load request metrics
-  const fetchRequestCounter = async () => {
-    try {
-      const response = await axios.get('http://localhost:9080/api/metrics/requests');
-      const { requestCount, rejectedCount } = response.data;
-      setRequestCount(requestCount);
-      setRejectedCount(rejectedCount);
-    } catch (error) {
-      console.error('Error fetching request counter:', error);
+  // Apply one metrics snapshot (totals plus current/previous minute)
+  const applyMetricsSnapshot = ({
+    requestCount,
+    rejectedCount,
+    requestsCurrentMinute,
+    requestsPreviousMinute,
+    rejectedCurrentMinute,
+    rejectedPreviousMinute
+  }) => {
+    setRequestCount(requestCount);
+    setRejectedCount(rejectedCount);
+
+    let increasePercentage = 0;
+    if (requestsPreviousMinute > 0) {
+      increasePercentage = Math.round(
+          ((requestsCurrentMinute - requestsPreviousMinute) / requestsPreviousMinute) * 100
+      );
+    } else if (requestsCurrentMinute > 0) {
+      increasePercentage = 100;
     }
-  };
-
-  // Load minute metrics
-  const fetchMinuteMetrics = async () => {
-    try {
-      const response = await axios.get('http://localhost:9080/api/metrics/minutely');
-      const {
-        requestsCurrentMinute,
-        requestsPreviousMinute,
-        rejectedCurrentMinute,
-        rejectedPreviousMinute
-      } = response.data;
-
-      let increasePercentage = 0;
-      if (requestsPreviousMinute > 0) {
-        increasePercentage = Math.round(
-            ((requestsCurrentMinute - requestsPreviousMinute) / requestsPreviousMinute) * 100
-        );
-      } else if (requestsCurrentMinute > 0) {
-        increasePercentage = 100;
-      }
 
-      let rejectedIncreasePercentage = 0;
-      if (rejectedPreviousMinute > 0) {
-        rejectedIncreasePercentage = Math.round(
-            ((rejectedCurrentMinute - rejectedPreviousMinute) / rejectedPreviousMinute) * 100
-        );
-      } else if (rejectedCurrentMinute > 0) {
-        rejectedIncreasePercentage = 100;
-      }
-
-      setMinuteMetrics({
-        requestsCurrentMinute,
-        requestsPreviousMinute,
-        rejectedCurrentMinute,
-        rejectedPreviousMinute,
-        increasePercentage,
-        rejectedIncreasePercentage
-      });
-    } catch (error) {
-      console.error('Error fetching minute metrics:', error);
+    let rejectedIncreasePercentage = 0;
+    if (rejectedPreviousMinute > 0) {
+      rejectedIncreasePercentage = Math.round(
+          ((rejectedCurrentMinute - rejectedPreviousMinute) / rejectedPreviousMinute) * 100
+      );
+    } else if (rejectedCurrentMinute > 0) {
+      rejectedIncreasePercentage = 100;
     }
+
+    setMinuteMetrics({
+      requestsCurrentMinute,
+      requestsPreviousMinute,
+      rejectedCurrentMinute,
+      rejectedPreviousMinute,
+      increasePercentage,
+      rejectedIncreasePercentage
+    });
   };
 
   // Load data on mount
   useEffect(() => {
     loadRoutes();
-    fetchRequestCounter();
-    fetchMinuteMetrics();
 
-    // Set up refresh intervals
-    const intervalCounter = setInterval(fetchRequestCounter, 5000);
-    const intervalMinute = setInterval(fetchMinuteMetrics, 5000);
+    // Metrics are pushed by the gateway (Server-Sent Events); EventSource reconnects on its own
+    const metricsSource = new EventSource('http://localhost:9080/api/metrics/stream');
+    metricsSource.addEventListener('metrics', (event) => {
+      applyMetricsSnapshot(JSON.parse(event.data));
+    });
+    metricsSource.onerror = () => {
+      console.error('Metrics stream interrupted, reconnecting...');
+    };
+
     const routesInterval = setInterval(loadRoutes, 30000);
 
     return () => {
-      clearInterval(intervalCounter);
-      clearInterval(intervalMinute);
+      metricsSource.close();
       clearInterval(routesInterval);
     };
   }, [highlightedRouteId]);
@@ -1,8 +1,10 @@
 // src/main/java/com/example/gateway_admin/Controller/GatewayRouteController.java
 package com.example.gateway_admin.Controller;
 
+import com.example.gateway_admin.Entities.CircuitBreakerSettings;
 import com.example.gateway_admin.Entities.GatewayRoute;
 import com.example.gateway_admin.Entities.RateLimit;
+import com.example.gateway_admin.Entities.RetrySettings;
 import com.example.gateway_admin.Services.GatewayRouteService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -54,6 +56,10 @@ public class GatewayRouteController {
         existingRoute.setWithIpFilter(updatedRoute.getWithIpFilter());
         existingRoute.setWithToken(updatedRoute.getWithToken());
         existingRoute.setWithRateLimit(updatedRoute.getWithRateLimit());
+        existingRoute.setAuthPolicy(updatedRoute.getAuthPolicy());
+        existingRoute.setLoadBalancing(updatedRoute.getLoadBalancing());
+        existingRoute.setWithCircuitBreaker(updatedRoute.getWithCircuitBreaker());
+        existingRoute.setWithRetry(updatedRoute.getWithRetry());
 
         // Merge the nested RateLimit if present
         if (updatedRoute.getRateLimit() != null) {
@@ -65,6 +71,35 @@ public class GatewayRouteController {
             existingRoute.getRateLimit().setRouteId(updatedRoute.getRateLimit().getRouteId());
         }
 
+        // Merge the nested circuit breaker settings if present
+        if (updatedRoute.getCircuitBreaker() != null) {
+            if (existingRoute.getCircuitBreaker() == null) {
+                existingRoute.setCircuitBreaker(new CircuitBreakerSettings());
+            }
+            CircuitBreakerSettings cb = existingRoute.getCircuitBreaker();
+            CircuitBreakerSettings updatedCb = updatedRoute.getCircuitBreaker();
+            cb.setRouteId(updatedCb.getRouteId());
+            cb.setFailureRateThreshold(updatedCb.getFailureRateThreshold());
+            cb.setSlowCallRateThreshold(updatedCb.getSlowCallRateThreshold());
+            cb.setSlowCallDurationMs(updatedCb.getSlowCallDurationMs());
+            cb.setWindowSize(updatedCb.getWindowSize());
+            cb.setMinimumCalls(updatedCb.getMinimumCalls());
+            cb.setOpenDurationMs(updatedCb.getOpenDurationMs());
+            cb.setHalfOpenCalls(updatedCb.getHalfOpenCalls());
+        }
+
+        // Merge the nested retry settings if present
+        if (updatedRoute.getRetry() != null) {
+            if (existingRoute.getRetry() == null) {
+                existingRoute.setRetry(new RetrySettings());
+            }
+            existingRoute.getRetry().setRouteId(updatedRoute.getRetry().getRouteId());
+            existingRoute.getRetry().setMaxAttempts(updatedRoute.getRetry().getMaxAttempts());
+            existingRoute.getRetry().setRetryableStatuses(updatedRoute.getRetry().getRetryableStatuses());
+            existingRoute.getRetry().setBackoffMs(updatedRoute.getRetry().getBackoffMs());
+            existingRoute.getRetry().setMaxBackoffMs(updatedRoute.getRetry().getMaxBackoffMs());
+        }
+
         GatewayRoute savedRoute = gatewayRouteService.updateRoute(id, existingRoute);
         return ResponseEntity.ok(savedRoute);
     }
@@ -95,6 +130,18 @@ public class GatewayRouteController {
         if (updates.containsKey("withRateLimit")) {
             existingRoute.setWithRateLimit((Boolean) updates.get("withRateLimit"));
         }
+        if (updates.containsKey("authPolicy")) {
+            existingRoute.setAuthPolicy((String) updates.get("authPolicy"));
+        }
+        if (updates.containsKey("loadBalancing")) {
+            existingRoute.setLoadBalancing((String) updates.get("loadBalancing"));
+        }
+        if (updates.containsKey("withCircuitBreaker")) {
+            existingRoute.setWithCircuitBreaker((Boolean) updates.get("withCircuitBreaker"));
+        }
+        if (updates.containsKey("withRetry")) {
+            existingRoute.setWithRetry((Boolean) updates.get("withRetry"));
+        }
 
         if (updates.containsKey("rateLimit")) {
             // Merge partial rate limit fields
@@ -113,6 +160,62 @@ public class GatewayRouteController {
             }
         }
 
+        if (updates.containsKey("circuitBreaker")) {
+            // Merge partial circuit breaker fields
+            Map<String, Object> cb = (Map<String, Object>) updates.get("circuitBreaker");
+            if (existingRoute.getCircuitBreaker() == null) {
+                existingRoute.setCircuitBreaker(new CircuitBreakerSettings());
+            }
+            CircuitBreakerSettings settings = existingRoute.getCircuitBreaker();
+            if (cb.containsKey("failureRateThreshold")) {
+                settings.setFailureRateThreshold((Integer) cb.get("failureRateThreshold"));
+            }
+            if (cb.containsKey("slowCallRateThreshold")) {
+                settings.setSlowCallRateThreshold((Integer) cb.get("slowCallRateThreshold"));
+            }
+            if (cb.containsKey("slowCallDurationMs")) {
+                settings.setSlowCallDurationMs((Integer) cb.get("slowCallDurationMs"));
+            }
+            if (cb.containsKey("windowSize")) {
+                settings.setWindowSize((Integer) cb.get("windowSize"));
+            }
+            if (cb.containsKey("minimumCalls")) {
+                settings.setMinimumCalls((Integer) cb.get("minimumCalls"));
+            }
+            if (cb.containsKey("openDurationMs")) {
+                settings.setOpenDurationMs((Integer) cb.get("openDurationMs"));
+            }
+            if (cb.containsKey("halfOpenCalls")) {
+                settings.setHalfOpenCalls((Integer) cb.get("halfOpenCalls"));
+            }
+            if (cb.containsKey("routeId")) {
+                settings.setRouteId(Long.valueOf(cb.get("routeId").toString()));
+            }
+        }
+
+        if (updates.containsKey("retry")) {
+            // Merge partial retry fields
+            Map<String, Object> retry = (Map<String, Object>) updates.get("retry");
+            if (existingRoute.getRetry() == null) {
+                existingRoute.setRetry(new RetrySettings());
+            }
+            if (retry.containsKey("maxAttempts")) {
+                existingRoute.getRetry().setMaxAttempts((Integer) retry.get("maxAttempts"));
+            }
+            if (retry.containsKey("retryableStatuses")) {
+                existingRoute.getRetry().setRetryableStatuses((String) retry.get("retryableStatuses"));
+            }
+            if (retry.containsKey("backoffMs")) {
+                existingRoute.getRetry().setBackoffMs((Integer) retry.get("backoffMs"));
+            }
+            if (retry.containsKey("maxBackoffMs")) {
+                existingRoute.getRetry().setMaxBackoffMs((Integer) retry.get("maxBackoffMs"));
+            }
+            if (retry.containsKey("routeId")) {
+                existingRoute.getRetry().setRouteId(Long.valueOf(retry.get("routeId").toString()));
+            }
+        }
+
         GatewayRoute updatedRoute = gatewayRouteService.updateRoute(id, existingRoute);
         return ResponseEntity.ok(updatedRoute);
     }
@@ -0,0 +1,193 @@
+// src/main/java/com/example/gateway_admin/Controller/UpstreamTargetController.java
+package com.example.gateway_admin.Controller;
+
+import com.example.gateway_admin.Entities.GatewayRoute;
+import com.example.gateway_admin.Entities.UpstreamTarget;
+import com.example.gateway_admin.Repositories.GatewayRouteRepository;
+import com.example.gateway_admin.Repositories.UpstreamTargetRepository;
+import com.example.gateway_admin.Services.DataSyncService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@CrossOrigin(origins = "http://localhost:5173")
+@RestController
+@RequestMapping("/api/upstream-targets")
+public class UpstreamTargetController {
+
+    private final UpstreamTargetRepository upstreamTargetRepository;
+    private final GatewayRouteRepository gatewayRouteRepository;
+
+    @Autowired
+    private DataSyncService dataSyncService;
+
+    public UpstreamTargetController(UpstreamTargetRepository upstreamTargetRepository,
+                                    GatewayRouteRepository gatewayRouteRepository) {
+        this.upstreamTargetRepository = upstreamTargetRepository;
+        this.gatewayRouteRepository = gatewayRouteRepository;
+    }
+
+    // GET: All upstream targets with their route details
+    @GetMapping
+    public List<Map<String, Object>> getAllTargets() {
+        return upstreamTargetRepository.findAll().stream()
+                .map(this::toResponse)
+                .collect(Collectors.toList());
+    }
+
+    // GET: Upstream targets of one route
+    @GetMapping("/route/{routeId}")
+    @Transactional(readOnly = true)
+    public ResponseEntity<?> getTargetsForRoute(@PathVariable Long routeId) {
+        return gatewayRouteRepository.findById(routeId)
+                .<ResponseEntity<?>>map(route -> ResponseEntity.ok(route.getUpstreamTargets().stream()
+                        .map(this::toResponse)
+                        .collect(Collectors.toList())))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // POST: Add an upstream target to a GatewayRoute
+    @PostMapping
+    @Transactional
+    public ResponseEntity<?> createTarget(@RequestBody UpstreamTarget target) {
+        try {
+            if (target.getGatewayRoute() == null || target.getGatewayRoute().getId() == null) {
+                return ResponseEntity.badRequest().body("Gateway route id is missing in the request payload.");
+            }
+            String error = validate(target);
+            if (error != null) {
+                return ResponseEntity.badRequest().body(error);
+            }
+
+            GatewayRoute route = gatewayRouteRepository.findById(target.getGatewayRoute().getId())
+                    .orElseThrow(() -> new RuntimeException("Gateway route not found with id "
+                            + target.getGatewayRoute().getId()));
+
+            boolean exists = route.getUpstreamTargets().stream()
+                    .anyMatch(t -> t.getUri().equalsIgnoreCase(target.getUri().trim()));
+            if (exists) {
+                return ResponseEntity.badRequest().body("This upstream target is already assigned to this route");
+            }
+
+            target.setUri(target.getUri().trim());
+            if (target.getWeight() == null) {
+                target.setWeight(1);
+            }
+            target.setGatewayRoute(route);
+            route.getUpstreamTargets().add(target);
+            UpstreamTarget saved = upstreamTargetRepository.save(target);
+
+            // Trigger manual sync for immediate effect
+            dataSyncService.syncRoutesToGatewaySchema();
+
+            return ResponseEntity.ok(toResponse(saved));
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Failed to add upstream target: " + e.getMessage());
+        }
+    }
+
+    // PUT: Change the uri and/or weight of an upstream target
+    @PutMapping("/{id}")
+    @Transactional
+    public ResponseEntity<?> updateTarget(@PathVariable Long id, @RequestBody UpstreamTarget updated) {
+        try {
+            UpstreamTarget existing = upstreamTargetRepository.findById(id)
+                    .orElseThrow(() -> new RuntimeException("Upstream target not found with id " + id));
+
+            if (updated.getUri() == null) {
+                updated.setUri(existing.getUri());
+            }
+            if (updated.getWeight() == null) {
+                updated.setWeight(existing.getWeight());
+            }
+            String error = validate(updated);
+            if (error != null) {
+                return ResponseEntity.badRequest().body(error);
+            }
+
+            existing.setUri(updated.getUri().trim());
+            existing.setWeight(updated.getWeight());
+            UpstreamTarget saved = upstreamTargetRepository.save(existing);
+
+            // Trigger manual sync
+            dataSyncService.syncRoutesToGatewaySchema();
+
+            return ResponseEntity.ok(toResponse(saved));
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Failed to update upstream target: " + e.getMessage());
+        }
+    }
+
+    // DELETE: Remove an upstream target from its route
+    @DeleteMapping("/{id}")
+    @Transactional
+    public ResponseEntity<?> deleteTarget(@PathVariable Long id) {
+        try {
+            UpstreamTarget target = upstreamTargetRepository.findById(id)
+                    .orElseThrow(() -> new RuntimeException("Upstream target not found with id " + id));
+
+            GatewayRoute route = target.getGatewayRoute();
+            route.getUpstreamTargets().remove(target);
+            gatewayRouteRepository.save(route);
+            upstreamTargetRepository.delete(target);
+
+            // Trigger manual sync
+            dataSyncService.syncRoutesToGatewaySchema();
+
+            return ResponseEntity.ok().build();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Failed to delete upstream target: " + e.getMessage());
+        }
+    }
+
+    private Map<String, Object> toResponse(UpstreamTarget target) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("id", target.getId());
+        result.put("uri", target.getUri());
+        result.put("weight", target.getWeight());
+        result.put("gatewayRouteId", target.getGatewayRouteId());
+        if (target.getGatewayRoute() != null) {
+            result.put("predicate", target.getGatewayRoute().getPredicates());
+            result.put("routeId", target.getGatewayRoute().getRouteId());
+            result.put("loadBalancing", target.getGatewayRoute().getLoadBalancing());
+        }
+        return result;
+    }
+
+    // Returns an error message, or null if the target is valid
+    private String validate(UpstreamTarget target) {
+        if (target.getUri() == null || target.getUri().isBlank()) {
+            return "Upstream target uri is required (e.g. http://localhost:8050)";
+        }
+        String uri = target.getUri().trim();
+        try {
+            URI parsed = URI.create(uri.contains("://") ? uri : "http://" + uri);
+            if (parsed.getHost() == null) {
+                return "Upstream target uri has no host: " + uri;
+            }
+            if (!"http".equalsIgnoreCase(parsed.getScheme()) && !"https".equalsIgnoreCase(parsed.getScheme())) {
+                return "Upstream target uri must be http or https: " + uri;
+            }
+        } catch (IllegalArgumentException e) {
+            return "Invalid upstream target uri: " + uri;
+        }
+        if (target.getWeight() != null && (target.getWeight() < 0 || target.getWeight() > 1000)) {
+            return "Weight must be between 0 (drained) and 1000";
+        }
+        return null;
+    }
+}
@@ -0,0 +1,88 @@
+// src/main/java/com/example/gateway_admin/Entities/CircuitBreakerSettings.java
+package com.example.gateway_admin.Entities;
+
+import jakarta.persistence.*;
+
+/**
+ * Circuit breaker thresholds of a route; empty fields take the gateway's defaults.
+ */
+@Entity
+@Table(name = "circuit_breaker_settings", schema = "admin")
+public class CircuitBreakerSettings {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long routeId;
+    private Integer failureRateThreshold;   // % of calls failed (error or 5xx)
+    private Integer slowCallRateThreshold;  // % of calls slower than slowCallDurationMs
+    private Integer slowCallDurationMs;
+    private Integer windowSize;
+    private Integer minimumCalls;
+    private Integer openDurationMs;
+    private Integer halfOpenCalls;
+
+    public CircuitBreakerSettings() {}
+
+    // Getters & Setters
+    public Long getId() {
+        return id;
+    }
+
+    public Long getRouteId() {
+        return routeId;
+    }
+    public void setRouteId(Long routeId) {
+        this.routeId = routeId;
+    }
+
+    public Integer getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+    public void setFailureRateThreshold(Integer failureRateThreshold) {
+        this.failureRateThreshold = failureRateThreshold;
+    }
+
+    public Integer getSlowCallRateThreshold() {
+        return slowCallRateThreshold;
+    }
+    public void setSlowCallRateThreshold(Integer slowCallRateThreshold) {
+        this.slowCallRateThreshold = slowCallRateThreshold;
+    }
+
+    public Integer getSlowCallDurationMs() {
+        return slowCallDurationMs;
+    }
+    public void setSlowCallDurationMs(Integer slowCallDurationMs) {
+        this.slowCallDurationMs = slowCallDurationMs;
+    }
+
+    public Integer getWindowSize() {
+        return windowSize;
+    }
+    public void setWindowSize(Integer windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    public Integer getMinimumCalls() {
+        return minimumCalls;
+    }
+    public void setMinimumCalls(Integer minimumCalls) {
+        this.minimumCalls = minimumCalls;
+    }
+
+    public Integer getOpenDurationMs() {
+        return openDurationMs;
+    }
+    public void setOpenDurationMs(Integer openDurationMs) {
+        this.openDurationMs = openDurationMs;
+    }
+
+    public Integer getHalfOpenCalls() {
+        return halfOpenCalls;
+    }
+    public void setHalfOpenCalls(Integer halfOpenCalls) {
+        this.halfOpenCalls = halfOpenCalls;
+    }
+}
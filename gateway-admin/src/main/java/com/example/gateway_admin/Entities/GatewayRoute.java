@@ -29,15 +29,40 @@ public class GatewayRoute {
     private Boolean withIpFilter;
     private Boolean withToken;
     private Boolean withRateLimit;
+    private Boolean withCircuitBreaker;
+    private Boolean withRetry;
+
+    // JSON claim requirements enforced by the gateway on token routes,
+    // e.g. {"clientIds":["billing"],"scopes":["orders:read"]}
+    @Column(length = 2000)
+    private String authPolicy;
+
+    // How the gateway spreads requests over the upstream targets: p2c, round_robin or ewma
+    // (empty for the gateway's default)
+    private String loadBalancing;
 
     @OneToOne(cascade = CascadeType.ALL)
     @JoinColumn(name = "rate_limit_id")
     private RateLimit rateLimit;
 
+    @OneToOne(cascade = CascadeType.ALL)
+    @JoinColumn(name = "circuit_breaker_id")
+    private CircuitBreakerSettings circuitBreaker;
+
+    @OneToOne(cascade = CascadeType.ALL)
+    @JoinColumn(name = "retry_id")
+    private RetrySettings retry;
+
     @OneToMany(mappedBy = "gatewayRoute", cascade = CascadeType.ALL, fetch = FetchType.EAGER)
     @JsonManagedReference
     private List<AllowedIps> allowedIps = new ArrayList<>();
 
+    // Lazy: a second eager list could not be fetched together with allowedIps
+    @OneToMany(mappedBy = "gatewayRoute", cascade = CascadeType.ALL)
+    @OrderBy("id")
+    @JsonManagedReference("route-upstream-targets")
+    private List<UpstreamTarget> upstreamTargets = new ArrayList<>();
+
     public GatewayRoute() {}
 
     public void setId(Long id) {
@@ -68,11 +93,39 @@ public class GatewayRoute {
         this.withRateLimit = withRateLimit;
     }
 
+    public void setWithCircuitBreaker(Boolean withCircuitBreaker) {
+        this.withCircuitBreaker = withCircuitBreaker;
+    }
+
+    public void setWithRetry(Boolean withRetry) {
+        this.withRetry = withRetry;
+    }
+
+    public void setAuthPolicy(String authPolicy) {
+        this.authPolicy = authPolicy;
+    }
+
+    public void setLoadBalancing(String loadBalancing) {
+        this.loadBalancing = loadBalancing;
+    }
+
     public void setRateLimit(RateLimit rateLimit) {
         this.rateLimit = rateLimit;
     }
 
+    public void setCircuitBreaker(CircuitBreakerSettings circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    public void setRetry(RetrySettings retry) {
+        this.retry = retry;
+    }
+
     public void setAllowedIps(List<AllowedIps> allowedIps) {
         this.allowedIps = allowedIps;
     }
+
+    public void setUpstreamTargets(List<UpstreamTarget> upstreamTargets) {
+        this.upstreamTargets = upstreamTargets;
+    }
 }
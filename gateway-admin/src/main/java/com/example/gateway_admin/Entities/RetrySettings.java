@@ -0,0 +1,64 @@
+// src/main/java/com/example/gateway_admin/Entities/RetrySettings.java
+package com.example.gateway_admin.Entities;
+
+import jakarta.persistence.*;
+
+/**
+ * Retry policy of a route; empty fields take the gateway's defaults.
+ */
+@Entity
+@Table(name = "retry_settings", schema = "admin")
+public class RetrySettings {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long routeId;
+    private Integer maxAttempts;        // attempts in total, the first one included
+    private String retryableStatuses;   // e.g. "502,503,504"
+    private Integer backoffMs;
+    private Integer maxBackoffMs;
+
+    public RetrySettings() {}
+
+    // Getters & Setters
+    public Long getId() {
+        return id;
+    }
+
+    public Long getRouteId() {
+        return routeId;
+    }
+    public void setRouteId(Long routeId) {
+        this.routeId = routeId;
+    }
+
+    public Integer getMaxAttempts() {
+        return maxAttempts;
+    }
+    public void setMaxAttempts(Integer maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public String getRetryableStatuses() {
+        return retryableStatuses;
+    }
+    public void setRetryableStatuses(String retryableStatuses) {
+        this.retryableStatuses = retryableStatuses;
+    }
+
+    public Integer getBackoffMs() {
+        return backoffMs;
+    }
+    public void setBackoffMs(Integer backoffMs) {
+        this.backoffMs = backoffMs;
+    }
+
+    public Integer getMaxBackoffMs() {
+        return maxBackoffMs;
+    }
+    public void setMaxBackoffMs(Integer maxBackoffMs) {
+        this.maxBackoffMs = maxBackoffMs;
+    }
+}
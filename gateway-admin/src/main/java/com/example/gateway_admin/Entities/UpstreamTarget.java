@@ -0,0 +1,73 @@
+package com.example.gateway_admin.Entities;
+
+import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.persistence.*;
+
+/**
+ * One upstream instance behind a gateway route; the gateway balances a route's
+ * traffic over its targets in proportion to their weights.
+ */
+@Entity
+@Table(name = "upstream_targets", schema = "admin")
+public class UpstreamTarget {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // e.g. http://localhost:8050; the scheme defaults to http
+    private String uri;
+
+    // Relative share of the route's traffic; 0 drains the target
+    private Integer weight;
+
+    @ManyToOne(fetch = FetchType.EAGER)
+    @JoinColumn(name = "gateway_route_id", nullable = false)
+    @JsonBackReference("route-upstream-targets")
+    private GatewayRoute gatewayRoute;
+
+    // Standard getters and setters
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getUri() {
+        return uri;
+    }
+
+    public void setUri(String uri) {
+        this.uri = uri;
+    }
+
+    public Integer getWeight() {
+        return weight;
+    }
+
+    public void setWeight(Integer weight) {
+        this.weight = weight;
+    }
+
+    public GatewayRoute getGatewayRoute() {
+        return gatewayRoute;
+    }
+
+    public void setGatewayRoute(GatewayRoute gatewayRoute) {
+        this.gatewayRoute = gatewayRoute;
+    }
+
+    /**
+     * Computed property to expose the gateway route id.
+     * The property will be serialized as "gatewayRouteId" in the JSON output.
+     */
+    @Transient
+    @JsonProperty("gatewayRouteId")
+    public Long getGatewayRouteId() {
+        return gatewayRoute != null ? gatewayRoute.getId() : null;
+    }
+}
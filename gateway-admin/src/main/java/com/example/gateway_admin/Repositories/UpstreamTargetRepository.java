@@ -0,0 +1,9 @@
+package com.example.gateway_admin.Repositories;
+
+import com.example.gateway_admin.Entities.UpstreamTarget;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface UpstreamTargetRepository extends JpaRepository<UpstreamTarget, Long> {
+}
@@ -1,6 +1,8 @@
 package com.example.gateway_admin.Services;
 
+import com.example.gateway_admin.Entities.CircuitBreakerSettings;
 import com.example.gateway_admin.Entities.GatewayRoute;
+import com.example.gateway_admin.Entities.RetrySettings;
 import com.example.gateway_admin.Repositories.GatewayRouteRepository;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
@@ -13,6 +15,7 @@ import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Types;
 import java.util.List;
 import java.util.logging.Logger;
 
@@ -60,6 +63,14 @@ public class DataSyncService {
 
     private void clearGatewayTables(Connection conn) throws SQLException {
         // The order matters due to foreign key constraints
+        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM gateway.upstream_targets")) {
+            int count = stmt.executeUpdate();
+            logger.info("Cleared " + count + " rows from gateway.upstream_targets");
+        } catch (SQLException e) {
+            logger.severe("Error clearing gateway.upstream_targets: " + e.getMessage());
+            throw e;
+        }
+
         try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM gateway.allowed_ips")) {
             int count = stmt.executeUpdate();
             logger.info("Cleared " + count + " rows from gateway.allowed_ips");
@@ -83,13 +94,81 @@ public class DataSyncService {
             logger.severe("Error clearing gateway.gateway_routes: " + e.getMessage());
             throw e;
         }
+
+        // Referenced by gateway_routes.circuit_breaker_id and retry_id, so after the routes
+        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM gateway.circuit_breaker_settings")) {
+            int count = stmt.executeUpdate();
+            logger.info("Cleared " + count + " rows from gateway.circuit_breaker_settings");
+        } catch (SQLException e) {
+            logger.severe("Error clearing gateway.circuit_breaker_settings: " + e.getMessage());
+            throw e;
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM gateway.retry_settings")) {
+            int count = stmt.executeUpdate();
+            logger.info("Cleared " + count + " rows from gateway.retry_settings");
+        } catch (SQLException e) {
+            logger.severe("Error clearing gateway.retry_settings: " + e.getMessage());
+            throw e;
+        }
     }
 
     private void copyRouteToGatewaySchema(Connection conn, GatewayRoute route) throws SQLException {
+        // Copy circuit breaker and retry settings first, the route references them
+        Long circuitBreakerId = null;
+        CircuitBreakerSettings cb = route.getCircuitBreaker();
+        if (cb != null) {
+            String insertCircuitBreakerSql =
+                    "INSERT INTO gateway.circuit_breaker_settings (id, route_id, failure_rate_threshold, slow_call_rate_threshold, " +
+                            "slow_call_duration_ms, window_size, minimum_calls, open_duration_ms, half_open_calls) " +
+                            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+            try (PreparedStatement stmt = conn.prepareStatement(insertCircuitBreakerSql)) {
+                stmt.setLong(1, cb.getId());
+                stmt.setLong(2, route.getId());
+                stmt.setObject(3, cb.getFailureRateThreshold(), Types.INTEGER);
+                stmt.setObject(4, cb.getSlowCallRateThreshold(), Types.INTEGER);
+                stmt.setObject(5, cb.getSlowCallDurationMs(), Types.INTEGER);
+                stmt.setObject(6, cb.getWindowSize(), Types.INTEGER);
+                stmt.setObject(7, cb.getMinimumCalls(), Types.INTEGER);
+                stmt.setObject(8, cb.getOpenDurationMs(), Types.INTEGER);
+                stmt.setObject(9, cb.getHalfOpenCalls(), Types.INTEGER);
+                stmt.executeUpdate();
+                circuitBreakerId = cb.getId();
+                logger.info("Synchronized circuit breaker settings for route: " + route.getId());
+            } catch (SQLException e) {
+                logger.severe("Error inserting circuit breaker settings for route " + route.getId() + ": " + e.getMessage());
+                // Continue with other operations
+            }
+        }
+
+        Long retryId = null;
+        RetrySettings retry = route.getRetry();
+        if (retry != null) {
+            String insertRetrySql =
+                    "INSERT INTO gateway.retry_settings (id, route_id, max_attempts, retryable_statuses, backoff_ms, max_backoff_ms) " +
+                            "VALUES (?, ?, ?, ?, ?, ?)";
+
+            try (PreparedStatement stmt = conn.prepareStatement(insertRetrySql)) {
+                stmt.setLong(1, retry.getId());
+                stmt.setLong(2, route.getId());
+                stmt.setObject(3, retry.getMaxAttempts(), Types.INTEGER);
+                stmt.setString(4, retry.getRetryableStatuses());
+                stmt.setObject(5, retry.getBackoffMs(), Types.INTEGER);
+                stmt.setObject(6, retry.getMaxBackoffMs(), Types.INTEGER);
+                stmt.executeUpdate();
+                retryId = retry.getId();
+                logger.info("Synchronized retry settings for route: " + route.getId());
+            } catch (SQLException e) {
+                logger.severe("Error inserting retry settings for route " + route.getId() + ": " + e.getMessage());
+                // Continue with other operations
+            }
+        }
+
         // Insert route
         String insertRouteSql =
-                "INSERT INTO gateway.gateway_routes (id, uri, route_id, predicates, with_ip_filter, with_token, with_rate_limit) " +
-                        "VALUES (?, ?, ?, ?, ?, ?, ?)";
+                "INSERT INTO gateway.gateway_routes (id, uri, route_id, predicates, with_ip_filter, with_token, with_rate_limit, auth_policy, load_balancing, with_circuit_breaker, circuit_breaker_id, with_retry, retry_id) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
         try (PreparedStatement stmt = conn.prepareStatement(insertRouteSql)) {
             stmt.setLong(1, route.getId());
@@ -99,6 +178,12 @@ public class DataSyncService {
             stmt.setBoolean(5, route.getWithIpFilter());
             stmt.setBoolean(6, route.getWithToken());
             stmt.setBoolean(7, route.getWithRateLimit());
+            stmt.setString(8, route.getAuthPolicy());
+            stmt.setString(9, route.getLoadBalancing());
+            stmt.setBoolean(10, Boolean.TRUE.equals(route.getWithCircuitBreaker()));
+            stmt.setObject(11, circuitBreakerId, Types.BIGINT);
+            stmt.setBoolean(12, Boolean.TRUE.equals(route.getWithRetry()));
+            stmt.setObject(13, retryId, Types.BIGINT);
             stmt.executeUpdate();
             logger.info("Synchronized route: " + route.getId() + " - " + route.getPredicates());
         } catch (SQLException e) {
@@ -146,5 +231,26 @@ public class DataSyncService {
         } else {
             logger.info("No IPs to synchronize for route: " + route.getId());
         }
+
+        // Copy upstream targets if any
+        if (route.getUpstreamTargets() != null && !route.getUpstreamTargets().isEmpty()) {
+            String insertTargetSql =
+                    "INSERT INTO gateway.upstream_targets (id, gateway_route_id, uri, weight) " +
+                            "VALUES (?, ?, ?, ?)";
+
+            try (PreparedStatement stmt = conn.prepareStatement(insertTargetSql)) {
+                for (var target : route.getUpstreamTargets()) {
+                    stmt.setLong(1, target.getId());
+                    stmt.setLong(2, route.getId());
+                    stmt.setString(3, target.getUri());
+                    stmt.setInt(4, target.getWeight() != null ? target.getWeight() : 1);
+                    stmt.executeUpdate();
+                }
+                logger.info("Synchronized " + route.getUpstreamTargets().size() + " upstream targets for route: " + route.getId());
+            } catch (SQLException e) {
+                logger.severe("Error inserting upstream targets for route " + route.getId() + ": " + e.getMessage());
+                // Continue with other operations
+            }
+        }
     }
 }
\ No newline at end of file
@@ -1,10 +1,17 @@
 package com.example.token;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
 import java.security.interfaces.RSAPublicKey;
 import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @CrossOrigin(origins = "*")
 @RestController
@@ -13,19 +20,114 @@ public class AuthController {
 
     private final JwtUtil jwtUtil;
     private final RSAPublicKey rsaPublicKey;
+    private final JwksProvider jwksProvider;
+    private final IssuedTokenCache issuedTokenCache;
+    private final RevocationRegistry revocationRegistry;
+    private final Scheduler signingScheduler;
+    private final int maxBatchSize;
 
-    public AuthController(JwtUtil jwtUtil, RSAPublicKey rsaPublicKey) {
+    public AuthController(JwtUtil jwtUtil, RSAPublicKey rsaPublicKey, JwksProvider jwksProvider,
+                          IssuedTokenCache issuedTokenCache, RevocationRegistry revocationRegistry,
+                          Scheduler signingScheduler,
+                          @Value("${token.batch.max-size:1000}") int maxBatchSize) {
         this.jwtUtil = jwtUtil;
         this.rsaPublicKey = rsaPublicKey;
+        this.jwksProvider = jwksProvider;
+        this.issuedTokenCache = issuedTokenCache;
+        this.revocationRegistry = revocationRegistry;
+        this.signingScheduler = signingScheduler;
+        this.maxBatchSize = maxBatchSize;
     }
 
     @PostMapping("/token")
-    public ResponseEntity<String> generateToken(@RequestHeader("X-Client-Id") String clientId) {
+    public Mono<ResponseEntity<String>> generateToken(@RequestHeader("X-Client-Id") String clientId) {
         if (clientId != null && !clientId.isEmpty()) {
-            String token = jwtUtil.generateToken(clientId);
-            return ResponseEntity.ok(token);
+            long now = System.currentTimeMillis() / 1000;
+            // A still-fresh token is handed back without touching the signing pool.
+            String cached = issuedTokenCache.find(clientId, now);
+            if (cached != null) {
+                return Mono.just(ResponseEntity.ok(cached));
+            }
+            return Mono.fromCallable(() -> ResponseEntity.ok(issue(clientId, now)))
+                    .subscribeOn(signingScheduler);
         }
-        return ResponseEntity.status(401).body("Invalid client");
+        return Mono.just(ResponseEntity.status(401).body("Invalid client"));
+    }
+
+    /**
+     * Drops the client's cached token, so its next request gets a freshly signed one.
+     */
+    @DeleteMapping("/token/{clientId}")
+    public ResponseEntity<Void> forgetToken(@PathVariable String clientId) {
+        return issuedTokenCache.revoke(clientId)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Issues one token per client id, in request order. Signing is spread over the
+     * signing pool, so a deploy-time burst is one round-trip instead of hundreds.
+     */
+    @PostMapping("/token/batch")
+    public Mono<ResponseEntity<Map<String, String>>> generateTokens(@RequestBody List<String> clientIds) {
+        if (clientIds == null || clientIds.isEmpty() || clientIds.size() > maxBatchSize
+                || clientIds.stream().anyMatch(id -> id == null || id.isEmpty())) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        long issuedAt = System.currentTimeMillis() / 1000;
+        return Flux.fromIterable(clientIds)
+                .distinct()
+                .flatMapSequential(id -> {
+                    String cached = issuedTokenCache.find(id, issuedAt);
+                    return cached != null
+                            ? Mono.just(Map.entry(id, cached))
+                            : Mono.fromCallable(() -> Map.entry(id, issue(id, issuedAt))).subscribeOn(signingScheduler);
+                })
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue, LinkedHashMap::new)
+                .map(ResponseEntity::ok);
+    }
+
+    /**
+     * Revokes a single token ({"jti": "..."}) or every token issued so far to a client
+     * ({"clientId": "..."}). Returns the new revocation version.
+     */
+    @PostMapping("/revocations")
+    public ResponseEntity<Map<String, Long>> revoke(@RequestBody Map<String, String> request) {
+        String jti = request.get(RevocationRegistry.TYPE_JTI);
+        String clientId = request.get(RevocationRegistry.TYPE_CLIENT);
+        long version;
+        // A cached token covered by the revocation must not be handed out again. The cache is
+        // evicted after the revocation is registered, so a token signed meanwhile cannot be
+        // cached behind it (see issue).
+        if (jti != null && !jti.isEmpty()) {
+            version = revocationRegistry.revoke(RevocationRegistry.TYPE_JTI, jti);
+            issuedTokenCache.revokeTokenId(jti);
+        } else if (clientId != null && !clientId.isEmpty()) {
+            version = revocationRegistry.revoke(RevocationRegistry.TYPE_CLIENT, clientId);
+            issuedTokenCache.revoke(clientId);
+        } else {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(Map.of("version", version));
+    }
+
+    /**
+     * Revocations after {@code since}, or a full snapshot when the caller's cursor has been compacted away.
+     */
+    @GetMapping("/revocations")
+    public RevocationRegistry.Delta getRevocations(@RequestParam(defaultValue = "0") long since) {
+        return revocationRegistry.changesSince(since);
+    }
+
+    private String issue(String clientId, long now) {
+        long issuedAt = revocationRegistry.issuedAtFor(clientId, now);
+        String token = jwtUtil.generateToken(clientId, issuedAt);
+        issuedTokenCache.put(clientId, token, issuedAt, issuedAt + jwtUtil.getTokenLifetimeSeconds());
+        // Revoked while it was being signed: the revocation's eviction may have run before the put.
+        if (revocationRegistry.isClientRevoked(clientId, issuedAt)) {
+            issuedTokenCache.revoke(clientId);
+        }
+        return token;
     }
 
     @GetMapping("/public-key")
@@ -35,5 +137,12 @@ public class AuthController {
                 "\n-----END PUBLIC KEY-----";
         return ResponseEntity.ok(publicKeyPEM);
     }
-}
 
+    @GetMapping("/jwks")
+    public ResponseEntity<Map<String, Object>> getJwks() {
+        // Gateways poll this and cache the result, so let intermediaries cache it briefly too.
+        return ResponseEntity.ok()
+                .header("Cache-Control", "public, max-age=60")
+                .body(jwksProvider.getJwkSet());
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.token;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers the last token issued per client so repeat requests can get the same token
+ * back instead of costing another private-key operation. A token is only handed out
+ * again while more than {@code token.reuse.min-remaining-fraction} of its lifetime is
+ * left; the map is LRU-bounded by {@code token.reuse.max-entries}.
+ */
+@Component
+public class IssuedTokenCache {
+
+    private static final String JTI_CLAIM = "\"jti\":\"";
+
+    private final boolean enabled;
+    private final double minRemainingFraction;
+    private final Map<String, IssuedToken> tokens;
+
+    public IssuedTokenCache(@Value("${token.reuse.enabled:true}") boolean enabled,
+                            @Value("${token.reuse.min-remaining-fraction:0.5}") double minRemainingFraction,
+                            @Value("${token.reuse.max-entries:10000}") int maxEntries) {
+        this.enabled = enabled;
+        this.minRemainingFraction = minRemainingFraction;
+        this.tokens = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, IssuedToken> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the client's current token if it is still fresh enough to reuse, else null.
+     * Entries that have aged past the threshold are dropped on the way.
+     */
+    public String find(String clientId, long nowSeconds) {
+        if (!enabled) {
+            return null;
+        }
+        synchronized (tokens) {
+            IssuedToken issued = tokens.get(clientId);
+            if (issued == null) {
+                return null;
+            }
+            long lifetime = issued.expiresAt - issued.issuedAt;
+            if (issued.expiresAt - nowSeconds > lifetime * minRemainingFraction) {
+                return issued.token;
+            }
+            tokens.remove(clientId);
+            return null;
+        }
+    }
+
+    public void put(String clientId, String token, long issuedAt, long expiresAt) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (tokens) {
+            tokens.put(clientId, new IssuedToken(token, tokenIdOf(token), issuedAt, expiresAt));
+        }
+    }
+
+    /**
+     * Forgets the client's cached token so the next request is signed afresh.
+     * @return true if a token was cached
+     */
+    public boolean revoke(String clientId) {
+        synchronized (tokens) {
+            return tokens.remove(clientId) != null;
+        }
+    }
+
+    /**
+     * Forgets the cached token with this jti, if any, so a revoked token is not handed out again.
+     * A linear scan, which is fine for something as rare as a revocation.
+     * @return true if a token was cached
+     */
+    public boolean revokeTokenId(String jti) {
+        synchronized (tokens) {
+            for (Iterator<IssuedToken> it = tokens.values().iterator(); it.hasNext(); ) {
+                if (jti.equals(it.next().tokenId)) {
+                    it.remove();
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // JwtUtil writes the jti as a plain hex string, so no JSON parsing is needed to find it.
+    private static String tokenIdOf(String token) {
+        int start = token.indexOf('.');
+        int end = token.indexOf('.', start + 1);
+        if (start < 0 || end < 0) {
+            return null;
+        }
+        String claims = new String(Base64.getUrlDecoder().decode(token.substring(start + 1, end)), StandardCharsets.UTF_8);
+        int from = claims.indexOf(JTI_CLAIM);
+        if (from < 0) {
+            return null;
+        }
+        from += JTI_CLAIM.length();
+        int to = claims.indexOf('"', from);
+        return to < 0 ? null : claims.substring(from, to);
+    }
+
+    private static final class IssuedToken {
+        private final String token;
+        private final String tokenId;
+        private final long issuedAt;
+        private final long expiresAt;
+
+        private IssuedToken(String token, String tokenId, long issuedAt, long expiresAt) {
+            this.token = token;
+            this.tokenId = tokenId;
+            this.issuedAt = issuedAt;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
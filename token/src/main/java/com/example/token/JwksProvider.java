@@ -0,0 +1,136 @@
+package com.example.token;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.EdECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Publishes the signing key (and any retired keys still inside their token lifetime)
+ * as a JWK Set. Key ids are RFC 7638 thumbprints so gateways that still load the
+ * PEM file derive the same kid.
+ */
+@Slf4j
+@Component
+public class JwksProvider {
+
+    private final Map<String, Object> jwkSet;
+
+    public JwksProvider(SigningKey signingKey,
+                        RSAPublicKey rsaPublicKey,
+                        @Value("${token.jwks.previous-keys:}") String[] previousKeyFiles) {
+        List<Map<String, Object>> keys = new ArrayList<>();
+        keys.add(toJwk(signingKey.getPublicKey(), signingKey.getAlgorithm(), signingKey.getKeyId()));
+        // While migrating off RS256, keep the RSA key published so already-issued tokens still verify.
+        if (!"RS256".equals(signingKey.getAlgorithm())) {
+            keys.add(toJwk(rsaPublicKey, "RS256", thumbprint(rsaPublicKey)));
+        }
+        for (String file : previousKeyFiles) {
+            if (file == null || file.isBlank()) continue;
+            try {
+                RSAPublicKey previous = readPem(file.trim());
+                keys.add(toJwk(previous, "RS256", thumbprint(previous)));
+            } catch (Exception e) {
+                log.warn("Skipping previous public key {}: {}", file, e.getMessage());
+            }
+        }
+        this.jwkSet = Collections.singletonMap("keys", Collections.unmodifiableList(keys));
+        log.info("JWKS ready with {} key(s), active kid={}", keys.size(), signingKey.getKeyId());
+    }
+
+    public Map<String, Object> getJwkSet() {
+        return jwkSet;
+    }
+
+    private static Map<String, Object> toJwk(PublicKey key, String alg, String kid) {
+        Map<String, Object> jwk = new LinkedHashMap<>(requiredMembers(key));
+        jwk.put("use", "sig");
+        jwk.put("alg", alg);
+        jwk.put("kid", kid);
+        return jwk;
+    }
+
+    // The members RFC 7638 hashes for each key type, already in lexicographic order.
+    private static Map<String, String> requiredMembers(PublicKey key) {
+        Map<String, String> members = new LinkedHashMap<>();
+        if (key instanceof RSAPublicKey rsa) {
+            members.put("e", base64Url(rsa.getPublicExponent(), 0));
+            members.put("kty", "RSA");
+            members.put("n", base64Url(rsa.getModulus(), 0));
+        } else if (key instanceof ECPublicKey ec) {
+            members.put("crv", "P-256");
+            members.put("kty", "EC");
+            members.put("x", base64Url(ec.getW().getAffineX(), 32));
+            members.put("y", base64Url(ec.getW().getAffineY(), 32));
+        } else if (key instanceof EdECPublicKey) {
+            // The raw 32-byte key is the tail of the X.509 encoding.
+            byte[] encoded = key.getEncoded();
+            members.put("crv", "Ed25519");
+            members.put("kty", "OKP");
+            members.put("x", Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(Arrays.copyOfRange(encoded, encoded.length - 32, encoded.length)));
+        } else {
+            throw new IllegalArgumentException("Unsupported key type: " + key.getAlgorithm());
+        }
+        return members;
+    }
+
+    // RFC 7638: SHA-256 over the required members in lexicographic order, no whitespace.
+    static String thumbprint(PublicKey key) {
+        StringBuilder canonical = new StringBuilder("{");
+        requiredMembers(key).forEach((name, value) -> {
+            if (canonical.length() > 1) canonical.append(',');
+            canonical.append('"').append(name).append("\":\"").append(value).append('"');
+        });
+        canonical.append('}');
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(canonical.toString().getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (Exception e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // Unsigned big-endian bytes, left-padded to a fixed width when one is given (EC coordinates).
+    private static String base64Url(BigInteger value, int width) {
+        byte[] bytes = value.toByteArray();
+        // Drop the sign byte BigInteger adds for values with the high bit set.
+        if (bytes.length > 1 && bytes[0] == 0) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        if (width > bytes.length) {
+            byte[] padded = new byte[width];
+            System.arraycopy(bytes, 0, padded, width - bytes.length, bytes.length);
+            bytes = padded;
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static RSAPublicKey readPem(String file) throws Exception {
+        String pem = Files.readString(Paths.get(file))
+                .replace("-----BEGIN PUBLIC KEY-----", "")
+                .replace("-----END PUBLIC KEY-----", "")
+                .replaceAll("\\s", "");
+        byte[] decoded = Base64.getDecoder().decode(pem);
+        return (RSAPublicKey) KeyFactory.getInstance("RSA").generatePublic(new X509EncodedKeySpec(decoded));
+    }
+}
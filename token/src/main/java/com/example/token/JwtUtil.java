@@ -1,32 +1,104 @@
 package com.example.token;
 
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.stereotype.Component;
-import java.security.interfaces.RSAPrivateKey;
-import java.util.Date;
-import java.util.HashMap;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Signature;
+import java.util.Base64;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 
+/**
+ * Issues compact JWS tokens. Signing goes straight through the JCA so the same code
+ * path serves RS256, ES256 and EdDSA (which JJWT 0.11 cannot produce).
+ *
+ * The header never changes, so it is encoded once; the claims are written into a
+ * per-thread buffer and each signing thread keeps its own initialised {@link Signature}.
+ */
 @Component
 public class JwtUtil {
 
-    private final RSAPrivateKey privateKey;
+    private static final long TOKEN_LIFETIME_SECONDS = 60L * 60 * 24 * 30;
+    private static final Base64.Encoder BASE64_URL = Base64.getUrlEncoder().withoutPadding();
+
+    private final SigningKey signingKey;
+    private final String encodedHeaderWithDot;
+    private final ThreadLocal<Signature> signatures;
+    private final ThreadLocal<StringBuilder> claimBuffers = ThreadLocal.withInitial(() -> new StringBuilder(128));
+
+    public JwtUtil(SigningKey signingKey, ObjectMapper objectMapper) throws JsonProcessingException {
+        this.signingKey = signingKey;
+
+        Map<String, Object> header = new LinkedHashMap<>();
+        header.put("alg", signingKey.getAlgorithm());
+        header.put("kid", signingKey.getKeyId());
+        this.encodedHeaderWithDot = BASE64_URL.encodeToString(objectMapper.writeValueAsBytes(header)) + ".";
 
-    public JwtUtil(RSAPrivateKey privateKey) {
-        this.privateKey = privateKey;
+        this.signatures = ThreadLocal.withInitial(() -> {
+            try {
+                Signature signature = Signature.getInstance(signingKey.getJcaAlgorithm());
+                signature.initSign(signingKey.getPrivateKey());
+                return signature;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Cannot initialise " + signingKey.getJcaAlgorithm() + " signer", e);
+            }
+        });
     }
 
     public String generateToken(String clientId) {
-        Map<String, Object> claims = new HashMap<>();
-        claims.put("clientId", clientId);
-       // claims.put("roles", "USER");
-
-        return Jwts.builder()
-                .setClaims(claims)
-                .setIssuedAt(new Date())
-                .setExpiration(new Date(System.currentTimeMillis() + 1000L * 60 * 60 * 24 * 30))
-                .signWith(privateKey, SignatureAlgorithm.RS256)
-                .compact();
+        return generateToken(clientId, System.currentTimeMillis() / 1000);
+    }
+
+    public String generateToken(String clientId, long issuedAtSeconds) {
+        StringBuilder claims = claimBuffers.get();
+        claims.setLength(0);
+        claims.append("{\"clientId\":\"");
+        appendJsonEscaped(claims, clientId);
+        claims.append("\",\"jti\":\"").append(newTokenId())
+                .append("\",\"iat\":").append(issuedAtSeconds)
+                .append(",\"exp\":").append(issuedAtSeconds + TOKEN_LIFETIME_SECONDS)
+                .append('}');
+
+        String signingInput = encodedHeaderWithDot
+                + BASE64_URL.encodeToString(claims.toString().getBytes(StandardCharsets.UTF_8));
+        try {
+            // sign() resets the Signature, so the thread's instance is ready for the next token.
+            Signature signature = signatures.get();
+            signature.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+            return signingInput + "." + BASE64_URL.encodeToString(signature.sign());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to sign token for " + clientId, e);
+        }
+    }
+
+    public long getTokenLifetimeSeconds() {
+        return TOKEN_LIFETIME_SECONDS;
+    }
+
+    public String getAlgorithm() {
+        return signingKey.getAlgorithm();
+    }
+
+    // 128 random bits; the id only has to be unique, the signature already makes it unforgeable.
+    private static String newTokenId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return Long.toHexString(random.nextLong() | Long.MIN_VALUE) + Long.toHexString(random.nextLong() | Long.MIN_VALUE);
+    }
+
+    private static void appendJsonEscaped(StringBuilder out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
     }
 }
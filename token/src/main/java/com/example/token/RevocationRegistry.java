@@ -0,0 +1,258 @@
+package com.example.token;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Versioned log of revocations. Gateways poll {@link #changesSince(long)} and apply only
+ * what they have not seen; once an entry can no longer match a live token it is compacted
+ * away, and gateways that are further behind than that receive a full snapshot instead.
+ *
+ * A client revocation rejects every token of that client issued at or before the
+ * revocation time; a jti revocation rejects exactly one token. Gateways compare client
+ * revocations with iat in whole seconds, so a token issued to a client after its revocation
+ * is stamped with a later second (see {@link #issuedAtFor}).
+ */
+@Slf4j
+@Component
+public class RevocationRegistry {
+
+    public static final String TYPE_JTI = "jti";
+    public static final String TYPE_CLIENT = "clientId";
+
+    private final ObjectMapper objectMapper;
+    private final long tokenLifetimeSeconds;
+    private final Path storeFile;
+
+    private final List<Revocation> entries = new ArrayList<>();
+    // clientId -> revokedAt of its latest live revocation; read on every issuance, outside the lock
+    private final Map<String, Long> clientCutoffs = new ConcurrentHashMap<>();
+    private long version;
+    // Deltas starting at or after this version are complete; older cursors need a snapshot.
+    private long compactedThrough;
+
+    public RevocationRegistry(ObjectMapper objectMapper, JwtUtil jwtUtil,
+                              @Value("${token.revocation.store-file:}") String storeFile) {
+        this.objectMapper = objectMapper;
+        this.tokenLifetimeSeconds = jwtUtil.getTokenLifetimeSeconds();
+        this.storeFile = storeFile.isBlank() ? null : Paths.get(storeFile);
+        load();
+    }
+
+    public synchronized long revoke(String type, String value) {
+        long now = System.currentTimeMillis() / 1000;
+        compact(now);
+        Revocation revocation = new Revocation(++version, type, value, now, now + tokenLifetimeSeconds);
+        entries.add(revocation);
+        track(revocation);
+        append(revocation);
+        log.info("Revoked {} {} at version {}", type, value, version);
+        return version;
+    }
+
+    /**
+     * @return the iat for a token issued to {@code clientId} at {@code now}: the next second
+     *         if the client was revoked in this very second, so the new token is not covered
+     */
+    public long issuedAtFor(String clientId, long now) {
+        Long cutoff = clientCutoffs.get(clientId);
+        return cutoff != null && cutoff >= now ? cutoff + 1 : now;
+    }
+
+    /**
+     * @return true if a client revocation covers a token issued to it at {@code issuedAt}
+     */
+    public boolean isClientRevoked(String clientId, long issuedAt) {
+        Long cutoff = clientCutoffs.get(clientId);
+        return cutoff != null && issuedAt <= cutoff;
+    }
+
+    public synchronized Delta changesSince(long since) {
+        compact(System.currentTimeMillis() / 1000);
+        boolean full = since < compactedThrough || since > version;
+        List<Revocation> changes = new ArrayList<>();
+        for (Revocation entry : entries) {
+            if (full || entry.getVersion() > since) {
+                changes.add(entry);
+            }
+        }
+        return new Delta(version, full, Collections.unmodifiableList(changes));
+    }
+
+    // Entries are appended in expiry order, so expired ones are always a prefix.
+    private void compact(long now) {
+        int expired = 0;
+        while (expired < entries.size() && entries.get(expired).getExpiresAt() < now) {
+            expired++;
+        }
+        if (expired > 0) {
+            Revocation newestExpired = entries.get(expired - 1);
+            compactedThrough = newestExpired.getVersion();
+            for (Revocation entry : entries.subList(0, expired)) {
+                if (TYPE_CLIENT.equals(entry.getType())) {
+                    clientCutoffs.remove(entry.getValue(), entry.getRevokedAt());
+                }
+            }
+            entries.subList(0, expired).clear();
+            rewrite(newestExpired);
+        }
+    }
+
+    private void track(Revocation revocation) {
+        if (TYPE_CLIENT.equals(revocation.getType())) {
+            clientCutoffs.merge(revocation.getValue(), revocation.getRevokedAt(), Math::max);
+        }
+    }
+
+    private void load() {
+        if (storeFile == null) {
+            log.warn("token.revocation.store-file is not set; revocations will not survive a restart");
+            return;
+        }
+        if (!Files.exists(storeFile)) {
+            return;
+        }
+        try {
+            for (String line : Files.readAllLines(storeFile, StandardCharsets.UTF_8)) {
+                if (line.isBlank()) continue;
+                Revocation revocation = objectMapper.readValue(line, Revocation.class);
+                entries.add(revocation);
+                track(revocation);
+                version = Math.max(version, revocation.getVersion());
+            }
+            compact(System.currentTimeMillis() / 1000);
+            log.info("Loaded {} live revocation(s) from {}, version {}", entries.size(), storeFile, version);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to read revocations from " + storeFile, e);
+        }
+    }
+
+    private void append(Revocation revocation) {
+        if (storeFile == null) {
+            return;
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(storeFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(objectMapper.writeValueAsString(revocation));
+            writer.newLine();
+        } catch (IOException e) {
+            log.error("Unable to persist revocation {}: {}", revocation.getVersion(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Replaces the store file with the live entries, so it does not grow with every revocation
+     * ever made. With none left, the newest expired entry is kept to carry the version over a
+     * restart; it is compacted away again on load.
+     */
+    private void rewrite(Revocation newestExpired) {
+        if (storeFile == null) {
+            return;
+        }
+        Path temp = storeFile.resolveSibling(storeFile.getFileName() + ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (Revocation revocation : entries.isEmpty() ? List.of(newestExpired) : entries) {
+                    writer.write(objectMapper.writeValueAsString(revocation));
+                    writer.newLine();
+                }
+            }
+            Files.move(temp, storeFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("Unable to compact {}: {}", storeFile, e.getMessage(), e);
+        }
+    }
+
+    public static class Revocation {
+        private long version;
+        private String type;
+        private String value;
+        private long revokedAt;
+        private long expiresAt;
+
+        public Revocation() {}
+
+        public Revocation(long version, String type, String value, long revokedAt, long expiresAt) {
+            this.version = version;
+            this.type = type;
+            this.value = value;
+            this.revokedAt = revokedAt;
+            this.expiresAt = expiresAt;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+        public void setVersion(long version) {
+            this.version = version;
+        }
+
+        public String getType() {
+            return type;
+        }
+        public void setType(String type) {
+            this.type = type;
+        }
+
+        public String getValue() {
+            return value;
+        }
+        public void setValue(String value) {
+            this.value = value;
+        }
+
+        public long getRevokedAt() {
+            return revokedAt;
+        }
+        public void setRevokedAt(long revokedAt) {
+            this.revokedAt = revokedAt;
+        }
+
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+        public void setExpiresAt(long expiresAt) {
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    public static class Delta {
+        private final long version;
+        private final boolean full;
+        private final List<Revocation> entries;
+
+        public Delta(long version, boolean full, List<Revocation> entries) {
+            this.version = version;
+            this.full = full;
+            this.entries = entries;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public boolean isFull() {
+            return full;
+        }
+
+        public List<Revocation> getEntries() {
+            return entries;
+        }
+    }
+}
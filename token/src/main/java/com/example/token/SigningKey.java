@@ -0,0 +1,59 @@
+package com.example.token;
+
+import java.security.PrivateKey;
+import java.security.PublicKey;
+
+/**
+ * The key pair tokens are currently signed with, together with its JWS algorithm
+ * name, the matching JCA signature algorithm and its kid.
+ */
+public class SigningKey {
+
+    private final String algorithm;
+    private final String jcaAlgorithm;
+    private final PrivateKey privateKey;
+    private final PublicKey publicKey;
+    private final String keyId;
+
+    public SigningKey(String algorithm, PrivateKey privateKey, PublicKey publicKey) {
+        this.algorithm = algorithm;
+        this.jcaAlgorithm = jcaAlgorithmFor(algorithm);
+        this.privateKey = privateKey;
+        this.publicKey = publicKey;
+        this.keyId = JwksProvider.thumbprint(publicKey);
+    }
+
+    public static String jcaAlgorithmFor(String algorithm) {
+        switch (algorithm) {
+            case "RS256":
+                return "SHA256withRSA";
+            case "ES256":
+                // JWS wants the raw R||S signature, not DER; the JDK can produce it directly.
+                return "SHA256withECDSAinP1363Format";
+            case "EdDSA":
+                return "Ed25519";
+            default:
+                throw new IllegalArgumentException("Unsupported signing algorithm: " + algorithm);
+        }
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public String getJcaAlgorithm() {
+        return jcaAlgorithm;
+    }
+
+    public PrivateKey getPrivateKey() {
+        return privateKey;
+    }
+
+    public PublicKey getPublicKey() {
+        return publicKey;
+    }
+
+    public String getKeyId() {
+        return keyId;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.token;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.vault.core.VaultTemplate;
+import org.springframework.vault.support.VaultResponse;
+
+import java.security.KeyFactory;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Chooses the key tokens are signed with. RS256 keeps using the existing Vault RSA key;
+ * ES256 (P-256) and EdDSA (Ed25519) read a PKCS#8 private key and X.509 public key
+ * from {@code token.signing.vault-path}.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "spring.cloud.vault.enabled", havingValue = "true")
+public class SigningKeyConfig {
+
+    @Bean
+    public SigningKey signingKey(VaultTemplate vaultTemplate,
+                                 RSAPrivateKey rsaPrivateKey,
+                                 RSAPublicKey rsaPublicKey,
+                                 @Value("${token.signing.algorithm:RS256}") String algorithm,
+                                 @Value("${token.signing.vault-path:}") String vaultPath) {
+        if ("RS256".equals(algorithm)) {
+            return new SigningKey(algorithm, rsaPrivateKey, rsaPublicKey);
+        }
+        String keyType;
+        switch (algorithm) {
+            case "ES256":
+                keyType = "EC";
+                break;
+            case "EdDSA":
+                keyType = "Ed25519";
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported token.signing.algorithm: " + algorithm);
+        }
+        String path = vaultPath.isBlank() ? "secret/data/myapp/" + algorithm.toLowerCase() : vaultPath;
+        try {
+            VaultResponse response = vaultTemplate.read(path);
+            if (response == null || response.getData() == null) {
+                throw new IllegalStateException("No secret at " + path);
+            }
+            Map<String, Object> data = (Map<String, Object>) response.getData().get("data");
+            KeyFactory keyFactory = KeyFactory.getInstance(keyType);
+            SigningKey key = new SigningKey(algorithm,
+                    keyFactory.generatePrivate(new PKCS8EncodedKeySpec(decodePem((String) data.get("private_key")))),
+                    keyFactory.generatePublic(new X509EncodedKeySpec(decodePem((String) data.get("public_key")))));
+            log.info("Signing tokens with {} key {}", algorithm, key.getKeyId());
+            return key;
+        } catch (Exception e) {
+            log.error("Error loading {} signing key from Vault path {}: {}", algorithm, path, e.getMessage(), e);
+            throw new RuntimeException("Unable to load " + algorithm + " signing key from Vault", e);
+        }
+    }
+
+    private static byte[] decodePem(String pem) {
+        String keyContent = Arrays.stream(pem.split("\\r?\\n"))
+                .filter(line -> !line.startsWith("-----"))
+                .collect(Collectors.joining());
+        return Base64.getDecoder().decode(keyContent.trim());
+    }
+}
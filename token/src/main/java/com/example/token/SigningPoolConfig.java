@@ -0,0 +1,21 @@
+package com.example.token;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Private-key operations are pure CPU, so they run on their own bounded pool instead of
+ * the Netty event loop; a burst of token requests then cannot stall other I/O.
+ */
+@Configuration
+public class SigningPoolConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public Scheduler signingScheduler(@Value("${token.signing.threads:0}") int threads) {
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return Schedulers.newParallel("token-signer", size, true);
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.token;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Base64;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuthControllerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Scheduler signingScheduler = Schedulers.newSingle("token-signer", true);
+    private SigningKey signingKey;
+    private JwtUtil jwtUtil;
+    private IssuedTokenCache cache;
+    private RevocationRegistry registry;
+    private WebTestClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair pair = generator.generateKeyPair();
+        signingKey = new SigningKey("RS256", pair.getPrivate(), pair.getPublic());
+        jwtUtil = new JwtUtil(signingKey, objectMapper);
+        cache = new IssuedTokenCache(true, 0.5, 100);
+        registry = new RevocationRegistry(objectMapper, jwtUtil, "");
+        client = client(cache);
+    }
+
+    private WebTestClient client(IssuedTokenCache cache) {
+        RSAPublicKey publicKey = (RSAPublicKey) signingKey.getPublicKey();
+        AuthController controller = new AuthController(jwtUtil, publicKey,
+                new JwksProvider(signingKey, publicKey, new String[0]),
+                cache, registry, signingScheduler, 1000);
+        return WebTestClient.bindToController(controller).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        signingScheduler.dispose();
+    }
+
+    @Test
+    void aTokenIssuedInTheSecondOfTheClientsRevocationIsNotCoveredByIt() throws Exception {
+        String revoked = issue("c1");
+        assertEquals(revoked, issue("c1"), "reused from the cache");
+
+        revoke("c1");
+        long revokedAt = registry.changesSince(0).getEntries().get(0).getRevokedAt();
+        long now = System.currentTimeMillis() / 1000;
+        assertNull(cache.find("c1", now), "the revoked token is evicted");
+
+        // Almost always the same second as the revocation.
+        String fresh = issue("c1");
+        assertNotEquals(revoked, fresh);
+        assertTrue(registry.isClientRevoked("c1", issuedAt(revoked)));
+        assertTrue(issuedAt(fresh) > revokedAt);
+        assertFalse(registry.isClientRevoked("c1", issuedAt(fresh)));
+        assertEquals(fresh, issue("c1"));
+    }
+
+    @Test
+    void aTokenSignedWhileTheClientIsRevokedIsNotCached() throws Exception {
+        // The revocation, eviction included, lands between signing and caching.
+        IssuedTokenCache racing = new IssuedTokenCache(true, 0.5, 100) {
+            @Override
+            public void put(String clientId, String token, long issuedAt, long expiresAt) {
+                registry.revoke(RevocationRegistry.TYPE_CLIENT, clientId);
+                revoke(clientId);
+                super.put(clientId, token, issuedAt, expiresAt);
+            }
+        };
+        cache = racing;
+        client = client(racing);
+
+        String token = issue("c1");
+
+        assertTrue(registry.isClientRevoked("c1", issuedAt(token)));
+        assertNull(racing.find("c1", issuedAt(token)), "a revoked token must not be handed out again");
+    }
+
+    private String issue(String clientId) {
+        return client.post().uri("/auth/token")
+                .header("X-Client-Id", clientId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .returnResult().getResponseBody();
+    }
+
+    private void revoke(String clientId) {
+        client.post().uri("/auth/revocations")
+                .bodyValue(Map.of(RevocationRegistry.TYPE_CLIENT, clientId))
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    private long issuedAt(String token) throws Exception {
+        String payload = token.substring(token.indexOf('.') + 1, token.lastIndexOf('.'));
+        JsonNode claims = objectMapper.readTree(Base64.getUrlDecoder().decode(payload));
+        return claims.get("iat").asLong();
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.token;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IssuedTokenCacheTest {
+
+    @Test
+    void revokingATokenIdEvictsOnlyThatToken() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("Ed25519");
+        KeyPair pair = generator.generateKeyPair();
+        JwtUtil jwtUtil = new JwtUtil(new SigningKey("EdDSA", pair.getPrivate(), pair.getPublic()), new ObjectMapper());
+        IssuedTokenCache cache = new IssuedTokenCache(true, 0.5, 100);
+        long now = System.currentTimeMillis() / 1000;
+        long expiresAt = now + jwtUtil.getTokenLifetimeSeconds();
+        String first = jwtUtil.generateToken("first", now);
+        String second = jwtUtil.generateToken("second", now);
+        cache.put("first", first, now, expiresAt);
+        cache.put("second", second, now, expiresAt);
+
+        assertFalse(cache.revokeTokenId("0000"));
+        assertTrue(cache.revokeTokenId(tokenId(first)));
+
+        assertNull(cache.find("first", now));
+        assertEquals(second, cache.find("second", now));
+    }
+
+    private static String tokenId(String token) throws Exception {
+        String claims = new String(Base64.getUrlDecoder().decode(token.split("\\.")[1]), StandardCharsets.UTF_8);
+        return new ObjectMapper().readTree(claims).get("jti").asText();
+    }
+}
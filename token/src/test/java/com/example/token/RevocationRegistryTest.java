@@ -0,0 +1,98 @@
+package com.example.token;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RevocationRegistryTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void expiredRevocationsAreCompactedOutOfTheStoreFile() throws Exception {
+        long now = System.currentTimeMillis() / 1000;
+        Path store = dir.resolve("revocations.jsonl");
+        Files.write(store, List.of(
+                line(new RevocationRegistry.Revocation(1, RevocationRegistry.TYPE_JTI, "a", now - 200, now - 100)),
+                line(new RevocationRegistry.Revocation(2, RevocationRegistry.TYPE_CLIENT, "c", now - 150, now - 50)),
+                line(new RevocationRegistry.Revocation(3, RevocationRegistry.TYPE_JTI, "b", now - 10, now + 1000))));
+
+        RevocationRegistry registry = registry(store);
+
+        List<String> lines = Files.readAllLines(store, StandardCharsets.UTF_8);
+        assertEquals(1, lines.size());
+        assertTrue(lines.get(0).contains("\"b\""));
+        assertEquals(3, registry.changesSince(0).getVersion());
+        assertEquals(4, registry.revoke(RevocationRegistry.TYPE_JTI, "d"));
+        assertEquals(2, Files.readAllLines(store, StandardCharsets.UTF_8).size());
+    }
+
+    @Test
+    void versionSurvivesARestartAfterEverythingExpired() throws Exception {
+        long now = System.currentTimeMillis() / 1000;
+        Path store = dir.resolve("revocations.jsonl");
+        Files.write(store, List.of(
+                line(new RevocationRegistry.Revocation(6, RevocationRegistry.TYPE_JTI, "a", now - 200, now - 100)),
+                line(new RevocationRegistry.Revocation(7, RevocationRegistry.TYPE_JTI, "b", now - 150, now - 50))));
+
+        registry(store);
+        assertEquals(1, Files.readAllLines(store, StandardCharsets.UTF_8).size());
+
+        RevocationRegistry.Delta delta = registry(store).changesSince(0);
+        assertEquals(7, delta.getVersion());
+        assertTrue(delta.getEntries().isEmpty());
+    }
+
+    @Test
+    void tokensIssuedInTheSecondOfAClientRevocationGetTheNextSecond() throws Exception {
+        RevocationRegistry registry = registry(dir.resolve("revocations.jsonl"));
+        registry.revoke(RevocationRegistry.TYPE_CLIENT, "c1");
+        long revokedAt = registry.changesSince(0).getEntries().get(0).getRevokedAt();
+
+        assertTrue(registry.isClientRevoked("c1", revokedAt));
+        assertEquals(revokedAt + 1, registry.issuedAtFor("c1", revokedAt));
+        assertFalse(registry.isClientRevoked("c1", registry.issuedAtFor("c1", revokedAt)));
+        assertEquals(revokedAt + 5, registry.issuedAtFor("c1", revokedAt + 5));
+        assertEquals(revokedAt, registry.issuedAtFor("c2", revokedAt));
+        assertFalse(registry.isClientRevoked("c2", revokedAt));
+    }
+
+    @Test
+    void clientCutoffsSurviveARestartAndGoWithTheirEntries() throws Exception {
+        long now = System.currentTimeMillis() / 1000;
+        Path store = dir.resolve("revocations.jsonl");
+        Files.write(store, List.of(
+                line(new RevocationRegistry.Revocation(1, RevocationRegistry.TYPE_CLIENT, "gone", now - 150, now - 50)),
+                line(new RevocationRegistry.Revocation(2, RevocationRegistry.TYPE_CLIENT, "c1", now, now + 1000))));
+
+        RevocationRegistry registry = registry(store);
+
+        assertTrue(registry.isClientRevoked("c1", now));
+        assertEquals(now + 1, registry.issuedAtFor("c1", now));
+        assertFalse(registry.isClientRevoked("gone", now - 200));
+    }
+
+    private RevocationRegistry registry(Path store) throws Exception {
+        KeyPair pair = KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+        JwtUtil jwtUtil = new JwtUtil(new SigningKey("EdDSA", pair.getPrivate(), pair.getPublic()), objectMapper);
+        return new RevocationRegistry(objectMapper, jwtUtil, store.toString());
+    }
+
+    private String line(RevocationRegistry.Revocation revocation) throws Exception {
+        return objectMapper.writeValueAsString(revocation);
+    }
+}
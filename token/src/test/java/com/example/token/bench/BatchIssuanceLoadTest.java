@@ -0,0 +1,157 @@
+package com.example.token.bench;
+
+import com.example.token.AuthController;
+import com.example.token.IssuedTokenCache;
+import com.example.token.JwksProvider;
+import com.example.token.JwtUtil;
+import com.example.token.RevocationRegistry;
+import com.example.token.SigningKey;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Signature;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * POST /auth/token/batch against the real controller, signing pool and an RS256 key
+ * generated for the test (no Vault). The load run is skipped in a normal build; run it
+ * with {@code mvn test -Dtest=BatchIssuanceLoadTest -Dbenchmark=true}, tuned with
+ * {@code -Dload.clients}, {@code -Dload.batch-size} and {@code -Dload.seconds}.
+ */
+class BatchIssuanceLoadTest {
+
+    private static final Base64.Decoder BASE64_URL = Base64.getUrlDecoder();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Scheduler signingScheduler =
+            Schedulers.newParallel("token-signer", Runtime.getRuntime().availableProcessors(), true);
+
+    @AfterEach
+    void tearDown() {
+        signingScheduler.dispose();
+    }
+
+    @Test
+    void batchIssuesOneVerifiableTokenPerClientInRequestOrder() throws Exception {
+        SigningKey signingKey = BenchmarkKeys.generate("RS256");
+        WebTestClient client = client(signingKey, true);
+        List<String> clientIds = clientIds("client", 200);
+
+        Map<String, String> tokens = issueBatch(client, clientIds);
+
+        assertEquals(clientIds, new ArrayList<>(tokens.keySet()));
+        Signature verifier = Signature.getInstance(signingKey.getJcaAlgorithm());
+        verifier.initVerify(signingKey.getPublicKey());
+        Set<Long> issuedAt = new HashSet<>();
+        for (Map.Entry<String, String> entry : tokens.entrySet()) {
+            String token = entry.getValue();
+            int dot = token.lastIndexOf('.');
+            verifier.update(token.substring(0, dot).getBytes(StandardCharsets.US_ASCII));
+            assertTrue(verifier.verify(BASE64_URL.decode(token.substring(dot + 1))), entry.getKey());
+            JsonNode claims = objectMapper.readTree(BASE64_URL.decode(token.substring(token.indexOf('.') + 1, dot)));
+            assertEquals(entry.getKey(), claims.get("clientId").asText());
+            issuedAt.add(claims.get("iat").asLong());
+        }
+        assertEquals(1, issuedAt.size(), "a batch shares one iat");
+
+        // Fresh tokens are handed back from the cache instead of being signed again.
+        assertEquals(tokens, issueBatch(client, clientIds));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void sustainedBatchLoad() throws Exception {
+        int clients = Integer.getInteger("load.clients", 4);
+        int batchSize = Integer.getInteger("load.batch-size", 100);
+        long seconds = Long.getLong("load.seconds", 10);
+        // Without reuse every id is signed, so the run measures the signing pool.
+        WebTestClient client = client(BenchmarkKeys.generate("RS256"), false)
+                .mutate().responseTimeout(Duration.ofMinutes(1)).build();
+        issueBatch(client, clientIds("warmup", batchSize));
+
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        long start = System.nanoTime();
+        List<Future<long[]>> results = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            String prefix = "load-" + c;
+            results.add(executor.submit(() -> {
+                long batches = 0;
+                long slowestNanos = 0;
+                List<String> ids = clientIds(prefix, batchSize);
+                while (System.nanoTime() < deadline) {
+                    long begin = System.nanoTime();
+                    assertEquals(batchSize, issueBatch(client, ids).size());
+                    slowestNanos = Math.max(slowestNanos, System.nanoTime() - begin);
+                    batches++;
+                }
+                return new long[]{batches, slowestNanos};
+            }));
+        }
+        long batches = 0;
+        long slowestNanos = 0;
+        for (Future<long[]> result : results) {
+            long[] counts = result.get();
+            batches += counts[0];
+            slowestNanos = Math.max(slowestNanos, counts[1]);
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        executor.shutdown();
+        System.out.printf("%d clients x %d ids/batch on %d signing threads: %d batches in %.1f s, "
+                        + "%.0f tokens/s, slowest batch %d ms%n",
+                clients, batchSize, Runtime.getRuntime().availableProcessors(), batches, elapsed,
+                batches * batchSize / elapsed, TimeUnit.NANOSECONDS.toMillis(slowestNanos));
+    }
+
+    private WebTestClient client(SigningKey signingKey, boolean reuse) throws Exception {
+        JwtUtil jwtUtil = new JwtUtil(signingKey, objectMapper);
+        AuthController controller = new AuthController(jwtUtil,
+                (RSAPublicKey) signingKey.getPublicKey(),
+                new JwksProvider(signingKey, (RSAPublicKey) signingKey.getPublicKey(), new String[0]),
+                new IssuedTokenCache(reuse, 0.5, 10_000),
+                new RevocationRegistry(objectMapper, jwtUtil, ""),
+                signingScheduler,
+                1000);
+        return WebTestClient.bindToController(controller).build();
+    }
+
+    private static Map<String, String> issueBatch(WebTestClient client, List<String> clientIds) {
+        return client.post().uri("/auth/token/batch")
+                .bodyValue(clientIds)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(new ParameterizedTypeReference<Map<String, String>>() {})
+                .returnResult()
+                .getResponseBody();
+    }
+
+    private static List<String> clientIds(String prefix, int count) {
+        List<String> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(prefix + "-" + i);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.token.bench;
+
+import com.example.token.SigningKey;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+
+/**
+ * Fresh key pairs for the benchmarks, so they run without Vault.
+ */
+final class BenchmarkKeys {
+
+    private BenchmarkKeys() {
+    }
+
+    static SigningKey generate(String algorithm) throws GeneralSecurityException {
+        KeyPairGenerator generator;
+        switch (algorithm) {
+            case "RS256":
+                generator = KeyPairGenerator.getInstance("RSA");
+                generator.initialize(2048);
+                break;
+            case "ES256":
+                generator = KeyPairGenerator.getInstance("EC");
+                generator.initialize(new ECGenParameterSpec("secp256r1"));
+                break;
+            case "EdDSA":
+                generator = KeyPairGenerator.getInstance("Ed25519");
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported algorithm " + algorithm);
+        }
+        KeyPair pair = generator.generateKeyPair();
+        return new SigningKey(algorithm, pair.getPrivate(), pair.getPublic());
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.token.bench;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks of this package. Skipped in a normal build; run them with
+ * {@code mvn test -Dtest=BenchmarkTest -Dbenchmark=true}, optionally narrowed with
+ * {@code -Dbenchmark.include=<regex>}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class BenchmarkTest {
+
+    @Test
+    void runBenchmarks() throws Exception {
+        String include = System.getProperty("benchmark.include", BenchmarkTest.class.getPackageName() + ".");
+        new Runner(new OptionsBuilder().include(include).build()).run();
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.token.bench;
+
+import com.example.token.JwtUtil;
+import com.example.token.SigningKey;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Signature;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sign and verify throughput of one token per algorithm: signing through {@link JwtUtil},
+ * verifying with a plain JCA {@link Signature} over the token's signing input, as the
+ * gateway does. The signature size of each algorithm is printed at setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SigningBenchmark {
+
+    @Param({"RS256", "ES256", "EdDSA"})
+    public String algorithm;
+
+    private JwtUtil jwtUtil;
+    private Signature verifier;
+    private byte[] signingInput;
+    private byte[] signature;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        SigningKey signingKey = BenchmarkKeys.generate(algorithm);
+        jwtUtil = new JwtUtil(signingKey, new ObjectMapper());
+        verifier = Signature.getInstance(signingKey.getJcaAlgorithm());
+        verifier.initVerify(signingKey.getPublicKey());
+
+        String token = jwtUtil.generateToken("benchmark-client");
+        int dot = token.lastIndexOf('.');
+        signingInput = token.substring(0, dot).getBytes(StandardCharsets.US_ASCII);
+        signature = Base64.getUrlDecoder().decode(token.substring(dot + 1));
+        System.out.printf("%n%s signature: %d bytes (%d chars), token: %d chars%n",
+                algorithm, signature.length, token.length() - dot - 1, token.length());
+    }
+
+    @Benchmark
+    public String sign() {
+        return jwtUtil.generateToken("benchmark-client");
+    }
+
+    @Benchmark
+    public boolean verify() throws Exception {
+        verifier.update(signingInput);
+        return verifier.verify(signature);
+    }
+}